@@ -43,6 +43,7 @@ import org.apache.sis.util.logging.MonolineFormatter;
  * <tr><td>{@code crs}        </td><td>Show Coordinate Reference System information for the given file or code.</td></tr>
  * <tr><td>{@code identifier} </td><td>Show identifiers for metadata and referencing systems in the given file.</td></tr>
  * <tr><td>{@code transform}  </td><td>Convert or transform coordinates from given source CRS to target CRS.</td></tr>
+ * <tr><td>{@code snapshot}   </td><td>Write a snapshot of commonly used EPSG objects for faster startup.</td></tr>
  * </table></blockquote>
  *
  * Each command can accepts some of the following options:
@@ -72,7 +73,7 @@ import org.apache.sis.util.logging.MonolineFormatter;
  * at the Java Virtual Machine startup time. See {@linkplain org.apache.sis.console package javadoc} for more information.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 0.8
+ * @version 1.1
  * @since   0.3
  * @module
  */
@@ -158,6 +159,7 @@ public final class Command {
                 case "crs":        command = new CRSCommand       (commandIndex, args); break;
                 case "identifier": command = new IdentifierCommand(commandIndex, args); break;
                 case "transform":  command = new TransformCommand (commandIndex, args); break;
+                case "snapshot":   command = new SnapshotCommand  (commandIndex, args); break;
                 default: throw new InvalidCommandException(Errors.format(
                             Errors.Keys.UnknownCommand_1, commandName), commandName);
             }
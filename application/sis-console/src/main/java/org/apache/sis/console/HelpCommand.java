@@ -27,7 +27,7 @@ import org.apache.sis.util.resources.Vocabulary;
  * The "help" subcommand.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 0.8
+ * @version 1.1
  * @since   0.3
  * @module
  */
@@ -42,7 +42,8 @@ final class HelpCommand extends CommandRunner {
         "metadata",
         "crs",
         "identifier",
-        "transform"
+        "transform",
+        "snapshot"
     };
 
     /**
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.console;
+
+import java.util.EnumSet;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import org.apache.sis.internal.system.DataDirectory;
+import org.apache.sis.referencing.factory.sql.EPSGFactory;
+
+
+/**
+ * The "snapshot" subcommand.
+ * This sub-command writes a snapshot of the most commonly used coordinate reference systems of the EPSG dataset.
+ * The snapshot is written in the file given in argument, or in the {@value EPSGFactory#SNAPSHOT_FILE} file of
+ * the {@code $SIS_DATA/Databases} directory if no file is specified. In the latter case, {@link EPSGFactory}
+ * reads the snapshot automatically, which avoids database queries for the objects in the snapshot.
+ *
+ * {@preformat shell
+ *   sis snapshot [file]
+ * }
+ *
+ * The snapshot needs to be written again after every update of the EPSG dataset.
+ *
+ * @author  agent
+ * @version 1.1
+ *
+ * @see EPSGFactory#writeSnapshot(OutputStream)
+ *
+ * @since 1.1
+ * @module
+ */
+final class SnapshotCommand extends CommandRunner {
+    /**
+     * Creates the {@code "snapshot"} sub-command.
+     *
+     * @param  commandIndex  index of the {@code arguments} element containing the {@code "snapshot"} command name, or -1 if none.
+     * @param  arguments     the command-line arguments provided by the user.
+     * @throws InvalidOptionException if an illegal option has been provided, or the option has an illegal value.
+     */
+    SnapshotCommand(final int commandIndex, final String... arguments) throws InvalidOptionException {
+        super(commandIndex, arguments, EnumSet.of(Option.LOCALE, Option.ENCODING, Option.HELP, Option.DEBUG));
+    }
+
+    /**
+     * Writes the snapshot.
+     *
+     * @return 0 on success, or an exit code if the command failed for a reason other than an uncaught Java exception.
+     * @throws Exception if an error occurred while executing the sub-command.
+     */
+    @Override
+    public int run() throws Exception {
+        final Path dir = DataDirectory.DATABASES.getDirectory();
+        if (hasUnexpectedFileCount(dir != null ? 0 : 1, 1)) {
+            return Command.INVALID_ARGUMENT_EXIT_CODE;
+        }
+        final Path file = files.isEmpty() ? dir.resolve(EPSGFactory.SNAPSHOT_FILE) : Paths.get(files.get(0));
+        /*
+         * Write in a temporary file first, so that factories reading the snapshot
+         * in other processes never see a partially written file.
+         */
+        final EPSGFactory factory = new EPSGFactory(null);
+        try {
+            final Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), "EPSG", ".tmp");
+            final int count;
+            try (OutputStream stream = Files.newOutputStream(tmp)) {
+                count = factory.writeSnapshot(stream);
+            } catch (Exception e) {
+                Files.delete(tmp);
+                throw e;
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            out.print(count);
+            out.print(' ');
+            out.println(file);
+            out.flush();
+        } finally {
+            factory.close();
+        }
+        return 0;
+    }
+}
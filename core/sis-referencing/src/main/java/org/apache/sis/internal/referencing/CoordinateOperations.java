@@ -50,7 +50,7 @@ import org.apache.sis.util.collection.Containers;
  * until first needed. Contains also utility methods related to coordinate operations.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   0.7
  * @module
  */
@@ -80,6 +80,36 @@ public final class CoordinateOperations extends SystemListener {
      */
     public static final String OPERATION_TYPE_KEY = "operationType";
 
+    /**
+     * The key for specifying the maximal cost of coordinate operations retained by strong references in the cache
+     * of {@code DefaultCoordinateOperationFactory}. The cost of an operation is its number of steps. Operations
+     * beyond that limit are retained by soft references. The value shall be an {@link Integer} or {@link Long}.
+     */
+    public static final String CACHE_COST_LIMIT_KEY = "cacheCostLimit";
+
+    /**
+     * The key for specifying the delay after which coordinate operations are discarded from the cache
+     * of {@code DefaultCoordinateOperationFactory}. The value shall be a {@link java.time.Duration}.
+     * If this entry is absent, cached operations do not expire.
+     */
+    public static final String CACHE_EXPIRATION_KEY = "cacheExpiration";
+
+    /**
+     * The key for specifying the name under which to publish the cache statistics of a
+     * {@code DefaultCoordinateOperationFactory} as a JMX bean. The value shall be a {@link String}.
+     * The factory created by the no-argument constructor uses the {@value #DEFAULT_CACHE_NAME} name.
+     *
+     * @see OperationCacheMBean
+     */
+    public static final String CACHE_NAME_KEY = "cacheName";
+
+    /**
+     * The name of the cache statistics of the factory created by the no-argument constructor.
+     *
+     * @see #CACHE_NAME_KEY
+     */
+    public static final String DEFAULT_CACHE_NAME = "default";
+
     /**
      * Cached values or {@link #wrapAroundChanges wrapAroundChanges(…)}, created when first needed.
      * Indices are bit masks computed by {@link #changes changes(…)}. Since the most common "wrap around" axes
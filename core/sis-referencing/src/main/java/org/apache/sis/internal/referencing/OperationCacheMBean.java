@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.internal.referencing;
+
+
+/**
+ * Provides information about the cache of coordinate operations of a
+ * {@link org.apache.sis.referencing.operation.DefaultCoordinateOperationFactory}.
+ * Counters are cumulative since the creation of the factory or the last call to {@link #clear()}.
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+public interface OperationCacheMBean {
+    /**
+     * The domain and type of JMX object names of operation caches.
+     * The full name is completed by a {@code name} property.
+     */
+    String NAME = "org.apache.sis:type=OperationCache";
+
+    /**
+     * Returns the number of times that a requested operation has been found in the cache.
+     *
+     * @return number of cache hits.
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of times that a requested operation has not been found in the cache.
+     *
+     * @return number of cache misses.
+     */
+    long getMissCount();
+
+    /**
+     * Returns the number of operations that have been discarded by the garbage collector
+     * after they have been moved out of the set of operations retained by strong references.
+     *
+     * @return number of operations evicted from the cache.
+     */
+    long getEvictionCount();
+
+    /**
+     * Returns the number of operations that have been discarded because they were older than the expiration delay.
+     *
+     * @return number of expired operations.
+     */
+    long getExpirationCount();
+
+    /**
+     * Returns the number of operations currently in the cache, including the ones retained by soft references.
+     *
+     * @return number of cached operations.
+     */
+    int getSize();
+
+    /**
+     * Returns the maximal cost of the operations retained by strong references.
+     * The cost of an operation is its number of steps.
+     *
+     * @return maximal cost of strongly referenced operations.
+     */
+    long getCostLimit();
+
+    /**
+     * Returns the delay in milliseconds after which a cached operation is discarded, or 0 if none.
+     *
+     * @return expiration delay in milliseconds, or 0 if cached operations do not expire.
+     */
+    long getExpirationDelay();
+
+    /**
+     * Removes all cached operations and resets the counters to zero.
+     */
+    void clear();
+}
@@ -206,6 +206,11 @@ public final class Resources extends IndexedResourceBundle {
          */
         public static final short EllipsoidalHeightNotAllowed_1 = 77;
 
+        /**
+         * Can not approximate the transform, so the exact transform is used instead. The cause is: {0}
+         */
+        public static final short ExactTransformUsed_1 = 90;
+
         /**
          * There is no local registry for version {1} of “{0}” authority. Fallback on default version
          * for objects creation.
@@ -295,6 +300,12 @@ public final class Resources extends IndexedResourceBundle {
          */
         public static final short MismatchedEllipsoidAxisLength_3 = 33;
 
+        /**
+         * The index has been created from version {0} of the geodetic dataset, but the factory uses
+         * version {1}.
+         */
+        public static final short MismatchedIndexVersion_2 = 93;
+
         /**
          * No coordinate operation from “{0}” to “{1}” because of mismatched factories.
          */
@@ -310,6 +321,12 @@ public final class Resources extends IndexedResourceBundle {
          */
         public static final short MismatchedPrimeMeridian_2 = 36;
 
+        /**
+         * The snapshot has been created from version {0} of the geodetic dataset, but the factory uses
+         * version {1}.
+         */
+        public static final short MismatchedSnapshotVersion_2 = 91;
+
         /**
          * The transform has {2} {0,choice,0#source|1#target} dimension{2,choice,1#|2#s}, while {1} was
          * expected.
@@ -482,6 +499,11 @@ public final class Resources extends IndexedResourceBundle {
          */
         public static final short StartOrEndPointNotSet_1 = 88;
 
+        /**
+         * Class ‘{0}’ is not allowed in a snapshot of geodetic objects.
+         */
+        public static final short UnexpectedClassInSnapshot_1 = 92;
+
         /**
          * Combined URI contains unexpected components.
          */
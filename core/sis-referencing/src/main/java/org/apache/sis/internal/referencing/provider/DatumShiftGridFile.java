@@ -18,6 +18,7 @@ package org.apache.sis.internal.referencing.provider;
 
 import java.util.Arrays;
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import javax.measure.Unit;
 import javax.measure.Quantity;
@@ -41,7 +42,7 @@ import org.apache.sis.internal.referencing.j2d.AffineTransform2D;
  * sharing data and for {@link #equals(Object)} and {@link #hashCode()} implementations.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  *
  * @param <C>  dimension of the coordinate unit (usually {@link javax.measure.quantity.Angle}).
  * @param <T>  dimension of the translation unit (usually {@link javax.measure.quantity.Angle}
@@ -65,6 +66,9 @@ abstract class DatumShiftGridFile<C extends Quantity<C>, T extends Quantity<T>>
      */
     static final Cache<Object, DatumShiftGridFile<?,?>> CACHE = new Cache<Object, DatumShiftGridFile<?,?>>(4, 32*1024, true) {
         @Override protected int cost(final DatumShiftGridFile<?,?> grid) {
+            if (grid instanceof Mapped<?,?>) {
+                return ((Mapped<?,?>) grid).cost();
+            }
             int p = 1;
             for (final Object array : grid.getData()) {
                 p *= Array.getLength(array);
@@ -378,4 +382,177 @@ abstract class DatumShiftGridFile<C extends Quantity<C>, T extends Quantity<T>>
             return DecimalFunctions.floatToDouble(offsets[dim][gridX + gridY*nx]);
         }
     }
+
+
+
+
+    /**
+     * An implementation of {@link DatumShiftGridFile} which reads the offset values directly from memory-mapped files.
+     * Values are decoded when requested, so creating the grid is almost instantaneous even for very large files.
+     * The operating system keeps in its page cache the parts of the files that were accessed recently, and that
+     * cache is shared by all processes reading the same files. This is in contrast with the {@link Float} and
+     * {@link DatumShiftGridCompressed} grids, which hold a private copy of all values in the Java heap.
+     *
+     * <p>Each shift dimension is read from a buffer which may be shared with other dimensions (NTv2 case)
+     * or specific to that dimension (NADCON case, which uses a file for latitude shifts and another file
+     * for longitude shifts). In each buffer, rows have a fixed length in bytes and each row contains one
+     * record of fixed length for each grid cell. The shift value is a {@code float} at a fixed offset
+     * in the record, which is divided by a constant factor for getting the cell value.</p>
+     *
+     * <p>The mapping is released when this grid is garbage-collected. For allowing that to happen,
+     * the {@link #CACHE} accounts for this grid as if all values were in memory (see {@link #cost()}),
+     * so a large mapped grid is retained only by a soft reference when no transform is using it.
+     * Until the garbage collector clears that reference, the files stay mapped
+     * (and on some platforms such as Windows, can not be deleted).</p>
+     *
+     * <p>The mapped buffers are not serialized. Instead, this grid is replaced by a {@link Float} grid
+     * containing a copy of all values at serialization time.</p>
+     *
+     * @author  agent
+     * @version 1.1
+     * @since   1.1
+     * @module
+     */
+    static final class Mapped<C extends Quantity<C>, T extends Quantity<T>> extends DatumShiftGridFile<C,T> {
+        /**
+         * Serial number for inter-operability with different versions.
+         */
+        private static final long serialVersionUID = 4253624128530431934L;
+
+        /**
+         * The memory-mapped rows of each shift dimension, starting with the row at grid index 0.
+         * Different dimensions may share the same buffer. Shall be read with absolute {@code get}
+         * methods only, since those buffers are shared by all threads.
+         */
+        private final transient ByteBuffer[] data;
+
+        /**
+         * Number of bytes in each row, including any bytes before the first record or after the last one.
+         */
+        private final int rowLength;
+
+        /**
+         * Number of bytes in each record. There is one record per grid cell.
+         */
+        private final int recordLength;
+
+        /**
+         * Offset in bytes of the {@code float} value of each shift dimension, relative to the beginning of a record.
+         */
+        private final int[] fieldOffsets;
+
+        /**
+         * The factors by which to divide the {@code float} values of each shift dimension.
+         */
+        private final double[] divisors;
+
+        /**
+         * Creates a new datum shift grid backed by the given memory-mapped buffers.
+         * All {@code double} values given to this constructor are in units of the coordinates.
+         * The {@code data}, {@code fieldOffsets} and {@code divisors} arrays shall have a length
+         * equals to the number of shift dimensions.
+         *
+         * @param data          the mapped rows of each dimension, with byte order already set.
+         * @param rowLength     number of bytes in each row.
+         * @param recordLength  number of bytes in each record.
+         * @param fieldOffsets  offset in bytes of the value of each shift dimension in a record.
+         * @param divisors      factors by which to divide the values of each shift dimension.
+         */
+        Mapped(final Unit<C> coordinateUnit,
+               final Unit<T> translationUnit,
+               final boolean isCellValueRatio,
+               final double x0, final double y0,
+               final double Δx, final double Δy,
+               final int    nx, final int    ny,
+               final ParameterDescriptorGroup descriptor,
+               final ByteBuffer[] data, final int rowLength, final int recordLength,
+               final int[] fieldOffsets, final double[] divisors,
+               final Path... files) throws NoninvertibleTransformException
+        {
+            super(coordinateUnit, translationUnit, isCellValueRatio, x0, y0, Δx, Δy, nx, ny, descriptor, files);
+            this.data         = data;
+            this.rowLength    = rowLength;
+            this.recordLength = recordLength;
+            this.fieldOffsets = fieldOffsets;
+            this.divisors     = divisors;
+        }
+
+        /**
+         * Returns {@code this} since the data of a memory-mapped grid are not copied in the Java heap.
+         * Sharing is done by the operating system instead.
+         */
+        @Override
+        protected final DatumShiftGridFile<C,T> setData(final Object[] other) {
+            return this;
+        }
+
+        /**
+         * Returns an empty array since the data are not in the Java heap.
+         * The cost in the {@link #CACHE} is given by {@link #cost()} instead.
+         */
+        @Override
+        protected final Object[] getData() {
+            return new Object[0];
+        }
+
+        /**
+         * Returns the cost of this grid in the {@link #CACHE}, which is the number of mapped values.
+         * Using the same cost than a grid loaded in memory allows the cache to replace large mapped
+         * grids by soft references, so they can be garbage-collected and their files unmapped.
+         */
+        final int cost() {
+            final int[] size = getGridSize();
+            return (int) Math.min(Integer.MAX_VALUE, size[0] * (long) size[1] * fieldOffsets.length);
+        }
+
+        /**
+         * Returns the number of shift dimensions.
+         */
+        @Override
+        public final int getTranslationDimensions() {
+            return fieldOffsets.length;
+        }
+
+        /**
+         * Returns the cell value at the given dimension and grid index. The value is decoded from the mapped file
+         * and converted in the same way than the values loaded in a {@link Float} grid, for consistent results.
+         *
+         * @param  dim    the dimension for which to get an average value.
+         * @param  gridX  the grid index along the <var>x</var> axis, from 0 inclusive to {@link #nx} exclusive.
+         * @param  gridY  the grid index along the <var>y</var> axis, from 0 inclusive to {@code  ny} exclusive.
+         * @return the offset at the given dimension in the grid cell at the given index.
+         */
+        @Override
+        public final double getCellValue(final int dim, final int gridX, final int gridY) {
+            return DecimalFunctions.floatToDouble(getFloat(dim, gridX, gridY));
+        }
+
+        /**
+         * Returns the cell value at the given dimension and grid index as a {@code float}.
+         */
+        private float getFloat(final int dim, final int gridX, final int gridY) {
+            final int index = gridY * rowLength + gridX * recordLength + fieldOffsets[dim];
+            return (float) (data[dim].getFloat(index) / divisors[dim]);
+        }
+
+        /**
+         * Replaces this grid by a grid holding a copy of all values at serialization time.
+         *
+         * @return a grid with the same values than this grid, but stored in the Java heap.
+         */
+        protected final Object writeReplace() {
+            final int[] size = getGridSize();
+            final float[][] offsets = new float[fieldOffsets.length][size[0] * size[1]];
+            for (int dim=0; dim < offsets.length; dim++) {
+                final float[] values = offsets[dim];
+                int i = 0;
+                for (int y=0; y<size[1]; y++) {
+                    for (int x=0; x<size[0]; x++) {
+                        values[i++] = getFloat(dim, x, y);
+                    }
+                }
+            }
+            return new Float<>(this, offsets);
+        }
+    }
 }
@@ -37,7 +37,7 @@ import org.apache.sis.referencing.factory.MissingFactoryResourceException;
  * Base class of datum shift grid loaders.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 0.7
+ * @version 1.1
  * @since   0.7
  * @module
  */
@@ -64,6 +64,15 @@ class DatumShiftGridLoader {
      */
     static final double SECOND_PRECISION = 1E-4;
 
+    /**
+     * Minimal file size, in bytes, for using memory-mapping instead of loading the grid values in memory.
+     * Small grids are loaded and compressed in the Java heap since they are cheap to read. Large grids are
+     * memory-mapped in order to avoid a long loading time on first use and a large memory consumption.
+     * Mapped data are cached by the operating system and shared by all processes reading the same file.
+     * This threshold applies to binary NTv2 and NADCON files. Text files are always loaded in memory.
+     */
+    static final long MAPPING_THRESHOLD = 8 * 1024 * 1024;
+
     /**
      * The file to load, used for parameter declaration and if we have errors to report.
      */
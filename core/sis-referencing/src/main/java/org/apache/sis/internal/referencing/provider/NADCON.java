@@ -24,7 +24,9 @@ import java.nio.FloatBuffer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.Files;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
 import javax.xml.bind.annotation.XmlTransient;
 import javax.measure.quantity.Angle;
 import org.opengis.util.FactoryException;
@@ -56,7 +58,7 @@ import org.apache.sis.measure.Units;
  *
  * @author  Martin Desruisseaux (Geomatys)
  * @author  Rueben Schulz (UBC)
- * @version 0.8
+ * @version 1.1
  *
  * @see <a href="http://www.ngs.noaa.gov/cgi-bin/nadcon.prl">NADCON on-line computation</a>
  *
@@ -177,27 +179,7 @@ public final class NADCON extends AbstractProvider {
             try {
                 grid = handler.peek();
                 if (grid == null) {
-                    final Loader loader;
-                    Path file = latitudeShifts;
-                    try {
-                        // Note: buffer size must be divisible by the size of 'float' data type.
-                        final ByteBuffer buffer = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
-                        final FloatBuffer fb = buffer.asFloatBuffer();
-                        try (ReadableByteChannel in = Files.newByteChannel(rlat)) {
-                            DatumShiftGridLoader.log(NADCON.class, CharSequences.commonPrefix(
-                                    latitudeShifts.toString(), longitudeShifts.toString()).toString() + '…');
-                            loader = new Loader(in, buffer, file);
-                            loader.readGrid(fb, null, longitudeShifts);
-                        }
-                        buffer.clear();
-                        file = longitudeShifts;
-                        try (ReadableByteChannel in = Files.newByteChannel(rlon)) {
-                            new Loader(in, buffer, file).readGrid(fb, loader, null);
-                        }
-                    } catch (IOException | NoninvertibleTransformException | RuntimeException e) {
-                        throw DatumShiftGridLoader.canNotLoad("NADCON", file, e);
-                    }
-                    grid = DatumShiftGridCompressed.compress(loader.grid, null, loader.grid.accuracy);
+                    grid = load(rlat, rlon, latitudeShifts, longitudeShifts, DatumShiftGridLoader.MAPPING_THRESHOLD);
                     grid = grid.useSharedData();
                 }
             } finally {
@@ -207,6 +189,56 @@ public final class NADCON extends AbstractProvider {
         return grid.castTo(Angle.class, Angle.class);
     }
 
+    /**
+     * Loads the grid from the given files without looking in the cache. If both files are binary files
+     * at least as large as the given threshold, then the grid values are not loaded in memory but read
+     * from the mapped files when needed.
+     *
+     * @param  rlat              absolute path to the latitude shifts file to load.
+     * @param  rlon              absolute path to the longitude shifts file to load.
+     * @param  latitudeShifts    name of the latitude shifts file as specified by the user, for logging and error messages.
+     * @param  longitudeShifts   name of the longitude shifts file as specified by the user, for logging and error messages.
+     * @param  mappingThreshold  minimal size in bytes of the latitude shifts file for using memory-mapping.
+     */
+    static DatumShiftGridFile<?,?> load(final Path rlat, final Path rlon, final Path latitudeShifts,
+            final Path longitudeShifts, final long mappingThreshold) throws FactoryException
+    {
+        final Loader loader;
+        Path file = latitudeShifts;
+        try {
+            // Note: buffer size must be divisible by the size of 'float' data type.
+            final ByteBuffer buffer = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+            final FloatBuffer fb = buffer.asFloatBuffer();
+            try (SeekableByteChannel in = Files.newByteChannel(rlat)) {
+                DatumShiftGridLoader.log(NADCON.class, CharSequences.commonPrefix(
+                        latitudeShifts.toString(), longitudeShifts.toString()).toString() + '…');
+                loader = new Loader(in, buffer, file);
+                if (loader.ascii == null && in instanceof FileChannel && in.size() >= mappingThreshold) {
+                    file = longitudeShifts;
+                    try (SeekableByteChannel other = Files.newByteChannel(rlon)) {
+                        final Loader lon = new Loader(other, ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN), file);
+                        if (lon.ascii == null && other instanceof FileChannel) {
+                            final DatumShiftGridFile<?,?> grid = loader.mapGrid((FileChannel) in, lon, (FileChannel) other);
+                            if (grid != null) {
+                                return grid;
+                            }
+                        }
+                    }
+                    file = latitudeShifts;
+                }
+                loader.readGrid(fb, null, longitudeShifts);
+            }
+            buffer.clear();
+            file = longitudeShifts;
+            try (ReadableByteChannel in = Files.newByteChannel(rlon)) {
+                new Loader(in, buffer, file).readGrid(fb, loader, null);
+            }
+        } catch (IOException | NoninvertibleTransformException | RuntimeException e) {
+            throw DatumShiftGridLoader.canNotLoad("NADCON", file, e);
+        }
+        return DatumShiftGridCompressed.compress(loader.grid, null, loader.grid.accuracy);
+    }
+
 
 
 
@@ -410,12 +442,7 @@ public final class NADCON extends AbstractProvider {
                         true, x0, y0, Δx, Δy, nx, ny, PARAMETERS, file, longitudeShifts);
                 grid.accuracy = SECOND_PRECISION / DEGREES_TO_SECONDS;
             } else {
-                if (x0 != latitudeShifts.x0 || Δx != latitudeShifts.Δx || nx != latitudeShifts.nx ||
-                    y0 != latitudeShifts.y0 || Δy != latitudeShifts.Δy || ny != latitudeShifts.ny || nz != latitudeShifts.nz)
-                {
-                    throw new FactoryException(Errors.format(Errors.Keys.MismatchedGridGeometry_2,
-                            latitudeShifts.file.getFileName(), file.getFileName()));
-                }
+                ensureSameGeometry(latitudeShifts);
                 dim   = 0;                                              // Dimension of longitudes
                 scale = -DEGREES_TO_SECONDS * Δx;                       // NADCON shifts are positive west.
                 grid  = latitudeShifts.grid;                            // Continue writing in existing grid.
@@ -463,6 +490,51 @@ public final class NADCON extends AbstractProvider {
             }
         }
 
+        /**
+         * Verifies that the grid in this file has the same geometry than the grid in the latitude shifts file.
+         *
+         * @param  latitudeShifts  the loader for the latitude shifts file.
+         */
+        private void ensureSameGeometry(final Loader latitudeShifts) throws FactoryException {
+            if (x0 != latitudeShifts.x0 || Δx != latitudeShifts.Δx || nx != latitudeShifts.nx ||
+                y0 != latitudeShifts.y0 || Δy != latitudeShifts.Δy || ny != latitudeShifts.ny || nz != latitudeShifts.nz)
+            {
+                throw new FactoryException(Errors.format(Errors.Keys.MismatchedGridGeometry_2,
+                        latitudeShifts.file.getFileName(), file.getFileName()));
+            }
+        }
+
+        /**
+         * Creates a grid reading the values directly from the memory-mapped binary files. This method shall be
+         * invoked on the instance created for the latitude shifts file. Values are converted in the same way
+         * than {@link #readGrid(FloatBuffer, Loader, Path)}, but the zero value at the beginning of each row
+         * is not verified since scanning the whole files would defeat the purpose of memory-mapping.
+         *
+         * @param  channel          the channel of the latitude shifts file.
+         * @param  longitudeShifts  the loader created for the longitude shifts file.
+         * @param  other            the channel of the longitude shifts file.
+         * @return the mapped grid, or {@code null} if the files are too large for being mapped in a single buffer.
+         */
+        final DatumShiftGridFile<Angle,Angle> mapGrid(final FileChannel channel, final Loader longitudeShifts,
+                final FileChannel other) throws IOException, FactoryException, NoninvertibleTransformException
+        {
+            longitudeShifts.ensureSameGeometry(this);
+            final int  rowLength = (nx + 1) * Float.BYTES;      // Header is a record of the same length than rows.
+            final long length    = ny * (long) rowLength;
+            if (length > Integer.MAX_VALUE) {
+                return null;
+            }
+            final ByteBuffer lat = channel.map(FileChannel.MapMode.READ_ONLY, rowLength, length).order(buffer.order());
+            final ByteBuffer lon = other  .map(FileChannel.MapMode.READ_ONLY, rowLength, length).order(buffer.order());
+            final DatumShiftGridFile.Mapped<Angle,Angle> grid = new DatumShiftGridFile.Mapped<>(
+                    Units.DEGREE, Units.DEGREE, true, x0, y0, Δx, Δy, nx, ny, PARAMETERS,
+                    new ByteBuffer[] {lon, lat}, rowLength, Float.BYTES, new int[] {Float.BYTES, Float.BYTES},
+                    new double[] {-DEGREES_TO_SECONDS * Δx, DEGREES_TO_SECONDS * Δy},   // Positive west and north.
+                    file, longitudeShifts.file);
+            grid.accuracy = SECOND_PRECISION / DEGREES_TO_SECONDS;
+            return grid;
+        }
+
         /**
          * Invoked when the given {@code FloatBuffer} buffer is empty. This method requests one {@code float}
          * from the channel, but the channel will usually give us as many data as the buffer can contain.
@@ -28,7 +28,8 @@ import java.nio.ByteOrder;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.StandardCharsets;
 import javax.xml.bind.annotation.XmlTransient;
 import javax.measure.Unit;
@@ -61,7 +62,7 @@ import org.apache.sis.measure.Units;
  *
  * @author  Simon Reynard (Geomatys)
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   0.7
  * @module
  */
@@ -153,11 +154,8 @@ public final class NTv2 extends AbstractProvider {
             try {
                 grid = handler.peek();
                 if (grid == null) {
-                    try (ReadableByteChannel in = Files.newByteChannel(resolved)) {
-                        DatumShiftGridLoader.log(NTv2.class, file);
-                        final Loader loader = new Loader(in, file);
-                        grid = loader.readGrid();
-                        loader.reportWarnings();
+                    try {
+                        grid = load(resolved, file, DatumShiftGridLoader.MAPPING_THRESHOLD);
                     } catch (IOException | NoninvertibleTransformException | RuntimeException e) {
                         throw DatumShiftGridLoader.canNotLoad("NTv2", file, e);
                     }
@@ -170,6 +168,28 @@ public final class NTv2 extends AbstractProvider {
         return grid.castTo(Angle.class, Angle.class);
     }
 
+    /**
+     * Loads the grid from the given file without looking in the cache. If the file is at least as large as
+     * the given threshold and supports memory-mapping, then the grid values are not loaded in memory but
+     * read from the mapped file when needed.
+     *
+     * @param  resolved          absolute path to the datum shift grid file to load.
+     * @param  file              name of the file as specified by the user, for logging and error messages.
+     * @param  mappingThreshold  minimal file size in bytes for using memory-mapping.
+     */
+    static DatumShiftGridFile<?,?> load(final Path resolved, final Path file, final long mappingThreshold)
+            throws IOException, FactoryException, NoninvertibleTransformException
+    {
+        try (SeekableByteChannel in = Files.newByteChannel(resolved)) {
+            DatumShiftGridLoader.log(NTv2.class, file);
+            final Loader loader = new Loader(in, file);
+            final DatumShiftGridFile<?,?> grid = loader.readGrid(
+                    (in instanceof FileChannel && in.size() >= mappingThreshold) ? (FileChannel) in : null);
+            loader.reportWarnings();
+            return grid;
+        }
+    }
+
 
 
 
@@ -178,7 +198,7 @@ public final class NTv2 extends AbstractProvider {
      *
      * @author  Simon Reynard (Geomatys)
      * @author  Martin Desruisseaux (Geomatys)
-     * @version 1.0
+     * @version 1.1
      * @since   0.7
      * @module
      */
@@ -248,7 +268,7 @@ public final class NTv2 extends AbstractProvider {
 
         /**
          * Number of grids remaining in the file. This value is set in the constructor,
-         * then decremented at every call to {@link #readGrid()}.
+         * then decremented at every call to {@link #readGrid(FileChannel)}.
          */
         private int remainingGrids;
 
@@ -260,7 +280,7 @@ public final class NTv2 extends AbstractProvider {
          * @param  file     path to the longitude and latitude difference file. Used for parameter declaration and error reporting.
          * @throws FactoryException if a data record can not be parsed.
          */
-        Loader(final ReadableByteChannel channel, final Path file) throws IOException, FactoryException {
+        Loader(final SeekableByteChannel channel, final Path file) throws IOException, FactoryException {
             super(channel, ByteBuffer.allocate(4096), file);
             this.header = new LinkedHashMap<>();
             ensureBufferContains(RECORD_LENGTH);
@@ -290,8 +310,14 @@ public final class NTv2 extends AbstractProvider {
          *
          * <p>NTv2 grids contain also information about shifts accuracy. This is not yet handled by SIS,
          * except for determining an approximate grid cell resolution.</p>
+         *
+         * <p>If the {@code mapped} argument is non-null, then the grid values are not read. Instead the grid
+         * records are memory-mapped and decoded only when needed. In such case the accuracy information are
+         * ignored, since scanning the whole file would defeat the purpose of memory-mapping.</p>
+         *
+         * @param  mapped  the channel to memory-map, or {@code null} for loading the values in memory.
          */
-        final DatumShiftGridFile<Angle,Angle> readGrid() throws IOException, FactoryException, NoninvertibleTransformException {
+        final DatumShiftGridFile<Angle,Angle> readGrid(final FileChannel mapped) throws IOException, FactoryException, NoninvertibleTransformException {
             if (--remainingGrids < 0) {
                 throw new FactoryException(Errors.format(Errors.Keys.CanNotRead_1, file));
             }
@@ -340,6 +366,21 @@ public final class NTv2 extends AbstractProvider {
              * free us from reversing the sign of longitude translations in the code below; instead, this reversal
              * will be handled by grid.coordinateToGrid MathTransform and its inverse.
              */
+            final double size = Math.max(dx, dy);
+            if (mapped != null) {
+                final long start  = mapped.position() - buffer.remaining();
+                final long length = count * (long) RECORD_LENGTH;
+                if (length <= Integer.MAX_VALUE) {
+                    final ByteBuffer data = mapped.map(FileChannel.MapMode.READ_ONLY, start, length).order(buffer.order());
+                    final DatumShiftGridFile.Mapped<Angle,Angle> grid = new DatumShiftGridFile.Mapped<>(
+                            unit, unit, true, -xmin, ymin, -dx, dy, width, height, PARAMETERS,
+                            new ByteBuffer[] {data, data}, width * RECORD_LENGTH, RECORD_LENGTH,
+                            new int[] {Float.BYTES, 0}, new double[] {dx, dy}, file);
+                    grid.accuracy = Units.DEGREE.getConverterTo(unit).convert(Formulas.ANGULAR_TOLERANCE) / size;
+                    header.keySet().retainAll(Arrays.asList(overviewKeys));
+                    return grid;
+                }
+            }
             final DatumShiftGridFile.Float<Angle,Angle> grid = new DatumShiftGridFile.Float<>(2,
                     unit, unit, true, -xmin, ymin, -dx, dy, width, height, PARAMETERS, file);
             @SuppressWarnings("MismatchedReadAndWriteOfArray") final float[] tx = grid.offsets[0];
@@ -358,7 +399,6 @@ public final class NTv2 extends AbstractProvider {
              * during inverse transformations. If we did not found that information in the file, compute
              * an arbitrary default accuracy.
              */
-            final double size = Math.max(dx, dy);
             if (Double.isNaN(grid.accuracy)) {
                 grid.accuracy = Units.DEGREE.getConverterTo(unit).convert(Formulas.ANGULAR_TOLERANCE) / size;
             }
@@ -112,7 +112,7 @@ import static org.apache.sis.internal.metadata.ReferencingServices.NAUTICAL_MILE
  * then a distinct instance of {@code GeodeticCalculator} needs to be created for each thread.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   1.0
  * @module
  */
@@ -804,6 +804,183 @@ public class GeodeticCalculator {
         validity = ((validity & ENDING_AZIMUTH) >>> 1) | START_POINT;
     }
 
+    /**
+     * Computes the geodesic distances and azimuths between many pairs of points.
+     * This method is equivalent to the following code for each pair of points,
+     * but without the overhead of argument checks and {@link Position} objects:
+     *
+     * {@preformat java
+     *     setStartGeographicPoint(startPoints[i*2], startPoints[i*2+1]);
+     *     setEndGeographicPoint  (endPoints  [i*2], endPoints  [i*2+1]);
+     *     distances       [i] = getGeodesicDistance();
+     *     startingAzimuths[i] = getStartingAzimuth();
+     *     endingAzimuths  [i] = getEndingAzimuth();
+     * }
+     *
+     * where <var>i</var> goes from {@code offset} inclusive to {@code offset + count} exclusive.
+     * Coordinates are (<var>latitude</var>, <var>longitude</var>) tuples in degrees, stored in
+     * consecutive array elements. Output arrays that are {@code null} are ignored.
+     *
+     * <p>This method allocates no object for each pair of points.
+     * Large arrays can be processed in parallel by giving disjoint ranges of pair indices
+     * to different {@code GeodeticCalculator} instances, one instance per thread.</p>
+     *
+     * <p>If the distance can not be computed for some pairs of points, then the corresponding outputs are set to
+     * {@linkplain Double#NaN NaN} and the computation continues with next pairs. The exception for the first
+     * failure is thrown after all pairs have been processed. Pairs having a non-finite coordinate value get
+     * NaN outputs without exception.</p>
+     *
+     * <p>The start point, end point and other properties of this calculator are discarded by this method call;
+     * they will need to be specified again.</p>
+     *
+     * @param  startPoints       (<var>latitude</var>, <var>longitude</var>) coordinates of start points in degrees.
+     * @param  endPoints         (<var>latitude</var>, <var>longitude</var>) coordinates of end points in degrees.
+     * @param  distances         where to store the geodesic distances in units of {@link #getDistanceUnit()}, or {@code null}.
+     * @param  startingAzimuths  where to store the azimuths at start points in degrees, or {@code null}.
+     * @param  endingAzimuths    where to store the azimuths at end points in degrees, or {@code null}.
+     * @param  offset            index of the first pair of points to process.
+     * @param  count             number of pairs of points to process.
+     * @throws GeodeticException if the distance could not be computed for at least one pair of points.
+     *
+     * @since 1.1
+     */
+    public void computeGeodesicDistances(final double[] startPoints, final double[] endPoints,
+            final double[] distances, final double[] startingAzimuths, final double[] endingAzimuths,
+            final int offset, final int count)
+    {
+        ArgumentChecks.ensureNonNull ("startPoints", startPoints);
+        ArgumentChecks.ensureNonNull ("endPoints",   endPoints);
+        ArgumentChecks.ensurePositive("offset",      offset);
+        ArgumentChecks.ensurePositive("count",       count);
+        GeodeticException failure = null;
+        final int end = offset + count;
+        for (int i=offset; i<end; i++) {
+            double distance = Double.NaN, α1 = Double.NaN, α2 = Double.NaN;
+            final double lat1 = startPoints[i*2], lon1 = startPoints[i*2 + 1];
+            final double lat2 = endPoints  [i*2], lon2 = endPoints  [i*2 + 1];
+            if (Double.isFinite(lat1) && Double.isFinite(lon1) && Double.isFinite(lat2) && Double.isFinite(lon2)) {
+                φ1 = toRadians(max(Latitude.MIN_VALUE, min(Latitude.MAX_VALUE, lat1)));
+                λ1 = toRadians(lon1);
+                φ2 = toRadians(max(Latitude.MIN_VALUE, min(Latitude.MAX_VALUE, lat2)));
+                λ2 = toRadians(lon2);
+                validity = START_POINT | END_POINT;
+                try {
+                    computeDistance();
+                    distance = geodesicDistance;
+                    α1 = toDegrees(atan2(msinα1, mcosα1));
+                    α2 = toDegrees(atan2(msinα2, mcosα2));
+                } catch (GeodeticException e) {
+                    if (failure == null) failure = e;
+                }
+            }
+            if (distances        != null) distances       [i] = distance;
+            if (startingAzimuths != null) startingAzimuths[i] = α1;
+            if (endingAzimuths   != null) endingAzimuths  [i] = α2;
+        }
+        validity = 0;
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Computes the end points and ending azimuths of many geodesics given their start points, starting azimuths
+     * and distances. This method is equivalent to the following code for each geodesic, but without the overhead
+     * of argument checks and {@link Position} objects:
+     *
+     * {@preformat java
+     *     setStartGeographicPoint(startPoints[i*2], startPoints[i*2+1]);
+     *     setStartingAzimuth(startingAzimuths[i]);
+     *     setGeodesicDistance(distances[i]);
+     *     DirectPosition p = getEndPoint();
+     *     endPoints[i*2]     = p.getOrdinate(0);      // Latitude in degrees.
+     *     endPoints[i*2 + 1] = p.getOrdinate(1);      // Longitude in degrees.
+     *     endingAzimuths[i]  = getEndingAzimuth();
+     * }
+     *
+     * where <var>i</var> goes from {@code offset} inclusive to {@code offset + count} exclusive.
+     * Coordinates are (<var>latitude</var>, <var>longitude</var>) tuples in degrees, stored in
+     * consecutive array elements. The {@code endingAzimuths} array is optional.
+     * The {@code endPoints} array may be the same than the {@code startPoints} array.
+     *
+     * <p>This method allocates no object for each geodesic. When consecutive geodesics have the same start point
+     * and starting azimuth (for example points at increasing distances along the same track), the coefficients
+     * of series expansions computed for the first geodesic are reused for the next ones. Large arrays can be
+     * processed in parallel by giving disjoint ranges of indices to different {@code GeodeticCalculator}
+     * instances, one instance per thread.</p>
+     *
+     * <p>Failures and non-finite inputs are handled as documented in
+     * {@link #computeGeodesicDistances computeGeodesicDistances(…)}.
+     * The start point, end point and other properties of this calculator are discarded by this method call;
+     * they will need to be specified again.</p>
+     *
+     * @param  startPoints       (<var>latitude</var>, <var>longitude</var>) coordinates of start points in degrees.
+     * @param  startingAzimuths  azimuths at start points in degrees, with 0° toward north and values increasing clockwise.
+     * @param  distances         geodesic distances in units of {@link #getDistanceUnit()}.
+     * @param  endPoints         where to store the (<var>latitude</var>, <var>longitude</var>) coordinates of end points in degrees.
+     * @param  endingAzimuths    where to store the azimuths at end points in degrees, or {@code null}.
+     * @param  offset            index of the first geodesic to process.
+     * @param  count             number of geodesics to process.
+     * @throws GeodeticException if the end point could not be computed for at least one geodesic.
+     *
+     * @since 1.1
+     */
+    public void computeEndPoints(final double[] startPoints, final double[] startingAzimuths, final double[] distances,
+            final double[] endPoints, final double[] endingAzimuths, final int offset, final int count)
+    {
+        ArgumentChecks.ensureNonNull ("startPoints",      startPoints);
+        ArgumentChecks.ensureNonNull ("startingAzimuths", startingAzimuths);
+        ArgumentChecks.ensureNonNull ("distances",        distances);
+        ArgumentChecks.ensureNonNull ("endPoints",        endPoints);
+        ArgumentChecks.ensurePositive("offset",           offset);
+        ArgumentChecks.ensurePositive("count",            count);
+        GeodeticException failure = null;
+        double lat1 = Double.NaN, lon1 = Double.NaN, azimuth = Double.NaN;
+        validity = 0;
+        final int end = offset + count;
+        for (int i=offset; i<end; i++) {
+            double lat2 = Double.NaN, lon2 = Double.NaN, α2 = Double.NaN;
+            final double distance = distances[i];
+            /*
+             * Coefficients for the start point are kept only if the start point and azimuth are the same
+             * than the previous geodesic. The comparisons are false if the previous values are NaN.
+             */
+            if (startPoints[i*2] != lat1 || startPoints[i*2 + 1] != lon1 || startingAzimuths[i] != azimuth) {
+                lat1    = startPoints[i*2];
+                lon1    = startPoints[i*2 + 1];
+                azimuth = startingAzimuths[i];
+                validity = 0;
+                if (Double.isFinite(lat1) && Double.isFinite(lon1) && Double.isFinite(azimuth)) {
+                    φ1 = toRadians(max(Latitude.MIN_VALUE, min(Latitude.MAX_VALUE, lat1)));
+                    λ1 = toRadians(lon1);
+                    final double α1 = toRadians(azimuth);
+                    msinα1 = sin(α1);
+                    mcosα1 = cos(α1);
+                    validity = START_POINT | STARTING_AZIMUTH;
+                }
+            }
+            if ((validity & START_POINT) != 0 && distance >= 0 && distance != Double.POSITIVE_INFINITY) {
+                geodesicDistance = distance;
+                validity = (validity & COEFFICIENTS_FOR_START_POINT) | START_POINT | STARTING_AZIMUTH | GEODESIC_DISTANCE;
+                try {
+                    computeEndPoint();
+                    lat2 = toDegrees(φ2);
+                    lon2 = toDegrees(λ2);
+                    α2   = toDegrees(atan2(msinα2, mcosα2));
+                } catch (GeodeticException e) {
+                    if (failure == null) failure = e;
+                }
+            }
+            endPoints[i*2]     = lat2;
+            endPoints[i*2 + 1] = lon2;
+            if (endingAzimuths != null) endingAzimuths[i] = α2;
+        }
+        validity = 0;
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
     /**
      * Creates an approximation of the geodesic track from start point to end point as a Java2D object.
      * The coordinates are expressed in the coordinate reference system specified at creation time.
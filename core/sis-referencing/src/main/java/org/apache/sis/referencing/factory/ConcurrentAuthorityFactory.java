@@ -21,23 +21,40 @@ import java.util.Map;
 import java.util.List;
 import java.util.Deque;
 import java.util.Iterator;
+import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.WeakHashMap;
 import java.util.IdentityHashMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.LogRecord;
 import java.util.logging.Level;
 import java.lang.ref.WeakReference;
 import java.lang.ref.PhantomReference;
 import java.io.PrintWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectStreamClass;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.lang.reflect.Method;
 import javax.measure.Unit;
 import org.opengis.referencing.cs.*;
 import org.opengis.referencing.crs.*;
 import org.opengis.referencing.datum.*;
 import org.opengis.referencing.operation.*;
+import org.opengis.referencing.AuthorityFactory;
 import org.opengis.referencing.IdentifiedObject;
 import org.opengis.referencing.NoSuchAuthorityCodeException;
 import org.opengis.util.FactoryException;
@@ -49,6 +66,7 @@ import org.apache.sis.util.Classes;
 import org.apache.sis.util.Debug;
 import org.apache.sis.util.Disposable;
 import org.apache.sis.util.ArgumentChecks;
+import org.apache.sis.util.ArraysExt;
 import org.apache.sis.util.logging.Logging;
 import org.apache.sis.util.collection.Cache;
 import org.apache.sis.internal.simple.SimpleCitation;
@@ -58,6 +76,7 @@ import org.apache.sis.internal.system.DelayedRunnable;
 import org.apache.sis.internal.system.Shutdown;
 import org.apache.sis.internal.system.Loggers;
 import org.apache.sis.internal.util.CollectionsExt;
+import org.apache.sis.internal.referencing.Resources;
 import org.apache.sis.internal.util.StandardDateFormat;
 import org.apache.sis.util.logging.PerformanceLevel;
 import org.apache.sis.util.resources.Errors;
@@ -82,6 +101,12 @@ import org.apache.sis.util.resources.Messages;
  * This means that this caching factory will continue to return those objects as long as they are in use somewhere
  * else in the Java virtual machine, but will be discarded (and recreated on the fly if needed) otherwise.
  *
+ * <h2>Snapshots</h2>
+ * Creating objects from the Data Access Object can be costly, for example when it requires many SQL queries.
+ * Applications having a short lifetime can avoid that cost by {@linkplain #writeSnapshot writing a snapshot}
+ * of the most commonly used objects once, then {@linkplain #readSnapshot reading that snapshot} at startup.
+ * Objects found in the snapshot are returned without accessing the Data Access Object.
+ *
  * <h2>Multi-threading</h2>
  * The cache managed by this class is concurrent. However the Data Access Objects (DAO) are assumed non-concurrent.
  * If two or more threads are accessing this factory in same time, then two or more Data Access Object instances
@@ -95,7 +120,7 @@ import org.apache.sis.util.resources.Messages;
  * Subclasses should select the interfaces that they choose to implement.
  *
  * @author  Martin Desruisseaux (IRD, Geomatys)
- * @version 0.8
+ * @version 1.1
  *
  * @param <DAO>  the type of factory used as Data Access Object (DAO).
  *
@@ -136,6 +161,36 @@ public abstract class ConcurrentAuthorityFactory<DAO extends GeodeticAuthorityFa
      */
     private final Cache<Key,Object> cache;
 
+    /**
+     * Objects read by {@link #readSnapshot(InputStream)}, indexed by their normalized authority codes.
+     * Values are arrays because the same code may be used by objects of different types.
+     * This map is never modified; it is replaced by a new map, in a block synchronized on {@code this},
+     * when a snapshot is read.
+     */
+    private volatile Map<String,Object[]> snapshot = Collections.emptyMap();
+
+    /**
+     * A snapshot file to read when an object is requested for the first time, or {@code null} if none.
+     * The file is taken (and this reference reset to {@code null}) by the first thread needing it.
+     *
+     * @see #readSnapshotLater(Path)
+     */
+    private final AtomicReference<Path> pendingSnapshot = new AtomicReference<>();
+
+    /**
+     * Version of the format of snapshots written by {@link #writeSnapshot(Class, Collection, OutputStream)}.
+     * Shall be incremented if the format changes in an incompatible way.
+     */
+    static final int SNAPSHOT_VERSION = 2;
+
+    /**
+     * Prefixes of the names of classes allowed in a snapshot. Any other class is rejected at reading time,
+     * before the class is loaded, because deserializing arbitrary classes from a file is a security risk.
+     */
+    private static final String[] SNAPSHOT_PACKAGES = {
+        "org.apache.sis.", "org.opengis.", "java.lang.", "java.util.", "java.time.", "java.net.URI", "javax.measure."
+    };
+
     /**
      * The pool of objects identified by {@link Finder#find(IdentifiedObject)}.
      * Values may be an empty set if an object has been searched but has not been found.
@@ -1663,6 +1718,17 @@ public abstract class ConcurrentAuthorityFactory<DAO extends GeodeticAuthorityFa
         final Key key = new Key(type, normalizeCode(code));
         Object value = cache.peek(key);
         if (!type.isInstance(value)) {
+            if (pendingSnapshot.get() != null) {
+                readPendingSnapshot();
+            }
+            final Object[] candidates = snapshot.get(key.code);
+            if (candidates != null) {
+                for (final Object candidate : candidates) {
+                    if (type.isInstance(candidate)) {
+                        return type.cast(candidate);
+                    }
+                }
+            }
             final Cache.Handler<Object> handler = cache.lock(key);
             try {
                 value = handler.peek();
@@ -1686,6 +1752,187 @@ public abstract class ConcurrentAuthorityFactory<DAO extends GeodeticAuthorityFa
         return type.cast(value);
     }
 
+    /**
+     * Writes a snapshot of the objects identified by the given codes. All objects are created
+     * (or fetched from the cache) and serialized in the given stream together with their codes.
+     * Components shared by many objects, for example datums, are written only once.
+     * The snapshot can be read later by {@link #readSnapshot(InputStream)}, typically at application startup.
+     *
+     * <p>The snapshot is not updated when the data behind the Data Access Object change.
+     * It is caller's responsibility to write a new snapshot after, for example, an update of the database.
+     * The {@linkplain Citation#getEdition() edition} of the {@linkplain #getAuthority() authority} is written
+     * in the snapshot, and {@link #readSnapshot(InputStream)} rejects snapshots written for another edition.</p>
+     *
+     * @param  type   the type of objects to write, for example {@code CoordinateReferenceSystem.class}.
+     * @param  codes  authority codes of the objects to write.
+     * @param  out    the stream where to write the snapshot. This stream is not closed by this method.
+     * @throws FactoryException if an object can not be created.
+     * @throws IOException if an error occurred while writing the snapshot.
+     *
+     * @since 1.1
+     */
+    public void writeSnapshot(final Class<? extends IdentifiedObject> type, final Collection<String> codes,
+            final OutputStream out) throws FactoryException, IOException
+    {
+        ArgumentChecks.ensureNonNull("type",  type);
+        ArgumentChecks.ensureNonNull("codes", codes);
+        ArgumentChecks.ensureNonNull("out",   out);
+        final AuthorityFactoryProxy<?> proxy = AuthorityFactoryProxy.getInstance(type);
+        final Map<String,Object> objects = new LinkedHashMap<>();
+        for (final String code : codes) {
+            objects.put(normalizeCode(code), create(proxy, code));
+        }
+        final ObjectOutputStream stream = new ObjectOutputStream(new BufferedOutputStream(out));
+        stream.writeInt(SNAPSHOT_VERSION);
+        stream.writeUTF(datasetVersion(this));
+        stream.writeInt(objects.size());
+        for (final Map.Entry<String,Object> entry : objects.entrySet()) {
+            stream.writeUTF(entry.getKey());
+            stream.writeObject(entry.getValue());
+        }
+        stream.flush();
+    }
+
+    /**
+     * Reads a snapshot written by {@link #writeSnapshot(Class, Collection, OutputStream)}.
+     * Objects in the snapshot will be returned by the {@code createFoo(String)} methods without
+     * querying the Data Access Object. Objects not in the snapshot are created as usual.
+     * If this method is invoked many times, the objects of all snapshots are retained.
+     *
+     * <p>The snapshot is accepted only if it has been written for the same {@linkplain Citation#getEdition()
+     * edition} of the dataset than the one used by this factory. Verifying the edition may require the
+     * creation of a Data Access Object. Only classes of Apache SIS and a few standard Java packages
+     * are allowed in the stream; any other class causes an {@link InvalidClassException}.</p>
+     *
+     * @param  in  the stream from which to read the snapshot. This stream is not closed by this method.
+     * @return number of objects read from the snapshot.
+     * @throws IOException if an error occurred while reading the snapshot, if the snapshot has been written
+     *         in an unsupported format or for another dataset version, or if it contains an unexpected class.
+     *
+     * @since 1.1
+     */
+    public int readSnapshot(final InputStream in) throws IOException {
+        ArgumentChecks.ensureNonNull("in", in);
+        final ObjectInputStream stream = new SnapshotInputStream(new BufferedInputStream(in));
+        final int version = stream.readInt();
+        if (version != SNAPSHOT_VERSION) {
+            throw new IOException(Errors.format(Errors.Keys.UnsupportedFormatVersion_2, "Snapshot", version));
+        }
+        final String written  = stream.readUTF();
+        final String expected = datasetVersion(this);
+        if (!written.equals(expected)) {
+            throw new IOException(Resources.format(Resources.Keys.MismatchedSnapshotVersion_2, written, expected));
+        }
+        final int count = stream.readInt();
+        synchronized (this) {
+            final Map<String,Object[]> objects = new HashMap<>(snapshot);
+            for (int i=0; i<count; i++) {
+                final String code  = stream.readUTF();
+                final Object value;
+                try {
+                    value = stream.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException(e);
+                }
+                Object[] values = objects.get(code);
+                if (values == null) {
+                    values = new Object[] {value};
+                } else {
+                    values = ArraysExt.append(values, value);
+                }
+                objects.put(code, values);
+            }
+            snapshot = objects;
+        }
+        return count;
+    }
+
+    /**
+     * Specifies a snapshot file to read when an object is requested for the first time.
+     * This method does not read the file immediately, so it can be invoked by subclass constructors
+     * without causing {@link #readSnapshot(InputStream)} or the Data Access Object to be used before
+     * the subclass is fully constructed. If the file can not be read when needed, the failure is logged
+     * and objects are created by the Data Access Object as usual.
+     *
+     * @param  file  the snapshot file written by {@link #writeSnapshot(Class, Collection, OutputStream)}.
+     *
+     * @since 1.1
+     */
+    protected final void readSnapshotLater(final Path file) {
+        ArgumentChecks.ensureNonNull("file", file);
+        pendingSnapshot.set(file);
+    }
+
+    /**
+     * Reads the file specified by {@link #readSnapshotLater(Path)} if no other thread took it before.
+     * The snapshot is only an optimization, so failure to read it is not fatal.
+     */
+    private void readPendingSnapshot() {
+        final Path file = pendingSnapshot.getAndSet(null);
+        if (file != null) {
+            try (InputStream in = Files.newInputStream(file)) {
+                readSnapshot(in);
+            } catch (IOException e) {
+                Logging.recoverableException(Logging.getLogger(Loggers.CRS_FACTORY), ConcurrentAuthorityFactory.class, "create", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the edition of the dataset used by the given factory, or an empty string if unknown.
+     * This is the version written in snapshots and in {@linkplain IdentifiedObjectFinder#writeIndex indexes}.
+     */
+    static String datasetVersion(final AuthorityFactory factory) {
+        final Citation authority = factory.getAuthority();
+        if (authority != null) {
+            final InternationalString edition = authority.getEdition();
+            if (edition != null) {
+                return edition.toString();
+            }
+        }
+        return "";
+    }
+
+    /**
+     * The stream used for reading snapshots and indexes. This stream accepts only the classes in an allow-list,
+     * for protecting against the deserialization of unexpected classes from a modified snapshot file.
+     */
+    static final class SnapshotInputStream extends ObjectInputStream {
+        /** Creates a new stream reading from the given input. */
+        SnapshotInputStream(final InputStream in) throws IOException {
+            super(in);
+        }
+
+        /** Verifies that the class is in the allow-list before to load it. */
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            String name = desc.getName();
+            int start = 0;
+            while (name.charAt(start) == '[') {                         // Array dimensions.
+                start++;
+            }
+            if (start != 0) {
+                if (name.charAt(start) != 'L') {
+                    return super.resolveClass(desc);                    // Array of primitive type.
+                }
+                name = name.substring(start + 1, name.length() - 1);   // Remove "L" and ";".
+            }
+            for (final String prefix : SNAPSHOT_PACKAGES) {
+                if (name.startsWith(prefix)) {
+                    return super.resolveClass(desc);
+                }
+            }
+            throw new InvalidClassException(name, Resources.format(Resources.Keys.UnexpectedClassInSnapshot_1, name));
+        }
+
+        /** Rejects all proxy classes, since they are not used by geodetic objects. */
+        @Override
+        protected Class<?> resolveProxyClass(final String[] interfaces) throws IOException {
+            throw new InvalidClassException(String.join(", ", interfaces),
+                    Resources.format(Resources.Keys.UnexpectedClassInSnapshot_1, String.join(", ", interfaces)));
+        }
+    }
+
     /**
      * Returns operations from source and target coordinate reference system codes.
      * The default implementation performs the following steps:
@@ -0,0 +1,390 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.referencing.factory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.List;
+import java.util.HashMap;
+import java.util.WeakHashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.io.Serializable;
+import org.opengis.referencing.IdentifiedObject;
+import org.opengis.referencing.AuthorityFactory;
+import org.opengis.referencing.cs.CoordinateSystem;
+import org.opengis.referencing.crs.SingleCRS;
+import org.opengis.referencing.crs.CompoundCRS;
+import org.opengis.referencing.crs.GeneralDerivedCRS;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.datum.Datum;
+import org.opengis.referencing.datum.Ellipsoid;
+import org.opengis.referencing.datum.GeodeticDatum;
+import org.opengis.referencing.datum.PrimeMeridian;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+import org.apache.sis.internal.referencing.Formulas;
+import org.apache.sis.internal.referencing.ReferencingUtilities;
+import org.apache.sis.referencing.crs.AbstractCRS;
+import org.apache.sis.referencing.cs.AxesConvention;
+import org.apache.sis.referencing.operation.transform.LinearTransform;
+import org.apache.sis.referencing.operation.transform.MathTransforms;
+import org.apache.sis.util.ArraysExt;
+import org.apache.sis.util.Classes;
+import org.apache.sis.measure.Units;
+
+
+/**
+ * Authority codes indexed by structural fingerprints of the objects they identify.
+ * A fingerprint is made of the object type, the number of dimensions, the ellipsoid axis lengths,
+ * the prime meridian longitude and, for derived CRS, the classes of the non-linear steps implementing
+ * the projection method together with the base coordinates of the origin of the normalized derived CRS.
+ * Numerical values are rounded to cells of fixed size. Objects which are approximately equal in the sense of
+ * {@link IdentifiedObjectFinder} have equal fingerprints, except when a value is close to a cell
+ * boundary. For that reason, lookups also probe the neighbor cells of values within the comparison
+ * tolerance of a boundary.
+ *
+ * <p>The fingerprint is computed on objects {@linkplain AxesConvention#NORMALIZED normalized} to the
+ * same axis order and units, so the same index can be used whether {@link IdentifiedObjectFinder}
+ * ignores axes or not. The axis directions are stored separately for each code and are used for
+ * filtering the candidates only when axes are not ignored. The candidates returned by this index
+ * still need to be compared with the object to search.</p>
+ *
+ * <p>Indexes are registered in a JVM-wide map for the factory instance from which they have been built.
+ * The Data Access Objects of {@link ConcurrentAuthorityFactory} use the indexes of the factory which
+ * created them. Factories for the same authority but backed by different datasets do not share indexes.</p>
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+final class FingerprintIndex implements Serializable {
+    /**
+     * For cross-version compatibility.
+     */
+    private static final long serialVersionUID = 7301564712983467094L;
+
+    /**
+     * Size of the cells in which ellipsoid axis lengths are rounded, in metres.
+     */
+    private static final double AXIS_CELL = 1;
+
+    /**
+     * Size of the cells in which derived CRS origins are rounded, in degrees or base CRS units.
+     */
+    private static final double ORIGIN_CELL = 0.01;
+
+    /**
+     * Tolerance on derived CRS origins. This is much larger than the differences caused by
+     * ellipsoid axis lengths differing by {@link Formulas#LINEAR_TOLERANCE}.
+     */
+    private static final double ORIGIN_TOLERANCE = 1E-5;
+
+    /**
+     * All indexes registered in this JVM, indexed by the factory instances for which they have been built.
+     * Factories do not override {@link Object#equals(Object)}, so keys are compared by identity.
+     * All accesses to this map shall be synchronized on {@code REGISTRY}.
+     */
+    private static final Map<AuthorityFactory, List<FingerprintIndex>> REGISTRY = new WeakHashMap<>();
+
+    /**
+     * The type of objects in this index.
+     */
+    final Class<? extends IdentifiedObject> type;
+
+    /**
+     * Authority codes indexed by fingerprints.
+     */
+    private final Map<String,String[]> codes;
+
+    /**
+     * Axis directions of the coordinate systems of indexed objects, indexed by authority codes.
+     * Codes of objects without coordinate system are not in this map.
+     */
+    private final Map<String,String> axes;
+
+    /**
+     * Creates a new, initially empty, index for the given type of objects.
+     */
+    FingerprintIndex(final Class<? extends IdentifiedObject> type) {
+        this.type  = type;
+        this.codes = new HashMap<>();
+        this.axes  = new HashMap<>();
+    }
+
+    /**
+     * Returns the index to use for objects of the given type created by the given factory,
+     * or {@code null} if none.
+     *
+     * @param  factory  the factory for which the index has been registered.
+     * @param  type     the type of objects to search.
+     * @return the index to use, or {@code null} if none.
+     */
+    static FingerprintIndex lookup(final AuthorityFactory factory, final Class<?> type) {
+        synchronized (REGISTRY) {
+            final List<FingerprintIndex> indexes = REGISTRY.get(factory);
+            if (indexes != null) {
+                for (final FingerprintIndex index : indexes) {
+                    if (index.type.isAssignableFrom(type)) {
+                        return index;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns all indexes registered for the given factory.
+     */
+    static FingerprintIndex[] registered(final AuthorityFactory factory) {
+        synchronized (REGISTRY) {
+            final List<FingerprintIndex> indexes = REGISTRY.get(factory);
+            return (indexes != null) ? indexes.toArray(new FingerprintIndex[indexes.size()]) : new FingerprintIndex[0];
+        }
+    }
+
+    /**
+     * Registers this index for the given factory, replacing any previous index for the same factory and type.
+     */
+    final void register(final AuthorityFactory factory) {
+        synchronized (REGISTRY) {
+            final List<FingerprintIndex> indexes = REGISTRY.computeIfAbsent(factory, (k) -> new ArrayList<>());
+            indexes.removeIf((index) -> index.type == type);
+            indexes.add(this);
+        }
+    }
+
+    /**
+     * Adds the given object in this index. This method shall be invoked only during index construction.
+     *
+     * @param  code    authority code of the object to add.
+     * @param  object  the object identified by the given code.
+     */
+    final void add(final String code, final IdentifiedObject object) {
+        for (final String key : fingerprints(object, false)) {
+            final String[] previous = codes.get(key);
+            codes.put(key, (previous == null) ? new String[] {code} : ArraysExt.append(previous, code));
+        }
+        final String directions = axes(object);
+        if (directions != null) {
+            axes.put(code, directions);
+        }
+    }
+
+    /**
+     * Returns the codes of all objects having the same fingerprint than the given object,
+     * including neighbor cells for values close to cell boundaries.
+     *
+     * If axes are not ignored, then this method also filters the codes of objects having different axis directions.
+     *
+     * @param  object        the object to search.
+     * @param  ignoringAxes  whether the finder ignores axis order and directions.
+     * @return codes of candidate objects, in insertion order.
+     */
+    final Set<String> candidates(final IdentifiedObject object, final boolean ignoringAxes) {
+        final String directions = ignoringAxes ? null : axes(object);
+        final Set<String> result = new LinkedHashSet<>();
+        for (final String key : fingerprints(object, true)) {
+            final String[] c = codes.get(key);
+            if (c != null) {
+                for (final String code : c) {
+                    if (directions == null || directions.equals(axes.get(code))) {
+                        result.add(code);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the coordinate system of the given object, or {@code null} if none.
+     */
+    private static CoordinateSystem getCoordinateSystem(final IdentifiedObject object) {
+        if (object instanceof CoordinateReferenceSystem) {
+            return ((CoordinateReferenceSystem) object).getCoordinateSystem();
+        } else if (object instanceof CoordinateSystem) {
+            return (CoordinateSystem) object;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the geodetic datum of the given CRS or of the first component having a geodetic datum,
+     * or {@code null} if none.
+     */
+    private static GeodeticDatum getGeodeticDatum(final CoordinateReferenceSystem crs) {
+        if (crs instanceof SingleCRS) {
+            final Datum datum = ((SingleCRS) crs).getDatum();
+            if (datum instanceof GeodeticDatum) {
+                return (GeodeticDatum) datum;
+            }
+        } else if (crs instanceof CompoundCRS) {
+            for (final CoordinateReferenceSystem c : ((CompoundCRS) crs).getComponents()) {
+                final GeodeticDatum datum = getGeodeticDatum(c);
+                if (datum != null) return datum;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the axis directions of the coordinate system of the given object in the order they appear,
+     * or {@code null} if the object does not have a coordinate system.
+     */
+    private static String axes(final IdentifiedObject object) {
+        final CoordinateSystem cs = getCoordinateSystem(object);
+        if (cs == null) {
+            return null;
+        }
+        final StringBuilder buffer = new StringBuilder(20);
+        for (int i=0; i<cs.getDimension(); i++) {
+            if (i != 0) buffer.append(',');
+            buffer.append(cs.getAxis(i).getDirection().name());
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Computes the fingerprints of the given object. If {@code probe} is {@code false}, then this method returns
+     * exactly one fingerprint. Otherwise this method may return more fingerprints for values close to a boundary.
+     */
+    private static List<String> fingerprints(final IdentifiedObject object, final boolean probe) {
+        final List<StringBuilder> keys = new ArrayList<>(1);
+        keys.add(new StringBuilder(40).append(AuthorityFactoryProxy.getInstance(object.getClass()).type.getSimpleName()));
+        /*
+         * Number of dimensions, which is a necessary condition for equality in all comparison modes.
+         */
+        final CoordinateSystem cs = getCoordinateSystem(object);
+        if (cs != null) {
+            for (final StringBuilder key : keys) {
+                key.append(':').append(cs.getDimension());
+            }
+        }
+        /*
+         * Ellipsoid axis lengths in metres. Approximate comparisons tolerate differences of 1 cm.
+         */
+        Ellipsoid ellipsoid = null;
+        if (object instanceof CoordinateReferenceSystem) {
+            ellipsoid = ReferencingUtilities.getEllipsoid((CoordinateReferenceSystem) object);
+        } else if (object instanceof GeodeticDatum) {
+            ellipsoid = ((GeodeticDatum) object).getEllipsoid();
+        } else if (object instanceof Ellipsoid) {
+            ellipsoid = (Ellipsoid) object;
+        }
+        if (ellipsoid != null) {
+            final double toMetres = ellipsoid.getAxisUnit().getConverterTo(Units.METRE).convert(1);
+            append(keys, ellipsoid.getSemiMajorAxis() * toMetres, AXIS_CELL, Formulas.LINEAR_TOLERANCE, probe);
+            append(keys, ellipsoid.getSemiMinorAxis() * toMetres, AXIS_CELL, Formulas.LINEAR_TOLERANCE, probe);
+        }
+        /*
+         * Prime meridian of geodetic datum, in degrees of longitude relative to Greenwich. Datum names are
+         * not used because approximate comparisons accept datum names which differ in a heuristic way.
+         */
+        PrimeMeridian pm = null;
+        if (object instanceof CoordinateReferenceSystem) {
+            final GeodeticDatum datum = getGeodeticDatum((CoordinateReferenceSystem) object);
+            if (datum != null) pm = datum.getPrimeMeridian();
+        } else if (object instanceof GeodeticDatum) {
+            pm = ((GeodeticDatum) object).getPrimeMeridian();
+        } else if (object instanceof PrimeMeridian) {
+            pm = (PrimeMeridian) object;
+        }
+        if (pm != null) {
+            append(keys, ReferencingUtilities.getGreenwichLongitude(pm, Units.DEGREE), ORIGIN_CELL, Formulas.ANGULAR_TOLERANCE, probe);
+        }
+        /*
+         * For derived CRS (including map projections), the classes of the non-linear steps which implement
+         * the conversion method, followed by the base coordinates of the origin of the derived CRS. The latter
+         * captures the effect of most conversion parameters (false easting and northing, longitude of natural
+         * origin, etc.) in a few numbers. Axis order and units are normalized before computation. Class names
+         * are used instead of method names because the same method may be known under different names.
+         */
+        if (object instanceof GeneralDerivedCRS) {
+            String method = null;
+            double[] origin = null;
+            try {
+                final AbstractCRS crs = AbstractCRS.castOrCopy((CoordinateReferenceSystem) object).forConvention(AxesConvention.NORMALIZED);
+                MathTransform mt = ((GeneralDerivedCRS) crs).getConversionFromBase().getMathTransform();
+                final StringBuilder buffer = new StringBuilder(20);
+                for (final MathTransform step : MathTransforms.getSteps(mt)) {
+                    if (!(step instanceof LinearTransform)) {
+                        buffer.append(buffer.length() == 0 ? "" : "+").append(Classes.getShortClassName(step));
+                    }
+                }
+                method = buffer.toString();
+                mt = mt.inverse();
+                origin = new double[Math.max(mt.getSourceDimensions(), mt.getTargetDimensions())];
+                mt.transform(origin, 0, origin, 0, 1);
+                origin = ArraysExt.resize(origin, mt.getTargetDimensions());
+            } catch (TransformException | RuntimeException e) {
+                // Can not compute the origin. Use an empty fingerprint for that part.
+            }
+            if (method != null) {
+                for (final StringBuilder key : keys) {
+                    key.append(':').append(method);
+                }
+            }
+            if (origin != null) {
+                for (final double value : origin) {
+                    append(keys, value, ORIGIN_CELL, ORIGIN_TOLERANCE, probe);
+                }
+            } else for (final StringBuilder key : keys) {
+                key.append(":?");
+            }
+        }
+        final List<String> result = new ArrayList<>(keys.size());
+        for (final StringBuilder key : keys) {
+            result.add(key.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Appends the index of the cell containing the given value. If {@code probe} is {@code true} and the
+     * value is within the given tolerance of a cell boundary, then the keys are duplicated for including
+     * both cells.
+     */
+    private static void append(final List<StringBuilder> keys, final double value,
+            final double cell, final double tolerance, final boolean probe)
+    {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            for (final StringBuilder key : keys) {
+                key.append(':').append(value);
+            }
+            return;
+        }
+        final long index = (long) Math.floor(value / cell);
+        long other = index;
+        if (probe) {
+            final long lower = (long) Math.floor((value - tolerance) / cell);
+            final long upper = (long) Math.floor((value + tolerance) / cell);
+            other = (lower != index) ? lower : upper;
+        }
+        final int n = keys.size();
+        if (other != index) {
+            for (int i=0; i<n; i++) {
+                keys.add(new StringBuilder(keys.get(i)).append(':').append(other));
+            }
+        }
+        for (int i=0; i<n; i++) {
+            keys.get(i).append(':').append(index);
+        }
+    }
+}
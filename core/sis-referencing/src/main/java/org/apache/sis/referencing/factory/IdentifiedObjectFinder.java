@@ -19,6 +19,13 @@ package org.apache.sis.referencing.factory;
 import java.util.Set;
 import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import org.opengis.util.GenericName;
@@ -29,10 +36,12 @@ import org.opengis.referencing.AuthorityFactory;
 import org.opengis.referencing.NoSuchAuthorityCodeException;
 import org.apache.sis.referencing.AbstractIdentifiedObject;
 import org.apache.sis.referencing.IdentifiedObjects;
+import org.apache.sis.internal.referencing.Resources;
 import org.apache.sis.internal.util.Constants;
 import org.apache.sis.internal.system.Loggers;
 import org.apache.sis.util.collection.BackingStoreException;
 import org.apache.sis.util.logging.Logging;
+import org.apache.sis.util.resources.Errors;
 import org.apache.sis.util.ArgumentChecks;
 import org.apache.sis.util.ComparisonMode;
 import org.apache.sis.util.Utilities;
@@ -53,12 +62,19 @@ import org.apache.sis.util.Utilities;
  *   <li>The same {@code IdentifiedObjectFinder} instance can be reused for consecutive searches.</li>
  * </ol>
  *
+ * <h2>Indexes</h2>
+ * Searches in the {@link Domain#VALID_DATASET} domain may need to create and compare a large amount of objects.
+ * This cost can be reduced by {@linkplain #createIndex(Class) creating an index} of structural fingerprints
+ * once per factory. The index can be {@linkplain #writeIndex(OutputStream) written} to a file and
+ * {@linkplain #readIndex(InputStream) read} in other Java virtual machines. When an index exists,
+ * only the objects having a fingerprint similar to the searched object are created and compared.
+ *
  * <h2>Thread safety</h2>
  * {@code IdentifiedObjectFinder} are <strong>not</strong> guaranteed to be thread-safe even if the underlying factory
  * is thread-safe. If concurrent searches are desired, then a new instance should be created for each thread.
  *
  * @author  Martin Desruisseaux (IRD, Geomatys)
- * @version 0.8
+ * @version 1.1
  *
  * @see GeodeticAuthorityFactory#newIdentifiedObjectFinder()
  * @see IdentifiedObjects#newFinder(String)
@@ -122,6 +138,11 @@ public class IdentifiedObjectFinder {
      */
     static final ComparisonMode COMPARISON_MODE = ComparisonMode.APPROXIMATE;
 
+    /**
+     * Version of the format written by {@link #writeIndex(OutputStream)}.
+     */
+    private static final int INDEX_VERSION = 1;
+
     /**
      * The factory to use for creating objects. This is the factory specified at construction time.
      */
@@ -494,7 +515,8 @@ public class IdentifiedObjectFinder {
      */
     Set<IdentifiedObject> createFromCodes(final IdentifiedObject object) throws FactoryException {
         final Set<IdentifiedObject> result = new LinkedHashSet<>();     // We need to preserve order.
-        for (final String code : getCodeCandidates(object)) {
+        final FingerprintIndex index = (domain != Domain.ALL_DATASET) ? FingerprintIndex.lookup(indexOwner(), proxy.type) : null;
+        for (final String code : (index != null) ? index.candidates(object, ignoreAxes) : getCodeCandidates(object)) {
             final IdentifiedObject candidate;
             try {
                 candidate = create(code);
@@ -559,6 +581,113 @@ public class IdentifiedObjectFinder {
         return factory.getAuthorityCodes(proxy.type.asSubclass(IdentifiedObject.class));
     }
 
+    /**
+     * Returns the factory for which indexes are registered. This is the factory of the wrapper if any,
+     * for example the {@link ConcurrentAuthorityFactory} which created the Data Access Object of this finder.
+     */
+    private AuthorityFactory indexOwner() {
+        return (wrapper != null) ? wrapper.indexOwner() : factory;
+    }
+
+    /**
+     * Creates an index of all objects of the given type known to the factory. The index contains structural
+     * fingerprints (ellipsoid axis lengths, prime meridian, projection method and origin, <i>etc.</i>) of the
+     * objects, and is used by all subsequent searches of objects of that type (or a subtype) in the
+     * {@link Domain#VALID_DATASET} domain of the same factory instance. This method creates all objects
+     * of the given type, so it may be slow. This cost is paid only once since the index is shared by all
+     * finders of the factory and can be saved by {@link #writeIndex(OutputStream)}.
+     *
+     * <p>The index is built from the codes returned by
+     * <code>{@linkplain GeodeticAuthorityFactory#getAuthorityCodes(Class) getAuthorityCodes}(type)</code>.
+     * It is not updated when the content of the factory changes.</p>
+     *
+     * @param  type  the type of objects to index, for example {@code CoordinateReferenceSystem.class}.
+     * @throws FactoryException if an error occurred while fetching the authority codes.
+     *
+     * @since 1.1
+     */
+    public void createIndex(final Class<? extends IdentifiedObject> type) throws FactoryException {
+        ArgumentChecks.ensureNonNull("type", type);
+        final FingerprintIndex index = new FingerprintIndex(type);
+        final AuthorityFactoryProxy<?> previous = proxy;
+        proxy = AuthorityFactoryProxy.getInstance(type);
+        try {
+            for (final String code : factory.getAuthorityCodes(type)) {
+                final IdentifiedObject candidate;
+                try {
+                    candidate = create(code);
+                } catch (FactoryException e) {
+                    exceptionOccurred(e);
+                    continue;
+                }
+                if (candidate != null) {
+                    index.add(code, candidate);
+                }
+            }
+        } finally {
+            proxy = previous;
+        }
+        index.register(indexOwner());
+    }
+
+    /**
+     * Writes all indexes created for the factory, together with the edition of the dataset used by the factory.
+     * The indexes can be read in another Java virtual machine by {@link #readIndex(InputStream)}.
+     *
+     * @param  out  the stream where to write the indexes. This stream is not closed by this method.
+     * @throws IOException if an error occurred while writing the indexes.
+     *
+     * @see #createIndex(Class)
+     *
+     * @since 1.1
+     */
+    public void writeIndex(final OutputStream out) throws IOException {
+        ArgumentChecks.ensureNonNull("out", out);
+        final ObjectOutputStream stream = new ObjectOutputStream(new BufferedOutputStream(out));
+        final AuthorityFactory owner = indexOwner();
+        stream.writeInt(INDEX_VERSION);
+        stream.writeUTF(ConcurrentAuthorityFactory.datasetVersion(owner));
+        stream.writeObject(FingerprintIndex.registered(owner));
+        stream.flush();
+    }
+
+    /**
+     * Reads indexes written by {@link #writeIndex(OutputStream)}. The indexes are used by all subsequent searches
+     * in the factory of this finder, replacing any index previously created for the same types. The indexes
+     * shall have been written from a factory using the same edition of the dataset.
+     *
+     * @param  in  the stream from which to read the indexes. This stream is not closed by this method.
+     * @return number of indexes read.
+     * @throws IOException if an error occurred while reading the indexes, if the indexes have been written
+     *         in an unsupported format or for another dataset version, or if the stream contains an unexpected class.
+     *
+     * @since 1.1
+     */
+    public int readIndex(final InputStream in) throws IOException {
+        ArgumentChecks.ensureNonNull("in", in);
+        final AuthorityFactory owner = indexOwner();
+        final ObjectInputStream stream = new ConcurrentAuthorityFactory.SnapshotInputStream(new BufferedInputStream(in));
+        final int version = stream.readInt();
+        if (version != INDEX_VERSION) {
+            throw new IOException(Errors.format(Errors.Keys.UnsupportedFormatVersion_2, "Index", version));
+        }
+        final String written  = stream.readUTF();
+        final String expected = ConcurrentAuthorityFactory.datasetVersion(owner);
+        if (!written.equals(expected)) {
+            throw new IOException(Resources.format(Resources.Keys.MismatchedIndexVersion_2, written, expected));
+        }
+        final FingerprintIndex[] indexes;
+        try {
+            indexes = (FingerprintIndex[]) stream.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException(e);
+        }
+        for (final FingerprintIndex index : indexes) {
+            index.register(owner);
+        }
+        return indexes.length;
+    }
+
     /**
      * Invoked when an exception occurred during the creation of a candidate from a code.
      */
@@ -20,17 +20,26 @@ import java.util.Collections;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.LinkedHashSet;
 import java.util.concurrent.TimeUnit;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
 import javax.sql.DataSource;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
 import java.io.FileNotFoundException;
 import org.opengis.util.NameFactory;
 import org.opengis.util.FactoryException;
 import org.opengis.referencing.crs.CRSFactory;
 import org.opengis.referencing.crs.CRSAuthorityFactory;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.cs.CSFactory;
 import org.opengis.referencing.cs.CSAuthorityFactory;
 import org.opengis.referencing.datum.DatumFactory;
@@ -41,6 +50,7 @@ import org.opengis.referencing.operation.MathTransformFactory;
 import org.apache.sis.internal.metadata.sql.Initializer;
 import org.apache.sis.internal.referencing.DeferredCoordinateOperation;
 import org.apache.sis.internal.referencing.Resources;
+import org.apache.sis.internal.system.DataDirectory;
 import org.apache.sis.internal.system.DefaultFactories;
 import org.apache.sis.internal.util.Constants;
 import org.apache.sis.referencing.factory.ConcurrentAuthorityFactory;
@@ -77,7 +87,7 @@ import org.apache.sis.util.Localized;
  * subclass.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 0.8
+ * @version 1.1
  *
  * @see EPSGDataAccess
  * @see SQLTranslator
@@ -96,6 +106,21 @@ public class EPSGFactory extends ConcurrentAuthorityFactory<EPSGDataAccess> impl
      */
     private static final Set<String> CODESPACES = Collections.singleton(Constants.EPSG);
 
+    /**
+     * Name of the snapshot file to read by default in the {@code $SIS_DATA/Databases} directory.
+     *
+     * @see #writeSnapshot(Class, java.util.Collection, java.io.OutputStream)
+     * @see #readSnapshot(InputStream)
+     *
+     * @since 1.1
+     */
+    public static final String SNAPSHOT_FILE = "EPSG.snapshot";
+
+    /**
+     * Name of the resource file listing the codes of the CRS written by {@link #writeSnapshot(OutputStream)}.
+     */
+    private static final String SNAPSHOT_CODES = "SnapshotCodes.txt";
+
     /**
      * The factory to use for creating {@link Connection}s to the EPSG database.
      */
@@ -232,6 +257,10 @@ public class EPSGFactory extends ConcurrentAuthorityFactory<EPSGDataAccess> impl
      *   <td>{@code locale}</td>
      *   <td>{@link Locale}</td>
      *   <td>The locale for producing error messages on a <cite>best effort</cite> basis.</td>
+     *  </tr><tr>
+     *   <td>{@code snapshot}</td>
+     *   <td>{@link Path}</td>
+     *   <td>A file written by {@link #writeSnapshot writeSnapshot(…)} to read when the first object is requested.</td>
      *  </tr>
      * </table>
      *
@@ -243,6 +272,11 @@ public class EPSGFactory extends ConcurrentAuthorityFactory<EPSGDataAccess> impl
      *       the schema that contains the EPSG tables.</li>
      *   <li>If no {@code locale} is specified, this constructor defaults to the
      *       {@linkplain Locale#getDefault(Locale.Category) display locale}.</li>
+     *   <li>If neither {@code dataSource} nor {@code snapshot} is specified, this factory reads the
+     *       {@value #SNAPSHOT_FILE} file in the {@code $SIS_DATA/Databases} directory if that file exists.
+     *       The file is read when the first object is requested, and ignored (the failure is logged) if it
+     *       has been written for another version of the EPSG dataset. The {@code "sis snapshot"} command
+     *       can write that file.</li>
      * </ul>
      *
      * @param  properties  the data source, authority factories and other configuration properties,
@@ -257,6 +291,7 @@ public class EPSGFactory extends ConcurrentAuthorityFactory<EPSGDataAccess> impl
             properties = Collections.emptyMap();
         }
         DataSource ds  = (DataSource)                 properties.get("dataSource");
+        Path snapshot  = (Path)                       properties.get("snapshot");
         Locale locale  = (Locale)                     properties.get("locale");
         schema         = (String)                     properties.get("schema");
         catalog        = (String)                     properties.get("catalog");
@@ -266,6 +301,15 @@ public class EPSGFactory extends ConcurrentAuthorityFactory<EPSGDataAccess> impl
         }
         this.locale = locale;
         if (ds == null) try {
+            if (snapshot == null) {
+                final Path dir = DataDirectory.DATABASES.getDirectory();
+                if (dir != null) {
+                    snapshot = dir.resolve(SNAPSHOT_FILE);
+                    if (!Files.isRegularFile(snapshot)) {
+                        snapshot = null;
+                    }
+                }
+            }
             ds = Initializer.getDataSource();
             if (ds == null) {
                 throw new UnavailableFactoryException(String.valueOf(Initializer.unspecified(locale, false)));
@@ -281,6 +325,60 @@ public class EPSGFactory extends ConcurrentAuthorityFactory<EPSGDataAccess> impl
         copFactory   = factory(CoordinateOperationFactory.class, "copFactory",   properties);
         mtFactory    = factory(MathTransformFactory.class,       "mtFactory",    properties);
         super.setTimeout(10, TimeUnit.SECONDS);
+        if (snapshot != null) {
+            readSnapshotLater(snapshot);
+        }
+    }
+
+    /**
+     * Writes a snapshot of commonly used coordinate reference systems. The list of codes includes the most
+     * common geographic CRS, all UTM zones on WGS 84, ETRS89 and NAD83, and a few national grids and vertical
+     * CRS. Codes not found in the EPSG dataset used by this factory are ignored. The snapshot can be saved
+     * in the {@value #SNAPSHOT_FILE} file of the {@code $SIS_DATA/Databases} directory for being read
+     * automatically by factories created without explicit data source.
+     *
+     * @param  out  the stream where to write the snapshot. This stream is not closed by this method.
+     * @return number of objects written in the snapshot.
+     * @throws FactoryException if an object can not be created.
+     * @throws IOException if an error occurred while writing the snapshot.
+     *
+     * @see #writeSnapshot(Class, java.util.Collection, OutputStream)
+     *
+     * @since 1.1
+     */
+    public int writeSnapshot(final OutputStream out) throws FactoryException, IOException {
+        final Set<String> codes = snapshotCodes();
+        codes.retainAll(getAuthorityCodes(CoordinateReferenceSystem.class));
+        writeSnapshot(CoordinateReferenceSystem.class, codes, out);
+        return codes.size();
+    }
+
+    /**
+     * Returns the codes listed in the {@value #SNAPSHOT_CODES} resource file, with ranges expanded.
+     * The returned set is modifiable.
+     */
+    static Set<String> snapshotCodes() throws IOException {
+        final Set<String> codes = new LinkedHashSet<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                EPSGFactory.class.getResourceAsStream(SNAPSHOT_CODES), StandardCharsets.US_ASCII)))
+        {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && line.charAt(0) != '#') {
+                    final int s = line.indexOf('-');
+                    if (s < 0) {
+                        codes.add(line);
+                    } else {
+                        final int last = Integer.parseInt(line.substring(s+1).trim());
+                        for (int code = Integer.parseInt(line.substring(0, s).trim()); code <= last; code++) {
+                            codes.add(Integer.toString(code));
+                        }
+                    }
+                }
+            }
+        }
+        return codes;
     }
 
     /**
@@ -16,24 +16,30 @@
  */
 package org.apache.sis.referencing.operation;
 
+import java.util.Arrays;
 import java.util.Objects;
+import org.opengis.metadata.extent.Extent;
+import org.opengis.metadata.extent.GeographicBoundingBox;
 import org.opengis.referencing.cs.EllipsoidalCS;
 import org.opengis.referencing.cs.CoordinateSystem;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.IdentifiedObject;
 import org.apache.sis.referencing.AbstractIdentifiedObject;
 import org.apache.sis.referencing.IdentifiedObjects;
+import org.apache.sis.metadata.iso.extent.Extents;
 import org.apache.sis.internal.util.Strings;
+import org.apache.sis.util.collection.Containers;
 import org.apache.sis.util.CharSequences;
 import org.apache.sis.util.Classes;
 
 
 /**
- * A pair of source-destination {@link CoordinateReferenceSystem} objects.
+ * A pair of source-destination {@link CoordinateReferenceSystem} objects,
+ * optionally together with the area of interest and desired accuracy.
  * Used as key in hash map.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 0.7
+ * @version 1.1
  * @since   0.7
  * @module
  */
@@ -43,14 +49,83 @@ final class CRSPair {
      */
     final CoordinateReferenceSystem sourceCRS, targetCRS;
 
+    /**
+     * The west, east, south and north bounds of the area of interest, or {@code null} if none.
+     * We store the bounds instead of the {@link Extent} because the later is usually modifiable.
+     */
+    private final double[] areaOfInterest;
+
+    /**
+     * The desired accuracy in metres, or 0 for the best accuracy available.
+     */
+    private final double desiredAccuracy;
+
     /**
      * Creates a {@code CRSPair} for the specified source and target CRS.
      */
     CRSPair(final CoordinateReferenceSystem sourceCRS,
             final CoordinateReferenceSystem targetCRS)
     {
-        this.sourceCRS = sourceCRS;
-        this.targetCRS = targetCRS;
+        this.sourceCRS  = sourceCRS;
+        this.targetCRS  = targetCRS;
+        areaOfInterest  = null;
+        desiredAccuracy = 0;
+    }
+
+    /**
+     * Creates a {@code CRSPair} for the specified source and target CRS in the given context.
+     */
+    private CRSPair(final CoordinateReferenceSystem sourceCRS,
+                    final CoordinateReferenceSystem targetCRS,
+                    final double[] areaOfInterest, final double desiredAccuracy)
+    {
+        this.sourceCRS       = sourceCRS;
+        this.targetCRS       = targetCRS;
+        this.areaOfInterest  = areaOfInterest;
+        this.desiredAccuracy = desiredAccuracy;
+    }
+
+    /**
+     * Creates a key for the given source and target CRS in the given context, or returns {@code null}
+     * if the operation found in that context can not be cached. Operations can be cached if the context
+     * is null or if its only information are a geographic bounding box and a desired accuracy. Instances
+     * of {@code CoordinateOperationContext} subclasses are not cached because they may filter operations
+     * in ways that we can not take in account in the key.
+     *
+     * @param  sourceCRS  input coordinate reference system.
+     * @param  targetCRS  output coordinate reference system.
+     * @param  context    area of interest and desired accuracy, or {@code null}.
+     * @return key for caching the operation, or {@code null} if the operation shall not be cached.
+     */
+    static CRSPair forContext(final CoordinateReferenceSystem sourceCRS,
+                              final CoordinateReferenceSystem targetCRS,
+                              final CoordinateOperationContext context)
+    {
+        if (context == null) {
+            return new CRSPair(sourceCRS, targetCRS);
+        }
+        if (context.getClass() != CoordinateOperationContext.class) {
+            return null;
+        }
+        double[] bounds = null;
+        final Extent area = context.getAreaOfInterest();
+        if (area != null) {
+            if (!Containers.isNullOrEmpty(area.getVerticalElements()) || !Containers.isNullOrEmpty(area.getTemporalElements())) {
+                return null;
+            }
+            final GeographicBoundingBox bbox = Extents.getGeographicBoundingBox(area);
+            if (bbox != null) {
+                bounds = new double[] {
+                    bbox.getWestBoundLongitude(),
+                    bbox.getEastBoundLongitude(),
+                    bbox.getSouthBoundLatitude(),
+                    bbox.getNorthBoundLatitude()
+                };
+            } else if (!Containers.isNullOrEmpty(area.getGeographicElements())) {
+                return null;
+            }
+        }
+        return new CRSPair(sourceCRS, targetCRS, bounds, context.getDesiredAccuracy());
     }
 
     /**
@@ -58,7 +133,8 @@ final class CRSPair {
      */
     @Override
     public int hashCode() {
-        return Objects.hashCode(sourceCRS) * 31 + Objects.hashCode(targetCRS);
+        return (Objects.hashCode(sourceCRS) * 31 + Objects.hashCode(targetCRS)) * 31
+                + Arrays.hashCode(areaOfInterest) + Double.hashCode(desiredAccuracy);
     }
 
     /**
@@ -74,7 +150,9 @@ final class CRSPair {
         if (object instanceof CRSPair) {
             final CRSPair that = (CRSPair) object;
             return Objects.equals(this.sourceCRS, that.sourceCRS) &&
-                   Objects.equals(this.targetCRS, that.targetCRS);
+                   Objects.equals(this.targetCRS, that.targetCRS) &&
+                   Arrays.equals(this.areaOfInterest, that.areaOfInterest) &&
+                   Double.doubleToLongBits(desiredAccuracy) == Double.doubleToLongBits(that.desiredAccuracy);
         }
         return false;
     }
@@ -17,6 +17,7 @@
 package org.apache.sis.referencing.operation;
 
 import java.util.Map;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Collections;
 import java.util.List;
@@ -86,7 +87,7 @@ import org.apache.sis.util.Utilities;
  * The second approach is the most frequently used.
  *
  * @author  Martin Desruisseaux (IRD, Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   0.6
  * @module
  */
@@ -149,18 +150,22 @@ public class DefaultCoordinateOperationFactory extends AbstractFactory implement
 
     /**
      * The cache of coordinate operations found for a given pair of source and target CRS.
-     * If current implementation, we cache only operations found without context (otherwise
-     * we would need to take in account the area of interest and desired accuracy in the key).
+     * Keys include the area of interest and desired accuracy when the operation has been
+     * found in a context. Operations found in some contexts are not cached; see
+     * {@link CRSPair#forContext CRSPair.forContext(…)} for the rules.
      *
      * @see #createOperation(CoordinateReferenceSystem, CoordinateReferenceSystem, CoordinateOperationContext)
      */
-    final Cache<CRSPair,CoordinateOperation> cache;
+    final OperationCache cache;
 
     /**
      * Constructs a factory with no default properties.
+     * The statistics of the cache of this factory are published as a JMX bean,
+     * unless another factory created by this constructor published them first.
      */
     public DefaultCoordinateOperationFactory() {
         this(null, null);
+        cache.register(CoordinateOperations.DEFAULT_CACHE_NAME);
     }
 
     /**
@@ -174,6 +179,9 @@ public class DefaultCoordinateOperationFactory extends AbstractFactory implement
      */
     @SuppressWarnings("ResultOfMethodCallIgnored")
     public DefaultCoordinateOperationFactory(Map<String,?> properties, final MathTransformFactory factory) {
+        long costLimit  = OperationCache.DEFAULT_COST_LIMIT;
+        long expiration = 0;
+        String cacheName = null;
         if (properties == null || properties.isEmpty()) {
             properties = Collections.emptyMap();
         } else {
@@ -188,6 +196,19 @@ public class DefaultCoordinateOperationFactory extends AbstractFactory implement
                 crsFactory = (CRSFactory)           (value = properties.remove(key = ReferencingFactoryContainer.CRS_FACTORY));
                 csFactory  = (CSFactory)            (value = properties.remove(key = ReferencingFactoryContainer.CS_FACTORY));
                 mtFactory  = (MathTransformFactory) (value = properties.remove(key = ReferencingFactoryContainer.MT_FACTORY));
+                /*
+                 * Cache configuration, also undocumented for now. See CoordinateOperations for the meaning of those keys.
+                 */
+                value = properties.remove(key = CoordinateOperations.CACHE_COST_LIMIT_KEY);
+                if (value != null) {
+                    costLimit = ((Number) value).longValue();
+                }
+                value = properties.remove(key = CoordinateOperations.CACHE_EXPIRATION_KEY);
+                if (value != null) {
+                    expiration = ((Duration) value).toNanos();
+                    ArgumentChecks.ensurePositive(key, expiration);
+                }
+                cacheName = (String) (value = properties.remove(key = CoordinateOperations.CACHE_NAME_KEY));
             } catch (ClassCastException e) {
                 throw new IllegalArgumentException(Errors.getResources(properties)
                         .getString(Errors.Keys.IllegalPropertyValueClass_2, key, Classes.getClass(value)));
@@ -200,7 +221,10 @@ public class DefaultCoordinateOperationFactory extends AbstractFactory implement
             mtFactory = factory;
         }
         pool = new WeakHashSet<>(IdentifiedObject.class);
-        cache = new Cache<>(12, 50, true);
+        cache = new OperationCache(costLimit, expiration);
+        if (cacheName != null) {
+            cache.register(cacheName);
+        }
     }
 
     /**
@@ -794,15 +818,15 @@ next:   for (int i=components.size(); --i >= 0;) {
     {
         final Cache.Handler<CoordinateOperation> handler;
         CoordinateOperation op;
-        if (context == null) {
-            final CRSPair key = new CRSPair(sourceCRS, targetCRS);
+        final CRSPair key = CRSPair.forContext(sourceCRS, targetCRS, context);
+        if (key != null) {
             op = cache.peek(key);
             if (op != null) {
                 return op;
             }
             handler = cache.lock(key);
         } else {
-            // We currently do not cache the operation when the result may depend on the context (see 'this.cache' javadoc).
+            // The result may depend on context information that we can not put in the key (see 'this.cache' javadoc).
             handler = null;
             op = null;
         }
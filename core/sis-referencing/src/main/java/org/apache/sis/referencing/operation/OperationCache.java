@@ -0,0 +1,367 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.referencing.operation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.lang.ref.WeakReference;
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.MBeanServer;
+import javax.management.StandardMBean;
+import javax.management.InstanceAlreadyExistsException;
+import org.opengis.referencing.operation.CoordinateOperation;
+import org.opengis.referencing.operation.ConcatenatedOperation;
+import org.apache.sis.internal.referencing.OperationCacheMBean;
+import org.apache.sis.internal.system.ReferenceQueueConsumer;
+import org.apache.sis.internal.system.Loggers;
+import org.apache.sis.util.collection.Cache;
+import org.apache.sis.util.logging.Logging;
+import org.apache.sis.util.resources.Messages;
+import org.apache.sis.util.Disposable;
+
+
+/**
+ * The cache of coordinate operations found by {@link DefaultCoordinateOperationFactory}.
+ * This cache differs from the standard {@link Cache} in the following aspects:
+ *
+ * <ul>
+ *   <li>The cost of an operation is its number of steps, so long chains of operations
+ *       are moved sooner to the set of softly referenced operations.</li>
+ *   <li>Operations can optionally be discarded after an expiration delay, for example
+ *       if the EPSG database may be updated while the application is running.</li>
+ *   <li>Hits, misses, evictions and expirations are counted. Those statistics can be
+ *       published as a JMX bean with {@link #register(String)}.</li>
+ * </ul>
+ *
+ * Counters are updated without synchronization with the cache content,
+ * so they are only approximations in multi-threads environment.
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+final class OperationCache extends Cache<CRSPair,CoordinateOperation> {
+    /**
+     * The default maximal cost of operations retained by strong references.
+     */
+    static final int DEFAULT_COST_LIMIT = 50;
+
+    /**
+     * The maximal cost of operations retained by strong references.
+     * Stored because {@link Cache} does not provide public access to this value.
+     */
+    private final long costLimit;
+
+    /**
+     * Delay in nanoseconds after which cached operations are discarded, or 0 if none.
+     */
+    private final long expiration;
+
+    /**
+     * Time (as given by {@link System#nanoTime()}) when operations have been added in the cache,
+     * or {@code null} if operations do not expire. This map may contain keys that are no longer
+     * in the cache if the operation has been discarded by the garbage collector; such entries
+     * are purged occasionally by {@link #record(CRSPair)}.
+     */
+    private final Map<CRSPair,Long> timestamps;
+
+    /**
+     * Statistics about the cache usage.
+     */
+    private final AtomicLong hits, misses, additions, removals, expirations;
+
+    /**
+     * The JMX name of this cache, or {@code null} if the statistics are not published.
+     * The bean is registered when the first operation is added to this cache.
+     */
+    private volatile String name;
+
+    /**
+     * Creates a new cache for coordinate operations.
+     *
+     * @param costLimit   the maximal cost of operations to keep by strong references.
+     * @param expiration  delay in nanoseconds after which operations are discarded, or 0 if none.
+     */
+    OperationCache(final long costLimit, final long expiration) {
+        super(12, costLimit, true);
+        this.costLimit  = costLimit;
+        this.expiration = expiration;
+        timestamps  = (expiration > 0) ? new ConcurrentHashMap<>() : null;
+        hits        = new AtomicLong();
+        misses      = new AtomicLong();
+        additions   = new AtomicLong();
+        removals    = new AtomicLong();
+        expirations = new AtomicLong();
+    }
+
+    /**
+     * Returns the cost of the given operation, which is its number of steps.
+     */
+    @Override
+    protected int cost(final CoordinateOperation operation) {
+        if (operation instanceof ConcatenatedOperation) {
+            return Math.max(1, ((ConcatenatedOperation) operation).getOperations().size());
+        }
+        return 1;
+    }
+
+    /**
+     * Returns the operation for the given key, or {@code null} if none or if the operation expired.
+     * This method updates the hit and miss counters.
+     */
+    @Override
+    public CoordinateOperation peek(final CRSPair key) {
+        CoordinateOperation op = super.peek(key);
+        if (op != null && expire(key)) {
+            op = null;
+        }
+        (op != null ? hits : misses).incrementAndGet();
+        return op;
+    }
+
+    /**
+     * Removes the operation for the given key if it is older than the expiration delay.
+     * The removal is unconditional because the cached value may be a soft or weak reference
+     * instead of the operation itself if the cost limit has been exceeded.
+     *
+     * @return whether the operation for the given key expired.
+     */
+    private boolean expire(final CRSPair key) {
+        if (timestamps != null) {
+            final Long time = timestamps.get(key);
+            if (time != null && System.nanoTime() - time >= expiration) {
+                if (timestamps.remove(key, time)) {         // For counting the expiration only once.
+                    super.remove(key);
+                    expirations.incrementAndGet();
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets a lock for the entry at the given key and returns a handler to be used by the caller
+     * for unlocking and storing the result. If the operation for the given key expired, it is
+     * removed first so that the handler requests a new computation. The returned handler records
+     * the time at which the operation is stored, for the expiration mechanism.
+     */
+    @Override
+    public Handler<CoordinateOperation> lock(final CRSPair key) {
+        expire(key);
+        final Handler<CoordinateOperation> handler = super.lock(key);
+        if (handler.peek() != null) {
+            return handler;                     // Nothing new will be stored.
+        }
+        return new Handler<CoordinateOperation>() {
+            @Override public CoordinateOperation peek() {
+                return handler.peek();
+            }
+
+            @Override public void putAndUnlock(final CoordinateOperation result) {
+                handler.putAndUnlock(result);
+                if (result != null) {
+                    record(key);
+                }
+            }
+        };
+    }
+
+    /**
+     * Invoked after an operation has been added in the cache for the given key.
+     */
+    private void record(final CRSPair key) {
+        additions.incrementAndGet();
+        if (timestamps != null) {
+            timestamps.put(key, System.nanoTime());
+            if (timestamps.size() > 2*size() + 16) {
+                timestamps.keySet().removeIf((k) -> !containsKey(k));
+            }
+        }
+        if (name != null) {
+            final String n;
+            synchronized (this) {
+                n = name;
+                name = null;
+            }
+            if (n != null) {
+                new Registration(this).register(n);
+            }
+        }
+    }
+
+    /**
+     * Removes all cached operations and resets the counters to zero.
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        if (timestamps != null) {
+            timestamps.clear();
+        }
+        hits       .set(0);
+        misses     .set(0);
+        additions  .set(0);
+        removals   .set(0);
+        expirations.set(0);
+    }
+
+    /**
+     * Removes the operation for the given key. This method is not used by
+     * {@link DefaultCoordinateOperationFactory} but is defined for keeping
+     * the eviction counter consistent if a user removes entries explicitly.
+     */
+    @Override
+    public CoordinateOperation remove(final Object key) {
+        final CoordinateOperation op = super.remove(key);
+        if (op != null) {
+            removals.incrementAndGet();
+            if (timestamps != null) {
+                timestamps.remove(key);
+            }
+        }
+        return op;
+    }
+
+    /**
+     * Requests this cache to publish its statistics as a JMX bean under the given name.
+     * The registration is deferred until an operation is added in this cache, and the
+     * bean is unregistered when this cache is garbage-collected.
+     *
+     * @param  name  value of the {@code name} property in the JMX object name.
+     */
+    final void register(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the number of times that a requested operation has been found in the cache.
+     */
+    final long hits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of times that a requested operation has not been found in the cache.
+     */
+    final long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of operations discarded because they were older than the expiration delay.
+     */
+    final long expirations() {
+        return expirations.get();
+    }
+
+    /**
+     * Returns the number of operations discarded by the garbage collector.
+     * This is computed as the number of additions minus the number of operations
+     * removed explicitly or by expiration, minus the number of operations still in the cache.
+     */
+    final long evictions() {
+        return Math.max(0, additions.get() - removals.get() - expirations.get() - size());
+    }
+
+    /**
+     * The JMX bean publishing the statistics of an {@link OperationCache}. This bean holds only a weak reference
+     * to the cache, for allowing the garbage collector to discard the cache together with its factory. The bean
+     * is unregistered when this reference is cleared.
+     */
+    private static final class Registration extends WeakReference<OperationCache> implements OperationCacheMBean, Disposable {
+        /**
+         * The registered JMX name, or {@code null} if the registration failed.
+         */
+        private volatile ObjectName name;
+
+        /**
+         * Creates a new bean for the statistics of the given cache.
+         */
+        Registration(final OperationCache cache) {
+            super(cache, ReferenceQueueConsumer.QUEUE);
+        }
+
+        /**
+         * Registers this bean under the given name, unless a bean is already registered under that name.
+         * If the registration fails, then this method logs a message and the bean will not be registered.
+         * This method does not propagate the exception because the bean is not a mandatory part of the factory.
+         */
+        final void register(final String property) {
+            final LogRecord record;
+            String n = NAME;
+            try {
+                n = NAME + ",name=" + ObjectName.quote(property);
+                final ObjectName on = new ObjectName(n);
+                final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                if (!server.isRegistered(on)) {     // Otherwise the factory registered first has precedence.
+                    server.registerMBean(new StandardMBean(this, OperationCacheMBean.class), on);
+                    name = on;
+                }
+                return;
+            } catch (InstanceAlreadyExistsException e) {
+                record = Messages.getResources(null).getLogRecord(Level.CONFIG, Messages.Keys.AlreadyRegistered_2, "MBean", n);
+            } catch (JMException e) {
+                record = new LogRecord(Level.WARNING, e.toString());
+                record.setThrown(e);
+            } catch (SecurityException e) {
+                record = new LogRecord(Level.CONFIG, e.toString());
+            }
+            record.setLoggerName(Loggers.COORDINATE_OPERATION);
+            Logging.log(OperationCache.class, "register", record);
+        }
+
+        /**
+         * Unregisters this bean after the cache has been garbage-collected.
+         */
+        @Override
+        public void dispose() {
+            final ObjectName n = name;
+            if (n != null) try {
+                name = null;
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(n);
+            } catch (JMException e) {
+                Logging.unexpectedException(Logging.getLogger(Loggers.COORDINATE_OPERATION), OperationCache.class, "dispose", e);
+            }
+        }
+
+        /** Returns the value computed by the given function, or 0 if the cache has been garbage-collected. */
+        private long value(final ToLongFunction<OperationCache> f) {
+            final OperationCache cache = get();
+            return (cache != null) ? f.applyAsLong(cache) : 0;
+        }
+
+        @Override public long getHitCount()        {return value(OperationCache::hits);}
+        @Override public long getMissCount()       {return value(OperationCache::misses);}
+        @Override public long getEvictionCount()   {return value(OperationCache::evictions);}
+        @Override public long getExpirationCount() {return value(OperationCache::expirations);}
+        @Override public int  getSize()            {return (int) value(OperationCache::size);}
+        @Override public long getCostLimit()       {return value((c) -> c.costLimit);}
+        @Override public long getExpirationDelay() {return value((c) -> c.expiration / 1000000);}
+        @Override public void clear() {
+            final OperationCache cache = get();
+            if (cache != null) cache.clear();
+        }
+    }
+}
@@ -0,0 +1,497 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.referencing.operation.builder;
+
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import org.opengis.geometry.Envelope;
+import org.opengis.geometry.MismatchedDimensionException;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.MathTransformFactory;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.util.FactoryException;
+import org.apache.sis.referencing.operation.transform.LinearTransform;
+import org.apache.sis.referencing.operation.transform.MathTransforms;
+import org.apache.sis.internal.referencing.Resources;
+import org.apache.sis.internal.system.Loggers;
+import org.apache.sis.util.logging.Logging;
+import org.apache.sis.util.resources.Errors;
+import org.apache.sis.util.ArgumentChecks;
+import org.apache.sis.math.Vector;
+
+
+/**
+ * Creates an approximation of a two-dimensional transform, valid in a given domain within a given tolerance.
+ * The approximation is a {@linkplain LocalizationGridBuilder localization grid} computed from the exact
+ * transform at regularly spaced points. Transformations of points between grid nodes are performed by
+ * bilinear interpolations, which are much faster than the evaluation of map projection formulas or chains
+ * of datum shifts. This is useful for operations transforming a large amount of points where a small error
+ * is acceptable, for example image resampling or rendering.
+ *
+ * <p>The grid starts with a few cells in each dimension and is refined until the errors are not greater than
+ * the tolerance at the sample points. The sample points are the points of a lattice of
+ * {@value #SAMPLES}×{@value #SAMPLES} sub-cells in each grid cell, excluding the grid nodes.
+ * <strong>The tolerance is a sampling heuristic, not a guaranteed bound:</strong> errors between
+ * sample points are not verified. They are close to the verified errors if the exact transform
+ * is smooth at the scale of a sub-cell, but may be larger otherwise.</p>
+ *
+ * <p>Refinements are adaptive: only the columns and rows containing cells which exceeded the tolerance
+ * are split in two. A column is split if the errors are found on the horizontal edges of a cell, and a row
+ * is split if the errors are found on the vertical edges. If the errors are found only inside the cell,
+ * the split is along the axis having the largest errors on the edges. Consequently the grid lines are not
+ * equally spaced. The grid indices expected by {@link LocalizationGridBuilder} are obtained from source
+ * coordinates by a piecewise linear interpolation along each axis, which is linear inside each cell.</p>
+ *
+ * <p>A refinement does not recompute the whole grid: the nodes of the previous grid are kept and the exact
+ * transform is evaluated only at the new nodes. The errors are verified again only in the cells resulting
+ * from the subdivision of cells which exceeded the tolerance, on the assumption that subdividing an accurate
+ * cell does not make it less accurate.</p>
+ *
+ * <p>If the tolerance can not be met with a grid of at most {@value #MAXIMUM_CELLS} cells in each dimension,
+ * or if some points can not be transformed, then {@link #create(MathTransformFactory)} returns the exact transform.
+ * In the later case a warning is logged. {@link #getGridSize()} tells whether the exact transform is used.</p>
+ *
+ * <p>The exact transform may be invoked from many threads during the construction of the grid.</p>
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+public class ApproximateTransformBuilder extends TransformBuilder {
+    /**
+     * Number of dimensions of source and target coordinates.
+     */
+    private static final int DIMENSION = 2;
+
+    /**
+     * Number of cells in each dimension of the first grid to try.
+     */
+    static final int INITIAL_CELLS = 4;
+
+    /**
+     * Maximal number of cells in each dimension. If the tolerance can not be met with a grid of that size,
+     * then the exact transform is used instead.
+     */
+    static final int MAXIMUM_CELLS = 1024;
+
+    /**
+     * Number of intervals along each edge of a cell where the errors are verified.
+     * The number of points verified in each cell is ({@code SAMPLES} + 1)² − 4,
+     * since the 4 corners are grid nodes where the approximation is exact.
+     */
+    static final int SAMPLES = 4;
+
+    /**
+     * The transform to approximate.
+     */
+    private final MathTransform exact;
+
+    /**
+     * The minimal and maximal source coordinates of the domain where the approximation will be used.
+     */
+    private final double xmin, ymin, xmax, ymax;
+
+    /**
+     * The maximal distance, in units of target coordinates, between the exact and the approximated results.
+     */
+    private final double tolerance;
+
+    /**
+     * Number of cells in each dimension of the grid, or 0 if the exact transform is used.
+     * Defined after {@link #create(MathTransformFactory)} has been invoked.
+     */
+    private int width, height;
+
+    /**
+     * The transform created by {@link #create(MathTransformFactory)}.
+     */
+    private MathTransform transform;
+
+    /**
+     * Creates a new builder for an approximation of the given transform.
+     *
+     * @param  exact      the two-dimensional transform to approximate.
+     * @param  domain     the domain of source coordinates where the approximation will be used.
+     * @param  tolerance  the maximal distance, in units of target coordinates, between the exact
+     *                    and the approximated results at the sample points.
+     * @throws MismatchedDimensionException if the transform or the envelope is not two-dimensional.
+     */
+    public ApproximateTransformBuilder(final MathTransform exact, final Envelope domain, final double tolerance) {
+        ArgumentChecks.ensureNonNull("exact", exact);
+        ArgumentChecks.ensureDimensionMatches("domain", DIMENSION, domain);
+        ArgumentChecks.ensureStrictlyPositive("tolerance", tolerance);
+        ensureTwoDimensional("exact.sourceDimensions", exact.getSourceDimensions());
+        ensureTwoDimensional("exact.targetDimensions", exact.getTargetDimensions());
+        this.exact     = exact;
+        this.tolerance = tolerance;
+        xmin = domain.getMinimum(0);
+        xmax = domain.getMaximum(0);
+        ymin = domain.getMinimum(1);
+        ymax = domain.getMaximum(1);
+        ArgumentChecks.ensureStrictlyPositive("domain.span(0)", xmax - xmin);
+        ArgumentChecks.ensureStrictlyPositive("domain.span(1)", ymax - ymin);
+    }
+
+    /**
+     * Ensures that the given number of dimensions is two.
+     */
+    private static void ensureTwoDimensional(final String name, final int dimension) {
+        if (dimension != DIMENSION) {
+            throw new MismatchedDimensionException(Errors.format(Errors.Keys.MismatchedDimension_3, name, DIMENSION, dimension));
+        }
+    }
+
+    /**
+     * Creates the approximated transform. This method computes grids of increasing resolution
+     * until the errors are within the tolerance specified at construction time.
+     * If some points can not be transformed, a warning is logged and the exact transform is returned.
+     *
+     * @param  factory  the factory to use for creating the transform, or {@code null} for the default factory.
+     * @return the approximated transform, or the exact transform if it can not be approximated.
+     * @throws FactoryException if an error occurred while creating the transform.
+     */
+    @Override
+    public MathTransform create(MathTransformFactory factory) throws FactoryException {
+        if (transform == null) {
+            factory = nonNull(factory);
+            MathTransform result = null;
+            try {
+                double[] xs = regular(xmin, xmax, INITIAL_CELLS);
+                double[] ys = regular(ymin, ymax, INITIAL_CELLS);
+                double[] nodes = transformNodes(null, null, null, xs, ys);
+                boolean[] candidates = null;                        // Cells to verify, or null for all cells.
+                for (;;) {
+                    final int nx = xs.length - 1;
+                    final int ny = ys.length - 1;
+                    result = createGrid(factory, nodes, xs, ys);
+                    final boolean[] failed = new boolean[nx * ny];
+                    final boolean[] splitX = new boolean[nx];
+                    final boolean[] splitY = new boolean[ny];
+                    if (!verify(result, xs, ys, candidates, failed, splitX, splitY)) {
+                        width  = nx;
+                        height = ny;
+                        break;
+                    }
+                    result = null;
+                    final int[] newCols = newIndices(splitX);
+                    final int[] newRows = newIndices(splitY);
+                    if (newCols[nx] > MAXIMUM_CELLS || newRows[ny] > MAXIMUM_CELLS) {
+                        break;
+                    }
+                    candidates = subdivide(failed, newCols, newRows);
+                    xs = split(xs, newCols);
+                    ys = split(ys, newRows);
+                    nodes = transformNodes(nodes, oldIndices(newCols), oldIndices(newRows), xs, ys);
+                }
+            } catch (TransformException e) {
+                final LogRecord record = Resources.forLocale(null).getLogRecord(Level.WARNING,
+                        Resources.Keys.ExactTransformUsed_1, e.getLocalizedMessage());
+                record.setLoggerName(Loggers.COORDINATE_OPERATION);
+                Logging.log(ApproximateTransformBuilder.class, "create", record);
+                result = null;
+            }
+            transform = (result != null) ? result : exact;
+        }
+        return transform;
+    }
+
+    /**
+     * Returns the coordinates of {@code n}+1 equally spaced grid lines from {@code min} to {@code max} inclusive.
+     */
+    private static double[] regular(final double min, final double max, final int n) {
+        final double[] coordinates = new double[n + 1];
+        for (int i=0; i<n; i++) {
+            coordinates[i] = min + i * (max - min) / n;
+        }
+        coordinates[n] = max;
+        return coordinates;
+    }
+
+    /**
+     * Returns the indices of the grid lines after the split of the cells flagged in the given array.
+     * The array length is the number of cells plus one. The last element is the new number of cells.
+     *
+     * @param  split  the cells to split in two, along a single axis.
+     * @return the new index of each grid line.
+     */
+    private static int[] newIndices(final boolean[] split) {
+        final int[] indices = new int[split.length + 1];
+        for (int i=0; i<split.length; i++) {
+            indices[i+1] = indices[i] + (split[i] ? 2 : 1);
+        }
+        return indices;
+    }
+
+    /**
+     * Returns the index in the previous grid of each grid line of the new grid, or -1 for the new grid lines.
+     *
+     * @param  newIndices  the value returned by {@link #newIndices(boolean[])}.
+     * @return the old index of each new grid line, or -1 if none.
+     */
+    private static int[] oldIndices(final int[] newIndices) {
+        final int[] indices = new int[newIndices[newIndices.length - 1] + 1];
+        Arrays.fill(indices, -1);
+        for (int i=0; i<newIndices.length; i++) {
+            indices[newIndices[i]] = i;
+        }
+        return indices;
+    }
+
+    /**
+     * Returns the coordinates of the grid lines after the split of some cells at their middle.
+     *
+     * @param  coordinates  the coordinates of the grid lines before the split.
+     * @param  newIndices   the value returned by {@link #newIndices(boolean[])}.
+     * @return the coordinates of the grid lines after the split.
+     */
+    private static double[] split(final double[] coordinates, final int[] newIndices) {
+        final double[] result = new double[newIndices[newIndices.length - 1] + 1];
+        for (int i=0; i<coordinates.length; i++) {
+            final int k = newIndices[i];
+            result[k] = coordinates[i];
+            if (i != 0 && newIndices[i-1] != k - 1) {
+                result[k-1] = (coordinates[i-1] + coordinates[i]) / 2;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the target coordinates of all nodes of a grid having the given grid lines. If a previous grid
+     * is given, the nodes which are common to both grids are copied and the exact transform is applied only
+     * on new nodes.
+     *
+     * @param  previous  target coordinates of the nodes of the previous grid, or {@code null} if none.
+     * @param  oldCols   index of each column in the previous grid, or -1 for new columns.
+     * @param  oldRows   index of each row in the previous grid, or -1 for new rows.
+     * @param  xs        the <var>x</var> coordinates of the grid columns.
+     * @param  ys        the <var>y</var> coordinates of the grid rows.
+     * @return target coordinates of all nodes, with <var>x</var> varying fastest.
+     * @throws TransformException if the exact transform failed for some nodes.
+     */
+    private double[] transformNodes(final double[] previous, final int[] oldCols, final int[] oldRows,
+                                    final double[] xs, final double[] ys) throws TransformException
+    {
+        final int oldWidth = (previous != null) ? oldCols[oldCols.length - 1] + 1 : 0;
+        final double[] nodes  = new double[xs.length * ys.length * DIMENSION];
+        final double[] points = new double[nodes.length];
+        int n = 0;
+        for (int j=0; j<ys.length; j++) {
+            for (int i=0; i<xs.length; i++) {
+                if (previous == null || oldCols[i] < 0 || oldRows[j] < 0) {
+                    points[n++] = xs[i];
+                    points[n++] = ys[j];
+                }
+            }
+        }
+        final double[] source = points.clone();
+        MathTransforms.transformInParallel(exact, points, 0, points, 0, n / DIMENSION);
+        n = 0;
+        int k = 0;
+        for (int j=0; j<ys.length; j++) {
+            for (int i=0; i<xs.length; i++) {
+                if (previous == null || oldCols[i] < 0 || oldRows[j] < 0) {
+                    if (Double.isNaN(nodes[k] = points[n]) | Double.isNaN(nodes[k+1] = points[n+1])) {
+                        throw new TransformException(Resources.format(
+                                Resources.Keys.CanNotTransformCoordinates_2, source[n], source[n+1]));
+                    }
+                    n += DIMENSION;
+                } else {
+                    System.arraycopy(previous, (oldRows[j] * oldWidth + oldCols[i]) * DIMENSION, nodes, k, DIMENSION);
+                }
+                k += DIMENSION;
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Creates a localization grid from the target coordinates of the nodes. If the grid lines are not
+     * equally spaced, the localization grid is preceded by a piecewise linear conversion from source
+     * coordinates to grid indices.
+     *
+     * @param  factory  the factory to use for creating the transform.
+     * @param  nodes    target coordinates of the nodes, as computed by {@link #transformNodes transformNodes(…)}.
+     * @param  xs       the <var>x</var> coordinates of the grid columns.
+     * @param  ys       the <var>y</var> coordinates of the grid rows.
+     * @return the transform interpolating in the grid.
+     */
+    private static MathTransform createGrid(final MathTransformFactory factory, final double[] nodes,
+                                            final double[] xs, final double[] ys) throws FactoryException
+    {
+        final int numPts = nodes.length / DIMENSION;
+        final double[] x = new double[numPts];
+        final double[] y = new double[numPts];
+        for (int i=0, k=0; i<numPts; i++) {
+            x[i] = nodes[k++];
+            y[i] = nodes[k++];
+        }
+        final LocalizationGridBuilder builder = new LocalizationGridBuilder(xs.length, ys.length);
+        builder.setControlPoints(Vector.create(x), Vector.create(y));
+        final MathTransform sourceToGrid = MathTransforms.compound(
+                MathTransforms.interpolate(xs, null),
+                MathTransforms.interpolate(ys, null));
+        if (sourceToGrid instanceof LinearTransform) {
+            builder.setSourceToGrid((LinearTransform) sourceToGrid);
+            return builder.create(factory);
+        }
+        return factory.createConcatenatedTransform(sourceToGrid, builder.create(factory));
+    }
+
+    /**
+     * Returns whether the lattice point at the given indices in a cell is a corner of that cell.
+     */
+    private static boolean isCorner(final int a, final int b) {
+        return (a == 0 || a == SAMPLES) && (b == 0 || b == SAMPLES);
+    }
+
+    /**
+     * Compares the approximation with the exact transform at the sample points of the given cells.
+     * Cells where the tolerance is exceeded are flagged in the {@code failed} array.
+     * Errors on horizontal edges of a cell mean that its column needs to be split, and errors on vertical
+     * edges mean that its row needs to be split. Errors only inside the cell mean that the errors along
+     * both axes add up; in such case the split is along the axis having the largest errors on the edges.
+     *
+     * @param  approximation  the approximated transform to verify.
+     * @param  xs             the <var>x</var> coordinates of the grid columns.
+     * @param  ys             the <var>y</var> coordinates of the grid rows.
+     * @param  candidates     the cells to verify, or {@code null} for verifying all cells.
+     * @param  failed         where to flag the cells which exceed the tolerance.
+     * @param  splitX         where to flag the columns to split.
+     * @param  splitY         where to flag the rows to split.
+     * @return whether at least one cell exceeds the tolerance.
+     * @throws TransformException if the exact transform failed for some sample points.
+     */
+    private boolean verify(final MathTransform approximation, final double[] xs, final double[] ys,
+                           final boolean[] candidates, final boolean[] failed,
+                           final boolean[] splitX, final boolean[] splitY) throws TransformException
+    {
+        final int nx = xs.length - 1;
+        int numCells = 0;
+        final int[] cells = new int[failed.length];
+        for (int c=0; c<cells.length; c++) {
+            if (candidates == null || candidates[c]) {
+                cells[numCells++] = c;
+            }
+        }
+        final int numPts = numCells * ((SAMPLES + 1) * (SAMPLES + 1) - 4);
+        final double[] source = new double[numPts * DIMENSION];
+        int k = 0;
+        for (int c=0; c<numCells; c++) {
+            final int i = cells[c] % nx;
+            final int j = cells[c] / nx;
+            final double dx = xs[i+1] - xs[i];
+            final double dy = ys[j+1] - ys[j];
+            for (int b=0; b<=SAMPLES; b++) {
+                final double y = ys[j] + (b / (double) SAMPLES) * dy;
+                for (int a=0; a<=SAMPLES; a++) {
+                    if (!isCorner(a, b)) {
+                        source[k++] = xs[i] + (a / (double) SAMPLES) * dx;
+                        source[k++] = y;
+                    }
+                }
+            }
+        }
+        final double[] expected = source.clone();
+        final double[] actual   = new double[source.length];
+        MathTransforms.transformInParallel(exact, expected, 0, expected, 0, numPts);
+        approximation.transform(source, 0, actual, 0, numPts);
+        boolean hasFailures = false;
+        k = 0;
+        for (int c=0; c<numCells; c++) {
+            boolean inside = false;
+            double  errorX = 0, errorY = 0;                 // Maximal errors on horizontal and vertical edges.
+            for (int b=0; b<=SAMPLES; b++) {
+                for (int a=0; a<=SAMPLES; a++) {
+                    if (isCorner(a, b)) continue;
+                    final double ex = expected[k];
+                    final double ey = expected[k+1];
+                    if (Double.isNaN(ex) || Double.isNaN(ey)) {
+                        throw new TransformException(Resources.format(
+                                Resources.Keys.CanNotTransformCoordinates_2, source[k], source[k+1]));
+                    }
+                    final double error = Math.hypot(ex - actual[k], ey - actual[k+1]);
+                    if (b == 0 || b == SAMPLES) {
+                        errorX = Math.max(errorX, error);       // Error on a horizontal edge.
+                    } else if (a == 0 || a == SAMPLES) {
+                        errorY = Math.max(errorY, error);       // Error on a vertical edge.
+                    } else if (!(error <= tolerance)) {
+                        inside = true;
+                    }
+                    k += DIMENSION;
+                }
+            }
+            boolean edgeX = !(errorX <= tolerance);
+            boolean edgeY = !(errorY <= tolerance);
+            if (edgeX | edgeY | inside) {
+                if (!(edgeX | edgeY)) {
+                    /*
+                     * Errors only inside the cell, typically because the errors along both axes add up.
+                     * Split along the axis having the largest errors on the edges, or both if equal.
+                     */
+                    edgeX = (errorX >= errorY);
+                    edgeY = (errorY >= errorX);
+                }
+                final int cell = cells[c];
+                failed[cell] = true;
+                splitX[cell % nx] |= edgeX;
+                splitY[cell / nx] |= edgeY;
+                hasFailures = true;
+            }
+        }
+        return hasFailures;
+    }
+
+    /**
+     * Returns the cells of the refined grid which result from the subdivision of the failed cells.
+     *
+     * @param  failed   the cells of the current grid which exceeded the tolerance.
+     * @param  newCols  new index of each column, as computed by {@link #newIndices(boolean[])}.
+     * @param  newRows  new index of each row, as computed by {@link #newIndices(boolean[])}.
+     * @return the cells to verify in the refined grid.
+     */
+    private static boolean[] subdivide(final boolean[] failed, final int[] newCols, final int[] newRows) {
+        final int nx = newCols.length - 1;
+        final int ny = newRows.length - 1;
+        final int newWidth = newCols[nx];
+        final boolean[] candidates = new boolean[newWidth * newRows[ny]];
+        for (int j=0; j<ny; j++) {
+            for (int i=0; i<nx; i++) {
+                if (failed[j*nx + i]) {
+                    for (int v=newRows[j]; v<newRows[j+1]; v++) {
+                        for (int u=newCols[i]; u<newCols[i+1]; u++) {
+                            candidates[v * newWidth + u] = true;
+                        }
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns the number of cells along the <var>x</var> and <var>y</var> axes of the grid used by the approximation.
+     * This is {0,0} if {@link #create(MathTransformFactory)} has not yet been invoked or if it returned the exact transform.
+     *
+     * @return number of cells in each dimension of the localization grid.
+     */
+    public int[] getGridSize() {
+        return new int[] {width, height};
+    }
+}
@@ -18,6 +18,10 @@ package org.apache.sis.referencing.operation.transform;
 
 import java.util.List;
 import java.util.Arrays;
+import java.nio.Buffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.BufferOverflowException;
 import org.opengis.util.FactoryException;
 import org.opengis.geometry.DirectPosition;
 import org.opengis.geometry.MismatchedDimensionException;
@@ -78,7 +82,7 @@ import static org.apache.sis.util.ArgumentChecks.ensureDimensionMatches;
  * running the same SIS version.
  *
  * @author  Martin Desruisseaux (IRD, Geomatys)
- * @version 1.0
+ * @version 1.1
  *
  * @see DefaultMathTransformFactory
  * @see org.apache.sis.referencing.operation.AbstractCoordinateOperation
@@ -555,51 +559,56 @@ public abstract class AbstractMathTransform extends FormattableObject
          * We will verify that with an assert statement inside the do loop.
          */
         final int bufferedSrcOff = (dimSource >= dimTarget) ? 0 : dstStop - srcStop;
-        final double[] buffer = new double[bufferSize];
+        final ScratchBuffer scratch = ScratchBuffer.current();
+        final double[] buffer = scratch.acquire(bufferSize);
         TransformException failure = null;
-        do {
-            if (numPts < numBufferedPts) {
-                numBufferedPts = numPts;
-                srcStop = numPts * dimSource;
-                dstStop = numPts * dimTarget;
-                if (srcInc < 0) {
+        try {
+            do {
+                if (numPts < numBufferedPts) {
+                    numBufferedPts = numPts;
+                    srcStop = numPts * dimSource;
+                    dstStop = numPts * dimTarget;
+                    if (srcInc < 0) {
+                        /*
+                         * If we were applying IterationStrategy.DESCENDING, then srcOff and dstOff
+                         * may be negative at this point because the last pass may not fill all the
+                         * buffer space. We need to apply the correction below.
+                         */
+                        srcOff -= (srcStop + srcInc);
+                        dstOff -= (dstStop + dstInc);
+                    }
+                }
+                for (int i=0; i<srcStop; i++) {
+                    buffer[bufferedSrcOff + i] = srcPts[srcOff + i];
+                }
+                assert !IterationStrategy.suggest(bufferedSrcOff, dimSource, 0, dimTarget, numBufferedPts).needBuffer;
+                try {
+                    transform(buffer, bufferedSrcOff, buffer, 0, numBufferedPts);
+                } catch (TransformException exception) {
                     /*
-                     * If we were applying IterationStrategy.DESCENDING, then srcOff and dstOff
-                     * may be negative at this point because the last pass may not fill all the
-                     * buffer space. We need to apply the correction below.
+                     * If an exception occurred but the transform nevertheless declares having been
+                     * able to process all coordinate points (setting to NaN those that can not be
+                     * transformed), we will keep the first exception (to be propagated at the end
+                     * of this method) and continue. Otherwise we will stop immediately.
                      */
-                    srcOff -= (srcStop + srcInc);
-                    dstOff -= (dstStop + dstInc);
+                    if (exception.getLastCompletedTransform() != this) {
+                        throw exception;
+                    } else if (failure == null) {
+                        failure = exception;                        // Keep only the first exception.
+                    } else {
+                        failure.addSuppressed(exception);
+                    }
                 }
-            }
-            for (int i=0; i<srcStop; i++) {
-                buffer[bufferedSrcOff + i] = srcPts[srcOff + i];
-            }
-            assert !IterationStrategy.suggest(bufferedSrcOff, dimSource, 0, dimTarget, numBufferedPts).needBuffer;
-            try {
-                transform(buffer, bufferedSrcOff, buffer, 0, numBufferedPts);
-            } catch (TransformException exception) {
-                /*
-                 * If an exception occurred but the transform nevertheless declares having been
-                 * able to process all coordinate points (setting to NaN those that can not be
-                 * transformed), we will keep the first exception (to be propagated at the end
-                 * of this method) and continue. Otherwise we will stop immediately.
-                 */
-                if (exception.getLastCompletedTransform() != this) {
-                    throw exception;
-                } else if (failure == null) {
-                    failure = exception;                        // Keep only the first exception.
-                } else {
-                    failure.addSuppressed(exception);
+                for (int i=0; i<dstStop; i++) {
+                    dstPts[dstOff + i] = (float) buffer[i];
                 }
-            }
-            for (int i=0; i<dstStop; i++) {
-                dstPts[dstOff + i] = (float) buffer[i];
-            }
-            srcOff += srcInc;
-            dstOff += dstInc;
-            numPts -= numBufferedPts;
-        } while (numPts != 0);
+                srcOff += srcInc;
+                dstOff += dstInc;
+                numPts -= numBufferedPts;
+            } while (numPts != 0);
+        } finally {
+            scratch.release();
+        }
         if (failure != null) {
             throw failure;
         }
@@ -637,32 +646,37 @@ public abstract class AbstractMathTransform extends FormattableObject
         }
         int srcLength = numBufferedPts * dimSource;
         int dstLength = numBufferedPts * dimTarget;
-        final double[] buffer = new double[bufferSize];
+        final ScratchBuffer scratch = ScratchBuffer.current();
+        final double[] buffer = scratch.acquire(bufferSize);
         TransformException failure = null;
-        do {
-            if (numPts < numBufferedPts) {
-                numBufferedPts = numPts;
-                srcLength = numPts * dimSource;
-                dstLength = numPts * dimTarget;
-            }
-            try {
-                transform(srcPts, srcOff, buffer, 0, numBufferedPts);
-            } catch (TransformException exception) {
-                // Same comment than in transform(float[], ...,float[], ...)
-                if (exception.getLastCompletedTransform() != this) {
-                    throw exception;
-                } else if (failure == null) {
-                    failure = exception;
-                } else {
-                    failure.addSuppressed(exception);
+        try {
+            do {
+                if (numPts < numBufferedPts) {
+                    numBufferedPts = numPts;
+                    srcLength = numPts * dimSource;
+                    dstLength = numPts * dimTarget;
                 }
-            }
-            for (int i=0; i<dstLength; i++) {
-                dstPts[dstOff++] = (float) buffer[i];
-            }
-            srcOff += srcLength;
-            numPts -= numBufferedPts;
-        } while (numPts != 0);
+                try {
+                    transform(srcPts, srcOff, buffer, 0, numBufferedPts);
+                } catch (TransformException exception) {
+                    // Same comment than in transform(float[], ...,float[], ...)
+                    if (exception.getLastCompletedTransform() != this) {
+                        throw exception;
+                    } else if (failure == null) {
+                        failure = exception;
+                    } else {
+                        failure.addSuppressed(exception);
+                    }
+                }
+                for (int i=0; i<dstLength; i++) {
+                    dstPts[dstOff++] = (float) buffer[i];
+                }
+                srcOff += srcLength;
+                numPts -= numBufferedPts;
+            } while (numPts != 0);
+        } finally {
+            scratch.release();
+        }
         if (failure != null) {
             throw failure;
         }
@@ -709,32 +723,276 @@ public abstract class AbstractMathTransform extends FormattableObject
         }
         int srcLength = numBufferedPts * dimSource;
         int dstLength = numBufferedPts * dimTarget;
-        final double[] buffer = new double[bufferSize];
+        final ScratchBuffer scratch = ScratchBuffer.current();
+        final double[] buffer = scratch.acquire(bufferSize);
         TransformException failure = null;
-        do {
-            if (numPts < numBufferedPts) {
-                numBufferedPts = numPts;
-                srcLength = numPts * dimSource;
-                dstLength = numPts * dimTarget;
-            }
-            for (int i=0; i<srcLength; i++) {
-                buffer[i] = srcPts[srcOff++];
+        try {
+            do {
+                if (numPts < numBufferedPts) {
+                    numBufferedPts = numPts;
+                    srcLength = numPts * dimSource;
+                    dstLength = numPts * dimTarget;
+                }
+                for (int i=0; i<srcLength; i++) {
+                    buffer[i] = srcPts[srcOff++];
+                }
+                try {
+                    transform(buffer, 0, dstPts, dstOff, numBufferedPts);
+                } catch (TransformException exception) {
+                    // Same comment than in transform(float[], ...,float[], ...)
+                    if (exception.getLastCompletedTransform() != this) {
+                        throw exception;
+                    } else if (failure == null) {
+                        failure = exception;
+                    } else {
+                        failure.addSuppressed(exception);
+                    }
+                }
+                dstOff += dstLength;
+                numPts -= numBufferedPts;
+            } while (numPts != 0);
+        } finally {
+            scratch.release();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Transforms the coordinate tuples in the given buffer of doubles. Coordinates are read from the
+     * source buffer position to its limit, and written in the destination buffer starting at its position.
+     * On return, the position of both buffers is advanced by the number of coordinate values read or written.
+     * This method is convenient for points stored outside the Java heap, for example in a memory-mapped file.
+     *
+     * <p>The default implementation delegates to {@link #transform(double[], int, double[], int, int)}
+     * for blocks of a few hundreds values. If both buffers are backed by accessible arrays, then the arrays
+     * are given directly to that method without copy. Otherwise (for example with direct buffers),
+     * the coordinates of each block are transferred through a temporary array, using bulk get and put operations.
+     * The same policy applies to all transforms, including the concatenated ones.</p>
+     *
+     * <p>The two buffers may share the same content only if they have the same position and this transform
+     * has the same number of source and target dimensions.</p>
+     *
+     * @param  srcPts  the buffer containing the source point coordinates.
+     * @param  dstPts  the buffer into which the transformed point coordinates are written.
+     * @throws IllegalArgumentException if the number of remaining source values is not a multiple
+     *         of the number of source dimensions.
+     * @throws java.nio.BufferOverflowException if the destination buffer has not enough remaining space.
+     * @throws TransformException if a point can not be transformed. Some implementations will stop at the first failure,
+     *         while some other implementations will fill the untransformable points with {@linkplain Double#NaN} values,
+     *         continue and throw the exception only at end. In the later case the buffer positions are advanced over
+     *         all points, otherwise they are advanced only over the blocks of points completed before the failure.
+     *         In the later case, some values after the destination buffer position may have been overwritten.
+     *
+     * @see MathTransforms#transform(MathTransform, DoubleBuffer, DoubleBuffer)
+     *
+     * @since 1.1
+     */
+    public void transform(final DoubleBuffer srcPts, final DoubleBuffer dstPts) throws TransformException {
+        transform(this, srcPts, dstPts);
+    }
+
+    /**
+     * Transforms the coordinate tuples in the given buffer of floats. This method behaves like
+     * {@link #transform(DoubleBuffer, DoubleBuffer)} except that values are converted between
+     * {@code float} and {@code double} types. If both buffers are backed by accessible arrays,
+     * then this method delegates to {@link #transform(float[], int, float[], int, int)}.
+     *
+     * @param  srcPts  the buffer containing the source point coordinates.
+     * @param  dstPts  the buffer into which the transformed point coordinates are written.
+     * @throws IllegalArgumentException if the number of remaining source values is not a multiple
+     *         of the number of source dimensions.
+     * @throws java.nio.BufferOverflowException if the destination buffer has not enough remaining space.
+     * @throws TransformException if a point can not be transformed. Buffer positions are updated
+     *         as documented in {@link #transform(DoubleBuffer, DoubleBuffer)}.
+     *
+     * @see MathTransforms#transform(MathTransform, FloatBuffer, FloatBuffer)
+     *
+     * @since 1.1
+     */
+    public void transform(final FloatBuffer srcPts, final FloatBuffer dstPts) throws TransformException {
+        transform(this, srcPts, dstPts);
+    }
+
+    /**
+     * Returns the number of points remaining in the given buffers and verifies that the destination has enough space.
+     *
+     * @param  transform  the transform which will be applied on the coordinates.
+     * @param  srcPts     the buffer containing the source point coordinates.
+     * @param  dstPts     the buffer into which the transformed point coordinates will be written.
+     */
+    static int numPoints(final MathTransform transform, final Buffer srcPts, final Buffer dstPts) {
+        final int dimSource = transform.getSourceDimensions();
+        final int remaining = srcPts.remaining();
+        if (remaining % dimSource != 0) {
+            throw new IllegalArgumentException(Errors.format(Errors.Keys.UnexpectedArrayLength_2,
+                    (remaining / dimSource + 1) * dimSource, remaining));
+        }
+        final int numPts = remaining / dimSource;
+        if (dstPts.remaining() < numPts * (long) transform.getTargetDimensions()) {
+            throw new BufferOverflowException();
+        }
+        return numPts;
+    }
+
+    /**
+     * Implementation of {@link #transform(DoubleBuffer, DoubleBuffer)} for an arbitrary transform.
+     * This is also used by {@link MathTransforms} for transforms that are not {@code AbstractMathTransform}.
+     */
+    static void transform(final MathTransform transform, DoubleBuffer srcPts, final DoubleBuffer dstPts)
+            throws TransformException
+    {
+        int numPts = numPoints(transform, srcPts, dstPts);
+        if (numPts == 0) {
+            return;
+        }
+        final int dimSource = transform.getSourceDimensions();
+        final int dimTarget = transform.getTargetDimensions();
+        final int dimLargest = Math.max(dimSource, dimTarget);
+        final int numBufferedPts = Math.max(1, Math.min(numPts, MAXIMUM_BUFFER_SIZE / dimLargest));
+        TransformException failure = null;
+        if (srcPts.hasArray() && dstPts.hasArray()) {
+            /*
+             * Transform the arrays directly by blocks, for advancing the buffer positions
+             * over all blocks completed before a failure if the transform stops at that failure.
+             */
+            do {
+                final int n = Math.min(numPts, numBufferedPts);
+                final int srcOff = srcPts.position();
+                final int dstOff = dstPts.position();
+                try {
+                    transform.transform(srcPts.array(), srcPts.arrayOffset() + srcOff,
+                                        dstPts.array(), dstPts.arrayOffset() + dstOff, n);
+                } catch (TransformException exception) {
+                    // All points of this block have been written (some as NaN) only if the transform continued.
+                    if (exception.getLastCompletedTransform() != transform) {
+                        throw exception;
+                    } else if (failure == null) {
+                        failure = exception;
+                    } else {
+                        failure.addSuppressed(exception);
+                    }
+                }
+                srcPts.position(srcOff + n * dimSource);
+                dstPts.position(dstOff + n * dimTarget);
+                numPts -= n;
+            } while (numPts != 0);
+            if (failure != null) {
+                throw failure;
             }
-            try {
-                transform(buffer, 0, dstPts, dstOff, numBufferedPts);
-            } catch (TransformException exception) {
-                // Same comment than in transform(float[], ...,float[], ...)
-                if (exception.getLastCompletedTransform() != this) {
-                    throw exception;
-                } else if (failure == null) {
-                    failure = exception;
-                } else {
-                    failure.addSuppressed(exception);
+            return;
+        }
+        if (srcPts == dstPts) {
+            srcPts = srcPts.duplicate();        // For reading and writing at independent positions.
+        }
+        final ScratchBuffer scratch = ScratchBuffer.current();
+        final double[] buffer = scratch.acquire(numBufferedPts * dimLargest);
+        try {
+            do {
+                final int n = Math.min(numPts, numBufferedPts);
+                final int srcLength = n * dimSource;
+                srcPts.get(buffer, 0, srcLength);
+                try {
+                    transform.transform(buffer, 0, buffer, 0, n);
+                } catch (TransformException exception) {
+                    // Same comment than in transform(float[], ...,float[], ...)
+                    if (exception.getLastCompletedTransform() != transform) {
+                        srcPts.position(srcPts.position() - srcLength);     // Nothing written for this block.
+                        throw exception;
+                    } else if (failure == null) {
+                        failure = exception;
+                    } else {
+                        failure.addSuppressed(exception);
+                    }
                 }
+                dstPts.put(buffer, 0, n * dimTarget);
+                numPts -= n;
+            } while (numPts != 0);
+        } finally {
+            scratch.release();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Implementation of {@link #transform(FloatBuffer, FloatBuffer)} for an arbitrary transform.
+     * This is also used by {@link MathTransforms} for transforms that are not {@code AbstractMathTransform}.
+     */
+    static void transform(final MathTransform transform, FloatBuffer srcPts, final FloatBuffer dstPts)
+            throws TransformException
+    {
+        int numPts = numPoints(transform, srcPts, dstPts);
+        if (numPts == 0) {
+            return;
+        }
+        final int dimSource = transform.getSourceDimensions();
+        final int dimTarget = transform.getTargetDimensions();
+        final int dimLargest = Math.max(dimSource, dimTarget);
+        final int numBufferedPts = Math.max(1, Math.min(numPts, MAXIMUM_BUFFER_SIZE / dimLargest));
+        TransformException failure = null;
+        if (srcPts.hasArray() && dstPts.hasArray()) {
+            /*
+             * Transform the arrays directly by blocks, for advancing the buffer positions
+             * over all blocks completed before a failure if the transform stops at that failure.
+             */
+            do {
+                final int n = Math.min(numPts, numBufferedPts);
+                final int srcOff = srcPts.position();
+                final int dstOff = dstPts.position();
+                try {
+                    transform.transform(srcPts.array(), srcPts.arrayOffset() + srcOff,
+                                        dstPts.array(), dstPts.arrayOffset() + dstOff, n);
+                } catch (TransformException exception) {
+                    // All points of this block have been written (some as NaN) only if the transform continued.
+                    if (exception.getLastCompletedTransform() != transform) {
+                        throw exception;
+                    } else if (failure == null) {
+                        failure = exception;
+                    } else {
+                        failure.addSuppressed(exception);
+                    }
+                }
+                srcPts.position(srcOff + n * dimSource);
+                dstPts.position(dstOff + n * dimTarget);
+                numPts -= n;
+            } while (numPts != 0);
+            if (failure != null) {
+                throw failure;
             }
-            dstOff += dstLength;
-            numPts -= numBufferedPts;
-        } while (numPts != 0);
+            return;
+        }
+        if (srcPts == dstPts) {
+            srcPts = srcPts.duplicate();        // For reading and writing at independent positions.
+        }
+        final ScratchBuffer scratch = ScratchBuffer.current();
+        final float[] buffer = scratch.acquireFloats(numBufferedPts * dimLargest);
+        try {
+            do {
+                final int n = Math.min(numPts, numBufferedPts);
+                final int srcLength = n * dimSource;
+                srcPts.get(buffer, 0, srcLength);
+                try {
+                    transform.transform(buffer, 0, buffer, 0, n);
+                } catch (TransformException exception) {
+                    // Same comment than in transform(float[], ...,float[], ...)
+                    if (exception.getLastCompletedTransform() != transform) {
+                        srcPts.position(srcPts.position() - srcLength);     // Nothing written for this block.
+                        throw exception;
+                    } else if (failure == null) {
+                        failure = exception;
+                    } else {
+                        failure.addSuppressed(exception);
+                    }
+                }
+                dstPts.put(buffer, 0, n * dimTarget);
+                numPts -= n;
+            } while (numPts != 0);
+        } finally {
+            scratch.releaseFloats();
+        }
         if (failure != null) {
             throw failure;
         }
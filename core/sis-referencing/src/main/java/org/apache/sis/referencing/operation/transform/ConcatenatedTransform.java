@@ -55,7 +55,7 @@ import org.apache.sis.util.resources.Errors;
  * <p>Concatenated transforms are serializable if all their step transforms are serializable.</p>
  *
  * @author  Martin Desruisseaux (IRD, Geomatys)
- * @version 1.0
+ * @version 1.1
  *
  * @see org.opengis.referencing.operation.MathTransformFactory#createConcatenatedTransform(MathTransform, MathTransform)
  *
@@ -532,15 +532,26 @@ class ConcatenatedTransform extends AbstractMathTransform implements Serializabl
         assert isValid();
         final int bufferDim = transform2.getSourceDimensions();
         final int targetDim = transform2.getTargetDimensions();
-        final double[] buffer;
-        final int offset;
-        if (bufferDim > targetDim) {
-            buffer = new double[bufferDim];
-            offset = 0;
-        } else {
-            buffer = dstPts;
-            offset = dstOff;
+        if (bufferDim <= targetDim) {
+            return transform(srcPts, srcOff, dstPts, dstOff, dstPts, dstOff, derivate);
+        }
+        final ScratchBuffer scratch = ScratchBuffer.current();
+        try {
+            return transform(srcPts, srcOff, scratch.acquire(bufferDim), 0, dstPts, dstOff, derivate);
+        } finally {
+            scratch.release();
         }
+    }
+
+    /**
+     * Implementation of {@link #transform(double[], int, double[], int, boolean)}
+     * using the given array for storing the intermediate coordinates.
+     */
+    private Matrix transform(final double[] srcPts, final int srcOff,
+                             final double[] buffer, final int offset,
+                             final double[] dstPts, final int dstOff,
+                             final boolean derivate) throws TransformException
+    {
         if (derivate) {
             final Matrix matrix1 = MathTransforms.derivativeAndTransform(transform1, srcPts, srcOff, buffer, offset);
             final Matrix matrix2 = MathTransforms.derivativeAndTransform(transform2, buffer, offset, dstPts, dstOff);
@@ -617,22 +628,27 @@ class ConcatenatedTransform extends AbstractMathTransform implements Serializabl
             }
             length = numBuf * bufferDim;
         }
-        final double[] buf = new double[length];
-        do {
-            if (!descending && numBuf > numPts) {
-                // Must be done before transforms if we are iterating in ascending order.
-                numBuf = numPts;
-            }
-            transform1.transform(srcPts, srcOff, buf, 0, numBuf);
-            transform2.transform(buf, 0, dstPts, dstOff, numBuf);
-            numPts -= numBuf;
-            if (descending && numBuf > numPts) {
-                // Must be done after transforms if we are iterating in descending order.
-                numBuf = numPts;
-            }
-            srcOff += numBuf * sourceDim;
-            dstOff += numBuf * targetDim;
-        } while (numPts != 0);
+        final ScratchBuffer scratch = ScratchBuffer.current();
+        final double[] buf = scratch.acquire(length);
+        try {
+            do {
+                if (!descending && numBuf > numPts) {
+                    // Must be done before transforms if we are iterating in ascending order.
+                    numBuf = numPts;
+                }
+                transform1.transform(srcPts, srcOff, buf, 0, numBuf);
+                transform2.transform(buf, 0, dstPts, dstOff, numBuf);
+                numPts -= numBuf;
+                if (descending && numBuf > numPts) {
+                    // Must be done after transforms if we are iterating in descending order.
+                    numBuf = numPts;
+                }
+                srcOff += numBuf * sourceDim;
+                dstOff += numBuf * targetDim;
+            } while (numPts != 0);
+        } finally {
+            scratch.release();
+        }
     }
 
     /**
@@ -681,20 +697,25 @@ class ConcatenatedTransform extends AbstractMathTransform implements Serializabl
             }
             length = numBuf * dimension;
         }
-        final double[] buf = new double[length];
-        do {
-            if (!descending && numBuf > numPts) {
-                numBuf = numPts;
-            }
-            transform1.transform(srcPts, srcOff, buf, 0, numBuf);
-            transform2.transform(buf, 0, dstPts, dstOff, numBuf);
-            numPts -= numBuf;
-            if (descending && numBuf > numPts) {
-                numBuf = numPts;
-            }
-            srcOff += numBuf * sourceDim;
-            dstOff += numBuf * targetDim;
-        } while (numPts != 0);
+        final ScratchBuffer scratch = ScratchBuffer.current();
+        final double[] buf = scratch.acquire(length);
+        try {
+            do {
+                if (!descending && numBuf > numPts) {
+                    numBuf = numPts;
+                }
+                transform1.transform(srcPts, srcOff, buf, 0, numBuf);
+                transform2.transform(buf, 0, dstPts, dstOff, numBuf);
+                numPts -= numBuf;
+                if (descending && numBuf > numPts) {
+                    numBuf = numPts;
+                }
+                srcOff += numBuf * sourceDim;
+                dstOff += numBuf * targetDim;
+            } while (numPts != 0);
+        } finally {
+            scratch.release();
+        }
     }
 
     /**
@@ -726,17 +747,22 @@ class ConcatenatedTransform extends AbstractMathTransform implements Serializabl
             numBuf = Math.max(1, MAXIMUM_BUFFER_SIZE / dimension);
             length = numBuf * dimension;
         }
-        final double[] buf = new double[length];
-        do {
-            if (numBuf > numPts) {
-                numBuf = numPts;
-            }
-            transform1.transform(srcPts, srcOff, buf, 0, numBuf);
-            transform2.transform(buf, 0, dstPts, dstOff, numBuf);
-            srcOff += numBuf * sourceDim;
-            dstOff += numBuf * targetDim;
-            numPts -= numBuf;
-        } while (numPts != 0);
+        final ScratchBuffer scratch = ScratchBuffer.current();
+        final double[] buf = scratch.acquire(length);
+        try {
+            do {
+                if (numBuf > numPts) {
+                    numBuf = numPts;
+                }
+                transform1.transform(srcPts, srcOff, buf, 0, numBuf);
+                transform2.transform(buf, 0, dstPts, dstOff, numBuf);
+                srcOff += numBuf * sourceDim;
+                dstOff += numBuf * targetDim;
+                numPts -= numBuf;
+            } while (numPts != 0);
+        } finally {
+            scratch.release();
+        }
     }
 
     /**
@@ -773,18 +799,23 @@ class ConcatenatedTransform extends AbstractMathTransform implements Serializabl
             numBuf = Math.max(1, MAXIMUM_BUFFER_SIZE / bufferDim);
             length = numBuf * bufferDim;
         }
-        final double[] buf = new double[length];
-        final int sourceDim = getSourceDimensions();
-        do {
-            if (numBuf > numPts) {
-                numBuf = numPts;
-            }
-            transform1.transform(srcPts, srcOff, buf, 0, numBuf);
-            transform2.transform(buf, 0, dstPts, dstOff, numBuf);
-            srcOff += numBuf * sourceDim;
-            dstOff += numBuf * targetDim;
-            numPts -= numBuf;
-        } while (numPts != 0);
+        final ScratchBuffer scratch = ScratchBuffer.current();
+        final double[] buf = scratch.acquire(length);
+        try {
+            final int sourceDim = getSourceDimensions();
+            do {
+                if (numBuf > numPts) {
+                    numBuf = numPts;
+                }
+                transform1.transform(srcPts, srcOff, buf, 0, numBuf);
+                transform2.transform(buf, 0, dstPts, dstOff, numBuf);
+                srcOff += numBuf * sourceDim;
+                dstOff += numBuf * targetDim;
+                numPts -= numBuf;
+            } while (numPts != 0);
+        } finally {
+            scratch.release();
+        }
     }
 
     /**
@@ -26,8 +26,13 @@ import org.opengis.referencing.operation.TransformException;
  * This fact allows some optimizations, the most important one being the possibility to avoid the use
  * of an intermediate buffer in some case.
  *
+ * <p>Arrays are transformed by blocks of about {@value #MAXIMUM_BUFFER_SIZE} values: each block goes through
+ * all steps before the next block is processed. When the steps are themselves concatenated transforms, the whole
+ * chain is evaluated in a single loop over small blocks that stay in the processor cache, instead of one pass
+ * over the full array for each step.</p>
+ *
  * @author  Martin Desruisseaux (IRD, Geomatys)
- * @version 0.5
+ * @version 1.1
  * @since   0.5
  * @module
  */
@@ -77,8 +82,35 @@ class ConcatenatedTransformDirect extends ConcatenatedTransform {
                           final int numPts) throws TransformException
     {
         assert isValid();
-        transform1.transform(srcPts, srcOff, dstPts, dstOff, numPts);
-        transform2.transform(dstPts, dstOff, dstPts, dstOff, numPts);
+        final int dimension = getSourceDimensions();
+        final int blockSize = Math.max(1, MAXIMUM_BUFFER_SIZE / dimension);
+        final int numBlocks = (numPts + (blockSize - 1)) / blockSize;
+        /*
+         * If the destination overlaps the source at a higher offset, a block written in the destination
+         * could overwrite the source coordinates of the next blocks. Processing the blocks in reverse order
+         * avoids that. Overlaps inside a block are handled by the steps themselves.
+         */
+        final boolean descending = (srcPts == dstPts) && srcOff < dstOff && dstOff < srcOff + numPts * dimension;
+        TransformException failure = null;
+        for (int i=0; i<numBlocks; i++) {
+            final int start  = (descending ? numBlocks - 1 - i : i) * blockSize;
+            final int n      = Math.min(blockSize, numPts - start);
+            final int offset = start * dimension;
+            try {
+                transform1.transform(srcPts, srcOff + offset, dstPts, dstOff + offset, n);
+            } catch (TransformException exception) {
+                failure = collect(failure, exception, transform1);
+            }
+            try {
+                transform2.transform(dstPts, dstOff + offset, dstPts, dstOff + offset, n);
+            } catch (TransformException exception) {
+                failure = collect(failure, exception, transform2);
+            }
+        }
+        if (failure != null) {
+            failure.setLastCompletedTransform(this);
+            throw failure;
+        }
     }
 
     /**
@@ -90,8 +122,52 @@ class ConcatenatedTransformDirect extends ConcatenatedTransform {
                           final int numPts) throws TransformException
     {
         assert isValid();
-        transform1.transform(srcPts, srcOff, dstPts, dstOff, numPts);
-        transform2.transform(dstPts, dstOff, dstPts, dstOff, numPts);
+        final int dimension = getSourceDimensions();
+        final int blockSize = Math.max(1, MAXIMUM_BUFFER_SIZE / dimension);
+        TransformException failure = null;
+        for (int start=0; start<numPts; start += blockSize) {
+            final int n      = Math.min(blockSize, numPts - start);
+            final int offset = start * dimension;
+            try {
+                transform1.transform(srcPts, srcOff + offset, dstPts, dstOff + offset, n);
+            } catch (TransformException exception) {
+                failure = collect(failure, exception, transform1);
+            }
+            try {
+                transform2.transform(dstPts, dstOff + offset, dstPts, dstOff + offset, n);
+            } catch (TransformException exception) {
+                failure = collect(failure, exception, transform2);
+            }
+        }
+        if (failure != null) {
+            failure.setLastCompletedTransform(this);
+            throw failure;
+        }
+    }
+
+    /**
+     * Handles an exception that occurred while transforming a block of coordinates. If the step declares having
+     * processed all coordinates of the block (setting to NaN those that can not be transformed), then the first
+     * exception is kept for propagation after all blocks have been transformed. Otherwise the exception is
+     * propagated immediately.
+     *
+     * @param  failure    the first exception that occurred in a previous block, or {@code null} if none.
+     * @param  exception  the exception that occurred in the current block.
+     * @param  step       the step which threw the exception.
+     * @return the exception to propagate after all blocks have been transformed.
+     * @throws TransformException if the step gave up before the end of the block.
+     */
+    private static TransformException collect(final TransformException failure,
+            final TransformException exception, final MathTransform step) throws TransformException
+    {
+        if (exception.getLastCompletedTransform() != step) {
+            throw exception;
+        }
+        if (failure == null) {
+            return exception;
+        }
+        failure.addSuppressed(exception);
+        return failure;
     }
 
     /*
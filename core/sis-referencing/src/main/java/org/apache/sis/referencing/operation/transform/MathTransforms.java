@@ -19,6 +19,8 @@ package org.apache.sis.referencing.operation.transform;
 import java.util.Map;
 import java.util.List;
 import java.util.Collections;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.awt.geom.AffineTransform;
 import org.opengis.util.FactoryException;
 import org.opengis.geometry.Envelope;
@@ -56,7 +58,7 @@ import org.apache.sis.util.Static;
  * GeoAPI factory interfaces instead.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  *
  * @see MathTransformFactory
  *
@@ -686,4 +688,151 @@ public final class MathTransforms extends Static {
         }
         return derivative;
     }
+
+    /**
+     * Transforms the coordinate tuples in the given buffer of doubles. Coordinates are read from the source
+     * buffer position to its limit, and written in the destination buffer starting at its position.
+     * On return, the position of both buffers is advanced by the number of values read or written.
+     * This method allows to transform coordinates stored outside the Java heap (for example in
+     * memory-mapped files) without copying them in a large temporary array.
+     *
+     * @param  transform  the transform to apply.
+     * @param  srcPts     the buffer containing the source point coordinates.
+     * @param  dstPts     the buffer into which the transformed point coordinates are written.
+     * @throws IllegalArgumentException if the number of remaining source values is not a multiple
+     *         of the number of source dimensions.
+     * @throws java.nio.BufferOverflowException if the destination buffer has not enough remaining space.
+     * @throws TransformException if a point can not be transformed.
+     *
+     * @see AbstractMathTransform#transform(DoubleBuffer, DoubleBuffer)
+     *
+     * @since 1.1
+     */
+    public static void transform(final MathTransform transform, final DoubleBuffer srcPts, final DoubleBuffer dstPts)
+            throws TransformException
+    {
+        ArgumentChecks.ensureNonNull("transform", transform);
+        if (transform instanceof AbstractMathTransform) {
+            ((AbstractMathTransform) transform).transform(srcPts, dstPts);
+        } else {
+            AbstractMathTransform.transform(transform, srcPts, dstPts);
+        }
+    }
+
+    /**
+     * Transforms the coordinate tuples in the given buffer of floats.
+     * This method behaves like {@link #transform(MathTransform, DoubleBuffer, DoubleBuffer)}
+     * except that values are converted between {@code float} and {@code double} types.
+     *
+     * @param  transform  the transform to apply.
+     * @param  srcPts     the buffer containing the source point coordinates.
+     * @param  dstPts     the buffer into which the transformed point coordinates are written.
+     * @throws IllegalArgumentException if the number of remaining source values is not a multiple
+     *         of the number of source dimensions.
+     * @throws java.nio.BufferOverflowException if the destination buffer has not enough remaining space.
+     * @throws TransformException if a point can not be transformed.
+     *
+     * @see AbstractMathTransform#transform(FloatBuffer, FloatBuffer)
+     *
+     * @since 1.1
+     */
+    public static void transform(final MathTransform transform, final FloatBuffer srcPts, final FloatBuffer dstPts)
+            throws TransformException
+    {
+        ArgumentChecks.ensureNonNull("transform", transform);
+        if (transform instanceof AbstractMathTransform) {
+            ((AbstractMathTransform) transform).transform(srcPts, dstPts);
+        } else {
+            AbstractMathTransform.transform(transform, srcPts, dstPts);
+        }
+    }
+
+    /**
+     * Transforms a large list of coordinate tuples using many threads. The array is split in blocks of
+     * a few thousands of points which are transformed in parallel in the fork-join pool of the current thread,
+     * or in the {@linkplain java.util.concurrent.ForkJoinPool#commonPool() common pool} if none.
+     * Small arrays are transformed in the current thread, with the same handling of failures.
+     *
+     * <p>This method differs from {@link MathTransform#transform(double[], int, double[], int, int)} in its
+     * handling of failures: a block which can not be transformed does not abort the transformation of other blocks.
+     * Instead, the coordinates of points that can not be transformed are set to {@linkplain Double#NaN NaN}
+     * and the first exception is thrown after all other points have been transformed.
+     * The {@linkplain TransformException#getLastCompletedTransform() last completed transform}
+     * of that exception is set to the given transform for indicating that all points have been processed.</p>
+     *
+     * <p>The given transform shall be thread-safe. This is the case of all Apache SIS implementations.</p>
+     *
+     * @param  transform  the transform to apply.
+     * @param  srcPts     the array containing the source point coordinates.
+     * @param  srcOff     the offset to the first point to be transformed in the source array.
+     * @param  dstPts     the array into which the transformed point coordinates are returned.
+     *                    May be the same than {@code srcPts}.
+     * @param  dstOff     the offset to the location of the first transformed point that is stored in the destination array.
+     * @param  numPts     the number of point objects to be transformed.
+     * @throws TransformException if some points can not be transformed. In such case, all other points
+     *         have nevertheless been transformed and the coordinates of failed points are set to NaN.
+     *
+     * @since 1.1
+     */
+    public static void transformInParallel(final MathTransform transform,
+                                           final double[] srcPts, final int srcOff,
+                                           final double[] dstPts, final int dstOff,
+                                           final int numPts) throws TransformException
+    {
+        ArgumentChecks.ensureNonNull("transform", transform);
+        ParallelTransform.transform(transform,
+                DoubleBuffer.wrap(srcPts, srcOff, numPts * transform.getSourceDimensions()),
+                DoubleBuffer.wrap(dstPts, dstOff, numPts * transform.getTargetDimensions()));
+    }
+
+    /**
+     * Transforms the coordinate tuples in the given buffer of doubles using many threads.
+     * This method behaves like {@link #transform(MathTransform, DoubleBuffer, DoubleBuffer)}
+     * except that blocks of coordinates are transformed in parallel, and that failures are handled
+     * as documented in {@link #transformInParallel(MathTransform, double[], int, double[], int, int)}.
+     * The two buffers shall not share the same memory area, unless they are the same buffer instance
+     * or they are backed by the same array.
+     *
+     * @param  transform  the transform to apply.
+     * @param  srcPts     the buffer containing the source point coordinates.
+     * @param  dstPts     the buffer into which the transformed point coordinates are written.
+     * @throws IllegalArgumentException if the number of remaining source values is not a multiple
+     *         of the number of source dimensions.
+     * @throws java.nio.BufferOverflowException if the destination buffer has not enough remaining space.
+     * @throws TransformException if some points can not be transformed. In such case, all other points
+     *         have nevertheless been transformed and the coordinates of failed points are set to NaN.
+     *
+     * @since 1.1
+     */
+    public static void transformInParallel(final MathTransform transform,
+                                           final DoubleBuffer srcPts, final DoubleBuffer dstPts)
+            throws TransformException
+    {
+        ArgumentChecks.ensureNonNull("transform", transform);
+        ParallelTransform.transform(transform, srcPts, dstPts);
+    }
+
+    /**
+     * Transforms the coordinate tuples in the given buffer of floats using many threads.
+     * This method behaves like {@link #transformInParallel(MathTransform, DoubleBuffer, DoubleBuffer)}
+     * except that values are converted between {@code float} and {@code double} types.
+     *
+     * @param  transform  the transform to apply.
+     * @param  srcPts     the buffer containing the source point coordinates.
+     * @param  dstPts     the buffer into which the transformed point coordinates are written.
+     * @throws IllegalArgumentException if the number of remaining source values is not a multiple
+     *         of the number of source dimensions.
+     * @throws java.nio.BufferOverflowException if the destination buffer has not enough remaining space.
+     * @throws TransformException if some points can not be transformed. In such case, all other points
+     *         have nevertheless been transformed and the coordinates of failed points are set to NaN.
+     *
+     * @since 1.1
+     */
+    public static void transformInParallel(final MathTransform transform,
+                                           final FloatBuffer srcPts, final FloatBuffer dstPts)
+            throws TransformException
+    {
+        ArgumentChecks.ensureNonNull("transform", transform);
+        ParallelTransform.transform(transform, srcPts, dstPts);
+    }
 }
@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.referencing.operation.transform;
+
+import java.nio.Buffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+import org.apache.sis.internal.system.CommonExecutor;
+
+
+/**
+ * The task of transforming coordinate tuples by blocks of {@value #CHUNK_SIZE} values, in parallel.
+ * Blocks are executed by the current thread together with a few workers taken from the
+ * {@linkplain CommonExecutor#instance() pool of threads} shared by Apache SIS.
+ * Each thread takes the next block to transform until all blocks are done.
+ * The source and destination buffers are either both {@link DoubleBuffer} or both {@link FloatBuffer}.
+ *
+ * <p>If a block can not be transformed, the exception is stored and the block is transformed again
+ * point by point, with coordinates of failed points set to NaN. Consequently a failure in one block
+ * does not prevent the transformation of other blocks. The first exception is rethrown at the end.</p>
+ *
+ * <p>If the source and destination buffers share the same memory, the source values of a block which overlap
+ * the destination of another block are copied before the transformation begins. The source values of a block
+ * which overlap only the destination of the same block are copied by the thread transforming that block.
+ * Other blocks are transformed without copy.</p>
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+final class ParallelTransform implements Runnable {
+    /**
+     * Number of coordinate values in a block, ignoring the last block which may be smaller.
+     * This is 128 kilobytes of {@code double} values, which fit in the level 2 cache
+     * while being large enough for making the cost of task dispatching negligible.
+     */
+    static final int CHUNK_SIZE = 16 * 1024;
+
+    /**
+     * The transform to apply.
+     */
+    private final MathTransform transform;
+
+    /**
+     * The source and target coordinates. The positions are the first value of the first block.
+     * Those buffers are views reserved to this task and their positions shall not be modified.
+     */
+    private final Buffer srcPts, dstPts;
+
+    /**
+     * Number of points to transform, and maximal number of points in a block.
+     */
+    private final int numPts, blockSize;
+
+    /**
+     * Whether the source and destination buffers may share the same memory. In such case,
+     * {@link #srcBase} and {@link #dstBase} are the indices of the first values in that memory.
+     */
+    private final boolean shared;
+
+    /**
+     * Index of the first source and destination values in the memory shared by the buffers.
+     * Used only if {@link #shared} is {@code true}.
+     */
+    private final int srcBase, dstBase;
+
+    /**
+     * Copies of source values saved before the transformation begins, or {@code null} elements
+     * for the blocks which do not overlap the destination of another block.
+     */
+    private final Buffer[] savedSources;
+
+    /**
+     * The exceptions that occurred while transforming each block, or {@code null} elements if none.
+     */
+    private final TransformException[] failures;
+
+    /**
+     * Index of the next block to transform.
+     */
+    private final AtomicInteger next;
+
+    /**
+     * Creates a new task for transforming the given number of points.
+     */
+    private ParallelTransform(final MathTransform transform, final Buffer srcPts, final Buffer dstPts, final int numPts) {
+        final int dimSource = transform.getSourceDimensions();
+        final int dimTarget = transform.getTargetDimensions();
+        this.transform = transform;
+        this.srcPts    = view(srcPts, srcPts.position(), numPts * dimSource);
+        this.dstPts    = view(dstPts, dstPts.position(), numPts * dimTarget);
+        this.numPts    = numPts;
+        blockSize = Math.max(1, CHUNK_SIZE / Math.max(dimSource, dimTarget));
+        final int numBlocks = (numPts + (blockSize - 1)) / blockSize;
+        failures     = new TransformException[numBlocks];
+        savedSources = new Buffer[numBlocks];
+        next         = new AtomicInteger();
+        if (srcPts == dstPts) {
+            shared  = true;
+            srcBase = srcPts.position();
+            dstBase = dstPts.position();
+        } else if (srcPts.hasArray() && dstPts.hasArray() && array(srcPts) == array(dstPts)) {
+            shared  = true;
+            srcBase = srcPts.arrayOffset() + srcPts.position();
+            dstBase = dstPts.arrayOffset() + dstPts.position();
+        } else {
+            shared  = false;
+            srcBase = 0;
+            dstBase = 0;
+        }
+        /*
+         * Save the source values of blocks that another block may overwrite. This must be done before
+         * to start any transformation since we do not control the order in which blocks are executed.
+         */
+        if (shared) {
+            final int dstEnd = dstBase + numPts * dimTarget;
+            for (int block=0; block<numBlocks; block++) {
+                final int start  = block * blockSize;
+                final int length = Math.min(blockSize, numPts - start);
+                final int srcLower = srcBase + start * dimSource;
+                final int srcUpper = srcLower + length * dimSource;
+                final int dstLower = dstBase + start * dimTarget;
+                final int dstUpper = dstLower + length * dimTarget;
+                if (intersect(srcLower, srcUpper, dstBase, dstLower) || intersect(srcLower, srcUpper, dstUpper, dstEnd)) {
+                    final int offset = srcPts.position() + start * dimSource;
+                    savedSources[block] = copy(view(srcPts, offset, length * dimSource));
+                }
+            }
+        }
+    }
+
+    /**
+     * Transforms all remaining coordinates of the given buffers, in parallel if the buffers are large enough.
+     * Small inputs are transformed in the current thread but with the same handling of failures.
+     * On return, the position of both buffers is advanced by the number of values read or written.
+     *
+     * <p>The buffers may share the same memory if they are the same instance or if they are backed by the
+     * same array. Otherwise (for example two direct buffers viewing the same memory), the buffers shall not
+     * overlap because this method can not detect it.</p>
+     *
+     * @param  transform  the transform to apply.
+     * @param  srcPts     the source coordinates as a {@link DoubleBuffer} or {@link FloatBuffer}.
+     * @param  dstPts     the destination coordinates, as a buffer of the same type than {@code srcPts}.
+     * @throws TransformException if some points can not be transformed. In such case, all other points
+     *         have nevertheless been transformed and the coordinates of failed points are set to NaN.
+     */
+    static void transform(final MathTransform transform, final Buffer srcPts, final Buffer dstPts)
+            throws TransformException
+    {
+        final int numPts = AbstractMathTransform.numPoints(transform, srcPts, dstPts);
+        final int srcOff = srcPts.position();
+        final int dstOff = dstPts.position();
+        final ParallelTransform task = new ParallelTransform(transform, srcPts, dstPts, numPts);
+        task.execute();
+        srcPts.position(srcOff + numPts * transform.getSourceDimensions());
+        dstPts.position(dstOff + numPts * transform.getTargetDimensions());
+        TransformException failure = null;
+        for (final TransformException e : task.failures) {
+            if (e != null) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            failure.setLastCompletedTransform(transform);
+            throw failure;
+        }
+    }
+
+    /**
+     * Transforms all blocks using the current thread and at most {@link CommonExecutor#PARALLELISM} - 1
+     * worker threads. Workers which did not start when the current thread finished are cancelled;
+     * this avoids blocking when this method is invoked from a worker thread of the same pool.
+     * This method waits for the completion of all other workers in a non-interruptible way,
+     * because the destination buffer shall not be modified anymore after this method returned.
+     */
+    private void execute() {
+        final Future<?>[] helpers = new Future<?>[Math.min(CommonExecutor.PARALLELISM, failures.length) - 1];
+        for (int i=0; i<helpers.length; i++) {
+            helpers[i] = CommonExecutor.instance().submit(this);
+        }
+        boolean interrupted = false;
+        try {
+            run();
+        } finally {
+            for (final Future<?> helper : helpers) {
+                if (!helper.cancel(false)) {
+                    while (true) try {
+                        helper.get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        final Throwable cause = e.getCause();
+                        if (cause instanceof Error) throw (Error) cause;
+                        throw (RuntimeException) cause;         // Runnable can not throw checked exceptions.
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Transforms the next blocks until all blocks have been taken by this thread or another thread.
+     * This method is public as an implementation side-effect and should not be invoked directly.
+     */
+    @Override
+    public void run() {
+        int block;
+        while ((block = next.getAndIncrement()) < failures.length) {
+            transformBlock(block);
+        }
+    }
+
+    /**
+     * Transforms the given block in the current thread. If the transform gives up
+     * before the end of the block, the block is transformed again point by point.
+     *
+     * @param  block  index of the block to transform.
+     */
+    private void transformBlock(final int block) {
+        final int dimSource = transform.getSourceDimensions();
+        final int dimTarget = transform.getTargetDimensions();
+        final int start  = block * blockSize;
+        final int length = Math.min(blockSize, numPts - start);
+        final int dstOff = dstPts.position() + start * dimTarget;
+        Buffer source = savedSources[block];
+        if (source == null) {
+            source = view(srcPts, srcPts.position() + start * dimSource, length * dimSource);
+            if (shared && intersect(srcBase + start * dimSource, srcBase + (start + length) * dimSource,
+                                    dstBase + start * dimTarget, dstBase + (start + length) * dimTarget))
+            {
+                source = copy(source);      // Needed for transforming again point by point after a failure.
+            }
+        }
+        try {
+            sequential(transform, view(source, source.position(), source.remaining()),
+                                  view(dstPts, dstOff, length * dimTarget));
+        } catch (TransformException exception) {
+            failures[block] = exception;
+            if (exception.getLastCompletedTransform() != transform) {
+                /*
+                 * The transform gave up before the end of the block, maybe because there is too many failures.
+                 * Transform again the block point by point, setting to NaN only the points that failed.
+                 */
+                for (int i=0; i<length; i++) {
+                    final int offset = dstOff + i * dimTarget;
+                    try {
+                        sequential(transform, view(source, source.position() + i * dimSource, dimSource),
+                                              view(dstPts, offset, dimTarget));
+                    } catch (TransformException e) {
+                        fillNaN(view(dstPts, offset, dimTarget));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether the range from {@code lower1} inclusive to {@code upper1} exclusive
+     * intersects the range from {@code lower2} inclusive to {@code upper2} exclusive.
+     */
+    private static boolean intersect(final int lower1, final int upper1, final int lower2, final int upper2) {
+        return lower1 < upper2 && lower2 < upper1 && lower1 < upper1 && lower2 < upper2;
+    }
+
+    /**
+     * Returns the array backing the given buffer. Caller shall verify that {@link Buffer#hasArray()} is true.
+     */
+    private static Object array(final Buffer buffer) {
+        return (buffer instanceof DoubleBuffer) ? ((DoubleBuffer) buffer).array() : ((FloatBuffer) buffer).array();
+    }
+
+    /**
+     * Transforms the given buffers in the current thread.
+     */
+    private static void sequential(final MathTransform transform, final Buffer srcPts, final Buffer dstPts)
+            throws TransformException
+    {
+        if (srcPts instanceof DoubleBuffer) {
+            MathTransforms.transform(transform, (DoubleBuffer) srcPts, (DoubleBuffer) dstPts);
+        } else {
+            MathTransforms.transform(transform, (FloatBuffer) srcPts, (FloatBuffer) dstPts);
+        }
+    }
+
+    /**
+     * Returns a new view over the given range of values in the given buffer.
+     * The position of the given buffer is not modified.
+     */
+    private static Buffer view(final Buffer buffer, final int start, final int length) {
+        final Buffer view;
+        if (buffer instanceof DoubleBuffer) {
+            view = ((DoubleBuffer) buffer).duplicate();
+        } else {
+            view = ((FloatBuffer) buffer).duplicate();
+        }
+        view.limit(start + length).position(start);
+        return view;
+    }
+
+    /**
+     * Returns a copy of the remaining values of the given buffer, in a new buffer of the same type.
+     * The position of the given buffer is not modified.
+     */
+    private static Buffer copy(final Buffer buffer) {
+        if (buffer instanceof DoubleBuffer) {
+            final DoubleBuffer copy = DoubleBuffer.allocate(buffer.remaining());
+            copy.put(((DoubleBuffer) buffer).duplicate()).flip();
+            return copy;
+        } else {
+            final FloatBuffer copy = FloatBuffer.allocate(buffer.remaining());
+            copy.put(((FloatBuffer) buffer).duplicate()).flip();
+            return copy;
+        }
+    }
+
+    /**
+     * Sets all remaining values of the given buffer to NaN.
+     */
+    private static void fillNaN(final Buffer buffer) {
+        if (buffer instanceof DoubleBuffer) {
+            final DoubleBuffer b = (DoubleBuffer) buffer;
+            while (b.hasRemaining()) b.put(Double.NaN);
+        } else {
+            final FloatBuffer b = (FloatBuffer) buffer;
+            while (b.hasRemaining()) b.put(Float.NaN);
+        }
+    }
+}
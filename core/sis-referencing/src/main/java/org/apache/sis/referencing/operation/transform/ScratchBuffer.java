@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.referencing.operation.transform;
+
+import java.util.Arrays;
+
+
+/**
+ * Temporary arrays of doubles or floats reused by the transform methods of the current thread.
+ * The {@code transform(…)} methods working on blocks of coordinates need an intermediate buffer,
+ * which was previously allocated on each invocation. This class keeps those buffers for reuse,
+ * so that transforming coordinates in steady state does not allocate any object.
+ *
+ * <p>Buffers are managed as a stack because transforms are nested: a {@link ConcatenatedTransform}
+ * may need a buffer while invoking another concatenated transform which itself needs a buffer.
+ * Usage pattern:</p>
+ *
+ * {@preformat java
+ *     final ScratchBuffer scratch = ScratchBuffer.current();
+ *     final double[] buffer = scratch.acquire(length);
+ *     try {
+ *         // Use the buffer.
+ *     } finally {
+ *         scratch.release();
+ *     }
+ * }
+ *
+ * Arrays of floats are managed in the same way in a separated stack, using {@link #acquireFloats(int)}
+ * and {@link #releaseFloats()}. They are used for copying blocks of coordinates out of float buffers.
+ *
+ * <p>The arrays returned by {@link #acquire(int)} may be longer than requested and may contain garbage.
+ * Arrays larger than {@value #MAXIMUM_RETAINED_LENGTH} elements are not retained, since such large buffers
+ * are needed only in rare cases (e.g. overlapping source and destination arrays) and would waste memory.</p>
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+final class ScratchBuffer {
+    /**
+     * Maximal length of arrays to retain for reuse.
+     */
+    static final int MAXIMUM_RETAINED_LENGTH = 8 * AbstractMathTransform.MAXIMUM_BUFFER_SIZE;
+
+    /**
+     * The buffers of the current thread.
+     */
+    private static final ThreadLocal<ScratchBuffer> CURRENT = ThreadLocal.withInitial(ScratchBuffer::new);
+
+    /**
+     * The arrays available for reuse, indexed by nesting depth. Elements may be {@code null}.
+     */
+    private double[][] arrays;
+
+    /**
+     * Number of arrays currently in use.
+     */
+    private int depth;
+
+    /**
+     * The arrays of floats available for reuse, indexed by nesting depth. Elements may be {@code null}.
+     */
+    private float[][] floats;
+
+    /**
+     * Number of arrays of floats currently in use.
+     */
+    private int floatDepth;
+
+    /**
+     * Creates an initially empty set of buffers.
+     */
+    private ScratchBuffer() {
+        arrays = new double[4][];
+        floats = new float [2][];
+    }
+
+    /**
+     * Returns the buffers of the current thread.
+     *
+     * @return the buffers of the current thread.
+     */
+    static ScratchBuffer current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Returns an array of at least the given length. The array shall be given back by a call to {@link #release()}
+     * in a {@code finally} block, after which the caller shall not use the array anymore.
+     *
+     * @param  length  minimal length of the requested array.
+     * @return an array of at least the given length, with arbitrary content.
+     */
+    double[] acquire(final int length) {
+        if (depth >= arrays.length) {
+            arrays = Arrays.copyOf(arrays, depth * 2);
+        }
+        double[] array = arrays[depth++];
+        if (array == null || array.length < length) {
+            array = new double[Math.max(length, AbstractMathTransform.MAXIMUM_BUFFER_SIZE)];
+            if (length <= MAXIMUM_RETAINED_LENGTH) {
+                arrays[depth - 1] = array;
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Makes the array obtained by the last call to {@link #acquire(int)} available for reuse.
+     */
+    void release() {
+        depth--;
+    }
+
+    /**
+     * Returns an array of floats of at least the given length. The array shall be given back by a call
+     * to {@link #releaseFloats()} in a {@code finally} block, after which the caller shall not use it anymore.
+     *
+     * @param  length  minimal length of the requested array.
+     * @return an array of at least the given length, with arbitrary content.
+     */
+    float[] acquireFloats(final int length) {
+        if (floatDepth >= floats.length) {
+            floats = Arrays.copyOf(floats, floatDepth * 2);
+        }
+        float[] array = floats[floatDepth++];
+        if (array == null || array.length < length) {
+            array = new float[Math.max(length, AbstractMathTransform.MAXIMUM_BUFFER_SIZE)];
+            if (length <= MAXIMUM_RETAINED_LENGTH) {
+                floats[floatDepth - 1] = array;
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Makes the array obtained by the last call to {@link #acquireFloats(int)} available for reuse.
+     */
+    void releaseFloats() {
+        floatDepth--;
+    }
+}
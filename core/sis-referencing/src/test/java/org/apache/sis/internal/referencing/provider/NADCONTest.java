@@ -17,11 +17,17 @@
 package org.apache.sis.internal.referencing.provider;
 
 import java.util.Locale;
+import java.util.Random;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.Path;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import javax.measure.quantity.Angle;
 import org.opengis.geometry.Envelope;
 import org.opengis.util.FactoryException;
@@ -30,6 +36,8 @@ import org.apache.sis.referencing.operation.matrix.Matrix3;
 import org.apache.sis.geometry.Envelope2D;
 import org.apache.sis.geometry.Envelopes;
 import org.apache.sis.measure.Units;
+import org.apache.sis.test.DependsOnMethod;
+import org.apache.sis.test.TestUtilities;
 import org.junit.Test;
 
 import static org.apache.sis.test.Assert.*;
@@ -40,7 +48,7 @@ import static org.apache.sis.test.Assert.*;
  *
  * @author  Martin Desruisseaux (Geomatys)
  * @author  Simon Reynard (Geomatys)
- * @version 0.8
+ * @version 1.1
  * @since   0.7
  * @module
  */
@@ -181,6 +189,91 @@ public final strictfp class NADCONTest extends DatumShiftTestCase {
         assertSame("Grid should be cached.", grid, NADCON.getOrLoad(latitudeShifts, longitudeShifts));
     }
 
+    /**
+     * Tests loading binary grid files with memory-mapping. The cell values shall be identical to the values
+     * of the grid loaded in memory, including after replacement by a grid in memory for serialization.
+     * The binary files are generated with random values, since the test files provided in this module
+     * are ASCII files.
+     *
+     * @throws IOException if an error occurred while writing or loading the grid.
+     * @throws FactoryException if an error occurred while computing the grid.
+     * @throws TransformException if an error occurred while testing a point.
+     */
+    @Test
+    @DependsOnMethod("testLoader")
+    public void testMapped() throws IOException, FactoryException, TransformException {
+        final Path latitudeShifts  = Files.createTempFile("nadcon", ".las");
+        final Path longitudeShifts = Files.createTempFile("nadcon", ".los");
+        try {
+            final Random random = TestUtilities.createRandomNumberGenerator();
+            writeBinary(latitudeShifts,  random);
+            writeBinary(longitudeShifts, random);
+            final DatumShiftGridFile<?,?> expected, grid;
+            expected = NADCON.load(latitudeShifts, longitudeShifts, latitudeShifts, longitudeShifts, Long.MAX_VALUE);
+            grid     = NADCON.load(latitudeShifts, longitudeShifts, latitudeShifts, longitudeShifts, 0);
+            assertInstanceOf("Should be in memory.", DatumShiftGridFile.Float.class, expected);
+            assertInstanceOf("Should be memory-mapped.", DatumShiftGridFile.Mapped.class, grid);
+            final DatumShiftGridFile<?,?> copy = (DatumShiftGridFile<?,?>) ((DatumShiftGridFile.Mapped<?,?>) grid).writeReplace();
+            assertInstanceOf("Should be in memory.", DatumShiftGridFile.Float.class, copy);
+            assertEquals("translationDimensions", 2, grid.getTranslationDimensions());
+            assertEquals("coordinateToGrid", expected.getCoordinateToGrid(), grid.getCoordinateToGrid());
+            assertArrayEquals("gridSize", expected.getGridSize(), grid.getGridSize());
+            final int[] size = grid.getGridSize();
+            for (int dim=0; dim<2; dim++) {
+                for (int y=0; y<size[1]; y++) {
+                    for (int x=0; x<size[0]; x++) {
+                        final double value = expected.getCellValue(dim, x, y);
+                        assertEquals("getCellValue", value, grid.getCellValue(dim, x, y), STRICT);
+                        assertEquals("writeReplace", value, copy.getCellValue(dim, x, y), STRICT);
+                    }
+                }
+            }
+            final double[] position = {-97.3, 30.6};
+            assertArrayEquals("interpolateAt", expected.interpolateAt(position), grid.interpolateAt(position), STRICT);
+        } finally {
+            delete(latitudeShifts);
+            delete(longitudeShifts);
+        }
+    }
+
+    /**
+     * Writes a binary NADCON file of 30×6 cells starting at 100°W 30°N with a cell size of 0.25°.
+     * The shift values are random values in seconds of angle.
+     */
+    private static void writeBinary(final Path file, final Random random) throws IOException {
+        final int nx = 30, ny = 6;
+        final ByteBuffer buffer = ByteBuffer.allocate((nx + 1) * Float.BYTES * (ny + 1)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("NADCON EXTRACTED REGION".getBytes(StandardCharsets.US_ASCII));
+        while (buffer.position() < 64) {
+            buffer.put((byte) ' ');
+        }
+        buffer.putInt(nx).putInt(ny).putInt(1).putFloat(-100).putFloat(0.25f).putFloat(30).putFloat(0.25f).putFloat(0);
+        buffer.position((nx + 1) * Float.BYTES);
+        for (int y=0; y<ny; y++) {
+            buffer.putFloat(0);
+            for (int x=0; x<nx; x++) {
+                buffer.putFloat(random.nextFloat() * 2 - 1);
+            }
+        }
+        buffer.flip();
+        try (WritableByteChannel out = Files.newByteChannel(file, StandardOpenOption.WRITE)) {
+            out.write(buffer);
+        }
+    }
+
+    /**
+     * Deletes the given temporary file. If the file is still memory-mapped (it will be until the grid
+     * is garbage-collected), some platforms like Windows refuse the deletion. In such case the deletion
+     * is deferred to the JVM exit.
+     */
+    private static void delete(final Path file) {
+        try {
+            Files.delete(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+        }
+    }
+
 
 
 
@@ -33,6 +33,7 @@ import org.apache.sis.referencing.operation.matrix.Matrix3;
 import org.apache.sis.geometry.Envelope2D;
 import org.apache.sis.geometry.Envelopes;
 import org.apache.sis.measure.Units;
+import org.apache.sis.test.DependsOnMethod;
 import org.junit.Test;
 
 import static org.apache.sis.test.Assert.*;
@@ -42,7 +43,7 @@ import static org.apache.sis.test.Assert.*;
  * Tests the {@link NTv2} grid loader.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 0.8
+ * @version 1.1
  * @since 0.7
  * @module
  */
@@ -155,6 +156,44 @@ public final strictfp class NTv2Test extends DatumShiftTestCase {
         assertSame("Grid should be cached.", grid, NTv2.getOrLoad(file));
     }
 
+    /**
+     * Tests loading a grid file with memory-mapping. The cell values shall be identical to the values
+     * of the grid loaded in memory, including after replacement by a grid in memory for serialization.
+     *
+     * @throws URISyntaxException if the URL to the test file can not be converted to a path.
+     * @throws IOException if an error occurred while loading the grid.
+     * @throws FactoryException if an error occurred while computing the grid.
+     * @throws TransformException if an error occurred while testing a point.
+     */
+    @Test
+    @DependsOnMethod("testLoader")
+    public void testMapped() throws URISyntaxException, IOException, FactoryException, TransformException {
+        final Path file = getResource(TEST_FILE);
+        final DatumShiftGridFile<Angle,Angle> expected = NTv2.getOrLoad(file);
+        final DatumShiftGridFile<?,?> grid = NTv2.load(file.toAbsolutePath(), file, 0);
+        assertInstanceOf("Should be memory-mapped.", DatumShiftGridFile.Mapped.class, grid);
+        final DatumShiftGridFile<?,?> copy = (DatumShiftGridFile<?,?>) ((DatumShiftGridFile.Mapped<?,?>) grid).writeReplace();
+        assertInstanceOf("Should be in memory.", DatumShiftGridFile.Float.class, copy);
+        assertEquals("translationDimensions", 2, grid.getTranslationDimensions());
+        assertEquals("coordinateToGrid", expected.getCoordinateToGrid(), grid.getCoordinateToGrid());
+        assertArrayEquals("gridSize", expected.getGridSize(), grid.getGridSize());
+        final int[] size = grid.getGridSize();
+        for (int dim=0; dim<2; dim++) {
+            for (int y=0; y<size[1]; y++) {
+                for (int x=0; x<size[0]; x++) {
+                    final double value = expected.getCellValue(dim, x, y);
+                    assertEquals("getCellValue", value, grid.getCellValue(dim, x, y), STRICT);
+                    assertEquals("writeReplace", value, copy.getCellValue(dim, x, y), STRICT);
+                }
+            }
+        }
+        final double[] position = FranceGeocentricInterpolationTest.samplePoint(1);
+        for (int i=0; i<position.length; i++) {
+            position[i] *= DatumShiftGridLoader.DEGREES_TO_SECONDS;
+        }
+        assertArrayEquals("interpolateAt", expected.interpolateAt(position), grid.interpolateAt(position), STRICT);
+    }
+
 
 
 
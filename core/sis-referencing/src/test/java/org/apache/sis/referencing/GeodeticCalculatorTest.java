@@ -60,7 +60,7 @@ import static org.apache.sis.internal.metadata.ReferencingServices.AUTHALIC_RADI
  * This base class tests calculator using spherical formulas.
  * Subclass executes the same test but using ellipsoidal formulas.
  *
- * @version 1.0
+ * @version 1.1
  * @since   1.0
  * @module
  */
@@ -364,6 +364,76 @@ public strictfp class GeodeticCalculatorTest extends TestCase {
         }
     }
 
+    /**
+     * Tests {@link GeodeticCalculator#computeGeodesicDistances computeGeodesicDistances(…)} and
+     * {@link GeodeticCalculator#computeEndPoints computeEndPoints(…)} by comparing the results
+     * with calculations performed one pair of points at a time.
+     *
+     * @since 1.1
+     */
+    @Test
+    @DependsOnMethod("testBetweenRandomPoints")
+    public void testBatch() {
+        final Random random = TestUtilities.createRandomNumberGenerator();
+        final GeodeticCalculator c = create(false);
+        final int count = 50;
+        final double[] startPoints = new double[count * 2];
+        final double[] endPoints   = new double[count * 2];
+        for (int i=0; i<count; i++) {
+            startPoints[i*2    ] = random.nextDouble() * 160 -  80;
+            startPoints[i*2 + 1] = random.nextDouble() * 360 - 180;
+            endPoints  [i*2    ] = random.nextDouble() * 160 -  80;
+            endPoints  [i*2 + 1] = IEEEremainder(startPoints[i*2 + 1] + random.nextDouble() * 300 - 150, 360);
+        }
+        endPoints[7] = Double.NaN;                          // Pair 3 shall produce NaN outputs.
+        final double[] distances = new double[count];
+        final double[] azimuths1 = new double[count];
+        final double[] azimuths2 = new double[count];
+        c.computeGeodesicDistances(startPoints, endPoints, distances, azimuths1, azimuths2, 1, count - 1);
+        assertEquals("Outside range", 0, distances[0], STRICT);
+        for (int i=1; i<count; i++) {
+            if (i == 3) {
+                assertTrue(Double.isNaN(distances[i]));
+                assertTrue(Double.isNaN(azimuths1[i]));
+                assertTrue(Double.isNaN(azimuths2[i]));
+                continue;
+            }
+            c.setStartGeographicPoint(startPoints[i*2], startPoints[i*2 + 1]);
+            c.setEndGeographicPoint  (endPoints  [i*2], endPoints  [i*2 + 1]);
+            assertEquals("Geodesic distance", c.getGeodesicDistance(), distances[i], Formulas.LINEAR_TOLERANCE);
+            assertEquals("Starting azimuth",  c.getStartingAzimuth(),  azimuths1[i], Formulas.ANGULAR_TOLERANCE);
+            assertEquals("Ending azimuth",    c.getEndingAzimuth(),    azimuths2[i], Formulas.ANGULAR_TOLERANCE);
+        }
+        /*
+         * Direct problem: use the azimuths and distances computed above for finding back the end points.
+         * Repeat the first geodesic with different distances for testing the reuse of coefficients.
+         */
+        for (int i=1; i<4; i++) {
+            startPoints[i*2    ] = startPoints[2];
+            startPoints[i*2 + 1] = startPoints[3];
+            azimuths1[i] = azimuths1[1];
+            distances[i] = distances[1] * i / 3;
+        }
+        final double[] computed = new double[count * 2];
+        final double[] azimuths = new double[count];
+        c.computeEndPoints(startPoints, azimuths1, distances, computed, azimuths, 1, count - 1);
+        for (int i=1; i<count; i++) {
+            if (i < 4) {
+                c.setStartGeographicPoint(startPoints[i*2], startPoints[i*2 + 1]);
+                c.setStartingAzimuth(azimuths1[i]);
+                c.setGeodesicDistance(distances[i]);
+                final DirectPosition p = c.getEndPoint();
+                assertEquals("Latitude",  p.getOrdinate(0), computed[i*2],     Formulas.ANGULAR_TOLERANCE);
+                assertEquals("Longitude", p.getOrdinate(1), computed[i*2 + 1], Formulas.ANGULAR_TOLERANCE);
+                assertEquals("Azimuth",   c.getEndingAzimuth(), azimuths[i],   Formulas.ANGULAR_TOLERANCE);
+            } else {
+                assertEquals("Latitude",  endPoints[i*2], computed[i*2], Formulas.ANGULAR_TOLERANCE);
+                assertEquals("Longitude", 0, IEEEremainder(endPoints[i*2 + 1] - computed[i*2 + 1], 360), Formulas.ANGULAR_TOLERANCE);
+                assertEquals("Azimuth",   azimuths2[i], azimuths[i], Formulas.ANGULAR_TOLERANCE);
+            }
+        }
+    }
+
     /**
      * Estimates the differences between the points on the Bézier curves and the points computed by geodetic calculator.
      * This method approximates the Bézier curve by line segments. Then for each point of the approximated Bézier curve,
@@ -17,14 +17,26 @@
 package org.apache.sis.referencing.factory;
 
 import java.util.List;
+import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.io.File;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.InvalidClassException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import org.opengis.util.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.apache.sis.referencing.crs.HardCodedCRS;
 import org.apache.sis.internal.system.Loggers;
 import org.apache.sis.util.logging.Logging;
 import org.apache.sis.test.DependsOn;
+import org.apache.sis.test.DependsOnMethod;
 import org.apache.sis.test.TestCase;
 import org.junit.Test;
 
@@ -36,7 +48,7 @@ import static org.junit.Assume.assumeTrue;
  * Tests {@link ConcurrentAuthorityFactory}.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 0.7
+ * @version 1.1
  * @since   0.7
  * @module
  */
@@ -54,16 +66,25 @@ public final strictfp class ConcurrentAuthorityFactoryTest extends TestCase {
         /** All factories created by this mock, including any factories having been disposed. */
         private final Queue<AuthorityFactoryMock> allDAOs = new ConcurrentLinkedQueue<>();
 
+        /** The dataset version declared by the Data Access Objects, or {@code null} if none. */
+        private final String version;
+
         /** Creates a new concurrent authority factory. */
         Mock() {
+            this(null);
+        }
+
+        /** Creates a new concurrent authority factory for the given dataset version. */
+        Mock(final String version) {
             super(AuthorityFactoryMock.class);
+            this.version = version;
             setTimeout(TIMEOUT, TimeUnit.NANOSECONDS);
         }
 
         /** Invoked when a new factory needs to be created. */
         @Override protected AuthorityFactoryMock newDataAccess() {
             assertFalse("Should be invoked outside synchronized block.", Thread.holdsLock(this));
-            final AuthorityFactoryMock factory = new AuthorityFactoryMock("Mock", null);
+            final AuthorityFactoryMock factory = new AuthorityFactoryMock("Mock", version);
             assertTrue(allDAOs.add(factory));
             return factory;
         }
@@ -147,6 +168,126 @@ public final strictfp class ConcurrentAuthorityFactoryTest extends TestCase {
         assertTrue  ("Worker should be disposed.",  createdDAOs.get(0).isClosed());
     }
 
+    /**
+     * Tests writing a snapshot from a factory and reading it in another factory.
+     * Objects in the snapshot shall be returned without querying the Data Access Object.
+     * The objects created by the Data Access Object are the {@link HardCodedCRS} constants,
+     * so objects read from the snapshot are recognized by being different instances.
+     *
+     * @throws FactoryException if an object can not be created.
+     * @throws IOException if an error occurred while writing or reading the snapshot.
+     */
+    @Test
+    @DependsOnMethod("testTimeout")
+    public void testSnapshot() throws FactoryException, IOException {
+        final byte[] snapshot = writeSnapshot("9.8");
+        final Mock factory = new Mock("9.8");
+        assertEquals(2, factory.readSnapshot(new ByteArrayInputStream(snapshot)));
+        assertEquals("Expected a DAO for verifying the dataset version.", 1, factory.createdDAOs().size());
+        verifySnapshotObjects(factory);
+        /*
+         * Objects not in the snapshot are created by the Data Access Object as usual.
+         */
+        assertNotNull(factory.createObject("4979"));
+        assertEquals("Expected no new DAO.", 1, factory.createdDAOs().size());
+        factory.close();
+    }
+
+    /**
+     * Tests reading a snapshot file only when the first object is requested.
+     *
+     * @throws FactoryException if an object can not be created.
+     * @throws IOException if an error occurred while writing or reading the snapshot.
+     */
+    @Test
+    @DependsOnMethod("testSnapshot")
+    public void testReadSnapshotLater() throws FactoryException, IOException {
+        final Path file = Files.createTempFile("test", ".snapshot");
+        try {
+            Files.write(file, writeSnapshot("9.8"));
+            final Mock factory = new Mock("9.8");
+            factory.readSnapshotLater(file);
+            assertTrue("Should not read the snapshot before needed.", factory.createdDAOs().isEmpty());
+            verifySnapshotObjects(factory);
+            factory.close();
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Tests that a snapshot written for another version of the dataset is rejected.
+     *
+     * @throws FactoryException if an object can not be created.
+     * @throws IOException if an error occurred while writing the snapshot.
+     */
+    @Test
+    @DependsOnMethod("testSnapshot")
+    public void testSnapshotVersion() throws FactoryException, IOException {
+        final byte[] snapshot = writeSnapshot("9.8");
+        final Mock factory = new Mock("9.9");
+        try {
+            factory.readSnapshot(new ByteArrayInputStream(snapshot));
+            fail("Should not accept a snapshot of another dataset version.");
+        } catch (IOException e) {
+            final String message = e.getMessage();
+            assertTrue(message, message.contains("9.8"));
+            assertTrue(message, message.contains("9.9"));
+        }
+        assertSame(HardCodedCRS.WGS84, factory.createCoordinateReferenceSystem("84"));
+        factory.close();
+    }
+
+    /**
+     * Tests that a snapshot containing a class outside the allow-list is rejected before the class is loaded.
+     *
+     * @throws IOException if an error occurred while writing the snapshot.
+     */
+    @Test
+    @DependsOnMethod("testSnapshot")
+    public void testSnapshotFilter() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream stream = new ObjectOutputStream(out)) {
+            stream.writeInt(ConcurrentAuthorityFactory.SNAPSHOT_VERSION);
+            stream.writeUTF("");
+            stream.writeInt(1);
+            stream.writeUTF("84");
+            stream.writeObject(new File("84"));
+        }
+        final Mock factory = new Mock();
+        try {
+            factory.readSnapshot(new ByteArrayInputStream(out.toByteArray()));
+            fail("Should not accept a class outside the allow-list.");
+        } catch (InvalidClassException e) {
+            final String message = e.getMessage();
+            assertTrue(message, message.contains("java.io.File"));
+        }
+    }
+
+    /**
+     * Writes a snapshot of two CRS created by a factory declaring the given dataset version.
+     */
+    private static byte[] writeSnapshot(final String version) throws FactoryException, IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final Mock source = new Mock(version);
+        source.writeSnapshot(CoordinateReferenceSystem.class, Arrays.asList("84", "4326"), out);
+        source.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Verifies that the given factory returns the objects of the snapshot written by {@link #writeSnapshot(String)}.
+     * The Data Access Object would have returned the {@link HardCodedCRS} instances instead of copies.
+     */
+    private static void verifySnapshotObjects(final Mock factory) throws FactoryException {
+        final CoordinateReferenceSystem crs84 = factory.createCoordinateReferenceSystem("84");
+        final CoordinateReferenceSystem crs   = factory.createGeographicCRS("4326");
+        assertEquals (HardCodedCRS.WGS84,    crs84);
+        assertEquals (HardCodedCRS.WGS84_φλ, crs);
+        assertNotSame("Should come from the snapshot.", HardCodedCRS.WGS84,    crs84);
+        assertNotSame("Should come from the snapshot.", HardCodedCRS.WGS84_φλ, crs);
+    }
+
     /**
      * Sleeps and ensures that the sleep time did not exceeded the timeout. The sleep time could be greater if the test
      * machine is under heavy load (for example a Jenkins server), in which case we will cancel the test without failure.
@@ -16,13 +16,22 @@
  */
 package org.apache.sis.referencing.factory;
 
+import java.util.Set;
 import java.util.Collections;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import org.opengis.util.FactoryException;
 import org.opengis.referencing.IdentifiedObject;
 import org.opengis.referencing.crs.CRSAuthorityFactory;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.crs.GeographicCRS;
+import org.opengis.referencing.crs.ProjectedCRS;
+import org.apache.sis.referencing.CommonCRS;
 import org.apache.sis.referencing.crs.DefaultGeographicCRS;
+import org.apache.sis.referencing.crs.HardCodedCRS;
+import org.apache.sis.referencing.datum.DefaultGeodeticDatum;
+import org.apache.sis.referencing.datum.HardCodedDatum;
 
 // Test imports
 import org.apache.sis.test.DependsOnMethod;
@@ -38,7 +47,7 @@ import static org.apache.sis.test.Assert.*;
  * This test uses {@link CommonAuthorityFactory} as a simple factory implementation.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 0.7
+ * @version 1.1
  * @since   0.7
  * @module
  */
@@ -106,6 +115,93 @@ public final strictfp class IdentifiedObjectFinderTest extends TestCase {
         testFindSingleton();
     }
 
+    /**
+     * Tests {@link IdentifiedObjectFinder#createIndex(Class)} and the searches using that index.
+     * Indexes are registered for the factory instance, so they shall not be visible from another
+     * factory of the same authority. Indexes written for another dataset version shall be rejected.
+     *
+     * @throws FactoryException if the creation of a CRS failed.
+     * @throws IOException if an error occurred while writing or reading the index.
+     */
+    @Test
+    @DependsOnMethod("testFindSingleton")
+    public void testIndex() throws FactoryException, IOException {
+        final AuthorityFactoryMock mock = new AuthorityFactoryMock("IndexTest", "1");
+        final IdentifiedObjectFinder finder = mock.newIdentifiedObjectFinder();
+        finder.createIndex(CoordinateReferenceSystem.class);
+        assertNotNull(FingerprintIndex.lookup(mock, GeographicCRS.class));
+        assertNull(FingerprintIndex.lookup(new AuthorityFactoryMock("IndexTest", "1"), GeographicCRS.class));
+        final CoordinateReferenceSystem search = new DefaultGeographicCRS(
+                Collections.singletonMap(DefaultGeographicCRS.NAME_KEY, "Unnamed"),
+                HardCodedCRS.WGS84.getDatum(), HardCodedCRS.WGS84.getCoordinateSystem());
+        assertSame(HardCodedCRS.WGS84, finder.findSingleton(search));
+        /*
+         * When ignoring axes, both axis orders shall be found
+         * because the fingerprints are computed on normalized CRS.
+         */
+        finder.setIgnoringAxes(true);
+        final Set<IdentifiedObject> found = finder.find(search);
+        assertTrue(found.contains(HardCodedCRS.WGS84));
+        assertTrue(found.contains(HardCodedCRS.WGS84_φλ));
+        /*
+         * Write and read the index. The search shall give the same result.
+         */
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        finder.writeIndex(out);
+        assertEquals(1, finder.readIndex(new ByteArrayInputStream(out.toByteArray())));
+        finder.setIgnoringAxes(false);
+        assertSame(HardCodedCRS.WGS84, finder.findSingleton(search));
+        /*
+         * Index read by a factory for the same authority but another dataset version.
+         */
+        final AuthorityFactoryMock other = new AuthorityFactoryMock("IndexTest", "2");
+        try {
+            other.newIdentifiedObjectFinder().readIndex(new ByteArrayInputStream(out.toByteArray()));
+            fail("Should not accept an index for another dataset version.");
+        } catch (IOException e) {
+            final String message = e.getMessage();
+            assertTrue(message, message.contains("1"));
+            assertTrue(message, message.contains("2"));
+        }
+        assertNull(FingerprintIndex.lookup(other, GeographicCRS.class));
+    }
+
+    /**
+     * Tests the fingerprints of map projections. Two UTM zones shall have different fingerprints.
+     * Axis order is used for filtering the candidates only when axes are not ignored.
+     */
+    @Test
+    public void testProjectedFingerprints() {
+        final ProjectedCRS zone31 = CommonCRS.WGS84.universal(45, 3);
+        final ProjectedCRS zone32 = CommonCRS.WGS84.universal(45, 9);
+        final FingerprintIndex index = new FingerprintIndex(CoordinateReferenceSystem.class);
+        index.add("31", zone31);
+        index.add("32", zone32);
+        index.add("4326", CommonCRS.WGS84.geographic());
+        assertSetEquals(Collections.singleton("31"),   index.candidates(zone31, false));
+        assertSetEquals(Collections.singleton("32"),   index.candidates(zone32, false));
+        assertSetEquals(Collections.singleton("4326"), index.candidates(CommonCRS.WGS84.geographic(), false));
+        assertSetEquals(Collections.singleton("4326"), index.candidates(CommonCRS.WGS84.normalizedGeographic(), true));
+        assertTrue(index.candidates(CommonCRS.WGS84.normalizedGeographic(), false).isEmpty());
+    }
+
+    /**
+     * Tests the fingerprints of CRS which differ only by their prime meridian.
+     */
+    @Test
+    public void testPrimeMeridianFingerprints() {
+        final DefaultGeographicCRS paris = new DefaultGeographicCRS(
+                Collections.singletonMap(DefaultGeographicCRS.NAME_KEY, "WGS 84 (Paris)"),
+                new DefaultGeodeticDatum(Collections.singletonMap(DefaultGeodeticDatum.NAME_KEY, "WGS 84 (Paris)"),
+                        HardCodedDatum.WGS84.getEllipsoid(), HardCodedDatum.PARIS),
+                HardCodedCRS.WGS84.getCoordinateSystem());
+        final FingerprintIndex index = new FingerprintIndex(CoordinateReferenceSystem.class);
+        index.add("4326", HardCodedCRS.WGS84);
+        index.add("Paris", paris);
+        assertSetEquals(Collections.singleton("4326"),  index.candidates(HardCodedCRS.WGS84, false));
+        assertSetEquals(Collections.singleton("Paris"), index.candidates(paris, false));
+    }
+
     /**
      * An authority factory to be used by {@link IdentifiedObjectFinderTest#testFindOnCachingInstance()}.
      */
@@ -22,6 +22,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Iterator;
 import java.util.Collections;
+import java.io.IOException;
+import java.io.ByteArrayOutputStream;
 import javax.measure.Unit;
 import org.opengis.metadata.extent.GeographicBoundingBox;
 import org.opengis.parameter.ParameterDescriptor;
@@ -79,7 +81,7 @@ import static org.apache.sis.test.ReferencingAssert.*;
  *
  * @author  Martin Desruisseaux (IRD, Geomatys)
  * @author  Vadim Semenov
- * @version 1.0
+ * @version 1.1
  * @since   0.7
  * @module
  */
@@ -1027,4 +1029,38 @@ public final strictfp class EPSGFactoryTest extends TestCase {
         assertEpsgNameAndIdentifierEqual("Beijing 1954 / Gauss-Kruger CM 135E", 21463, it.next());
         assertFalse("Expected no more element.", it.hasNext());
     }
+
+    /**
+     * Tests the list of codes written by {@link EPSGFactory#writeSnapshot(java.io.OutputStream)}.
+     * This test does not need the EPSG database.
+     *
+     * @throws IOException if an error occurred while reading the list of codes.
+     */
+    @Test
+    public void testSnapshotCodes() throws IOException {
+        final Set<String> codes = EPSGFactory.snapshotCodes();
+        assertTrue(codes.contains("4326"));
+        assertTrue(codes.contains("32601"));            // First code of a range.
+        assertTrue(codes.contains("32631"));
+        assertTrue(codes.contains("32661"));            // Last code of a range.
+        assertFalse(codes.contains("32662"));
+        assertFalse(codes.contains("#"));
+    }
+
+    /**
+     * Tests writing a snapshot of the commonly used CRS.
+     *
+     * @throws FactoryException if an error occurred while querying the factory.
+     * @throws IOException if an error occurred while writing the snapshot.
+     */
+    @Test
+    @DependsOnMethod({"testWGS84", "testSnapshotCodes"})
+    public void testWriteSnapshot() throws FactoryException, IOException {
+        final EPSGFactory factory = TestFactorySource.factory;
+        assumeNotNull(factory);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final int count = factory.writeSnapshot(out);
+        assertTrue("Expected the UTM zones.", count > 120);
+        assertTrue(out.size() > count);
+    }
 }
@@ -16,7 +16,11 @@
  */
 package org.apache.sis.referencing.operation;
 
+import java.util.Map;
 import java.util.List;
+import java.util.HashMap;
+import java.util.Collections;
+import java.time.Duration;
 import java.text.ParseException;
 import org.opengis.util.FactoryException;
 import org.opengis.parameter.ParameterValueGroup;
@@ -26,16 +30,19 @@ import org.opengis.referencing.operation.CoordinateOperation;
 import org.opengis.referencing.operation.CoordinateOperationAuthorityFactory;
 import org.opengis.referencing.operation.SingleOperation;
 import org.opengis.referencing.operation.TransformException;
+import org.apache.sis.internal.referencing.CoordinateOperations;
 import org.apache.sis.internal.referencing.Formulas;
 import org.apache.sis.internal.referencing.PositionalAccuracyConstant;
 import org.apache.sis.internal.util.Constants;
 import org.apache.sis.geometry.DirectPosition2D;
 import org.apache.sis.io.wkt.WKTFormat;
+import org.apache.sis.metadata.iso.extent.DefaultGeographicBoundingBox;
 import org.apache.sis.referencing.CRS;
 import org.apache.sis.referencing.CommonCRS;
 
 // Test dependencies
 import org.apache.sis.referencing.operation.transform.MathTransformTestCase;
+import org.apache.sis.util.collection.Cache;
 import org.apache.sis.test.DependsOnMethod;
 import org.apache.sis.test.DependsOn;
 import org.junit.BeforeClass;
@@ -56,7 +63,7 @@ import static org.apache.sis.test.ReferencingAssert.*;
  * </ul>
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 0.8
+ * @version 1.1
  * @since   0.7
  * @module
  */
@@ -352,4 +359,118 @@ public final strictfp class DefaultCoordinateOperationFactoryTest extends MathTr
                         CoordinateOperationFinderTest.expectedAGD66(false));
         validate();
     }
+
+    /**
+     * Tests the cache of coordinate operations, including operations found in a context.
+     *
+     * @throws FactoryException if an operation can not be created.
+     *
+     * @since 1.1
+     */
+    @Test
+    public void testCache() throws FactoryException {
+        final DefaultCoordinateOperationFactory factory = new DefaultCoordinateOperationFactory(null, null);
+        final OperationCache cache = factory.cache;
+        final CoordinateReferenceSystem sourceCRS = CommonCRS.WGS84.geographic();
+        final CoordinateReferenceSystem targetCRS = CommonCRS.WGS84.normalizedGeographic();
+        final CoordinateOperation op = factory.createOperation(sourceCRS, targetCRS);
+        assertEquals("misses", 1, cache.misses());
+        assertEquals("hits",   0, cache.hits());
+        assertSame(op, factory.createOperation(sourceCRS, targetCRS));
+        assertEquals("misses", 1, cache.misses());
+        assertEquals("hits",   1, cache.hits());
+        /*
+         * Operations found in a context are cached under a different key,
+         * which include the area of interest and the desired accuracy.
+         */
+        final CoordinateOperationContext context = CoordinateOperationContext.fromBoundingBox(
+                new DefaultGeographicBoundingBox(0, 10, 40, 50));
+        final CoordinateOperation inContext = factory.createOperation(sourceCRS, targetCRS, context);
+        assertEquals("misses", 2, cache.misses());
+        assertSame(inContext, factory.createOperation(sourceCRS, targetCRS,
+                CoordinateOperationContext.fromBoundingBox(new DefaultGeographicBoundingBox(0, 10, 40, 50))));
+        assertEquals("hits", 2, cache.hits());
+        context.setDesiredAccuracy(1);
+        factory.createOperation(sourceCRS, targetCRS, context);
+        assertEquals("misses", 3, cache.misses());
+        assertEquals("size",   3, cache.size());
+        /*
+         * Contexts of unknown subclasses are not cached.
+         */
+        factory.createOperation(sourceCRS, targetCRS, new CoordinateOperationContext() {});
+        assertEquals("misses", 3, cache.misses());
+        assertEquals("hits",   2, cache.hits());
+        assertEquals("size",   3, cache.size());
+    }
+
+    /**
+     * Tests the expiration of cached operations.
+     *
+     * @throws FactoryException if an operation can not be created.
+     * @throws InterruptedException if the test has been interrupted while waiting for the expiration.
+     *
+     * @since 1.1
+     */
+    @Test
+    @DependsOnMethod("testCache")
+    public void testCacheExpiration() throws FactoryException, InterruptedException {
+        final DefaultCoordinateOperationFactory factory = new DefaultCoordinateOperationFactory(
+                Collections.singletonMap(CoordinateOperations.CACHE_EXPIRATION_KEY, Duration.ofNanos(1)), null);
+        final OperationCache cache = factory.cache;
+        final CoordinateReferenceSystem sourceCRS = CommonCRS.WGS84.geographic();
+        final CoordinateReferenceSystem targetCRS = CommonCRS.WGS84.normalizedGeographic();
+        factory.createOperation(sourceCRS, targetCRS);
+        assertEquals("size", 1, cache.size());
+        Thread.sleep(2);
+        factory.createOperation(sourceCRS, targetCRS);
+        assertEquals("expirations", 1, cache.expirations());
+        assertEquals("misses",      2, cache.misses());
+        assertEquals("hits",        0, cache.hits());
+        assertEquals("evictions",   0, cache.evictions());
+    }
+
+    /**
+     * Tests the expiration of cached operations when the cost limit has been exceeded.
+     * In such case, the oldest operations are retained only by soft references.
+     * Expired operations shall nevertheless be removed and rebuilt.
+     *
+     * @throws FactoryException if an operation can not be created.
+     * @throws InterruptedException if the test has been interrupted while waiting for the expiration.
+     *
+     * @since 1.1
+     */
+    @Test
+    @DependsOnMethod("testCacheExpiration")
+    public void testCacheExpirationOverCostLimit() throws FactoryException, InterruptedException {
+        final Map<String,Object> properties = new HashMap<>(4);
+        properties.put(CoordinateOperations.CACHE_COST_LIMIT_KEY, 1);
+        properties.put(CoordinateOperations.CACHE_EXPIRATION_KEY, Duration.ofNanos(1));
+        final DefaultCoordinateOperationFactory factory = new DefaultCoordinateOperationFactory(properties, null);
+        final OperationCache cache = factory.cache;
+        final CoordinateReferenceSystem sourceCRS = CommonCRS.WGS84.geographic();
+        final CoordinateReferenceSystem[] targetCRS = {
+            CommonCRS.WGS84.normalizedGeographic(),
+            CommonCRS.WGS84.geographic3D(),
+            CommonCRS.WGS84.geocentric()
+        };
+        for (final CoordinateReferenceSystem crs : targetCRS) {
+            factory.createOperation(sourceCRS, crs);
+        }
+        assertEquals("misses", 3, cache.misses());
+        Thread.sleep(2);
+        for (final CoordinateReferenceSystem crs : targetCRS) {
+            final Cache.Handler<CoordinateOperation> handler = cache.lock(new CRSPair(sourceCRS, crs));
+            try {
+                assertNull("Expired operation shall not be returned.", handler.peek());
+            } finally {
+                handler.putAndUnlock(null);
+            }
+        }
+        assertEquals("expirations", 3, cache.expirations());
+        for (final CoordinateReferenceSystem crs : targetCRS) {
+            assertNotNull(factory.createOperation(sourceCRS, crs));
+        }
+        assertEquals("misses", 6, cache.misses());
+        assertEquals("hits",   0, cache.hits());
+    }
 }
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.referencing.operation.builder;
+
+import java.util.Random;
+import org.opengis.util.FactoryException;
+import org.opengis.referencing.operation.Matrix;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+import org.apache.sis.referencing.operation.matrix.Matrix3;
+import org.apache.sis.referencing.operation.transform.AbstractMathTransform2D;
+import org.apache.sis.referencing.operation.transform.LinearTransform;
+import org.apache.sis.referencing.operation.transform.MathTransforms;
+import org.apache.sis.geometry.Envelope2D;
+import org.apache.sis.internal.system.Loggers;
+import org.apache.sis.test.DependsOn;
+import org.apache.sis.test.LoggingWatcher;
+import org.apache.sis.test.TestCase;
+import org.apache.sis.test.TestUtilities;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests {@link ApproximateTransformBuilder}.
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+@DependsOn(LocalizationGridBuilderTest.class)
+public final strictfp class ApproximateTransformBuilderTest extends TestCase {
+    /**
+     * A JUnit rule for listening to log events emitted when the exact transform is used.
+     */
+    @Rule
+    public final LoggingWatcher loggings = new LoggingWatcher(Loggers.COORDINATE_OPERATION);
+
+    /**
+     * Verifies that no unexpected warning has been emitted in any test defined in this class.
+     */
+    @After
+    public void assertNoUnexpectedLog() {
+        loggings.assertNoUnexpectedLog();
+    }
+
+    /**
+     * Returns the maximal distance between the exact and approximated transforms at random points in [1 … 1+span].
+     */
+    private static double maximalError(final MathTransform exact, final MathTransform approx, final double span)
+            throws TransformException
+    {
+        final Random random = TestUtilities.createRandomNumberGenerator();
+        final double[] expected = new double[2000];
+        for (int i=0; i<expected.length; i++) {
+            expected[i] = 1 + span * random.nextDouble();
+        }
+        final double[] actual = expected.clone();
+        exact .transform(expected, 0, expected, 0, expected.length / 2);
+        approx.transform(actual,   0, actual,   0, actual.length   / 2);
+        double max = 0;
+        for (int i=0; i<expected.length; i += 2) {
+            max = Math.max(max, Math.hypot(expected[i] - actual[i], expected[i+1] - actual[i+1]));
+        }
+        return max;
+    }
+    /**
+     * Tests the approximation of a non-linear transform. The errors at random points shall not exceed the tolerance.
+     *
+     * @throws FactoryException if an error occurred while computing the localization grid.
+     * @throws TransformException if an error occurred while transforming a point.
+     */
+    @Test
+    public void testNonLinear() throws FactoryException, TransformException {
+        final MathTransform exact = new NonLinearTransform();
+        final double tolerance = 0.001;
+        final ApproximateTransformBuilder builder = new ApproximateTransformBuilder(exact, new Envelope2D(null, 1, 1, 9, 9), tolerance);
+        final MathTransform approx = builder.create(null);
+        assertNotSame(exact, approx);
+        final int[] size = builder.getGridSize();
+        assertTrue("x", size[0] >= ApproximateTransformBuilder.INITIAL_CELLS);
+        assertTrue("y", size[1] > size[0]);                 // Because y³ is less linear than x².
+        assertSame(approx, builder.create(null));
+        assertTrue(maximalError(exact, approx, 9) <= tolerance);
+    }
+
+    /**
+     * Tests a transform for which the errors are zero at the grid nodes, at the middle of cell edges
+     * and at the center of cells of the initial grid, but not elsewhere. The errors shall nevertheless
+     * be detected by the denser sampling.
+     *
+     * @throws FactoryException if an error occurred while computing the localization grid.
+     * @throws TransformException if an error occurred while transforming a point.
+     */
+    @Test
+    public void testErrorsBetweenMidpoints() throws FactoryException, TransformException {
+        final MathTransform exact = new AbstractMathTransform2D() {
+            @Override
+            public Matrix transform(final double[] srcPts, final int srcOff,
+                                    final double[] dstPts, final int dstOff, final boolean derivate)
+            {
+                final double x = srcPts[srcOff];
+                dstPts[dstOff]     = x + 0.1 * Math.sin(Math.PI * x);       // Zero at all integer values.
+                dstPts[dstOff + 1] = srcPts[srcOff + 1];
+                return null;
+            }
+        };
+        final double tolerance = 0.01;
+        final ApproximateTransformBuilder builder = new ApproximateTransformBuilder(exact, new Envelope2D(null, 1, 1, 8, 8), tolerance);
+        final MathTransform approx = builder.create(null);
+        assertNotSame(exact, approx);
+        final int[] size = builder.getGridSize();
+        assertTrue("x", size[0] > ApproximateTransformBuilder.INITIAL_CELLS);
+        assertEquals("y", ApproximateTransformBuilder.INITIAL_CELLS, size[1]);
+        assertTrue(maximalError(exact, approx, 8) <= tolerance);
+    }
+
+    /**
+     * Tests a transform which is non-linear only in a small part of the domain. Only the columns
+     * in that part shall be refined, so the grid shall have fewer columns than a grid refined by
+     * uniform subdivisions would need for the same tolerance.
+     *
+     * @throws FactoryException if an error occurred while computing the localization grid.
+     * @throws TransformException if an error occurred while transforming a point.
+     */
+    @Test
+    public void testLocalRefinement() throws FactoryException, TransformException {
+        final MathTransform exact = new AbstractMathTransform2D() {
+            @Override
+            public Matrix transform(final double[] srcPts, final int srcOff,
+                                    final double[] dstPts, final int dstOff, final boolean derivate)
+            {
+                final double x = srcPts[srcOff];
+                final double d = Math.max(0, 1 - Math.abs(x - 2));         // Non-zero only in [1 … 3].
+                dstPts[dstOff]     = x + d*d*d;
+                dstPts[dstOff + 1] = srcPts[srcOff + 1];
+                return null;
+            }
+        };
+        final double tolerance = 0.0001;
+        final ApproximateTransformBuilder builder = new ApproximateTransformBuilder(exact, new Envelope2D(null, 1, 1, 8, 8), tolerance);
+        final MathTransform approx = builder.create(null);
+        assertNotSame(exact, approx);
+        final int[] size = builder.getGridSize();
+        assertTrue("x", size[0] > ApproximateTransformBuilder.INITIAL_CELLS);
+        assertTrue("x", size[0] < 512);                     // A uniform grid would need more than 512 columns.
+        assertEquals("y", ApproximateTransformBuilder.INITIAL_CELLS, size[1]);
+        assertTrue(maximalError(exact, approx, 8) <= tolerance);
+    }
+
+    /**
+     * Tests the approximation of a linear transform. The result shall be linear with the initial grid size.
+     *
+     * @throws FactoryException if an error occurred while computing the localization grid.
+     */
+    @Test
+    public void testLinear() throws FactoryException {
+        final MathTransform exact = MathTransforms.linear(new Matrix3(
+                2, 0, 3,
+                0, 4, 5,
+                0, 0, 1));
+        final ApproximateTransformBuilder builder = new ApproximateTransformBuilder(exact, new Envelope2D(null, -10, -20, 30, 50), 1E-6);
+        assertTrue(builder.create(null) instanceof LinearTransform);
+        assertArrayEquals(new int[] {ApproximateTransformBuilder.INITIAL_CELLS, ApproximateTransformBuilder.INITIAL_CELLS}, builder.getGridSize());
+    }
+
+    /**
+     * Tests with a domain where some points can not be transformed.
+     * The exact transform shall be returned.
+     *
+     * @throws FactoryException if an error occurred while computing the localization grid.
+     */
+    @Test
+    public void testUntransformable() throws FactoryException {
+        final MathTransform exact = new AbstractMathTransform2D() {
+            @Override
+            public Matrix transform(final double[] srcPts, final int srcOff,
+                                    final double[] dstPts, final int dstOff, final boolean derivate)
+            {
+                final double x = srcPts[srcOff];
+                dstPts[dstOff]     = (x > 5) ? Double.NaN : x;
+                dstPts[dstOff + 1] = srcPts[srcOff + 1];
+                return null;
+            }
+        };
+        final ApproximateTransformBuilder builder = new ApproximateTransformBuilder(exact, new Envelope2D(null, 1, 1, 9, 9), 0.001);
+        assertSame(exact, builder.create(null));
+        assertArrayEquals(new int[2], builder.getGridSize());
+        loggings.assertNextLogContains();
+    }
+}
@@ -18,6 +18,11 @@ package org.apache.sis.referencing.operation.transform;
 
 import java.util.Arrays;
 import java.util.Random;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import org.opengis.referencing.operation.Matrix;
 import org.opengis.referencing.operation.TransformException;
 import static java.lang.StrictMath.*;
 import static org.apache.sis.referencing.operation.transform.AbstractMathTransform.MAXIMUM_FAILURES;
@@ -35,7 +40,7 @@ import static org.junit.Assert.*;
  * Tests the {@link AbstractMathTransformTest} class.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 0.5
+ * @version 1.1
  * @since   0.5
  * @module
  */
@@ -140,6 +145,266 @@ public final strictfp class AbstractMathTransformTest extends TestCase {
         }
     }
 
+    /**
+     * Tests {@link AbstractMathTransform#transform(DoubleBuffer, DoubleBuffer)} and its {@code float} variant
+     * with heap buffers (delegating to arrays) and direct buffers (using a temporary array).
+     *
+     * @throws TransformException should never occur.
+     */
+    @Test
+    @DependsOnMethod("testTransforms")
+    public void testBufferTransforms() throws TransformException {
+        final Random random = new Random(83475);
+        for (int sd=1; sd<=4; sd++) {
+            for (int td=1; td<=4; td++) {
+                final PseudoTransform tr = new PseudoTransform(sd, td);
+                final int numPts = MAXIMUM_BUFFER_SIZE + 37;
+                final double[] source = new double[numPts * sd];
+                for (int i=0; i<source.length; i++) {
+                    source[i] = (float) random.nextDouble();        // Same values for float and double tests.
+                }
+                final double[] expected = new double[numPts * td];
+                tr.transform(source, 0, expected, 0, numPts);
+                for (int direct=0; direct<=1; direct++) {
+                    final DoubleBuffer srcDbl, dstDbl;
+                    final FloatBuffer  srcFlt, dstFlt;
+                    if (direct == 0) {
+                        srcDbl = DoubleBuffer.allocate(source.length);
+                        dstDbl = DoubleBuffer.allocate(expected.length);
+                        srcFlt = FloatBuffer .allocate(source.length);
+                        dstFlt = FloatBuffer .allocate(expected.length);
+                    } else {
+                        srcDbl = ByteBuffer.allocateDirect(source.length   * Double.BYTES).asDoubleBuffer();
+                        dstDbl = ByteBuffer.allocateDirect(expected.length * Double.BYTES).asDoubleBuffer();
+                        srcFlt = ByteBuffer.allocateDirect(source.length   * Float.BYTES).asFloatBuffer();
+                        dstFlt = ByteBuffer.allocateDirect(expected.length * Float.BYTES).asFloatBuffer();
+                    }
+                    for (final double value : source) {
+                        srcDbl.put(value);
+                        srcFlt.put((float) value);
+                    }
+                    srcDbl.flip();
+                    srcFlt.flip();
+                    tr.transform(srcDbl, dstDbl);
+                    MathTransforms.transform(tr, srcFlt, dstFlt);
+                    assertFalse(srcDbl.hasRemaining());
+                    assertFalse(dstDbl.hasRemaining());
+                    assertFalse(srcFlt.hasRemaining());
+                    assertFalse(dstFlt.hasRemaining());
+                    for (int i=0; i<expected.length; i++) {
+                        assertEquals(expected[i], dstDbl.get(i), 0);
+                        assertEquals((float) expected[i], dstFlt.get(i), 0f);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests the buffer positions after {@link AbstractMathTransform#transform(DoubleBuffer, DoubleBuffer)}
+     * and its {@code float} variant failed. If the transform continued after the failures, the positions
+     * shall be advanced over all points. Otherwise they shall be advanced by the same number of points
+     * in the source and destination buffers, for heap buffers and direct buffers alike.
+     */
+    @Test
+    @DependsOnMethod({"testBufferTransforms", "testExceptionTolerance"})
+    public void testBufferPositionsOnFailure() {
+        final int[] denominators = {100, 1};
+        for (final int denominator : denominators) {
+            for (int direct=0; direct<=1; direct++) {
+                for (int p=0; p<2; p++) {
+                    final RandomFailureTransform tr = new RandomFailureTransform(denominator);
+                    final int numPts = MAXIMUM_BUFFER_SIZE * 3 + 7;
+                    final int srcLength = numPts * tr.getSourceDimensions();
+                    final int dstLength = numPts * tr.getTargetDimensions();
+                    final Buffer src, dst;
+                    if (p == 0) {
+                        src = (direct == 0) ? DoubleBuffer.allocate(srcLength)
+                                : ByteBuffer.allocateDirect(srcLength * Double.BYTES).asDoubleBuffer();
+                        dst = (direct == 0) ? DoubleBuffer.allocate(dstLength)
+                                : ByteBuffer.allocateDirect(dstLength * Double.BYTES).asDoubleBuffer();
+                    } else {
+                        src = (direct == 0) ? FloatBuffer.allocate(srcLength)
+                                : ByteBuffer.allocateDirect(srcLength * Float.BYTES).asFloatBuffer();
+                        dst = (direct == 0) ? FloatBuffer.allocate(dstLength)
+                                : ByteBuffer.allocateDirect(dstLength * Float.BYTES).asFloatBuffer();
+                    }
+                    try {
+                        if (p == 0) {
+                            tr.transform((DoubleBuffer) src, (DoubleBuffer) dst);
+                        } else {
+                            tr.transform((FloatBuffer) src, (FloatBuffer) dst);
+                        }
+                        fail("Expected at least one TransformException.");
+                    } catch (TransformException exception) {
+                        final int srcDone = src.position() / tr.getSourceDimensions();
+                        final int dstDone = dst.position() / tr.getTargetDimensions();
+                        assertEquals("Points consumed and written.", srcDone, dstDone);
+                        if (exception.getLastCompletedTransform() == tr) {
+                            assertEquals(numPts, srcDone);
+                        } else {
+                            assertTrue(srcDone < numPts);
+                            assertFalse("Transform should give up.", denominator == 100);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests the buffer positions after a transform stopped at a failure occurring part-way.
+     * The positions shall be advanced over the blocks of points completed before the failure,
+     * and the coordinates written in those blocks shall be valid. This test uses heap buffers
+     * (transformed directly in their backing arrays) and direct buffers.
+     */
+    @Test
+    @DependsOnMethod("testBufferPositionsOnFailure")
+    public void testBufferPositionsOnPartialFailure() {
+        final int blockSize = MAXIMUM_BUFFER_SIZE / 2;
+        final int failAt    = blockSize * 2 + 88;
+        final int numPts    = MAXIMUM_BUFFER_SIZE * 3 + 7;
+        final FailingTransform tr = new FailingTransform(failAt);
+        for (int direct=0; direct<=1; direct++) {
+            for (int p=0; p<2; p++) {
+                final Buffer src, dst;
+                if (p == 0) {
+                    final DoubleBuffer s = (direct == 0) ? DoubleBuffer.allocate(numPts * 2)
+                            : ByteBuffer.allocateDirect(numPts * 2 * Double.BYTES).asDoubleBuffer();
+                    for (int i=0; i<numPts; i++) s.put(i).put(-i);
+                    src = s;
+                    dst = (direct == 0) ? DoubleBuffer.allocate(numPts * 2)
+                            : ByteBuffer.allocateDirect(numPts * 2 * Double.BYTES).asDoubleBuffer();
+                } else {
+                    final FloatBuffer s = (direct == 0) ? FloatBuffer.allocate(numPts * 2)
+                            : ByteBuffer.allocateDirect(numPts * 2 * Float.BYTES).asFloatBuffer();
+                    for (int i=0; i<numPts; i++) s.put(i).put(-i);
+                    src = s;
+                    dst = (direct == 0) ? FloatBuffer.allocate(numPts * 2)
+                            : ByteBuffer.allocateDirect(numPts * 2 * Float.BYTES).asFloatBuffer();
+                }
+                src.flip();
+                assertEquals(direct == 0, src.hasArray());
+                try {
+                    if (p == 0) {
+                        tr.transform((DoubleBuffer) src, (DoubleBuffer) dst);
+                    } else {
+                        tr.transform((FloatBuffer) src, (FloatBuffer) dst);
+                    }
+                    fail("Expected a TransformException.");
+                } catch (TransformException exception) {
+                    assertNotSame(tr, exception.getLastCompletedTransform());
+                    assertEquals("Source position.",      blockSize * 4, src.position());
+                    assertEquals("Destination position.", blockSize * 4, dst.position());
+                }
+                for (int i=0; i < blockSize * 2; i++) {
+                    final double x, y;
+                    if (p == 0) {
+                        x = ((DoubleBuffer) dst).get(i*2);
+                        y = ((DoubleBuffer) dst).get(i*2 + 1);
+                    } else {
+                        x = ((FloatBuffer) dst).get(i*2);
+                        y = ((FloatBuffer) dst).get(i*2 + 1);
+                    }
+                    assertEquals("x", i + 1, x, 0);
+                    assertEquals("y", -i,    y, 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * A two-dimensional transform which adds 1 to the <var>x</var> values and stops at the first point
+     * having the <var>x</var> value given at construction time. Contrarily to {@link RandomFailureTransform},
+     * this transform does not continue after the failure.
+     */
+    private static final class FailingTransform extends AbstractMathTransform {
+        /** The <var>x</var> value of the point which can not be transformed. */
+        private final double failAt;
+
+        /** Creates a transform failing at the given <var>x</var> value. */
+        FailingTransform(final double failAt) {
+            this.failAt = failAt;
+        }
+
+        @Override public int getSourceDimensions() {return 2;}
+        @Override public int getTargetDimensions() {return 2;}
+
+        /** Transforms a single point, or throws an exception if the point is the one to fail. */
+        @Override
+        public Matrix transform(final double[] srcPts, final int srcOff,
+                                final double[] dstPts, final int dstOff, final boolean derivate)
+                throws TransformException
+        {
+            final double x = srcPts[srcOff];
+            if (x == failAt) {
+                throw new TransformException("Can not transform x = " + x);
+            }
+            if (dstPts != null) {
+                dstPts[dstOff  ] = x + 1;
+                dstPts[dstOff+1] = srcPts[srcOff+1];
+            }
+            return null;
+        }
+
+        /** Transforms many points, stopping at the first failure. */
+        @Override
+        public void transform(final double[] srcPts, int srcOff,
+                              final double[] dstPts, int dstOff, int numPts) throws TransformException
+        {
+            while (--numPts >= 0) {
+                transform(srcPts, srcOff, dstPts, dstOff, false);
+                srcOff += 2;
+                dstOff += 2;
+            }
+        }
+
+        /** Transforms many points, stopping at the first failure. */
+        @Override
+        public void transform(final float[] srcPts, int srcOff,
+                              final float[] dstPts, int dstOff, int numPts) throws TransformException
+        {
+            final double[] buffer = new double[2];
+            while (--numPts >= 0) {
+                buffer[0] = srcPts[srcOff++];
+                buffer[1] = srcPts[srcOff++];
+                transform(buffer, 0, buffer, 0, false);
+                dstPts[dstOff++] = (float) buffer[0];
+                dstPts[dstOff++] = (float) buffer[1];
+            }
+        }
+    }
+
+    /**
+     * Tests {@link ScratchBuffer}, which provides the temporary arrays used by the above transforms.
+     * Nested acquisitions shall get distinct arrays, and arrays shall be reused after release.
+     */
+    @Test
+    public void testScratchBuffer() {
+        final ScratchBuffer scratch = ScratchBuffer.current();
+        final double[] outer, inner;
+        outer = scratch.acquire(10);
+        try {
+            inner = scratch.acquire(10);
+            try {
+                assertNotSame(outer, inner);
+                assertTrue(inner.length >= 10);
+            } finally {
+                scratch.release();
+            }
+            assertSame(inner, scratch.acquire(MAXIMUM_BUFFER_SIZE));
+            scratch.release();
+            final double[] large = scratch.acquire(ScratchBuffer.MAXIMUM_RETAINED_LENGTH + 1);
+            scratch.release();
+            assertNotSame(large, scratch.acquire(1));
+            scratch.release();
+        } finally {
+            scratch.release();
+        }
+        assertSame(outer, scratch.acquire(1));
+        scratch.release();
+    }
+
     /**
      * Tests the handling of {@link TransformException}. The code is expected to be tolerant
      * up to some frequency of errors. Untransformed coordinates are expected to be set to NaN.
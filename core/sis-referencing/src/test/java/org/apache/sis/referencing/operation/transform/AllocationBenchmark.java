@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.referencing.operation.transform;
+
+import java.util.Random;
+import java.lang.management.ManagementFactory;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+import org.apache.sis.math.Statistics;
+import org.apache.sis.math.StatisticsFormat;
+
+
+/**
+ * Measures the number of bytes allocated and the time spent by the {@code transform(…)} methods
+ * which need an intermediate buffer, i.e. concatenated transforms and transforms of {@code float[]} arrays.
+ * In steady state, those methods should not allocate anything.
+ *
+ * <p><b>Usage:</b> run the {@code main} method. The number of allocated bytes is measured by
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}, which is specific
+ * to HotSpot-based Java virtual machines.</p>
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public final class AllocationBenchmark {
+    /**
+     * Number of points to transform in each operation. Can be modified freely.
+     */
+    private static final int NUM_POINTS = 10000;
+
+    /**
+     * Number of operations to execute in each run.
+     */
+    private static final int NUM_OPERATIONS = 1000;
+
+    /**
+     * Runs the benchmark and prints the results to the standard output.
+     * The results of the baseline, which does not need any intermediate buffer,
+     * are printed in the first column for comparison with the other configurations.
+     *
+     * @param  args  ignored.
+     * @throws Exception if an error occurred while transforming the points.
+     */
+    public static void main(String[] args) throws Exception {
+        final MathTransform single = new PseudoTransform(2, 2);
+        final MathTransform concatenated = MathTransforms.concatenate(
+                new PseudoTransform(2, 3), new PseudoTransform(3, 2));
+        final AllocationBenchmark benchmark = new AllocationBenchmark(
+                "Baseline (double[])", "Concatenated (double[])", "Single (float[])", "Concatenated (float[])");
+        for (int i=0; i<10; i++) {
+            benchmark.run(0, single,       false);
+            benchmark.run(1, concatenated, false);
+            benchmark.run(2, single,       true);
+            benchmark.run(3, concatenated, true);
+        }
+        final StatisticsFormat format = StatisticsFormat.getInstance();
+        System.out.println("Time per run (ms):");
+        format.format(benchmark.times, System.out);
+        System.out.println();
+        System.out.println("Bytes allocated per operation:");
+        format.format(benchmark.allocations, System.out);
+        System.out.flush();
+    }
+
+    /**
+     * The source and target coordinates as double precision values.
+     */
+    private final double[] sourceDoubles, targetDoubles;
+
+    /**
+     * The source and target coordinates as single precision values.
+     */
+    private final float[] sourceFloats, targetFloats;
+
+    /**
+     * Statistics about the time needed for each configuration, in milliseconds.
+     */
+    private final Statistics[] times;
+
+    /**
+     * Statistics about the number of bytes allocated per operation for each configuration.
+     */
+    private final Statistics[] allocations;
+
+    /**
+     * The bean providing the number of bytes allocated by the current thread.
+     */
+    private final com.sun.management.ThreadMXBean threads;
+
+    /**
+     * Creates a new benchmark with random coordinates.
+     *
+     * @param  configurations  names of the configurations to benchmark.
+     */
+    private AllocationBenchmark(final String... configurations) {
+        final Random random = new Random();
+        sourceDoubles = new double[NUM_POINTS * 2];
+        targetDoubles = new double[NUM_POINTS * 2];
+        sourceFloats  = new float [NUM_POINTS * 2];
+        targetFloats  = new float [NUM_POINTS * 2];
+        for (int i=0; i<sourceDoubles.length; i++) {
+            sourceFloats[i] = (float) (sourceDoubles[i] = random.nextDouble() * 100);
+        }
+        times       = new Statistics[configurations.length];
+        allocations = new Statistics[configurations.length];
+        for (int i=0; i<configurations.length; i++) {
+            times      [i] = new Statistics(configurations[i]);
+            allocations[i] = new Statistics(configurations[i]);
+        }
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    }
+
+    /**
+     * Transforms all points {@value #NUM_OPERATIONS} times and records the time and allocations.
+     *
+     * @param  configuration  index of the statistics where to record the results.
+     * @param  transform      the transform to benchmark.
+     * @param  useFloats      whether to transform {@code float[]} arrays instead of {@code double[]}.
+     */
+    private void run(final int configuration, final MathTransform transform, final boolean useFloats)
+            throws TransformException
+    {
+        final long thread = Thread.currentThread().getId();
+        final long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        final long startTime = System.nanoTime();
+        for (int i=0; i<NUM_OPERATIONS; i++) {
+            if (useFloats) {
+                transform.transform(sourceFloats, 0, targetFloats, 0, NUM_POINTS);
+            } else {
+                transform.transform(sourceDoubles, 0, targetDoubles, 0, NUM_POINTS);
+            }
+        }
+        final long time = System.nanoTime() - startTime;
+        final long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+        times      [configuration].accept(time / 1E6);
+        allocations[configuration].accept(allocated / (double) NUM_OPERATIONS);
+    }
+}
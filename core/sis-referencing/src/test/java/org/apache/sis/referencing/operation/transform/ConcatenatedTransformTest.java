@@ -16,13 +16,16 @@
  */
 package org.apache.sis.referencing.operation.transform;
 
+import java.util.Arrays;
 import org.opengis.util.FactoryException;
+import org.opengis.referencing.operation.Matrix;
 import org.opengis.referencing.operation.MathTransform;
 import org.opengis.referencing.operation.TransformException;
 import org.apache.sis.internal.referencing.j2d.AffineTransform2D;
 import org.apache.sis.referencing.operation.matrix.Matrices;
 import org.apache.sis.referencing.operation.matrix.Matrix4;
 import org.apache.sis.test.DependsOn;
+import org.apache.sis.test.DependsOnMethod;
 import org.junit.Test;
 
 import static org.opengis.test.Assert.*;
@@ -32,7 +35,7 @@ import static org.opengis.test.Assert.*;
  * Tests the {@link ConcatenatedTransform} class.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   0.5
  * @module
  */
@@ -147,4 +150,117 @@ public final strictfp class ConcatenatedTransformTest extends MathTransformTestC
         assertEquals("Source dimensions", 3, transform.getSourceDimensions());
         assertEquals("Target dimensions", 4, transform.getTargetDimensions());
     }
+
+    /**
+     * Returns a chain of three steps as nested {@link ConcatenatedTransformDirect} instances.
+     */
+    private static MathTransform chain(final MathTransform[] steps) {
+        return new ConcatenatedTransformDirect(new ConcatenatedTransformDirect(steps[0], steps[1]), steps[2]);
+    }
+
+    /**
+     * Returns three-dimensional steps where the first one is the given transform,
+     * the second one is affine and the third one is non-linear.
+     */
+    private static MathTransform[] steps(final MathTransform first) {
+        return new MathTransform[] {
+            first,
+            MathTransforms.linear(new Matrix4(2, 0, 0, 1,
+                                              0, 3, 0, 2,
+                                              0, 0, 4, 3,
+                                              0, 0, 0, 1)),
+            new PseudoTransform(3, 3)
+        };
+    }
+
+    /**
+     * Tests the transformation of an array large enough for being processed by blocks in a chain of
+     * {@link ConcatenatedTransformDirect}. Results shall be identical to the results of applying each
+     * step on the whole array, including when the source and destination overlap in the same array.
+     *
+     * @throws TransformException if an error occurred while transforming the test coordinates.
+     */
+    @Test
+    @DependsOnMethod("testDirect2D")
+    public void testBlocks() throws TransformException {
+        final MathTransform[] steps = steps(new PseudoTransform(3, 3));
+        final MathTransform chain = chain(steps);
+        final int numPts = (AbstractMathTransform.MAXIMUM_BUFFER_SIZE / 3) * 4 + 5;
+        final int length = numPts * 3;
+        final double[] source = new double[length];
+        for (int i=0; i<length; i++) {
+            source[i] = i * 0.001;
+        }
+        final double[] expected = source.clone();
+        for (final MathTransform step : steps) {
+            step.transform(expected, 0, expected, 0, numPts);
+        }
+        final double[] actual = new double[length];
+        chain.transform(source, 0, actual, 0, numPts);
+        assertArrayEquals(expected, actual, 0);
+        /*
+         * Same test in place, then with overlapping source and destination in the same array.
+         * Shifts are tested before and after the source, by less than a block and by more than a block.
+         */
+        for (final int shift : new int[] {0, 6, -6, 1000, -1000}) {
+            final int srcOff = Math.max(0, -shift);
+            final int dstOff = Math.max(0,  shift);
+            final double[] data = new double[length + Math.abs(shift)];
+            System.arraycopy(source, 0, data, srcOff, length);
+            chain.transform(data, srcOff, data, dstOff, numPts);
+            assertArrayEquals(expected, Arrays.copyOfRange(data, dstOff, dstOff + length), 0);
+        }
+    }
+
+    /**
+     * Tests the transformation by blocks when a step fails for some points but continues with the other points.
+     * The failed points shall be set to NaN, all other points shall be transformed by all steps, and the exception
+     * shall be thrown at the end with the chain as the last completed transform.
+     */
+    @Test
+    @DependsOnMethod("testBlocks")
+    public void testBlocksWithFailures() {
+        final double fail = -7;
+        final MathTransform[] steps = steps(new PseudoTransform(3, 3) {
+            @Override
+            public Matrix transform(final double[] srcPts, final int srcOff,
+                                    final double[] dstPts, final int dstOff,
+                                    final boolean derivate) throws TransformException
+            {
+                if (srcPts[srcOff] == fail) {
+                    throw new TransformException("Intentional failure for testing purpose.");
+                }
+                return super.transform(srcPts, srcOff, dstPts, dstOff, derivate);
+            }
+        });
+        final MathTransform chain = chain(steps);
+        final int numPts = (AbstractMathTransform.MAXIMUM_BUFFER_SIZE / 3) * 4 + 5;
+        final double[] source = new double[numPts * 3];
+        for (int i=0; i<source.length; i++) {
+            source[i] = i * 0.001;
+        }
+        for (int i=7; i<numPts; i += 200) {
+            source[i*3] = fail;                 // Sparse failures: one or two in each block.
+        }
+        final double[] expected = source.clone();
+        for (int i=0; i<numPts; i++) {
+            if (source[i*3] == fail) {
+                Arrays.fill(expected, i*3, i*3 + 3, Double.NaN);
+            } else try {
+                for (final MathTransform step : steps) {
+                    step.transform(expected, i*3, expected, i*3, 1);
+                }
+            } catch (TransformException e) {
+                throw new AssertionError(e);
+            }
+        }
+        final double[] actual = new double[source.length];
+        try {
+            chain.transform(source, 0, actual, 0, numPts);
+            fail("Expected a TransformException.");
+        } catch (TransformException e) {
+            assertSame(chain, e.getLastCompletedTransform());
+        }
+        assertArrayEquals(expected, actual, 0);
+    }
 }
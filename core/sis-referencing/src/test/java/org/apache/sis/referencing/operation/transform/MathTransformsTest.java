@@ -17,6 +17,9 @@
 package org.apache.sis.referencing.operation.transform;
 
 import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import org.opengis.geometry.DirectPosition;
 import org.opengis.referencing.operation.Matrix;
 import org.opengis.referencing.operation.MathTransform;
@@ -39,7 +42,7 @@ import static org.apache.sis.test.Assert.*;
  * Tests {@link MathTransforms}.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   0.5
  * @module
  */
@@ -212,4 +215,215 @@ public final strictfp class MathTransformsTest extends TestCase {
         assertInstanceOf("2D", MathTransform2D.class, tr);
         assertFalse("isIdentity", tr.isIdentity());
     }
+
+    /**
+     * A thread-safe transform from 3 to 2 dimensions, used for testing parallel transformations.
+     * Points having a negative first coordinate can not be transformed.
+     */
+    private static final class FailingTransform extends AbstractMathTransform {
+        @Override public int getSourceDimensions() {return 3;}
+        @Override public int getTargetDimensions() {return 2;}
+        @Override public Matrix transform(final double[] srcPts, final int srcOff,
+                                          final double[] dstPts, final int dstOff,
+                                          final boolean derivate) throws TransformException
+        {
+            final double x = srcPts[srcOff];
+            if (x < 0) {
+                throw new TransformException("Negative coordinate.");
+            }
+            final double z = srcPts[srcOff + 2];
+            dstPts[dstOff]     = x + srcPts[srcOff + 1];
+            dstPts[dstOff + 1] = z * 2;
+            return null;
+        }
+    }
+
+    /**
+     * Tests {@link MathTransforms#transformInParallel(MathTransform, double[], int, double[], int, int)}
+     * and its buffer variant. Some points fail, sparsely in one area and densely in another area;
+     * the latter causes the default implementation of the transform to give up on the whole block.
+     *
+     * @throws TransformException should never occur outside the expected failures.
+     */
+    @Test
+    public void testTransformInParallel() throws TransformException {
+        final MathTransform tr = new FailingTransform();
+        final int numPts = ParallelTransform.CHUNK_SIZE * 10 + 17;
+        final double[] source = new double[numPts * 3];
+        for (int i=0; i<source.length; i++) {
+            source[i] = i;
+        }
+        for (int i=100; i<numPts; i += 3000) {
+            source[i * 3] = -1;                                     // Sparse failures.
+        }
+        for (int i=20000; i<20200; i++) {
+            source[i * 3] = -1;                                     // Dense failures.
+        }
+        final double[] expected = new double[numPts * 2];
+        for (int i=0; i<numPts; i++) {
+            if (source[i*3] < 0) {
+                expected[i*2] = expected[i*2 + 1] = Double.NaN;
+            } else {
+                tr.transform(source, i*3, expected, i*2, 1);
+            }
+        }
+        final double[] actual = new double[expected.length + 4];
+        try {
+            MathTransforms.transformInParallel(tr, source, 0, actual, 4, numPts);
+            fail("Expected a TransformException.");
+        } catch (TransformException e) {
+            assertSame(tr, e.getLastCompletedTransform());
+        }
+        for (int i=0; i<expected.length; i++) {
+            assertEquals(expected[i], actual[i + 4], 0);
+        }
+        /*
+         * Same test using buffers of floats.
+         */
+        final FloatBuffer srcFlt = FloatBuffer.allocate(source.length);
+        final FloatBuffer dstFlt = FloatBuffer.allocate(expected.length);
+        for (final double value : source) {
+            srcFlt.put((float) value);
+        }
+        srcFlt.flip();
+        try {
+            MathTransforms.transformInParallel(tr, srcFlt, dstFlt);
+            fail("Expected a TransformException.");
+        } catch (TransformException e) {
+            assertSame(tr, e.getLastCompletedTransform());
+        }
+        assertFalse(srcFlt.hasRemaining());
+        assertFalse(dstFlt.hasRemaining());
+        for (int i=0; i<expected.length; i++) {
+            final float e = (float) expected[i];
+            if (Float.isNaN(e)) {
+                assertTrue(Float.isNaN(dstFlt.get(i)));
+            } else {
+                assertEquals(e, dstFlt.get(i), Math.ulp(e));
+            }
+        }
+    }
+
+    /**
+     * Tests {@link MathTransforms#transformInParallel(MathTransform, double[], int, double[], int, int)}
+     * with source and destination in the same array.
+     *
+     * @throws TransformException should never occur.
+     */
+    @Test
+    @DependsOnMethod("testTransformInParallel")
+    public void testTransformInParallelInPlace() throws TransformException {
+        final MathTransform tr = MathTransforms.concatenate(MathTransforms.scale(2, 3), MathTransforms.translation(-1, 4));
+        final int numPts = ParallelTransform.CHUNK_SIZE * 5 + 3;
+        final double[] data = new double[numPts * 2];
+        for (int i=0; i<data.length; i++) {
+            data[i] = i;
+        }
+        final double[] expected = data.clone();
+        tr.transform(expected, 0, expected, 0, numPts);
+        MathTransforms.transformInParallel(tr, data, 0, data, 0, numPts);
+        assertArrayEquals(expected, data, 0);
+    }
+
+    /**
+     * Tests {@link MathTransforms#transformInParallel(MathTransform, double[], int, double[], int, int)}
+     * with an input too small for being split. Failures shall be handled as for large inputs: the failed
+     * points are set to NaN, other points are transformed and the exception is thrown at the end.
+     * This method tests also a buffer transformed in place with a change of the number of dimensions.
+     */
+    @Test
+    @DependsOnMethod("testTransformInParallel")
+    public void testTransformInParallelSmall() {
+        final MathTransform tr = new FailingTransform();
+        final int numPts = 1000;
+        final double[] source = new double[numPts * 3];
+        final double[] expected = new double[numPts * 2];
+        for (int i=0; i<numPts; i++) {
+            if ((i >= 200 && i < 500) || i == 900) {
+                source[i*3] = -1;                                   // Dense failures, then a sparse one.
+                expected[i*2] = expected[i*2 + 1] = Double.NaN;
+            } else {
+                source[i*3] = i;
+                source[i*3 + 1] = i + 1;
+                source[i*3 + 2] = i + 2;
+                expected[i*2]     = i + i + 1;
+                expected[i*2 + 1] = (i + 2) * 2;
+            }
+        }
+        final double[] actual = new double[expected.length];
+        try {
+            MathTransforms.transformInParallel(tr, source, 0, actual, 0, numPts);
+            fail("Expected a TransformException.");
+        } catch (TransformException e) {
+            assertSame(tr, e.getLastCompletedTransform());
+        }
+        assertArrayEquals(expected, actual, 0);
+        /*
+         * Same test with source and destination in the same buffer.
+         */
+        final DoubleBuffer buffer = ByteBuffer.allocateDirect(source.length * Double.BYTES).asDoubleBuffer();
+        buffer.put(source).flip();
+        try {
+            MathTransforms.transformInParallel(tr, buffer, buffer);
+            fail("Expected a TransformException.");
+        } catch (TransformException e) {
+            assertSame(tr, e.getLastCompletedTransform());
+        }
+        for (int i=0; i<expected.length; i++) {
+            assertEquals(expected[i], buffer.get(i), 0);
+        }
+    }
+
+    /**
+     * Tests {@link MathTransforms#transformInParallel(MathTransform, double[], int, double[], int, int)}
+     * with source and destination ranges overlapping in the same array without being identical.
+     *
+     * @throws TransformException should never occur.
+     */
+    @Test
+    @DependsOnMethod("testTransformInParallelInPlace")
+    public void testTransformInParallelOverlapping() throws TransformException {
+        final MathTransform tr = MathTransforms.concatenate(MathTransforms.scale(2, 3), MathTransforms.translation(-1, 4));
+        final int numPts = ParallelTransform.CHUNK_SIZE * 3 + 5;
+        final double[] data = new double[numPts * 2 + 6];
+        for (int i=0; i<data.length; i++) {
+            data[i] = i;
+        }
+        final double[] expected = data.clone();
+        tr.transform(expected, 0, expected, 6, numPts);
+        MathTransforms.transformInParallel(tr, data, 0, data, 6, numPts);
+        assertArrayEquals(expected, data, 0);
+    }
+
+    /**
+     * Tests {@link MathTransforms#transformInParallel(MathTransform, DoubleBuffer, DoubleBuffer)}
+     * with two distinct buffers backed by the same array, with overlapping ranges and a change
+     * of the number of dimensions. The overlap shall be detected from the ranges in the array.
+     *
+     * @throws TransformException should never occur.
+     */
+    @Test
+    @DependsOnMethod("testTransformInParallelOverlapping")
+    public void testTransformInParallelSharedArray() throws TransformException {
+        final MathTransform tr = MathTransforms.linear(Matrices.create(3, 4, new double[] {
+            2, 0, 1, -1,
+            0, 3, 0,  4,
+            0, 0, 0,  1
+        }));
+        final int numPts = ParallelTransform.CHUNK_SIZE * 3 + 5;
+        for (final int dstOff : new int[] {0, 7, numPts}) {
+            final double[] data = new double[numPts * 3 + dstOff];
+            for (int i=0; i<data.length; i++) {
+                data[i] = i;
+            }
+            final double[] expected = data.clone();
+            tr.transform(expected, 0, expected, dstOff, numPts);
+            final DoubleBuffer source = DoubleBuffer.wrap(data, 0, numPts * 3);
+            final DoubleBuffer target = DoubleBuffer.wrap(data, dstOff, numPts * 2);
+            MathTransforms.transformInParallel(tr, source, target);
+            assertArrayEquals(expected, data, 0);
+            assertEquals(numPts * 3, source.position());
+            assertEquals(numPts * 2 + dstOff, target.position());
+        }
+    }
 }
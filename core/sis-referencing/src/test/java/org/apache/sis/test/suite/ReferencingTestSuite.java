@@ -242,6 +242,7 @@ import org.junit.BeforeClass;
     org.apache.sis.referencing.operation.builder.ResidualGridTest.class,
     org.apache.sis.referencing.operation.builder.LinearTransformBuilderTest.class,
     org.apache.sis.referencing.operation.builder.LocalizationGridBuilderTest.class,
+    org.apache.sis.referencing.operation.builder.ApproximateTransformBuilderTest.class,
 
     // Geometry and miscellaneous
     org.apache.sis.geometry.AbstractDirectPositionTest.class,
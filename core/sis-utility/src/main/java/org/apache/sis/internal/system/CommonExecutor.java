@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.internal.system;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Executors shared by all Apache SIS modules for tasks executed in background threads.
+ * Two pools are provided, both with a bounded number of threads:
+ *
+ * <ul>
+ *   <li>{@link #instance()} is for CPU-bound tasks such as decompression of tiles.
+ *       The number of threads is not greater than the number of available processors.</li>
+ *   <li>{@link #blocking()} is for tasks spending most of their time waiting for I/O, for example
+ *       read-ahead in files or HTTP requests. Those tasks are kept in a separated pool for avoiding
+ *       that blocking reads starve the CPU-bound tasks, or the converse.</li>
+ * </ul>
+ *
+ * Tasks in excess of the maximal number of threads are queued. Idle threads are terminated after a delay.
+ * We do not use the {@linkplain java.util.concurrent.ForkJoinPool#commonPool() common fork-join pool}
+ * because its size can not be controlled by SIS and because it may be used by user code for other purposes.
+ * Callers wanting to limit the number of concurrent tasks of a particular operation can submit fewer tasks,
+ * each task processing many items.
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+public final class CommonExecutor extends AtomicInteger implements ThreadFactory {
+    /**
+     * For cross-version compatibility (not that this class should be serialized).
+     */
+    private static final long serialVersionUID = -7226138040069916440L;
+
+    /**
+     * Maximal number of threads that {@link #instance()} can execute concurrently.
+     * This is the number of processors available to the Java virtual machine.
+     */
+    public static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Maximal number of threads that {@link #blocking()} can execute concurrently.
+     * This is larger than {@link #PARALLELISM} because the threads are mostly waiting for I/O.
+     */
+    private static final int BLOCKING_THREADS = Math.max(4, 2 * PARALLELISM);
+
+    /**
+     * Delay in seconds before an idle thread is terminated.
+     */
+    private static final int KEEP_ALIVE = 60;
+
+    /**
+     * Prefix of the names of threads created by this factory.
+     */
+    private final String name;
+
+    /**
+     * Creates a new factory of threads having the given name prefix.
+     */
+    private CommonExecutor(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the executor for CPU-bound tasks, creating it when first needed.
+     *
+     * @return the executor for CPU-bound tasks.
+     */
+    public static ExecutorService instance() {
+        synchronized (Threads.class) {
+            if (Threads.executor == null) {
+                Threads.executor = create("Worker", PARALLELISM);
+            }
+            return Threads.executor;
+        }
+    }
+
+    /**
+     * Returns the executor for tasks blocked on I/O, creating it when first needed.
+     *
+     * @return the executor for tasks blocked on I/O.
+     */
+    public static ExecutorService blocking() {
+        synchronized (Threads.class) {
+            if (Threads.blockingExecutor == null) {
+                Threads.blockingExecutor = create("I/O", BLOCKING_THREADS);
+            }
+            return Threads.blockingExecutor;
+        }
+    }
+
+    /**
+     * Creates a new executor with the given maximal number of threads.
+     */
+    private static ThreadPoolExecutor create(final String name, final int size) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, KEEP_ALIVE, TimeUnit.SECONDS,
+                                                                   new LinkedBlockingQueue<>(), new CommonExecutor(name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Creates a new thread for one of the executors. Threads are daemons, so they do not prevent
+     * the JVM to exit. This method is public as an implementation side-effect and should not be invoked.
+     *
+     * @param  task  the task to execute.
+     * @return a new thread running the given task.
+     */
+    @Override
+    public Thread newThread(final Runnable task) {
+        final Thread thread = new Thread(Threads.SIS, task, name + " #" + incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -16,6 +16,8 @@
  */
 package org.apache.sis.internal.system;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutorService;
 import org.apache.sis.util.Static;
 import org.apache.sis.util.logging.Logging;
 
@@ -31,7 +33,7 @@ import org.apache.sis.util.logging.Logging;
  * dependencies the other way around.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 0.7
+ * @version 1.1
  * @since   0.3
  * @module
  */
@@ -80,6 +82,14 @@ final class Threads extends Static {
      */
     static DaemonThread lastCreatedDaemon;
 
+    /**
+     * The executors for CPU-bound tasks and for tasks blocked on I/O, or {@code null} if not yet created.
+     *
+     * @see CommonExecutor#instance()
+     * @see CommonExecutor#blocking()
+     */
+    static ExecutorService executor, blockingExecutor;
+
     /**
      * Do not allows instantiation of this class.
      */
@@ -99,6 +109,16 @@ final class Threads extends Static {
      *         we were waiting for the daemon threads to die.
      */
     static synchronized void shutdown(final long stopWaitingAt) throws InterruptedException {
+        for (final ExecutorService e : new ExecutorService[] {executor, blockingExecutor}) {
+            if (e != null) e.shutdown();
+        }
         DaemonThread.killAll(lastCreatedDaemon, stopWaitingAt);
+        for (final ExecutorService e : new ExecutorService[] {executor, blockingExecutor}) {
+            if (e != null) {
+                e.awaitTermination(Math.max(0, stopWaitingAt - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        }
+        executor = null;
+        blockingExecutor = null;
     }
 }
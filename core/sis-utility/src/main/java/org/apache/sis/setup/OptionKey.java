@@ -61,7 +61,7 @@ import org.apache.sis.internal.system.Modules;
  * }
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 0.8
+ * @version 1.1
  *
  * @param <T>  the type of option values.
  *
@@ -181,6 +181,21 @@ public class OptionKey<T> implements Serializable {
      */
     public static final OptionKey<ByteBuffer> BYTE_BUFFER = new OptionKey<>("BYTE_BUFFER", ByteBuffer.class);
 
+    /**
+     * Whether local files can be read through a memory-mapped buffer instead of a buffer in the Java heap.
+     * Memory mapping avoids the copy of bytes from the file to the buffer and makes random accesses cheaper,
+     * since moving to a new position does not require a system call. But it consumes virtual address space,
+     * and the file should not be modified or truncated while the data store is open.
+     *
+     * <p>This option is ignored if a {@link #BYTE_BUFFER} is specified or if the storage is not a local file.
+     * The file is mapped in a single buffer, which is limited to {@value Integer#MAX_VALUE} bytes (2 gigabytes).
+     * Files having more bytes after the current position are read through a buffer in the Java heap instead,
+     * and a warning is logged. If this option is not provided, then the default value is {@link Boolean#FALSE}.</p>
+     *
+     * @since 1.1
+     */
+    public static final OptionKey<Boolean> MEMORY_MAPPED = new OptionKey<>("MEMORY_MAPPED", Boolean.class);
+
     /**
      * The library to use for creating geometric objects at reading time.
      * Some libraries are the Java Topology Suite (JTS), ESRI geometry API and Java2D.
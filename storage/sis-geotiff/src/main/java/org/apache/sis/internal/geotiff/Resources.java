@@ -175,6 +175,11 @@ public final class Resources extends IndexedResourceBundle {
          */
         public static final short UnknownCRS_1 = 22;
 
+        /**
+         * Compression method {0} is not supported.
+         */
+        public static final short UnsupportedCompressionMethod_1 = 27;
+
         /**
          * Coordinate system kind {0} is unsupported.
          */
@@ -190,10 +195,21 @@ public final class Resources extends IndexedResourceBundle {
          */
         public static final short UnsupportedGeoKeyStorage_1 = 21;
 
+        /**
+         * Predictor {1} can not be applied on the sample values of TIFF image “{0}”.
+         */
+        public static final short UnsupportedPredictor_2 = 29;
+
         /**
          * TIFF file “{0}” uses an unsupported map projection.
          */
         public static final short UnsupportedProjectionMethod_1 = 23;
+
+        /**
+         * Can not read TIFF image “{0}” because samples of {1} bits with {2} samples per pixel are not
+         * supported.
+         */
+        public static final short UnsupportedSampleLayout_3 = 28;
     }
 
     /**
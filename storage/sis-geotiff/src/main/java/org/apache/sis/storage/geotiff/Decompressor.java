@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.storage.geotiff;
+
+import java.util.zip.DataFormatException;
+
+
+/**
+ * Base class of algorithms decompressing the bytes of a TIFF tile (or strip).
+ * A decompressor reads the compressed bytes from an array and writes the uncompressed bytes directly
+ * in the array which will be wrapped by the {@link java.awt.image.DataBuffer} of the tile,
+ * so no intermediate copy is needed for images of bytes.
+ *
+ * <p>Decompressors may keep some state (dictionary, native zlib resources) that are reused from one
+ * tile to the next. Consequently instances are not thread-safe. The {@link #get(Compression)} method
+ * returns an instance reserved to the current thread.</p>
+ *
+ * <p>Images of sample values wider than one byte can not be decompressed directly in their final array,
+ * because Java provides no way to view a {@code short[]} or {@code float[]} as bytes and because
+ * {@link java.util.zip.Inflater} (on Java 8) writes only in {@code byte[]}. For those images the bytes
+ * are decompressed in the {@linkplain #scratch(int) scratch array} of the decompressor, then converted
+ * in one pass to sample values in the byte order of the file. That scratch array is reused for all tiles
+ * decoded by the same thread, so no array of the tile size is allocated other than the final one.</p>
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+abstract class Decompressor {
+    /**
+     * Temporary array of bytes reused from one tile to the next, or {@code null} if not yet allocated.
+     *
+     * @see #scratch(int)
+     */
+    private byte[] scratch;
+
+    /**
+     * Temporary array of compressed bytes reused from one tile to the next, or {@code null} if not yet allocated.
+     *
+     * @see #input(int)
+     */
+    private byte[] input;
+
+    /**
+     * For subclass constructors.
+     */
+    Decompressor() {
+    }
+
+    /**
+     * Returns a temporary array for the uncompressed bytes of a tile. The array has exactly the given length
+     * if a new array needed to be allocated, or may be longer otherwise. The content is not cleared.
+     *
+     * @param  length  minimal length of the array.
+     * @return a temporary array of at least the given length, reserved to the current thread.
+     */
+    final byte[] scratch(final int length) {
+        if (scratch == null || scratch.length < length) {
+            scratch = new byte[length];
+        }
+        return scratch;
+    }
+
+    /**
+     * Returns a temporary array for the compressed bytes of a tile. This is used when the compressed bytes
+     * are not already in a Java array, for example when the file is memory-mapped, or when the order of bits
+     * in the compressed bytes needs to be reversed. The content is not cleared.
+     *
+     * @param  length  minimal length of the array.
+     * @return a temporary array of at least the given length, reserved to the current thread.
+     */
+    final byte[] input(final int length) {
+        if (input == null || input.length < length) {
+            input = new byte[length];
+        }
+        return input;
+    }
+
+    /**
+     * Returns a decompressor for the given compression method, or {@code null} if the given method is not supported.
+     * The returned instance shall be used by the current thread only.
+     *
+     * @param  compression  the compression method, or {@code null} if unknown.
+     * @return decompressor reserved to the current thread, or {@code null} if none.
+     */
+    static Decompressor get(final Compression compression) {
+        if (compression != null) {
+            switch (compression) {
+                case PACKBITS: return PackBits.INSTANCES.get();
+                case LZW:      return LZW.INSTANCES.get();
+                case DEFLATE:  return Deflate.INSTANCES.get();
+                default:       break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decompresses the given bytes. This method stops when {@code capacity} bytes have been written,
+     * or when the end of compressed data has been reached, whatever happen first.
+     *
+     * @param  input     the compressed data.
+     * @param  offset    index of the first byte to read in the {@code input} array.
+     * @param  length    number of bytes to read in the {@code input} array.
+     * @param  output    where to write the uncompressed data, starting at index 0.
+     * @param  capacity  maximal number of bytes to write in the {@code output} array.
+     * @return number of bytes written in the {@code output} array.
+     * @throws DataFormatException if the compressed data are corrupted.
+     */
+    abstract int uncompress(byte[] input, int offset, int length, byte[] output, int capacity) throws DataFormatException;
+}
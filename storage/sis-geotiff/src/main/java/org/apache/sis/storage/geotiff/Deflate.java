@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.storage.geotiff;
+
+import java.util.zip.Inflater;
+import java.util.zip.DataFormatException;
+
+
+/**
+ * Decompression of data encoded with the Deflate algorithm (zlib format).
+ * This class delegates to {@link Inflater}, which is reset and reused for all tiles
+ * decoded by the same thread in order to avoid the cost of allocating native resources.
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+final class Deflate extends Decompressor {
+    /**
+     * The instance reserved to each thread.
+     */
+    static final ThreadLocal<Deflate> INSTANCES = ThreadLocal.withInitial(Deflate::new);
+
+    /**
+     * The zlib decompressor, reset before each tile.
+     */
+    private final Inflater inflater;
+
+    /**
+     * Creates a new decompressor for the current thread.
+     */
+    private Deflate() {
+        inflater = new Inflater();
+    }
+
+    /**
+     * Decompresses the given bytes until the output capacity is reached or the input is exhausted.
+     *
+     * @throws DataFormatException if the compressed data are corrupted.
+     */
+    @Override
+    int uncompress(final byte[] input, final int offset, final int length, final byte[] output, final int capacity)
+            throws DataFormatException
+    {
+        inflater.reset();
+        inflater.setInput(input, offset, length);
+        int position = 0;
+        while (position < capacity) {
+            final int n = inflater.inflate(output, position, capacity - position);
+            if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                break;
+            }
+            position += n;
+        }
+        return position;
+    }
+}
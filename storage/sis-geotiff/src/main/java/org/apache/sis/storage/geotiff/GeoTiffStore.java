@@ -37,6 +37,7 @@ import org.apache.sis.storage.Aggregate;
 import org.apache.sis.storage.GridCoverageResource;
 import org.apache.sis.storage.DataStore;
 import org.apache.sis.storage.StorageConnector;
+import org.apache.sis.storage.DataOptionKey;
 import org.apache.sis.storage.DataStoreException;
 import org.apache.sis.storage.DataStoreContentException;
 import org.apache.sis.storage.UnsupportedStorageException;
@@ -51,6 +52,7 @@ import org.apache.sis.internal.storage.io.IOUtilities;
 import org.apache.sis.internal.storage.MetadataBuilder;
 import org.apache.sis.internal.storage.StoreUtilities;
 import org.apache.sis.internal.storage.URIDataStore;
+import org.apache.sis.internal.system.CommonExecutor;
 import org.apache.sis.internal.util.Constants;
 import org.apache.sis.internal.util.Numerics;
 import org.apache.sis.internal.util.ListOfUnknownSize;
@@ -65,7 +67,7 @@ import org.apache.sis.util.resources.Errors;
  * @author  Rémi Maréchal (Geomatys)
  * @author  Martin Desruisseaux (Geomatys)
  * @author  Thi Phuong Hao Nguyen (VNSC)
- * @version 1.0
+ * @version 1.1
  * @since   0.8
  * @module
  */
@@ -95,6 +97,12 @@ public class GeoTiffStore extends DataStore implements Aggregate {
      */
     final NameSpace identifier;
 
+    /**
+     * Maximal number of threads to use concurrently for decoding tiles. This is the value of the
+     * {@link DataOptionKey#PARALLELISM} option, or the number of available processors by default.
+     */
+    final int parallelism;
+
     /**
      * The metadata, or {@code null} if not yet created.
      *
@@ -122,6 +130,8 @@ public class GeoTiffStore extends DataStore implements Aggregate {
         super(provider, connector);
         final Charset encoding = connector.getOption(OptionKey.ENCODING);
         this.encoding = (encoding != null) ? encoding : StandardCharsets.US_ASCII;
+        final Integer parallelism = connector.getOption(DataOptionKey.PARALLELISM);
+        this.parallelism = (parallelism != null) ? Math.max(1, parallelism) : CommonExecutor.PARALLELISM;
         final ChannelDataInput input = connector.getStorageAs(ChannelDataInput.class);
         if (input == null) {
             throw new UnsupportedStorageException(super.getLocale(), Constants.GEOTIFF,
@@ -247,7 +257,8 @@ public class GeoTiffStore extends DataStore implements Aggregate {
 
     /**
      * Returns descriptions of all images in this GeoTIFF file.
-     * Images are not immediately loaded.
+     * Images are not immediately loaded. Reduced-resolution images (overviews) are not included
+     * in this list; they are used automatically when data are read at a coarser resolution.
      *
      * <p>If an error occurs during iteration in the returned collection,
      * an unchecked {@link BackingStoreException} will be thrown with a {@link DataStoreException} as its cause.</p>
@@ -305,7 +316,7 @@ public class GeoTiffStore extends DataStore implements Aggregate {
         /** Returns element at the given index or returns {@code null} if the index is invalid. */
         private GridCoverageResource getImageFileDirectory(final int index) {
             try {
-                return reader().getImageFileDirectory(index);
+                return reader().getImage(index);
             } catch (IOException e) {
                 throw new BackingStoreException(errorIO(e));
             } catch (DataStoreException e) {
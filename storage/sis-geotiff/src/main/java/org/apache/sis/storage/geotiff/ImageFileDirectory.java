@@ -16,33 +16,72 @@
  */
 package org.apache.sis.storage.geotiff;
 
+import java.awt.Point;
+import java.awt.color.ColorSpace;
+import java.awt.image.BandedSampleModel;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.Transparency;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.text.ParseException;
 import java.util.List;
 import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
+import java.util.zip.DataFormatException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.IntBuffer;
+import java.nio.FloatBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import javax.measure.Unit;
 import javax.measure.quantity.Length;
 import org.opengis.metadata.citation.DateType;
 import org.opengis.util.FactoryException;
+import org.opengis.referencing.datum.PixelInCell;
+import org.opengis.referencing.operation.MathTransform;
 import org.opengis.util.GenericName;
 import org.opengis.util.InternationalString;
 import org.apache.sis.internal.geotiff.Resources;
 import org.apache.sis.internal.storage.MetadataBuilder;
 import org.apache.sis.internal.storage.AbstractGridResource;
 import org.apache.sis.internal.storage.io.ChannelDataInput;
+import org.apache.sis.internal.storage.io.CoalescingReader;
+import org.apache.sis.internal.coverage.ColorModelFactory;
+import org.apache.sis.internal.coverage.RasterFactory;
+import org.apache.sis.internal.system.CommonExecutor;
 import org.apache.sis.internal.util.UnmodifiableArrayList;
 import org.apache.sis.storage.DataStoreException;
 import org.apache.sis.storage.DataStoreContentException;
+import org.apache.sis.storage.NoSuchDataException;
 import org.apache.sis.coverage.grid.GridCoverage;
 import org.apache.sis.coverage.grid.GridGeometry;
 import org.apache.sis.coverage.grid.GridExtent;
+import org.apache.sis.coverage.grid.GridDerivation;
+import org.apache.sis.coverage.grid.GridRoundingMode;
+import org.apache.sis.coverage.grid.DisjointExtentException;
 import org.apache.sis.coverage.SampleDimension;
+import org.apache.sis.referencing.operation.transform.MathTransforms;
+import org.apache.sis.util.collection.Cache;
+import org.apache.sis.util.resources.Errors;
 import org.apache.sis.util.resources.Vocabulary;
+import org.apache.sis.util.ArraysExt;
 import org.apache.sis.math.Vector;
 import org.apache.sis.measure.Units;
 
@@ -55,7 +94,7 @@ import org.apache.sis.measure.Units;
  * @author  Johann Sorel (Geomatys)
  * @author  Thi Phuong Hao Nguyen (VNSC)
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  *
  * @see <a href="http://www.awaresystems.be/imaging/tiff/tifftags.html">TIFF Tag Reference</a>
  *
@@ -76,12 +115,29 @@ final class ImageFileDirectory extends AbstractGridResource {
      */
     private static final byte SIGNED = 1, UNSIGNED = 0, FLOAT = 3;
 
+    /**
+     * Approximate amount of bytes of decoded tiles to keep by strong references in the {@link #tiles} cache.
+     * Tiles in excess of this amount are still cached, but by soft references.
+     */
+    private static final int TILE_CACHE_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Maximal number of bytes between two tiles for reading them in a single operation when loading tiles in batch.
+     * Reading and discarding a few bytes between tiles is often cheaper than seeking to the next tile.
+     */
+    private static final int COALESCE_GAP = 16 * 1024;
+
     /**
      * The GeoTIFF reader which contain this {@code ImageFileDirectory}.
      * Used for fetching information like the input channel and where to report warnings.
      */
     private final Reader reader;
 
+    /**
+     * The image index as a sequence number starting with 0 for the first image in the TIFF file.
+     */
+    final int index;
+
     /**
      * The identifier as a sequence number in the namespace of the {@link GeoTiffStore}.
      * The first image has the sequence number "1".
@@ -318,12 +374,39 @@ final class ImageFileDirectory extends AbstractGridResource {
      */
     private Unit<Length> resolutionUnit = Units.INCH;
 
+    /**
+     * A general indication of the kind of data contained in this subfile, as a set of bit flags.
+     * Bits of interest are {@link #REDUCED_RESOLUTION} and {@link #SINGLE_PAGE}.
+     * Value is 0 if this image is a full-resolution image of a single-page file.
+     */
+    private int subfileType;
+
+    /**
+     * Bit flags for {@link #subfileType}.
+     * The {@code NewSubfileType} tag defines more bits, but they are not used by Apache SIS.
+     */
+    private static final int REDUCED_RESOLUTION = 1, SINGLE_PAGE = 2;
+
+    /**
+     * The reduced-resolution images (overviews) of this image, sorted in the order they appear in the TIFF file.
+     * Computed when first needed.
+     *
+     * @see #overviews()
+     */
+    private List<ImageFileDirectory> overviews;
+
     /**
      * The compression method, or {@code null} if unknown. If the compression method is unknown
      * or unsupported we can not read the image, but we still can read the metadata.
      */
     private Compression compression;
 
+    /**
+     * The mathematical operator applied to the image data before compression, or {@code null} if unknown.
+     * The default value is {@link Predictor#NONE}.
+     */
+    private Predictor predictor = Predictor.NONE;
+
     /**
      * A helper class for building Coordinate Reference System and complete related metadata.
      * Contains the following information:
@@ -346,6 +429,20 @@ final class ImageFileDirectory extends AbstractGridResource {
      */
     private List<SampleDimension> sampleDimensions;
 
+    /**
+     * Tiles (or strips) decoded so far, for reuse by all images created by {@link #read(GridGeometry, int...)}.
+     * Keys are indices in the {@link #tileOffsets} vector. Values are NIO buffers wrapping Java arrays of the type
+     * given by {@link #getDataType()}. Those buffers shall not be modified after they have been cached.
+     * The cost of each tile is its size in bytes.
+     *
+     * @see #tile(int)
+     */
+    private final Cache<Integer,Buffer> tiles = new Cache<Integer,Buffer>(16, TILE_CACHE_SIZE, true) {
+        @Override protected int cost(final Buffer data) {
+            return data.capacity() * dataSize(data);
+        }
+    };
+
     /**
      * Returns {@link #referencing}, created when first needed. We delay its creation since
      * this object is not needed for ordinary TIFF files (i.e. without the GeoTIFF extension).
@@ -366,6 +463,7 @@ final class ImageFileDirectory extends AbstractGridResource {
     ImageFileDirectory(final Reader reader, final int index) {
         super(reader.owner.listeners());
         this.reader = reader;
+        this.index  = index;
         identifier = reader.nameFactory.createLocalName(reader.owner.identifier, String.valueOf(index + 1));
     }
 
@@ -537,6 +635,18 @@ final class ImageFileDirectory extends AbstractGridResource {
                 }
                 break;
             }
+            /*
+             * Mathematical operator applied to the image data before an encoding scheme is applied.
+             * Used mostly with LZW and Deflate compressions for improving the compression ratio.
+             */
+            case Tags.Predictor: {
+                final long value = type.readLong(input(), count);
+                predictor = Predictor.valueOf(value);
+                if (predictor == null) {
+                    return value;                           // Cause a warning to be reported by the caller.
+                }
+                break;
+            }
             /*
              * The logical order of bits within a byte. If this value is 2, then
              * bits order shall be reversed in every bytes before decompression.
@@ -676,7 +786,7 @@ final class ImageFileDirectory extends AbstractGridResource {
              * Bit 4 indicates MRC imaging model as described in ITU-T recommendation T.44 [T.44] (See ImageLayer tag) - RFC 2301.
              */
             case Tags.NewSubfileType: {
-                // TODO
+                subfileType = type.readInt(input(), count);
                 break;
             }
             /*
@@ -686,7 +796,13 @@ final class ImageFileDirectory extends AbstractGridResource {
              * 3 = a single page of a multi-page image (see PageNumber).
              */
             case Tags.SubfileType: {
-                // TODO
+                final int value = type.readInt(input(), count);
+                switch (value) {
+                    case 1: subfileType &= ~REDUCED_RESOLUTION; break;
+                    case 2: subfileType |=  REDUCED_RESOLUTION; break;
+                    case 3: subfileType |=  SINGLE_PAGE;        break;
+                    default: return value;                  // Cause a warning to be reported by the caller.
+                }
                 break;
             }
 
@@ -1281,6 +1397,10 @@ final class ImageFileDirectory extends AbstractGridResource {
 
     /**
      * Loads a subset of the grid coverage represented by this resource.
+     * Sample values are not read by this method. Instead, the returned coverage renders images
+     * which read and decode only the tiles (or strips) requested by {@link RenderedImage#getTile(int, int)}.
+     * If the requested resolution is coarser than the resolution of this image and the TIFF file contains
+     * reduced-resolution versions of this image (overviews), then the most appropriate overview is read.
      *
      * @param  domain  desired grid extent and resolution, or {@code null} for reading the whole domain.
      * @param  range   0-based index of sample dimensions to read, or an empty sequence for reading all ranges.
@@ -1289,7 +1409,740 @@ final class ImageFileDirectory extends AbstractGridResource {
      */
     @Override
     public GridCoverage read(final GridGeometry domain, final int... range) throws DataStoreException {
-        throw new DataStoreException("Not yet implemented.");   // TODO
+        GridGeometry gridGeometry = getGridGeometry();
+        ImageFileDirectory source = this;
+        if (domain != null && gridGeometry.isDefined(GridGeometry.GRID_TO_CRS)) try {
+            /*
+             * If the requested resolution is coarser than the resolution of this image, search for the
+             * overview having the lowest resolution which is still at least as fine as the requested one.
+             * The grid geometry of the overview is derived from the grid geometry of this image because
+             * overviews usually do not contain GeoTIFF tags.
+             */
+            final int[] subsamplings = gridGeometry.derive().rounding(GridRoundingMode.ENCLOSING).subgrid(domain).getSubsamplings();
+            long best = 1;
+            for (final ImageFileDirectory overview : overviews()) {
+                final long sx = Math.round(imageWidth  / (double) overview.imageWidth);
+                final long sy = Math.round(imageHeight / (double) overview.imageHeight);
+                if (sx <= subsamplings[0] && sy <= subsamplings[1] && sx * sy > best) {
+                    best   = sx * sy;
+                    source = overview;
+                }
+            }
+            if (source != this) {
+                final MathTransform gridToCRS = MathTransforms.concatenate(
+                        MathTransforms.scale(imageWidth  / (double) source.imageWidth,
+                                             imageHeight / (double) source.imageHeight),
+                        gridGeometry.getGridToCRS(PixelInCell.CELL_CORNER));
+                gridGeometry = new GridGeometry(new GridExtent(source.imageWidth, source.imageHeight),
+                        PixelInCell.CELL_CORNER, gridToCRS, gridGeometry.isDefined(GridGeometry.CRS)
+                                ? gridGeometry.getCoordinateReferenceSystem() : null);
+            }
+        } catch (DisjointExtentException e) {
+            throw new NoSuchDataException(canNotRead(), e);
+        } catch (IllegalArgumentException | IllegalStateException | ArithmeticException e) {
+            throw new DataStoreContentException(canNotRead(), e);
+        } catch (IOException e) {
+            throw new DataStoreException(canNotRead(), e);
+        }
+        return source.read(domain, range, gridGeometry);
+    }
+
+    /**
+     * Loads a subset of the grid coverage represented by this image, using the given grid geometry for this image.
+     * The given grid geometry is different than {@link #getGridGeometry()} if this image is an overview.
+     *
+     * @param  domain        desired grid extent and resolution, or {@code null} for reading the whole domain.
+     * @param  range         0-based index of sample dimensions to read, or an empty sequence for reading all ranges.
+     * @param  gridGeometry  the grid geometry of this image.
+     * @return the grid coverage for the specified domain and range.
+     * @throws DataStoreException if an error occurred while reading the grid coverage data.
+     */
+    private GridCoverage read(GridGeometry domain, final int[] range, final GridGeometry gridGeometry)
+            throws DataStoreException
+    {
+        final RangeArgument rangeIndices = validateRangeArgument(samplesPerPixel, range);
+        final int dataType = getDataType();
+        if (compression != Compression.NONE && Decompressor.get(compression) == null) {
+            throw new DataStoreContentException(reader.resources().getString(
+                    Resources.Keys.UnsupportedCompressionMethod_1, (compression != null) ? compression : '?'));
+        }
+        /*
+         * Horizontal differencing applies on integer values of at least 8 bits, and floating point
+         * differencing applies on floating point values. Other combinations are not supported.
+         */
+        if (predictor == null || predictor != Predictor.NONE && (bitsPerSample < Byte.SIZE
+                || (predictor == Predictor.FLOATING_POINT) != (sampleFormat == FLOAT)))
+        {
+            throw new DataStoreContentException(reader.resources().getString(
+                    Resources.Keys.UnsupportedPredictor_2, filename(), (predictor != null) ? predictor : '?'));
+        }
+        /*
+         * Sample dimensions are stored in the order requested by the user. The `bands` array contains the
+         * indices of the sample dimensions as stored in the TIFF file, in the same order than the user request.
+         */
+        final List<SampleDimension> available = getSampleDimensions();
+        final SampleDimension[] selected = new SampleDimension[rangeIndices.getNumBands()];
+        final int[] bands = new int[selected.length];
+        for (int i=0; i<selected.length; i++) {
+            final int indexInFile  = rangeIndices.getSourceIndex(i);
+            final int indexInImage = rangeIndices.getTargetIndex(i);
+            selected[indexInImage] = available.get(indexInFile);
+            bands   [indexInImage] = indexInFile;
+        }
+        try {
+            final GridExtent areaOfInterest;
+            final int[] subsamplings;
+            if (domain == null) {
+                domain         = gridGeometry;
+                areaOfInterest = gridGeometry.getExtent();
+                subsamplings   = new int[areaOfInterest.getDimension()];
+                Arrays.fill(subsamplings, 1);
+            } else {
+                final GridDerivation targetGeometry = gridGeometry.derive()
+                        .rounding(GridRoundingMode.ENCLOSING)
+                        .subgrid(domain);
+                areaOfInterest = targetGeometry.getIntersection();          // Pixel indices of data to read.
+                subsamplings   = targetGeometry.getSubsamplings();          // Subsampling to apply.
+                domain         = targetGeometry.build();                    // Adjust user-specified domain to data geometry.
+            }
+            /*
+             * No pixel data is read at this stage. Tiles will be read and decoded only when
+             * RenderedImage.getTile(…) will be invoked on the image rendered by the coverage.
+             */
+            return new TiledGridCoverage(this, domain, UnmodifiableArrayList.wrap(selected), bands,
+                    areaOfInterest, subsamplings, createSampleModel(dataType, bands),
+                    createColorModel(dataType, selected, bands));
+        } catch (DisjointExtentException e) {
+            throw new NoSuchDataException(canNotRead(), e);
+        } catch (IllegalArgumentException | IllegalStateException | ArithmeticException e) {
+            throw new DataStoreContentException(canNotRead(), e);
+        }
+    }
+
+    /**
+     * Returns {@code true} if this image is a reduced-resolution version of another image in the TIFF file.
+     * The first image of a TIFF file is never considered as an overview, even if flagged as reduced-resolution.
+     */
+    final boolean isOverview() {
+        return (subfileType & REDUCED_RESOLUTION) != 0 && index != 0;
+    }
+
+    /**
+     * Returns the reduced-resolution images (overviews) of this image. Those images are the images
+     * flagged as reduced-resolution which immediately follow this image in the TIFF file, as in
+     * <cite>Cloud Optimized GeoTIFF</cite> files.
+     */
+    private List<ImageFileDirectory> overviews() throws IOException, DataStoreException {
+        synchronized (reader.owner) {
+            if (overviews == null) {
+                final List<ImageFileDirectory> list = new ArrayList<>();
+                if (!isOverview()) {
+                    ImageFileDirectory dir;
+                    int i = index;
+                    while ((dir = reader.getImageFileDirectory(++i)) != null && dir.isOverview()) {
+                        list.add(dir);
+                    }
+                }
+                overviews = list;
+            }
+            return overviews;
+        }
+    }
+
+    /**
+     * Returns the error message for a file that can not be read.
+     */
+    final String canNotRead() {
+        return Errors.getResources(getLocale()).getString(Errors.Keys.CanNotRead_1, filename());
+    }
+
+    /**
+     * Returns the size of the image in pixels, with the width in dimension 0 and the height in dimension 1.
+     */
+    final long getImageSize(final int dimension) {
+        return (dimension == 0) ? imageWidth : imageHeight;
+    }
+
+    /**
+     * Returns the Java2D {@link DataBuffer} type to use for storing sample values.
+     * Values of 1, 2 or 4 bits are stored in bytes, packed as in the TIFF file.
+     *
+     * @return one of the {@code DataBuffer.TYPE_*} constants.
+     * @throws DataStoreContentException if the sample format is not supported by this reader.
+     */
+    private int getDataType() throws DataStoreContentException {
+        switch (bitsPerSample) {
+            case 1:
+            case 2:
+            case 4: {
+                if (samplesPerPixel == 1 && sampleFormat != FLOAT) {
+                    return DataBuffer.TYPE_BYTE;
+                }
+                break;
+            }
+            case Byte.SIZE: {
+                if (sampleFormat != FLOAT) return DataBuffer.TYPE_BYTE;
+                break;
+            }
+            case Short.SIZE: {
+                if (sampleFormat != FLOAT) return (sampleFormat == SIGNED) ? DataBuffer.TYPE_SHORT : DataBuffer.TYPE_USHORT;
+                break;
+            }
+            case Integer.SIZE: {
+                return (sampleFormat == FLOAT) ? DataBuffer.TYPE_FLOAT : DataBuffer.TYPE_INT;
+            }
+            case Double.SIZE: {
+                if (sampleFormat == FLOAT) return DataBuffer.TYPE_DOUBLE;
+                break;
+            }
+        }
+        throw new DataStoreContentException(reader.resources().getString(
+                Resources.Keys.UnsupportedSampleLayout_3, filename(), bitsPerSample, samplesPerPixel));
+    }
+
+    /**
+     * Returns the number of bytes of each element in the given buffer.
+     */
+    private static int dataSize(final Buffer data) {
+        if (data instanceof ByteBuffer)   return Byte.BYTES;
+        if (data instanceof ShortBuffer)  return Short.BYTES;
+        if (data instanceof IntBuffer)    return Integer.BYTES;
+        if (data instanceof FloatBuffer)  return Float.BYTES;
+        return Double.BYTES;
+    }
+
+    /**
+     * Creates the sample model of tiles as stored in the TIFF file, but restricted to the given bands.
+     * The sample model width and height are the tile width and height. Bands are not copied; instead,
+     * the sample model selects them in the interleaved or banded layout of the file.
+     *
+     * @param  dataType  the value returned by {@link #getDataType()}.
+     * @param  bands     indices of the bands to select, in the order they shall appear in the image.
+     */
+    private SampleModel createSampleModel(final int dataType, final int[] bands) {
+        if (bitsPerSample < Byte.SIZE) {
+            return new MultiPixelPackedSampleModel(dataType, tileWidth, tileHeight, bitsPerSample);
+        }
+        if (isPlanar) {
+            return new BandedSampleModel(dataType, tileWidth, tileHeight, tileWidth,
+                                         ArraysExt.range(0, bands.length), new int[bands.length]);
+        }
+        return new PixelInterleavedSampleModel(dataType, tileWidth, tileHeight,
+                                               samplesPerPixel, Math.multiplyExact(tileWidth, samplesPerPixel), bands);
+    }
+
+    /**
+     * Creates the color model for an image having the given bands. If the TIFF file is a palette-color image
+     * or a RGB image and all color bands are requested in their natural order, then the color model defined
+     * by the TIFF file is used. Otherwise this method creates a grayscale color model for the first band.
+     *
+     * @param  dataType  the value returned by {@link #getDataType()}.
+     * @param  selected  the sample dimensions of the image, in the order they will appear in the image.
+     * @param  bands     indices in the TIFF file of the selected bands.
+     */
+    private ColorModel createColorModel(final int dataType, final SampleDimension[] selected, final int[] bands) {
+        switch (photometricInterpretation) {
+            case 3: {                                                   // PaletteColor
+                if (colorMap != null && bands.length == 1 && dataType != DataBuffer.TYPE_SHORT) {
+                    final int n = colorMap.size() / 3;
+                    final int[] ARGB = new int[n];
+                    for (int i=0; i<n; i++) {
+                        ARGB[i] = 0xFF000000 | ((colorMap.intValue(i)     & 0xFF00) << 8)
+                                             |  (colorMap.intValue(i +   n) & 0xFF00)
+                                             | ((colorMap.intValue(i + 2*n) & 0xFF00) >>> 8);
+                    }
+                    return ColorModelFactory.createIndexColorModel(ARGB, 1, 0, -1);
+                }
+                break;
+            }
+            case 2: {                                                   // RGB
+                if ((bands.length == 3 || bands.length == 4) && Arrays.equals(bands, ArraysExt.range(0, bands.length))
+                        && (dataType == DataBuffer.TYPE_BYTE || dataType == DataBuffer.TYPE_USHORT))
+                {
+                    final boolean hasAlpha = (bands.length == 4);
+                    return new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), hasAlpha, false,
+                            hasAlpha ? Transparency.TRANSLUCENT : Transparency.OPAQUE, dataType);
+                }
+                break;
+            }
+        }
+        return ColorModelFactory.createColorModel(selected, 0, dataType, ColorModelFactory.GRAYSCALE);
+    }
+
+    /**
+     * Returns the tile (or strip) at the given tile indices, restricted to the bands selected by the given sample model.
+     * The raster location is the pixel coordinates of the tile upper-left corner in the full TIFF image.
+     * Tiles are decoded when first requested, then cached for reuse by other images.
+     *
+     * <p>The returned raster may be larger than the image if the tile is on the right or bottom image border.
+     * In the case of strips, the last strip may contain undefined sample values (usually zeros) after the
+     * last row of the image.</p>
+     *
+     * @param  tileX  column index of the tile to read.
+     * @param  tileY  row index of the tile to read.
+     * @param  model  the sample model created by {@link #createSampleModel(int, int[])}.
+     * @param  bands  indices in the TIFF file of the bands to read. Used only for planar images.
+     * @return the tile at the given indices.
+     * @throws IOException if an error occurred while reading the TIFF file.
+     * @throws DataStoreException if the tile can not be decoded.
+     */
+    final Raster readTile(final int tileX, final int tileY, final SampleModel model, final int[] bands)
+            throws IOException, DataStoreException
+    {
+        final Buffer[] banks;
+        if (isPlanar) {
+            banks = new Buffer[bands.length];
+            for (int i=0; i<bands.length; i++) {
+                banks[i] = tile(tileIndex(tileX, tileY, bands[i]));
+            }
+        } else {
+            banks = new Buffer[] {tile(tileIndex(tileX, tileY, 0))};
+        }
+        final DataBuffer data = RasterFactory.wrap(model.getDataType(), banks);
+        return Raster.createRaster(model, data, new Point(Math.multiplyExact(tileX, tileWidth),
+                                                          Math.multiplyExact(tileY, tileHeight)));
+    }
+
+    /**
+     * Returns the index in the {@link #tileOffsets} vector of the tile at the given tile indices.
+     * The band is used only for planar images, where each band is stored in a separated set of tiles.
+     */
+    private int tileIndex(final int tileX, final int tileY, final int band) {
+        final long tilesAcross = Math.addExact(imageWidth, tileWidth - 1) / tileWidth;
+        long index = Math.addExact(Math.multiplyExact(tileY, tilesAcross), tileX);
+        if (isPlanar) {
+            final long tilesDown = Math.addExact(imageHeight, tileHeight - 1) / tileHeight;
+            index = Math.addExact(Math.multiplyExact(Math.multiplyExact(tilesAcross, tilesDown), band), index);
+        }
+        return Math.toIntExact(index);
+    }
+
+    /**
+     * Loads in the cache all tiles at the given tile indices which are not already cached.
+     * This method is invoked before to copy a large region of the image, for loading many tiles in one batch.
+     * Tiles are read in increasing order of file offsets for keeping the reads mostly sequential.
+     * Then compressed tiles are decompressed in parallel by at most {@link GeoTiffStore#parallelism}
+     * threads, taken from the {@linkplain CommonExecutor#instance() bounded pool} shared by SIS.
+     * All tiles are stored in the cache with the same lock protocol than {@link #tile(int)}.
+     *
+     * @param  tileXs  column indices of the tiles to load.
+     * @param  tileYs  row indices of the tiles to load.
+     * @param  bands   indices in the TIFF file of the bands to read. Used only for planar images.
+     * @throws IOException if an error occurred while reading the TIFF file.
+     * @throws DataStoreException if a tile can not be decoded.
+     */
+    final void loadTiles(final int[] tileXs, final int[] tileYs, final int[] bands) throws IOException, DataStoreException {
+        final int[] planes = isPlanar ? bands : new int[1];
+        int count = 0;
+        Integer[] indices = new Integer[tileXs.length * tileYs.length * planes.length];
+        for (final int tileY : tileYs) {
+            for (final int tileX : tileXs) {
+                for (final int band : planes) {
+                    final Integer index = tileIndex(tileX, tileY, band);
+                    if (tiles.peek(index) == null) {
+                        indices[count++] = index;
+                    }
+                }
+            }
+        }
+        if (count < 2) {
+            return;                                 // Nothing to gain compared to lazy loading.
+        }
+        indices = Arrays.copyOf(indices, count);
+        Arrays.sort(indices, (i1, i2) -> Long.compare(tileOffsets.longValue(i1), tileOffsets.longValue(i2)));
+        if (compression == Compression.NONE) {
+            for (final Integer index : indices) {
+                tile(index);
+            }
+            return;
+        }
+        /*
+         * Read compressed bytes by batches of limited size for avoiding to hold too much memory.
+         * The reads are done while holding the lock, then the decompressions are done in parallel.
+         * Tiles close to each other are read in a single operation. If more batches will follow,
+         * the bytes after the current batch are read asynchronously while tiles are decompressed.
+         */
+        CoalescingReader batch = null;
+        for (int lower = 0; lower < count;) {
+            final List<Decompression> tasks = new ArrayList<>();
+            long batchSize = 0;
+            synchronized (reader.owner) {
+                final ChannelDataInput input = input();
+                final ByteOrder order = input.buffer.order();
+                if (batch == null) {
+                    batch = new CoalescingReader(input, COALESCE_GAP, TILE_CACHE_SIZE);
+                }
+                final int start = lower;
+                do {
+                    final int index = indices[lower++];
+                    final long length = tileByteCounts.longValue(index);
+                    batch.add(Math.addExact(reader.origin, tileOffsets.longValue(index)), Math.toIntExact(length));
+                    batchSize += length;
+                } while (lower < count && batchSize < TILE_CACHE_SIZE);
+                batch.setReadAhead(lower < count);
+                final ByteBuffer[] compressed = batch.read();
+                for (int i=0; i<compressed.length; i++) {
+                    tasks.add(new Decompression(indices[start + i], compressed[i], order));
+                }
+            }
+            decompress(tasks);
+            for (final Decompression task : tasks) {
+                if (task.failure != null) {
+                    throw task.failure;
+                }
+                cache(task.index, task.result);
+            }
+        }
+    }
+
+    /**
+     * Executes the given decompression tasks using at most {@link GeoTiffStore#parallelism} threads,
+     * including the current thread. Each thread takes the next task to execute from the given list
+     * until all tasks are done, so the number of tasks submitted to the executor stays small.
+     */
+    private void decompress(final List<Decompression> tasks) throws IOException {
+        final AtomicInteger next = new AtomicInteger();
+        final Runnable worker = () -> {
+            int i;
+            while ((i = next.getAndIncrement()) < tasks.size()) {
+                tasks.get(i).run();
+            }
+        };
+        final Future<?>[] helpers = new Future<?>[Math.min(reader.owner.parallelism, tasks.size()) - 1];
+        for (int i=0; i<helpers.length; i++) {
+            helpers[i] = CommonExecutor.instance().submit(worker);
+        }
+        try {
+            worker.run();
+        } finally {
+            for (final Future<?> helper : helpers) try {
+                helper.get();
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw new IOException(cause);
+            } catch (InterruptedException e) {
+                next.set(tasks.size());                 // Stop the other workers as soon as possible.
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stores the given tile in the cache, unless another thread already cached a value for the same tile.
+     * This method uses the same lock protocol than {@link #tile(int)} for avoiding races with that method.
+     */
+    private void cache(final int index, Buffer data) {
+        final Cache.Handler<Buffer> handler = tiles.lock(index);
+        try {
+            final Buffer existing = handler.peek();
+            if (existing != null) {
+                data = existing;
+            }
+        } finally {
+            handler.putAndUnlock(data);
+        }
+    }
+
+    /**
+     * The task of decompressing one tile, executed in a worker thread.
+     * Any exception is stored for rethrowing in the thread which requested the tiles.
+     */
+    private final class Decompression implements Runnable {
+        /** Index of the tile in the {@link #tileOffsets} vector. */
+        final int index;
+
+        /** The compressed bytes, from position 0 to the buffer limit. */
+        private final ByteBuffer compressed;
+
+        /** The byte order of the TIFF file. */
+        private final ByteOrder order;
+
+        /** The decompressed sample values, or {@code null} if not yet computed or if an error occurred. */
+        Buffer result;
+
+        /** The error that occurred while decompressing the tile, or {@code null} if none. */
+        DataStoreException failure;
+
+        /** Creates a new task for decompressing the given bytes. */
+        Decompression(final int index, final ByteBuffer compressed, final ByteOrder order) {
+            this.index      = index;
+            this.compressed = compressed;
+            this.order      = order;
+        }
+
+        /** Decompresses the bytes. */
+        @Override
+        public void run() {
+            try {
+                result = decompress(compressed, order);
+            } catch (DataStoreException e) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Returns the decoded sample values of the tile at the given index in the {@link #tileOffsets} vector.
+     * The tile is fetched from the cache if available, or read from the TIFF file otherwise.
+     *
+     * @param  index  index of the tile in the {@link #tileOffsets} vector.
+     * @return sample values of the tile. Shall not be modified.
+     */
+    private Buffer tile(final int index) throws IOException, DataStoreException {
+        final Integer key = index;
+        Buffer data = tiles.peek(key);
+        if (data == null) {
+            final Cache.Handler<Buffer> handler = tiles.lock(key);
+            try {
+                data = handler.peek();
+                if (data == null) {
+                    data = decode(index);
+                }
+            } finally {
+                handler.putAndUnlock(data);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Reads and decodes the tile at the given index in the {@link #tileOffsets} vector.
+     * Uncompressed data are read directly in the array of the returned buffer. Compressed data are read
+     * in a temporary array while holding the lock on the data store, then decompressed without lock.
+     * The byte order is the one of the TIFF file, which has been set on the input buffer when the header was read.
+     *
+     * @param  index  index of the tile in the {@link #tileOffsets} vector.
+     * @return sample values of the tile as a buffer wrapping a Java array.
+     */
+    private Buffer decode(final int index) throws IOException, DataStoreException {
+        if (compression != Compression.NONE) {
+            final Decompressor decompressor = Decompressor.get(compression);
+            final int count = Math.toIntExact(tileByteCounts.longValue(index));
+            final byte[] compressed = decompressor.input(count);
+            final ByteOrder order;
+            synchronized (reader.owner) {
+                final ChannelDataInput input = input();
+                input.seek(Math.addExact(reader.origin, tileOffsets.longValue(index)));
+                input.readFully(compressed, 0, count);
+                order = input.buffer.order();
+            }
+            return decompress(decompressor, compressed, 0, count, order);
+        }
+        final int dataType = getDataType();
+        final int rowLength = rowLength();
+        final int length = Math.multiplyExact(rowLength, tileHeight);
+        final int elementSize = DataBuffer.getDataTypeSize(dataType) / Byte.SIZE;
+        /*
+         * The last strip may be shorter than other strips. In such case, the byte count tells us
+         * how many sample values are available. Remaining values in the array are left to zero.
+         */
+        final int n = (int) Math.min(length, tileByteCounts.longValue(index) / elementSize);
+        final Object data;
+        synchronized (reader.owner) {
+            final ChannelDataInput input = input();
+            input.seek(Math.addExact(reader.origin, tileOffsets.longValue(index)));
+            switch (dataType) {
+                case DataBuffer.TYPE_BYTE: {
+                    final byte[] array = new byte[length];
+                    input.readFully(array, 0, n);
+                    if (isBitsOrderReversed()) {
+                        reverseBitsOrder(array, n);
+                    }
+                    data = array;
+                    break;
+                }
+                case DataBuffer.TYPE_SHORT:
+                case DataBuffer.TYPE_USHORT: {
+                    final short[] array = new short[length];
+                    input.readFully(array, 0, n);
+                    data = array;
+                    break;
+                }
+                case DataBuffer.TYPE_INT: {
+                    final int[] array = new int[length];
+                    input.readFully(array, 0, n);
+                    data = array;
+                    break;
+                }
+                case DataBuffer.TYPE_FLOAT: {
+                    final float[] array = new float[length];
+                    input.readFully(array, 0, n);
+                    data = array;
+                    break;
+                }
+                default: {
+                    final double[] array = new double[length];
+                    input.readFully(array, 0, n);
+                    data = array;
+                    break;
+                }
+            }
+        }
+        return wrap(dataType, data, rowLength);
+    }
+
+    /**
+     * Decompresses the bytes of a tile. This method does not read the file and does not modify the state
+     * of this {@code ImageFileDirectory}, so it can be invoked concurrently by many threads.
+     * If the buffer is not backed by a Java array (for example because the file is memory-mapped),
+     * then the bytes are copied in a temporary array reused by the decompressor of current thread.
+     *
+     * @param  compressed  the compressed bytes, from the buffer position to its limit. Not modified.
+     * @param  order       byte order of the TIFF file.
+     * @return sample values of the tile as a buffer wrapping a Java array.
+     */
+    private Buffer decompress(final ByteBuffer compressed, final ByteOrder order) throws DataStoreException {
+        final Decompressor decompressor = Decompressor.get(compression);
+        final int count = compressed.remaining();
+        if (compressed.hasArray()) {
+            return decompress(decompressor, compressed.array(), compressed.arrayOffset() + compressed.position(), count, order);
+        }
+        final byte[] bytes = decompressor.input(count);
+        compressed.duplicate().get(bytes, 0, count);
+        return decompress(decompressor, bytes, 0, count, order);
+    }
+
+    /**
+     * Decompresses the bytes of a tile. This method does not read the file and does not modify the state
+     * of this {@code ImageFileDirectory}, so it can be invoked concurrently by many threads.
+     * Sample values of type byte are decompressed directly in the array of the returned buffer.
+     * Other types are decompressed in the scratch array of the decompressor, then converted to sample values
+     * in the byte order of the file (see {@link Decompressor} for why this step can not be avoided).
+     *
+     * @param  decompressor  the decompressor reserved to the current thread.
+     * @param  compressed    array containing the compressed bytes. Not modified, unless it is the
+     *                       {@linkplain Decompressor#input(int) input array} of the decompressor.
+     * @param  offset        index of the first compressed byte in the given array.
+     * @param  count         number of compressed bytes.
+     * @param  order         byte order of the TIFF file.
+     * @return sample values of the tile as a buffer wrapping a Java array.
+     */
+    private Buffer decompress(final Decompressor decompressor, byte[] compressed, int offset, final int count,
+                              final ByteOrder order) throws DataStoreException
+    {
+        final int dataType = getDataType();
+        final int rowLength = rowLength();
+        final int length = Math.multiplyExact(rowLength, tileHeight);
+        final int elementSize = DataBuffer.getDataTypeSize(dataType) / Byte.SIZE;
+        final Object data;
+        if (isBitsOrderReversed()) {
+            final byte[] copy = decompressor.input(count);
+            if (copy != compressed) {
+                // Copy because the array may be shared with other tiles.
+                System.arraycopy(compressed, offset, copy, 0, count);
+                compressed = copy;
+                offset = 0;
+            }
+            reverseBitsOrder(compressed, offset, count);
+        }
+        final int size = Math.multiplyExact(length, elementSize);
+        final byte[] bytes = (dataType == DataBuffer.TYPE_BYTE) ? new byte[size] : decompressor.scratch(size);
+        try {
+            final int n = decompressor.uncompress(compressed, offset, count, bytes, size);
+            if (n < size) {
+                Arrays.fill(bytes, n, size, (byte) 0);          // Scratch array may contain values of previous tile.
+            }
+        } catch (DataFormatException e) {
+            throw new DataStoreContentException(canNotRead(), e);
+        }
+        if (dataType == DataBuffer.TYPE_BYTE) {
+            data = bytes;
+        } else if (predictor == Predictor.FLOATING_POINT) {
+            data = (dataType == DataBuffer.TYPE_FLOAT) ? new float[length] : new double[length];
+            Predictor.undoFloatingPoint(bytes, size, rowLength, isPlanar ? 1 : samplesPerPixel, data);
+        } else {
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, size).order(order);
+            switch (dataType) {
+                case DataBuffer.TYPE_SHORT:
+                case DataBuffer.TYPE_USHORT: {
+                    final short[] array = new short[length];
+                    buffer.asShortBuffer().get(array);
+                    data = array;
+                    break;
+                }
+                case DataBuffer.TYPE_INT: {
+                    final int[] array = new int[length];
+                    buffer.asIntBuffer().get(array);
+                    data = array;
+                    break;
+                }
+                case DataBuffer.TYPE_FLOAT: {
+                    final float[] array = new float[length];
+                    buffer.asFloatBuffer().get(array);
+                    data = array;
+                    break;
+                }
+                default: {
+                    final double[] array = new double[length];
+                    buffer.asDoubleBuffer().get(array);
+                    data = array;
+                    break;
+                }
+            }
+        }
+        return wrap(dataType, data, rowLength);
+    }
+
+    /**
+     * Returns the number of elements in a row of a tile. This is the number of bytes for images
+     * of less than 8 bits per sample, or the number of sample values for all other images.
+     */
+    private int rowLength() {
+        if (bitsPerSample < Byte.SIZE) {
+            return (Math.multiplyExact(tileWidth, bitsPerSample) + (Byte.SIZE - 1)) / Byte.SIZE;
+        } else {
+            return Math.multiplyExact(tileWidth, isPlanar ? 1 : samplesPerPixel);
+        }
+    }
+
+    /**
+     * Reverses the predictor if any, then wraps the given array in a buffer.
+     *
+     * @param  dataType   one of the {@code DataBuffer.TYPE_*} constants.
+     * @param  data       the sample values as a Java array of the type identified by {@code dataType}.
+     * @param  rowLength  the value returned by {@link #rowLength()}.
+     */
+    private Buffer wrap(final int dataType, final Object data, final int rowLength) {
+        if (predictor == Predictor.HORIZONTAL) {
+            Predictor.undoHorizontal(data, rowLength, isPlanar ? 1 : samplesPerPixel);
+        }
+        switch (dataType) {
+            case DataBuffer.TYPE_BYTE:   return ByteBuffer  .wrap((byte[])   data);
+            case DataBuffer.TYPE_SHORT:
+            case DataBuffer.TYPE_USHORT: return ShortBuffer .wrap((short[])  data);
+            case DataBuffer.TYPE_INT:    return IntBuffer   .wrap((int[])    data);
+            case DataBuffer.TYPE_FLOAT:  return FloatBuffer .wrap((float[])  data);
+            default:                     return DoubleBuffer.wrap((double[]) data);
+        }
+    }
+
+    /**
+     * Returns whether the order of bits in each byte shall be reversed. This is the case when the
+     * {@code FillOrder} TIFF tag has value 2, but only for images of less than 8 bits per sample.
+     * The same rule is applied on uncompressed bytes and on compressed bytes.
+     */
+    private boolean isBitsOrderReversed() {
+        return reverseBitsOrder && bitsPerSample < Byte.SIZE;
+    }
+
+    /**
+     * Reverses the order of bits in the first {@code n} bytes of the given array.
+     * This is needed when {@link #isBitsOrderReversed()} is {@code true}.
+     */
+    private static void reverseBitsOrder(final byte[] data, final int n) {
+        reverseBitsOrder(data, 0, n);
+    }
+
+    /**
+     * Reverses the order of bits in {@code n} bytes of the given array starting at the given offset.
+     */
+    private static void reverseBitsOrder(final byte[] data, final int offset, final int n) {
+        for (int i=offset; i<offset+n; i++) {
+            data[i] = (byte) (Integer.reverse(data[i]) >>> (Integer.SIZE - Byte.SIZE));
+        }
     }
 
     /**
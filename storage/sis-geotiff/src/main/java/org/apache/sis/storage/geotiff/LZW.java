@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.storage.geotiff;
+
+import java.util.zip.DataFormatException;
+
+
+/**
+ * Decompression of data encoded with the Lempel-Ziv &amp; Welch algorithm, as specified in TIFF 6 section 13.
+ * Codes are packed with the most significant bits first. Code length starts at 9 bits and increases up to
+ * 12 bits one code before the table size reaches a power of 2 (the "early change" of TIFF encoders).
+ *
+ * <p>Each string in the table is represented by the code of its prefix string, its last byte, its first byte
+ * and its length. This allows to write the strings directly in the output array, from last byte to first byte,
+ * without temporary buffer. The tables are allocated once per thread and reused for all tiles.</p>
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+final class LZW extends Decompressor {
+    /**
+     * The instance reserved to each thread.
+     */
+    static final ThreadLocal<LZW> INSTANCES = ThreadLocal.withInitial(LZW::new);
+
+    /**
+     * Code for clearing the table, or for ending the data.
+     */
+    private static final int CLEAR_CODE = 256, EOI_CODE = 257;
+
+    /**
+     * Number of bits in the smallest and the largest codes.
+     */
+    private static final int MIN_CODE_SIZE = 9, MAX_CODE_SIZE = 12;
+
+    /**
+     * Code of the prefix string of each entry in the table.
+     */
+    private final short[] prefixes;
+
+    /**
+     * Last byte of each string in the table.
+     */
+    private final byte[] suffixes;
+
+    /**
+     * First byte of each string in the table.
+     */
+    private final byte[] firsts;
+
+    /**
+     * Number of bytes in each string of the table.
+     */
+    private final int[] lengths;
+
+    /**
+     * Creates a new decompressor for the current thread. The 256 first entries of the table,
+     * which are the strings of a single byte, are initialized here and never modified.
+     */
+    private LZW() {
+        final int capacity = 1 << MAX_CODE_SIZE;
+        prefixes = new short[capacity];
+        suffixes = new byte [capacity];
+        firsts   = new byte [capacity];
+        lengths  = new int  [capacity];
+        for (int i=0; i<256; i++) {
+            suffixes[i] = (byte) i;
+            firsts  [i] = (byte) i;
+            lengths [i] = 1;
+        }
+    }
+
+    /**
+     * Decompresses the given bytes until the output capacity is reached or the end of information code is found.
+     *
+     * @throws DataFormatException if the compressed data contains an invalid code.
+     */
+    @Override
+    int uncompress(final byte[] input, int offset, final int length, final byte[] output, final int capacity)
+            throws DataFormatException
+    {
+        final int limit = offset + length;
+        int  codeSize  = MIN_CODE_SIZE;
+        int  nextCode  = EOI_CODE + 1;
+        int  previous  = -1;
+        int  bitBuffer = 0;                             // Bits not yet consumed, right-aligned.
+        int  bitCount  = 0;                             // Number of valid bits in `bitBuffer`.
+        int  position  = 0;
+        while (position < capacity) {
+            while (bitCount < codeSize) {
+                if (offset >= limit) {
+                    return position;                    // Missing EOI code, tolerated.
+                }
+                bitBuffer = (bitBuffer << Byte.SIZE) | Byte.toUnsignedInt(input[offset++]);
+                bitCount += Byte.SIZE;
+            }
+            bitCount -= codeSize;
+            final int code = (bitBuffer >>> bitCount) & ((1 << codeSize) - 1);
+            if (code == EOI_CODE) {
+                break;
+            }
+            if (code == CLEAR_CODE) {
+                codeSize = MIN_CODE_SIZE;
+                nextCode = EOI_CODE + 1;
+                previous = -1;
+                continue;
+            }
+            if (previous < 0) {
+                if (code >= 256) {
+                    throw new DataFormatException("Invalid LZW code " + code + " after clear code.");
+                }
+                output[position++] = (byte) code;
+                previous = code;
+                continue;
+            }
+            /*
+             * If the code is already in the table, the new entry is the previous string followed by the
+             * first byte of current string. Otherwise (KwKwK case) the code must be the one of the entry
+             * we are about to add, which is the previous string followed by its own first byte.
+             */
+            final byte first;
+            if (code < nextCode) {
+                first = firsts[code];
+            } else if (code == nextCode) {
+                first = firsts[previous];
+            } else {
+                throw new DataFormatException("Invalid LZW code " + code + '.');
+            }
+            if (nextCode < prefixes.length) {
+                prefixes[nextCode] = (short) previous;
+                suffixes[nextCode] = first;
+                firsts  [nextCode] = firsts[previous];
+                lengths [nextCode] = lengths[previous] + 1;
+                nextCode++;
+                if (nextCode >= (1 << codeSize) - 1 && codeSize < MAX_CODE_SIZE) {
+                    codeSize++;
+                }
+            }
+            position = write(code, output, position, capacity);
+            previous = code;
+        }
+        return position;
+    }
+
+    /**
+     * Writes the string of the given code in the output array, starting at the given position.
+     * Bytes that would be written at or after the {@code capacity} index are discarded.
+     *
+     * @return position after the last byte of the string.
+     */
+    private int write(int code, final byte[] output, final int position, final int capacity) {
+        final int end = position + lengths[code];
+        int i = end;
+        while (--i >= position) {
+            if (i < capacity) {
+                output[i] = suffixes[code];
+            }
+            code = prefixes[code];
+        }
+        return Math.min(end, capacity);
+    }
+}
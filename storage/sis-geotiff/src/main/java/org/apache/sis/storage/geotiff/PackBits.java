@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.storage.geotiff;
+
+import java.util.Arrays;
+
+
+/**
+ * Decompression of data encoded with the PackBits run-length scheme.
+ * Each run starts with a header byte <var>n</var> interpreted as a signed integer:
+ *
+ * <ul>
+ *   <li>0 to 127: copy the next <var>n</var>+1 bytes literally.</li>
+ *   <li>-127 to -1: repeat the next byte -<var>n</var>+1 times.</li>
+ *   <li>-128: no operation.</li>
+ * </ul>
+ *
+ * This class has no decompression state, but instances are nevertheless reserved to a single thread
+ * because of the scratch arrays inherited from {@link Decompressor}.
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+final class PackBits extends Decompressor {
+    /**
+     * The instance reserved to each thread.
+     */
+    static final ThreadLocal<PackBits> INSTANCES = ThreadLocal.withInitial(PackBits::new);
+
+    /**
+     * Creates a new decompressor for the current thread.
+     */
+    private PackBits() {
+    }
+
+    /**
+     * Decompresses the given bytes until the output capacity is reached or the input is exhausted.
+     */
+    @Override
+    int uncompress(final byte[] input, int offset, final int length, final byte[] output, final int capacity) {
+        final int limit = offset + length;
+        int position = 0;
+        while (offset < limit && position < capacity) {
+            final int n = input[offset++];
+            if (n >= 0) {
+                final int count = Math.min(Math.min(n + 1, limit - offset), capacity - position);
+                System.arraycopy(input, offset, output, position, count);
+                offset   += n + 1;
+                position += count;
+            } else if (n != -128 && offset < limit) {
+                final int end = Math.min(position + (1 - n), capacity);
+                Arrays.fill(output, position, end, input[offset++]);
+                position = end;
+            }
+        }
+        return position;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.storage.geotiff;
+
+
+/**
+ * Possible values for {@link Tags#Predictor}.
+ * A predictor is a mathematical operator applied to the image data before compression.
+ * It does not reduce the data size by itself, but makes the data more compressible by
+ * LZW or Deflate encodings.
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+enum Predictor {
+    /**
+     * No prediction scheme used before coding.
+     */
+    NONE(1),
+
+    /**
+     * Horizontal differencing. Each sample value is stored as the difference with the value of the same
+     * band in the previous pixel of the same row. The first pixel of each row is stored unchanged.
+     */
+    HORIZONTAL(2),
+
+    /**
+     * Floating point horizontal differencing. The bytes of each row are reordered by significance
+     * (most significant bytes of all samples first) before to apply horizontal differencing on bytes.
+     * This is defined in Adobe Photoshop TIFF Technical Note 3.
+     */
+    FLOATING_POINT(3);
+
+    /**
+     * The TIFF code for this predictor.
+     */
+    final int code;
+
+    /**
+     * Creates a new predictor enumeration.
+     */
+    Predictor(final int code) {
+        this.code = code;
+    }
+
+    /**
+     * Returns the predictor for the given GeoTIFF code, or {@code null} if none.
+     */
+    static Predictor valueOf(final long code) {
+        for (final Predictor p : values()) {
+            if (p.code == code) return p;
+        }
+        return null;
+    }
+
+    /**
+     * Reverses the horizontal differencing applied on the given sample values.
+     * Values are integers; overflows wrap around as in the encoder.
+     *
+     * @param  data       the sample values as an array of {@code byte}, {@code short} or {@code int}.
+     * @param  rowLength  number of sample values in a row, including all bands of interleaved pixels.
+     * @param  stride     number of sample values per pixel (1 for planar images).
+     */
+    static void undoHorizontal(final Object data, final int rowLength, final int stride) {
+        if (data instanceof byte[]) {
+            final byte[] values = (byte[]) data;
+            for (int row = 0; row + rowLength <= values.length; row += rowLength) {
+                for (int i = row + stride; i < row + rowLength; i++) {
+                    values[i] += values[i - stride];
+                }
+            }
+        } else if (data instanceof short[]) {
+            final short[] values = (short[]) data;
+            for (int row = 0; row + rowLength <= values.length; row += rowLength) {
+                for (int i = row + stride; i < row + rowLength; i++) {
+                    values[i] += values[i - stride];
+                }
+            }
+        } else {
+            final int[] values = (int[]) data;
+            for (int row = 0; row + rowLength <= values.length; row += rowLength) {
+                for (int i = row + stride; i < row + rowLength; i++) {
+                    values[i] += values[i - stride];
+                }
+            }
+        }
+    }
+
+    /**
+     * Reverses the floating point differencing and stores the result in the given array.
+     * In each row, the bytes of all samples are grouped by significance (most significant first)
+     * and horizontal differencing was applied on those bytes. This method undoes the differencing,
+     * then reassembles the bytes of each sample. The result does not depend on the file byte order.
+     *
+     * @param  bytes      the uncompressed bytes. Will be modified in place.
+     * @param  size       number of valid bytes in the {@code bytes} array, which may be longer.
+     * @param  rowLength  number of sample values in a row, including all bands of interleaved pixels.
+     * @param  stride     number of sample values per pixel (1 for planar images).
+     * @param  target     where to store the sample values, as an array of {@code float} or {@code double}.
+     */
+    static void undoFloatingPoint(final byte[] bytes, final int size, final int rowLength, final int stride, final Object target) {
+        final float[]  floats  = (target instanceof float[]) ? (float[]) target : null;
+        final double[] doubles = (floats == null) ? (double[]) target : null;
+        final int sampleSize = (floats != null) ? Float.BYTES : Double.BYTES;
+        final int rowSize = rowLength * sampleSize;
+        for (int row = 0, sample = 0; row + rowSize <= size; row += rowSize) {
+            for (int i = row + stride; i < row + rowSize; i++) {
+                bytes[i] += bytes[i - stride];
+            }
+            for (int i = row; i < row + rowLength; i++) {
+                long bits = 0;
+                for (int b = i; b < row + rowSize; b += rowLength) {
+                    bits = (bits << Byte.SIZE) | Byte.toUnsignedLong(bytes[b]);
+                }
+                if (floats != null) {
+                    floats[sample++] = Float.intBitsToFloat((int) bits);
+                } else {
+                    doubles[sample++] = Double.longBitsToDouble(bits);
+                }
+            }
+        }
+    }
+}
@@ -50,7 +50,7 @@ import org.apache.sis.util.resources.Errors;
  * @author  Alexis Manin (Geomatys)
  * @author  Johann Sorel (Geomatys)
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   0.8
  * @module
  */
@@ -62,8 +62,9 @@ final class Reader extends GeoTIFF {
 
     /**
      * Stream position of the first byte of the GeoTIFF file. This is usually zero.
+     * Offsets of tiles or strips are relative to this position.
      */
-    private final long origin;
+    final long origin;
 
     /**
      * A multiplication factor for the size of pointers, expressed as a power of 2.
@@ -322,6 +323,22 @@ final class Reader extends GeoTIFF {
         return dir;
     }
 
+    /**
+     * Returns the image at the given index, ignoring the reduced-resolution images (overviews).
+     * Overviews are not returned by this method because they are used by their full-resolution
+     * image for reading data at a coarser resolution.
+     *
+     * @param  index  index of the image, ignoring overviews.
+     * @return the image if we found it, or {@code null} if there is no more image at the given index.
+     */
+    final ImageFileDirectory getImage(int index) throws IOException, DataStoreException {
+        ImageFileDirectory dir;
+        for (int i=0; (dir = getImageFileDirectory(i)) != null; i++) {
+            if (!dir.isOverview() && --index < 0) break;
+        }
+        return dir;
+    }
+
     /**
      * Reads some of the entries that has been deferred. If the given {@code dir} argument is non-null,
      * then this method resolves all entries needed by this IFD no matter where the entry value is located.
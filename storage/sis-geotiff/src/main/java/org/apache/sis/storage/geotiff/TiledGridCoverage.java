@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.storage.geotiff;
+
+import java.util.List;
+import java.awt.image.ColorModel;
+import java.awt.image.SampleModel;
+import java.awt.image.RenderedImage;
+import org.apache.sis.coverage.SampleDimension;
+import org.apache.sis.coverage.grid.GridCoverage;
+import org.apache.sis.coverage.grid.GridExtent;
+import org.apache.sis.coverage.grid.GridGeometry;
+import org.apache.sis.coverage.grid.DisjointExtentException;
+import org.apache.sis.internal.coverage.BufferedGridCoverage;
+import org.apache.sis.util.resources.Errors;
+
+
+/**
+ * A grid coverage backed by the tiles (or strips) of an image in a TIFF file.
+ * This coverage does not hold any sample values. Tiles are read only when requested by
+ * {@link RenderedImage#getTile(int, int)} on an image created by {@link #render(GridExtent)}.
+ *
+ * <p>The domain of this coverage is a subset of the TIFF image, potentially subsampled.
+ * The mapping from coverage cells to TIFF pixels is given by the {@link #areaOfInterest}
+ * and {@link #subsamplings} fields: the cell at the low corner of the grid extent maps
+ * the pixel at the low corner of the area of interest, and each increment of one cell
+ * moves by {@code subsamplings[i]} pixels in the TIFF image.</p>
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+final class TiledGridCoverage extends GridCoverage {
+    /**
+     * The image file directory from which to read tiles.
+     */
+    final ImageFileDirectory source;
+
+    /**
+     * Indices in the TIFF file of the bands to read, in the order they shall appear in the image.
+     */
+    final int[] bands;
+
+    /**
+     * The region of the TIFF image to read, in units of full-resolution pixels.
+     */
+    private final GridExtent areaOfInterest;
+
+    /**
+     * The subsampling to apply in each dimension of {@link #areaOfInterest}.
+     */
+    private final int[] subsamplings;
+
+    /**
+     * The sample model of tiles as stored in the TIFF file, restricted to the selected bands.
+     */
+    final SampleModel sampleModel;
+
+    /**
+     * The color model of rendered images.
+     */
+    final ColorModel colorModel;
+
+    /**
+     * Result of the call to {@link #forConvertedValues(boolean)}, created when first needed.
+     */
+    private GridCoverage converted;
+
+    /**
+     * Creates a new coverage for the given subset of a TIFF image.
+     *
+     * @param source          the image file directory from which to read tiles.
+     * @param domain          the grid geometry of this coverage.
+     * @param range           sample dimensions of the selected bands.
+     * @param bands           indices in the TIFF file of the selected bands.
+     * @param areaOfInterest  the region of the TIFF image to read, in units of full-resolution pixels.
+     * @param subsamplings    the subsampling to apply in each dimension of {@code areaOfInterest}.
+     * @param sampleModel     the sample model of tiles as stored in the TIFF file, restricted to the selected bands.
+     * @param colorModel      the color model of rendered images.
+     */
+    TiledGridCoverage(final ImageFileDirectory source, final GridGeometry domain, final List<SampleDimension> range,
+            final int[] bands, final GridExtent areaOfInterest, final int[] subsamplings,
+            final SampleModel sampleModel, final ColorModel colorModel)
+    {
+        super(domain, range);
+        this.source         = source;
+        this.bands          = bands;
+        this.areaOfInterest = areaOfInterest;
+        this.subsamplings   = subsamplings;
+        this.sampleModel    = sampleModel;
+        this.colorModel     = colorModel;
+    }
+
+    /**
+     * Returns a grid coverage that contains real values or sample values,
+     * depending if {@code converted} is {@code true} or {@code false} respectively.
+     */
+    @Override
+    public synchronized GridCoverage forConvertedValues(final boolean converted) {
+        if (converted) {
+            if (this.converted == null) {
+                this.converted = BufferedGridCoverage.convert(this);
+            }
+            return this.converted;
+        }
+        return this;
+    }
+
+    /**
+     * Returns a two-dimensional slice of grid data as a rendered image.
+     * The returned image is a view over the TIFF file; tiles are read when first requested.
+     *
+     * @param  sliceExtent  a subspace of this grid coverage extent, or {@code null} for the whole coverage.
+     * @return the grid slice as a rendered image. Image location is relative to {@code sliceExtent}.
+     */
+    @Override
+    public RenderedImage render(GridExtent sliceExtent) {
+        final GridExtent extent = getGridGeometry().getExtent();
+        if (sliceExtent == null) {
+            sliceExtent = extent;
+        } else if (sliceExtent.getDimension() != extent.getDimension()) {
+            throw new IllegalArgumentException(Errors.format(Errors.Keys.MismatchedDimension_3,
+                    "sliceExtent", extent.getDimension(), sliceExtent.getDimension()));
+        }
+        final int[] dimensions = sliceExtent.getSubspaceDimensions(2);
+        final long[] bounds    = new long[4];           // (xmin, ymin, xmax, ymax) inclusive, relative to slice.
+        final long[] origin    = new long[2];           // TIFF pixel coordinates of image pixel (0,0).
+        final int[]  strides   = new int [2];
+        for (int i=0; i<dimensions.length; i++) {
+            final int  d    = dimensions[i];
+            final long low  = sliceExtent.getLow(d);
+            final long cov  = extent.getLow(d);
+            final int  s    = subsamplings[d];
+            long min = Math.max(low, cov) - low;
+            long max = Math.min(sliceExtent.getHigh(d), extent.getHigh(d)) - low;
+            origin[i] = Math.addExact(areaOfInterest.getLow(d), Math.multiplyExact(low - cov, s));
+            /*
+             * The grid geometry computed by GridDerivation may be slightly larger than the TIFF image
+             * because of rounding. Clip to the range of valid pixel indices in the TIFF file.
+             */
+            min = Math.max(min, Math.floorDiv(-origin[i] + (s - 1), s));
+            max = Math.min(max, Math.floorDiv(source.getImageSize(i) - 1 - origin[i], s));
+            if (max < min) {
+                throw new DisjointExtentException(Errors.format(Errors.Keys.EmptyArgument_1, "sliceExtent"));
+            }
+            bounds[i]   = min;
+            bounds[i+2] = max;
+            strides[i]  = s;
+        }
+        return new TiledImage(this, bounds, origin, strides);
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.storage.geotiff;
+
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.ColorModel;
+import java.awt.image.ImagingOpException;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Vector;
+import org.apache.sis.storage.DataStoreException;
+
+
+/**
+ * An image which reads the tiles (or strips) of a TIFF file only when first requested.
+ * Image coordinates are related to the pixel coordinates of the TIFF image by the following
+ * equation, where <var>s</var> is the subsampling and (<var>x₀</var>, <var>y₀</var>) is
+ * the ({@link #originX}, {@link #originY}) fields:
+ *
+ * <blockquote>(<var>x</var>, <var>y</var>)<sub>TIFF</sub> =
+ * (<var>x₀</var> + <var>x</var>⋅<var>s<sub>x</sub></var>,
+ *  <var>y₀</var> + <var>y</var>⋅<var>s<sub>y</sub></var>)</blockquote>
+ *
+ * If there is no subsampling, then the tiles of this image are the tiles of the TIFF file
+ * and are returned without copying sample values. Otherwise new tiles are created with the
+ * sample values of the TIFF tiles at the subsampled positions.
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+final class TiledImage implements RenderedImage {
+    /**
+     * The coverage which created this image. Provides the TIFF image, the bands and the sample model.
+     */
+    private final TiledGridCoverage coverage;
+
+    /**
+     * Pixel coordinates in the TIFF image of the pixel (0,0) in this image.
+     * This pixel does not need to be inside the image bounds.
+     */
+    private final long originX, originY;
+
+    /**
+     * The subsampling along <var>x</var> and <var>y</var> axes.
+     */
+    private final int strideX, strideY;
+
+    /**
+     * Image bounds, in pixel coordinates of this image.
+     */
+    private final int minX, minY, width, height;
+
+    /**
+     * Size of tiles in this image. Equal to the size of TIFF tiles if there is no subsampling.
+     */
+    private final int tileWidth, tileHeight;
+
+    /**
+     * Pixel coordinates of the upper-left corner of tile (0,0).
+     * If there is no subsampling, tile indices are the same than TIFF tile indices.
+     */
+    private final int tileGridXOffset, tileGridYOffset;
+
+    /**
+     * Indices of the first tile and number of tiles along each axis.
+     */
+    private final int minTileX, minTileY, numXTiles, numYTiles;
+
+    /**
+     * The sample model of tiles in this image.
+     */
+    private final SampleModel sampleModel;
+
+    /**
+     * Creates a new image for the given coverage.
+     *
+     * @param coverage  the coverage which created this image.
+     * @param bounds    minimal and maximal (inclusive) image coordinates as (xmin, ymin, xmax, ymax).
+     * @param origin    pixel coordinates in the TIFF image of the pixel (0,0) in this image.
+     * @param strides   the subsampling along <var>x</var> and <var>y</var> axes.
+     */
+    TiledImage(final TiledGridCoverage coverage, final long[] bounds, final long[] origin, final int[] strides) {
+        this.coverage = coverage;
+        originX = origin [0];
+        originY = origin [1];
+        strideX = strides[0];
+        strideY = strides[1];
+        minX    = Math.toIntExact(bounds[0]);
+        minY    = Math.toIntExact(bounds[1]);
+        width   = Math.incrementExact(Math.toIntExact(bounds[2] - bounds[0]));
+        height  = Math.incrementExact(Math.toIntExact(bounds[3] - bounds[1]));
+        final SampleModel model = coverage.sampleModel;
+        if (strideX == 1 && strideY == 1) {
+            tileWidth       = model.getWidth();
+            tileHeight      = model.getHeight();
+            tileGridXOffset = Math.toIntExact(-originX);
+            tileGridYOffset = Math.toIntExact(-originY);
+            sampleModel     = model;
+        } else {
+            tileWidth       = Math.min(Math.max(1, model.getWidth()  / strideX), width);
+            tileHeight      = Math.min(Math.max(1, model.getHeight() / strideY), height);
+            tileGridXOffset = minX;
+            tileGridYOffset = minY;
+            sampleModel     = model.createCompatibleSampleModel(tileWidth, tileHeight);
+        }
+        minTileX  = Math.floorDiv(minX - tileGridXOffset, tileWidth);
+        minTileY  = Math.floorDiv(minY - tileGridYOffset, tileHeight);
+        numXTiles = Math.floorDiv(minX + width  - 1 - tileGridXOffset, tileWidth)  - minTileX + 1;
+        numYTiles = Math.floorDiv(minY + height - 1 - tileGridYOffset, tileHeight) - minTileY + 1;
+    }
+
+    /** Returns {@code null} since this image has no source. */
+    @Override public Vector<RenderedImage> getSources()      {return null;}
+    @Override public Object      getProperty(String name)    {return Image.UndefinedProperty;}
+    @Override public String[]    getPropertyNames()          {return null;}
+    @Override public ColorModel  getColorModel()             {return coverage.colorModel;}
+    @Override public SampleModel getSampleModel()            {return sampleModel;}
+    @Override public int         getMinX()                   {return minX;}
+    @Override public int         getMinY()                   {return minY;}
+    @Override public int         getWidth()                  {return width;}
+    @Override public int         getHeight()                 {return height;}
+    @Override public int         getMinTileX()               {return minTileX;}
+    @Override public int         getMinTileY()               {return minTileY;}
+    @Override public int         getNumXTiles()              {return numXTiles;}
+    @Override public int         getNumYTiles()              {return numYTiles;}
+    @Override public int         getTileWidth()              {return tileWidth;}
+    @Override public int         getTileHeight()             {return tileHeight;}
+    @Override public int         getTileGridXOffset()        {return tileGridXOffset;}
+    @Override public int         getTileGridYOffset()        {return tileGridYOffset;}
+
+    /**
+     * Returns the tile at the given tile indices. The TIFF tiles needed for computing the requested tile
+     * are read when first needed, then cached by the {@link ImageFileDirectory} for reuse by other images.
+     *
+     * @param  tileX  column index of the tile to get.
+     * @param  tileY  row index of the tile to get.
+     * @return the tile at the given indices.
+     * @throws ImagingOpException if an error occurred while reading the TIFF file.
+     */
+    @Override
+    public Raster getTile(final int tileX, final int tileY) {
+        final int x = Math.addExact(Math.multiplyExact(tileX, tileWidth),  tileGridXOffset);
+        final int y = Math.addExact(Math.multiplyExact(tileY, tileHeight), tileGridYOffset);
+        try {
+            if (strideX == 1 && strideY == 1) {
+                return coverage.source.readTile(tileX, tileY, sampleModel, coverage.bands).createTranslatedChild(x, y);
+            }
+            return subsample(x, y);
+        } catch (IOException | DataStoreException e) {
+            throw canNotRead(e);
+        }
+    }
+
+    /**
+     * Returns the exception to throw for an error that occurred while reading the TIFF file.
+     */
+    private ImagingOpException canNotRead(final Exception cause) {
+        final ImagingOpException ex = new ImagingOpException(coverage.source.canNotRead());
+        ex.initCause(cause);
+        return ex;
+    }
+
+    /**
+     * Creates a tile with the sample values of TIFF tiles at the subsampled positions.
+     * Only the pixels inside the image bounds are set; other pixels are left to zero.
+     *
+     * @param  x  image coordinate of the upper-left corner of the tile to create.
+     * @param  y  image coordinate of the upper-left corner of the tile to create.
+     */
+    private Raster subsample(final int x, final int y) throws IOException, DataStoreException {
+        final WritableRaster target = Raster.createWritableRaster(sampleModel, new Point(x, y));
+        final SampleModel model = coverage.sampleModel;
+        final int xmin = Math.max(x, minX);
+        final int ymin = Math.max(y, minY);
+        final int xmax = Math.min(x + tileWidth,  minX + width);         // Exclusive.
+        final int ymax = Math.min(y + tileHeight, minY + height);
+        final int sourceWidth  = model.getWidth();
+        final int sourceHeight = model.getHeight();
+        Raster source = null;
+        Object pixel  = null;
+        int sourceX = -1, sourceY = -1;                     // Indices of the TIFF tile in `source`.
+        for (int ty=ymin; ty<ymax; ty++) {
+            final int py = Math.toIntExact(originY + ((long) ty) * strideY);
+            for (int tx=xmin; tx<xmax; tx++) {
+                final int px = Math.toIntExact(originX + ((long) tx) * strideX);
+                final int sx = px / sourceWidth;
+                final int sy = py / sourceHeight;
+                if (sx != sourceX || sy != sourceY) {
+                    source  = coverage.source.readTile(sx, sy, model, coverage.bands);
+                    sourceX = sx;
+                    sourceY = sy;
+                }
+                pixel = source.getDataElements(px, py, pixel);
+                target.setDataElements(tx, ty, pixel);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Returns a copy of the whole image as a single raster.
+     */
+    @Override
+    public Raster getData() {
+        return copyData(null);
+    }
+
+    /**
+     * Returns a copy of the given region of this image.
+     *
+     * @param  region  the region to copy.
+     * @return a copy of the given region.
+     */
+    @Override
+    public Raster getData(final Rectangle region) {
+        final WritableRaster raster = Raster.createWritableRaster(
+                sampleModel.createCompatibleSampleModel(region.width, region.height), region.getLocation());
+        return copyData(raster);
+    }
+
+    /**
+     * Copies the sample values of this image into the given raster.
+     * Only the tiles intersecting the raster bounds are read. If many TIFF tiles are needed,
+     * they are loaded in a single batch, in file order, and decompressed in parallel.
+     *
+     * @param  raster  the raster where to copy the sample values, or {@code null} for creating a raster for the whole image.
+     * @return the given raster, or a new raster if the given one was null.
+     */
+    @Override
+    public WritableRaster copyData(WritableRaster raster) {
+        if (raster == null) {
+            raster = Raster.createWritableRaster(sampleModel.createCompatibleSampleModel(width, height), new Point(minX, minY));
+        }
+        final Rectangle region = raster.getBounds().intersection(new Rectangle(minX, minY, width, height));
+        if (!region.isEmpty()) {
+            final SampleModel model = coverage.sampleModel;
+            try {
+                coverage.source.loadTiles(sourceTiles(region.x, region.width,  originX, strideX, model.getWidth()),
+                                          sourceTiles(region.y, region.height, originY, strideY, model.getHeight()),
+                                          coverage.bands);
+            } catch (IOException | DataStoreException e) {
+                throw canNotRead(e);
+            }
+            final int txmin = Math.floorDiv(region.x - tileGridXOffset, tileWidth);
+            final int tymin = Math.floorDiv(region.y - tileGridYOffset, tileHeight);
+            final int txmax = Math.floorDiv(region.x + region.width  - 1 - tileGridXOffset, tileWidth);
+            final int tymax = Math.floorDiv(region.y + region.height - 1 - tileGridYOffset, tileHeight);
+            for (int ty = tymin; ty <= tymax; ty++) {
+                for (int tx = txmin; tx <= txmax; tx++) {
+                    raster.setRect(getTile(tx, ty));
+                }
+            }
+        }
+        return raster;
+    }
+
+    /**
+     * Returns the indices of the TIFF tiles needed for the given range of image coordinates along one axis.
+     *
+     * @param  min       first image coordinate.
+     * @param  length    number of image coordinates.
+     * @param  origin    TIFF pixel coordinate of image coordinate 0.
+     * @param  stride    the subsampling.
+     * @param  tileSize  size of TIFF tiles along the axis.
+     * @return indices of TIFF tiles along the axis, in increasing order and without duplicated values.
+     */
+    private static int[] sourceTiles(final int min, final int length, final long origin, final int stride, final int tileSize) {
+        final int[] tiles = new int[length];
+        int count = 0;
+        for (int i=0; i<length; i++) {
+            final int t = Math.toIntExact((origin + ((long) (min + i)) * stride) / tileSize);
+            if (count == 0 || tiles[count - 1] != t) {
+                tiles[count++] = t;
+            }
+        }
+        return Arrays.copyOf(tiles, count);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.storage.geotiff;
+
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DataFormatException;
+import java.io.ByteArrayOutputStream;
+import org.apache.sis.test.TestCase;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests the {@link Decompressor} subclasses.
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+public final strictfp class DecompressorTest extends TestCase {
+    /**
+     * Creates sample data with many repetitions, for making compression effective.
+     */
+    private static byte[] createData(final int length) {
+        final Random random = new Random(1456277302);
+        final byte[] data = new byte[length];
+        for (int i=0; i<length; i++) {
+            data[i] = (byte) (random.nextInt(8) * 31);
+        }
+        return data;
+    }
+
+    /**
+     * Tests {@link PackBits} with the example given in TIFF 6 specification.
+     *
+     * @throws DataFormatException if the compressed data are considered corrupted.
+     */
+    @Test
+    public void testPackBits() throws DataFormatException {
+        final byte[] input = {
+            (byte) 0xFE, (byte) 0xAA, (byte) 0x02, (byte) 0x80, (byte) 0x00, (byte) 0x2A, (byte) 0xFD, (byte) 0xAA,
+            (byte) 0x03, (byte) 0x80, (byte) 0x00, (byte) 0x2A, (byte) 0x22, (byte) 0xF7, (byte) 0xAA
+        };
+        final byte[] expected = {
+            (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0x80, (byte) 0x00, (byte) 0x2A, (byte) 0xAA, (byte) 0xAA,
+            (byte) 0xAA, (byte) 0xAA, (byte) 0x80, (byte) 0x00, (byte) 0x2A, (byte) 0x22, (byte) 0xAA, (byte) 0xAA,
+            (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA
+        };
+        final byte[] output = new byte[expected.length];
+        assertEquals(expected.length, Decompressor.get(Compression.PACKBITS).uncompress(input, 0, input.length, output, output.length));
+        assertArrayEquals(expected, output);
+        /*
+         * Output array smaller than the uncompressed data: the extra bytes shall be discarded.
+         */
+        final byte[] truncated = new byte[10];
+        assertEquals(truncated.length, Decompressor.get(Compression.PACKBITS).uncompress(input, 0, input.length, truncated, truncated.length));
+        assertArrayEquals(Arrays.copyOf(expected, truncated.length), truncated);
+    }
+
+    /**
+     * Tests {@link Deflate} with data compressed by {@link Deflater}.
+     *
+     * @throws DataFormatException if the compressed data are considered corrupted.
+     */
+    @Test
+    public void testDeflate() throws DataFormatException {
+        final byte[] expected = createData(5000);
+        final Deflater deflater = new Deflater();
+        deflater.setInput(expected);
+        deflater.finish();
+        final byte[] input = new byte[expected.length * 2];
+        final int length = deflater.deflate(input);
+        deflater.end();
+        assertTrue(deflater.finished());
+        final byte[] output = new byte[expected.length];
+        for (int i=0; i<2; i++) {                                   // Verify that the decompressor can be reused.
+            Arrays.fill(output, (byte) 0);
+            assertEquals(expected.length, Decompressor.get(Compression.DEFLATE).uncompress(input, 0, length, output, output.length));
+            assertArrayEquals(expected, output);
+        }
+    }
+
+    /**
+     * Tests {@link LZW} with data compressed by a simple encoder implemented in this test.
+     * The amount of data is large enough for testing the increase of code size up to 11 bits.
+     *
+     * @throws DataFormatException if the compressed data are considered corrupted.
+     */
+    @Test
+    public void testLZW() throws DataFormatException {
+        final byte[] expected = createData(5000);
+        final byte[] input = encodeLZW(expected);
+        final byte[] output = new byte[expected.length];
+        for (int i=0; i<2; i++) {                                   // Verify that the decompressor can be reused.
+            Arrays.fill(output, (byte) 0);
+            assertEquals(expected.length, Decompressor.get(Compression.LZW).uncompress(input, 0, input.length, output, output.length));
+            assertArrayEquals(expected, output);
+        }
+    }
+
+    /**
+     * Compresses the given data with the LZW algorithm as specified by TIFF, including the "early change".
+     * This encoder does not handle table overflow, so the data shall not be too large.
+     */
+    private static byte[] encodeLZW(final byte[] data) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final Map<Integer,Integer> table = new HashMap<>();
+        int codeSize = 9, nextCode = 258, buffer = 0, count = 0;
+        int previous = 256;                                         // Start with the clear code.
+        for (int i=-1; i <= data.length; i++) {
+            final int code;
+            if (i < 0) {
+                code = 256;                                         // Clear code.
+            } else if (i < data.length) {
+                final int k = Byte.toUnsignedInt(data[i]);
+                if (previous == 256) {
+                    previous = k;
+                    continue;
+                }
+                final Integer existing = table.get((previous << 8) | k);
+                if (existing != null) {
+                    previous = existing;
+                    continue;
+                }
+                table.put((previous << 8) | k, nextCode);
+                code = previous;
+                previous = k;
+            } else {
+                code = previous;
+            }
+            for (int c : (i < data.length) ? new int[] {code} : new int[] {code, 257}) {
+                buffer = (buffer << codeSize) | c;
+                count += codeSize;
+                while (count >= 8) {
+                    count -= 8;
+                    out.write(buffer >>> count);
+                }
+                if (c != 256 && c != 257 && ++nextCode > (1 << codeSize) - 1) {
+                    codeSize++;
+                }
+            }
+        }
+        if (count != 0) {
+            out.write(buffer << (8 - count));
+        }
+        assertTrue("Test requires 11 bits codes.", codeSize >= 11);
+        return out.toByteArray();
+    }
+}
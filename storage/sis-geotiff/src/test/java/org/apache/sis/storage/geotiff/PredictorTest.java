@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.storage.geotiff;
+
+import org.apache.sis.test.TestCase;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests the {@link Predictor} enumeration.
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+public final strictfp class PredictorTest extends TestCase {
+    /**
+     * Tests {@link Predictor#valueOf(long)}.
+     */
+    @Test
+    public void testValueOf() {
+        for (final Predictor p : Predictor.values()) {
+            assertSame(p.name(), p, Predictor.valueOf(p.code));
+        }
+        assertNull(Predictor.valueOf(0));
+    }
+
+    /**
+     * Tests {@link Predictor#undoHorizontal(Object, int, int)} on two rows of pixels having two bands.
+     */
+    @Test
+    public void testUndoHorizontal() {
+        final short[] data = {
+            10, 20,   1,  2,   3, -4,
+            30, 40,  -1, -2,   5,  6
+        };
+        Predictor.undoHorizontal(data, 6, 2);
+        assertArrayEquals(new short[] {
+            10, 20,  11, 22,  14, 18,
+            30, 40,  29, 38,  34, 44
+        }, data);
+    }
+
+    /**
+     * Tests {@link Predictor#undoFloatingPoint(byte[], int, int, int, Object)} on a single row of one band.
+     * The encoded bytes are computed in this test by applying the encoding steps in reverse order.
+     */
+    @Test
+    public void testUndoFloatingPoint() {
+        final float[] expected = {1.5f, -2.25f, 1000f, 0f, Float.NaN};
+        final int n = expected.length;
+        final byte[] bytes = new byte[n * Float.BYTES];
+        for (int i=0; i<n; i++) {
+            final int bits = Float.floatToRawIntBits(expected[i]);
+            for (int b=0; b<Float.BYTES; b++) {
+                bytes[b*n + i] = (byte) (bits >>> (Integer.SIZE - Byte.SIZE * (b+1)));
+            }
+        }
+        for (int i = bytes.length; --i >= 1;) {
+            bytes[i] -= bytes[i-1];
+        }
+        final float[] actual = new float[n];
+        Predictor.undoFloatingPoint(bytes, bytes.length, n, 1, actual);
+        assertArrayEquals(expected, actual, 0f);
+    }
+}
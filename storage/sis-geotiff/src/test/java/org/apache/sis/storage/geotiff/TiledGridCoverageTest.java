@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.storage.geotiff;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import org.apache.sis.coverage.grid.GridCoverage;
+import org.apache.sis.coverage.grid.GridExtent;
+import org.apache.sis.coverage.grid.GridGeometry;
+import org.apache.sis.storage.GridCoverageResource;
+import org.apache.sis.storage.StorageConnector;
+import org.apache.sis.storage.DataStoreException;
+import org.apache.sis.test.DependsOn;
+import org.apache.sis.test.TestCase;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests {@link TiledGridCoverage} and {@link TiledImage} on a small TIFF image created in memory.
+ * The value of each pixel is <var>x</var> + 3<var>y</var> where (<var>x</var>,<var>y</var>)
+ * are the pixel coordinates in the TIFF image.
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+@DependsOn(DecompressorTest.class)
+public final strictfp class TiledGridCoverageTest extends TestCase {
+    /**
+     * Size of the test image.
+     */
+    static final int WIDTH = 40, HEIGHT = 24;
+
+    /**
+     * Size of tiles in the test image.
+     */
+    static final int TILE_SIZE = 16;
+
+    /**
+     * Base value of all pixels in overviews. The value of pixels in the overview at level <var>k</var>
+     * is this value + <var>k</var>.
+     */
+    static final int OVERVIEW_VALUE = 200;
+
+    /**
+     * Returns the expected value of the pixel at the given TIFF coordinates.
+     */
+    static int expected(final int x, final int y) {
+        return x + 3*y;
+    }
+
+    /**
+     * Creates the content of a little-endian TIFF file with a single image of the given size.
+     * Pixels are stored in square tiles. Tiles on the right and bottom borders are padded as
+     * required by the TIFF specification. The value of each pixel is given by {@link #expected(int, int)}.
+     *
+     * <p>If {@code numOverviews} is greater than zero, then the image is followed by reduced-resolution
+     * images of size divided by 2, 4, 8, <i>etc.</i> All pixels in the overview at level <var>k</var>
+     * (starting at 1) have the value {@code OVERVIEW_VALUE + k}. In such case, the full-resolution
+     * image is georeferenced with a pixel size of 10 units.</p>
+     *
+     * @param  width         number of pixel columns in the image.
+     * @param  height        number of pixel rows in the image.
+     * @param  tileSize      width and height of tiles.
+     * @param  deflate       whether to compress tiles with Deflate algorithm and horizontal predictor.
+     * @param  numOverviews  number of reduced-resolution images to add after the full-resolution image.
+     */
+    static byte[] createTIFF(final int width, final int height, final int tileSize, final boolean deflate, final int numOverviews) {
+        final byte[][][] images = new byte[numOverviews + 1][][];
+        int capacity = 1024;
+        for (int level = 0; level <= numOverviews; level++) {
+            final int w = width >> level, h = height >> level;
+            final int numXTiles = (w + tileSize - 1) / tileSize;
+            final int numYTiles = (h + tileSize - 1) / tileSize;
+            final byte[][] tiles = images[level] = new byte[numXTiles * numYTiles][];
+            for (int ty=0; ty<numYTiles; ty++) {
+                for (int tx=0; tx<numXTiles; tx++) {
+                    final byte[] tile = new byte[tileSize * tileSize];
+                    for (int y=0; y<tileSize; y++) {
+                        for (int x=0; x<tileSize; x++) {
+                            final int px = tx * tileSize + x;
+                            final int py = ty * tileSize + y;
+                            if (px < w && py < h) {
+                                tile[y*tileSize + x] = (byte) (level == 0 ? expected(px, py) : OVERVIEW_VALUE + level);
+                            }
+                        }
+                    }
+                    tiles[ty*numXTiles + tx] = deflate ? deflate(tile, tileSize) : tile;
+                    capacity += tiles[ty*numXTiles + tx].length + 2 * Integer.BYTES;
+                }
+            }
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt(8);
+        for (int level = 0; level <= numOverviews; level++) {
+            final byte[][] tiles = images[level];
+            final boolean georeferenced = (level == 0 && numOverviews != 0);
+            final int[][] entries = {                       // (tag, type, count, value) with type 3 = SHORT, 4 = LONG.
+                {Tags.NewSubfileType,            4, 1, level != 0 ? 1 : 0},
+                {Tags.ImageWidth,                3, 1, width  >> level},
+                {Tags.ImageLength,               3, 1, height >> level},
+                {Tags.BitsPerSample,             3, 1, Byte.SIZE},
+                {Tags.Compression,               3, 1, deflate ? 8 : 1},
+                {Tags.PhotometricInterpretation, 3, 1, 1},
+                {Tags.SamplesPerPixel,           3, 1, 1},
+                {Tags.Predictor,                 3, 1, deflate ? 2 : 1},
+                {Tags.TileWidth,                 3, 1, tileSize},
+                {Tags.TileLength,                3, 1, tileSize},
+                {Tags.TileOffsets,               4, tiles.length},
+                {Tags.TileByteCounts,            4, tiles.length},
+                {Tags.ModelPixelScaleTag,       12, 3},             // Type 12 = DOUBLE.
+                {Tags.ModelTiePoints,           12, 6}
+            };
+            final int numEntries = entries.length - (georeferenced ? 0 : 2);
+            final boolean inline = (tiles.length == 1);             // Whether tile offset and byte count fit in entries.
+            int arrays = buffer.position() + Short.BYTES + numEntries * 12 + Integer.BYTES;
+            int data = arrays + (inline ? 0 : 2 * Integer.BYTES * tiles.length) + (georeferenced ? 9 * Double.BYTES : 0);
+            int next = data;
+            for (final byte[] tile : tiles) next += tile.length;
+            if (inline) {
+                entries[10] = new int[] {Tags.TileOffsets,    4, 1, data};
+                entries[11] = new int[] {Tags.TileByteCounts, 4, 1, tiles[0].length};
+            }
+            buffer.putShort((short) numEntries);
+            for (int i=0; i<numEntries; i++) {
+                final int[] entry = entries[i];
+                buffer.putShort((short) entry[0]).putShort((short) entry[1]).putInt(entry[2]);
+                if (entry.length > 3) {
+                    if (entry[1] == 3) {
+                        buffer.putShort((short) entry[3]).putShort((short) 0);
+                    } else {
+                        buffer.putInt(entry[3]);
+                    }
+                } else {
+                    buffer.putInt(arrays);
+                    arrays += entry[2] * ((entry[1] == 4) ? Integer.BYTES : Double.BYTES);
+                }
+            }
+            buffer.putInt(level < numOverviews ? next : 0);         // Offset of next IFD.
+            if (!inline) {
+                int offset = data;
+                for (final byte[] tile : tiles) {buffer.putInt(offset); offset += tile.length;}
+                for (final byte[] tile : tiles) {buffer.putInt(tile.length);}
+            }
+            if (georeferenced) {
+                buffer.putDouble(10).putDouble(10).putDouble(0);                            // Pixel size.
+                buffer.putDouble(0).putDouble(0).putDouble(0).putDouble(1000).putDouble(2000).putDouble(0);
+            }
+            for (final byte[] tile : tiles) {buffer.put(tile);}
+            assertEquals(next, buffer.position());
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Applies horizontal differencing on the rows of the given tile, then compresses with Deflate algorithm.
+     */
+    private static byte[] deflate(final byte[] tile, final int tileSize) {
+        for (int i = tile.length; --i >= 0;) {
+            if (i % tileSize != 0) {
+                tile[i] -= tile[i-1];
+            }
+        }
+        final Deflater deflater = new Deflater();
+        deflater.setInput(tile);
+        deflater.finish();
+        final byte[] buffer = new byte[tile.length * 2];
+        final int length = deflater.deflate(buffer);
+        deflater.end();
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Opens the test image and renders the given slice extent.
+     */
+    private static RenderedImage render(final GridExtent sliceExtent, final boolean deflate) throws DataStoreException {
+        final byte[] content = createTIFF(WIDTH, HEIGHT, TILE_SIZE, deflate, 0);
+        try (GeoTiffStore store = new GeoTiffStore(null, new StorageConnector(new ByteArrayInputStream(content)))) {
+            final GridCoverageResource resource = store.components().get(0);
+            final GridCoverage coverage = resource.read(null);
+            assertEquals(WIDTH,  coverage.getGridGeometry().getExtent().getSize(0));
+            assertEquals(HEIGHT, coverage.getGridGeometry().getExtent().getSize(1));
+            return coverage.render(sliceExtent);
+        }
+    }
+
+    /**
+     * Tests reading the full image. Tiles of the rendered image shall be the TIFF tiles.
+     *
+     * @throws DataStoreException if an error occurred while reading the test image.
+     */
+    @Test
+    public void testFullImage() throws DataStoreException {
+        verifyFullImage(render(null, false));
+    }
+
+    /**
+     * Tests reading the full image compressed with Deflate algorithm and horizontal predictor.
+     *
+     * @throws DataStoreException if an error occurred while reading the test image.
+     */
+    @Test
+    public void testDeflate() throws DataStoreException {
+        verifyFullImage(render(null, true));
+    }
+
+    /**
+     * Verifies the content of the given image, which shall be the full TIFF image.
+     */
+    private static void verifyFullImage(final RenderedImage image) {
+        assertEquals("width",      WIDTH,     image.getWidth());
+        assertEquals("height",     HEIGHT,    image.getHeight());
+        assertEquals("tileWidth",  TILE_SIZE, image.getTileWidth());
+        assertEquals("tileHeight", TILE_SIZE, image.getTileHeight());
+        assertEquals("numXTiles",  3,         image.getNumXTiles());
+        assertEquals("numYTiles",  2,         image.getNumYTiles());
+        final Raster tile = image.getTile(2, 1);
+        assertEquals(2 * TILE_SIZE, tile.getMinX());
+        assertEquals(1 * TILE_SIZE, tile.getMinY());
+        assertEquals(expected(35, 20), tile.getSample(35, 20, 0));
+        final Raster data = image.getData();
+        for (int y=0; y<HEIGHT; y++) {
+            for (int x=0; x<WIDTH; x++) {
+                assertEquals(expected(x, y), data.getSample(x, y, 0));
+            }
+        }
+    }
+
+    /**
+     * Tests rendering a sub-region of the image, which cross tile boundaries.
+     *
+     * @throws DataStoreException if an error occurred while reading the test image.
+     */
+    @Test
+    public void testSubRegion() throws DataStoreException {
+        final RenderedImage image = render(new GridExtent(null, new long[] {10, 5}, new long[] {29, 20}, true), false);
+        assertEquals("minX",   0,  image.getMinX());
+        assertEquals("minY",   0,  image.getMinY());
+        assertEquals("width",  20, image.getWidth());
+        assertEquals("height", 16, image.getHeight());
+        final Raster data = image.getData();
+        for (int y=0; y<16; y++) {
+            for (int x=0; x<20; x++) {
+                assertEquals(expected(x + 10, y + 5), data.getSample(x, y, 0));
+            }
+        }
+    }
+
+    /**
+     * Tests reading an image at a coarser resolution. The data shall be read from the overviews.
+     *
+     * @throws DataStoreException if an error occurred while reading the test image.
+     */
+    @Test
+    public void testOverviews() throws DataStoreException {
+        final byte[] content = createTIFF(WIDTH, HEIGHT, TILE_SIZE, false, 2);
+        try (GeoTiffStore store = new GeoTiffStore(null, new StorageConnector(new ByteArrayInputStream(content)))) {
+            assertEquals("Overviews shall not be listed as components.", 1, store.components().size());
+            final GridCoverageResource resource = store.components().get(0);
+            final GridGeometry gridGeometry = resource.getGridGeometry();
+            assertEquals(expected(3, 2), resource.read(null).render(null).getData().getSample(3, 2, 0));
+            for (int s = 2; s <= 5; s++) {
+                final GridGeometry domain = gridGeometry.derive().subsample(s, s).build();
+                final RenderedImage image = resource.read(domain).render(null);
+                final int level = (s < 4) ? 1 : 2;
+                if (s == 2 || s == 4) {
+                    assertEquals("width",  WIDTH  / s, image.getWidth());
+                    assertEquals("height", HEIGHT / s, image.getHeight());
+                }
+                final Raster data = image.getData();
+                for (int y=0; y<image.getHeight(); y++) {
+                    for (int x=0; x<image.getWidth(); x++) {
+                        assertEquals(OVERVIEW_VALUE + level, data.getSample(x + image.getMinX(), y + image.getMinY(), 0));
+                    }
+                }
+            }
+        }
+    }
+}
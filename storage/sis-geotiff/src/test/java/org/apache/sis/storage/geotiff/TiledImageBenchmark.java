@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.storage.geotiff;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.awt.image.Raster;
+import org.apache.sis.math.Statistics;
+import org.apache.sis.storage.DataOptionKey;
+import org.apache.sis.storage.StorageConnector;
+
+
+/**
+ * Measures the throughput of reading a large Deflate-compressed GeoTIFF image with 1, 4 and all available threads.
+ * Tiles are decompressed by the executor shared by all Apache SIS modules, with a maximal number of concurrent
+ * tasks given by the {@link DataOptionKey#PARALLELISM} option. This benchmark sets that option on the storage
+ * connector of each data store.
+ *
+ * <p><b>Usage:</b> run the {@code main} method. The image size and the number of iterations can be modified
+ * in the constants of this class.</p>
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public final class TiledImageBenchmark {
+    /**
+     * Size of the image to read. Can be modified freely.
+     */
+    private static final int WIDTH = 8192, HEIGHT = 8192, TILE_SIZE = 256;
+
+    /**
+     * Number of reads for each parallelism level. Can be modified freely.
+     */
+    private static final int NUM_ITERATIONS = 10;
+
+    /**
+     * Do not allow instantiation of this class.
+     */
+    private TiledImageBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark and prints the time result to the standard output.
+     *
+     * @param  args  ignored.
+     * @throws Exception if an error occurred while writing or reading the test file.
+     */
+    public static void main(String[] args) throws Exception {
+        final Path file = Files.createTempFile("benchmark", ".tiff");
+        try {
+            Files.write(file, TiledGridCoverageTest.createTIFF(WIDTH, HEIGHT, TILE_SIZE, true, 0));
+            final int n = Runtime.getRuntime().availableProcessors();
+            for (final int parallelism : new int[] {1, 4, n}) {
+                final Statistics throughput = new Statistics("Megapixels per second with " + parallelism + " threads");
+                for (int i=0; i<NUM_ITERATIONS; i++) {
+                    final long start = System.nanoTime();
+                    final Raster data = read(file, parallelism);
+                    final long time = System.nanoTime() - start;
+                    if (data.getWidth() != WIDTH || data.getHeight() != HEIGHT) {
+                        throw new AssertionError("Unexpected image size.");
+                    }
+                    throughput.accept(((double) WIDTH * HEIGHT) / time * 1000);
+                    System.gc();
+                }
+                System.out.println(throughput);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Opens a new data store on the given file and reads all pixel values.
+     * A new data store is created for each read in order to start with an empty tile cache.
+     */
+    private static Raster read(final Path file, final int parallelism) throws Exception {
+        final StorageConnector connector = new StorageConnector(file);
+        connector.setOption(DataOptionKey.PARALLELISM, parallelism);
+        try (GeoTiffStore store = new GeoTiffStore(null, connector)) {
+            return store.components().get(0).read(null).render(null).getData();
+        }
+    }
+}
@@ -32,8 +32,11 @@ import org.junit.BeforeClass;
 @Suite.SuiteClasses({
     org.apache.sis.storage.geotiff.TypeTest.class,
     org.apache.sis.storage.geotiff.CompressionTest.class,
+    org.apache.sis.storage.geotiff.PredictorTest.class,
+    org.apache.sis.storage.geotiff.DecompressorTest.class,
     org.apache.sis.storage.geotiff.GeoKeysTest.class,
-    org.apache.sis.storage.geotiff.CRSBuilderTest.class
+    org.apache.sis.storage.geotiff.CRSBuilderTest.class,
+    org.apache.sis.storage.geotiff.TiledGridCoverageTest.class
 })
 public final strictfp class GeoTiffTestSuite extends TestSuite {
     /**
@@ -0,0 +1,497 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.internal.netcdf;
+
+import java.util.Map;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.FloatBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.CharBuffer;
+import org.apache.sis.coverage.grid.GridExtent;
+import org.apache.sis.storage.DataStoreException;
+import org.apache.sis.internal.jdk9.JDK9;
+import org.apache.sis.util.ArgumentChecks;
+import org.apache.sis.util.Numbers;
+import org.apache.sis.util.resources.Errors;
+
+
+/**
+ * Cache of decoded hyperslab chunks, shared by all {@link RasterResource} instances of the same netCDF file.
+ * Requested areas are decomposed in chunks aligned on a grid, so that overlapping requests (for example
+ * a map panned over the same region) read from the file only the chunks not already in memory.
+ * The chunk shape follows the storage layout of the variable: if the variable is stored in chunks
+ * (netCDF 4), the cache uses the same chunks. Otherwise the values are stored contiguously in row-major order
+ * and the cache uses strips of complete rows, which are read with few seeks, of about {@value #CHUNK_BYTES} bytes.
+ * The cache is bounded by the total number of bytes in the chunks, with least recently used chunks
+ * discarded first. Requests larger than the cache capacity are read directly in the returned buffer
+ * without going through the cache, since their chunks would evict all other chunks.
+ *
+ * <p>Chunks are aligned on the lattice of cells actually read: when the request uses subsampling,
+ * a chunk contains the subsampled values only. Consequently requests with different subsamplings
+ * or different phases (lower coordinate modulo subsampling) do not share chunks.</p>
+ *
+ * <p>This class is thread-safe: accesses to the cached chunks are synchronized on this cache.
+ * Chunks missing from the cache are read by {@link Variable#read(GridExtent, int[])} without holding
+ * any lock, so {@link #read read(…)} can be invoked without the data store lock only if
+ * {@link Decoder#canReadConcurrently()} returns {@code true}. Otherwise callers shall hold that lock.
+ * If two threads miss the same chunk at the same time, that chunk is read twice and the last value
+ * replaces the first one in the cache.</p>
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+public final class ChunkCache {
+    /**
+     * Default maximal number of bytes to keep in the cache.
+     */
+    static final long DEFAULT_CAPACITY = 64L * 1024 * 1024;
+
+    /**
+     * Desired number of bytes in a chunk of a variable stored contiguously.
+     * Strips of rows are sized for containing approximately this amount of bytes.
+     */
+    static final int CHUNK_BYTES = 64 * 1024;
+
+    /**
+     * Key of a chunk in the cache. The coordinates are in "natural" order (reverse of netCDF order).
+     */
+    private static final class Key {
+        /** The variable from which the chunk has been read. */
+        private final Variable variable;
+
+        /** Subsampling, phase (lower coordinate modulo subsampling) and chunk index in each dimension. */
+        private final long[] coordinates;
+
+        /** Creates a new key for the given variable and coordinates. */
+        Key(final Variable variable, final long[] coordinates) {
+            this.variable    = variable;
+            this.coordinates = coordinates;
+        }
+
+        /** Returns a hash code value for this key. */
+        @Override public int hashCode() {
+            return System.identityHashCode(variable) + 31 * Arrays.hashCode(coordinates);
+        }
+
+        /** Compares this key with the given object for equality. */
+        @Override public boolean equals(final Object other) {
+            if (other instanceof Key) {
+                final Key that = (Key) other;
+                return variable == that.variable && Arrays.equals(coordinates, that.coordinates);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The chunks, in least recently used order. Read and write accesses shall be synchronized on {@code this}.
+     */
+    private final Map<Key,Buffer> chunks;
+
+    /**
+     * Maximal number of bytes to keep in the cache.
+     */
+    private final long capacity;
+
+    /**
+     * Number of bytes in all chunks currently in the cache.
+     */
+    private long size;
+
+    /**
+     * Number of chunks found in the cache, read from the file, or discarded for keeping the cache size
+     * below the capacity.
+     */
+    private long hitCount, missCount, evictionCount;
+
+    /**
+     * Creates a new cache with the given capacity.
+     *
+     * @param  capacity  maximal number of bytes to keep in the cache.
+     */
+    public ChunkCache(final long capacity) {
+        ArgumentChecks.ensurePositive("capacity", capacity);
+        this.capacity = capacity;
+        chunks = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Reads a subsampled sub-area of the given variable, using cached chunks when possible.
+     * The arguments and the returned buffer are as documented in {@link Variable#read(GridExtent, int[])},
+     * except that the buffer is never shared with the cache.
+     *
+     * @param  variable       the variable to read.
+     * @param  area           indices of cell values to read along each dimension, in "natural" order.
+     * @param  subsampling    subsampling along each dimension. 1 means no subsampling.
+     * @param  bandDimension  the dimension providing values for different bands, or -1 if none.
+     * @return the data in a buffer of a Java primitive type.
+     * @throws IOException if an error occurred while reading the data.
+     * @throws DataStoreException if a logical error occurred.
+     * @throws ArithmeticException if the size of the region to read exceeds {@link Integer#MAX_VALUE}.
+     */
+    public Buffer read(final Variable variable, final GridExtent area, final int[] subsampling, final int bandDimension)
+            throws IOException, DataStoreException
+    {
+        final int dimension = area.getDimension();
+        final long[] phase      = new long[dimension];      // Lower coordinate modulo subsampling.
+        final long[] lower      = new long[dimension];      // Index of first requested cell in the lattice.
+        final int [] count      = new int [dimension];      // Number of requested cells.
+        final long[] latticeMax = new long[dimension];      // Index of last cell in the lattice.
+        final long[] firstChunk = new long[dimension];
+        final long[] lastChunk  = new long[dimension];
+        int length = 1;
+        for (int i=0; i<dimension; i++) {
+            final long s = subsampling[i];
+            final long low = area.getLow(i);
+            phase[i]      = low % s;
+            lower[i]      = low / s;
+            count[i]      = Math.toIntExact((area.getHigh(i) - low) / s + 1);
+            latticeMax[i] = (variable.getGridDimensions().get(dimension - 1 - i).length() - 1 - phase[i]) / s;
+        }
+        final long[] chunkSize = chunkSize(variable, subsampling, latticeMax, bandDimension);
+        for (int i=0; i<dimension; i++) {
+            firstChunk[i] = lower[i] / chunkSize[i];
+            lastChunk[i]  = (lower[i] + count[i] - 1) / chunkSize[i];
+            length = Math.multiplyExact(length, count[i]);
+        }
+        /*
+         * If the request is larger than the cache, reading it chunk by chunk would discard all cached chunks
+         * and copy each chunk from a temporary array. Read all values directly in the target buffer instead.
+         */
+        final DataType type = variable.getDataType();
+        if ((long) length * type.size() > capacity) {
+            final Buffer target = allocate(type, length);
+            if (target != null) {
+                variable.read(area, subsampling, target);
+                target.clear();
+                return target;
+            }
+        }
+        /*
+         * Iterate over all chunks intersecting the requested area. For each chunk,
+         * copy the intersection in the target buffer one row at a time.
+         */
+        Buffer target = null;
+        final long[] chunk = firstChunk.clone();
+        do {
+            final long[] coordinates = new long[dimension * 3];
+            for (int i=0; i<dimension; i++) {
+                coordinates[i]                 = subsampling[i];
+                coordinates[i +     dimension] = phase[i];
+                coordinates[i + 2 * dimension] = chunk[i];
+            }
+            final Key key = new Key(variable, coordinates);
+            Buffer values = get(key);
+            final long[] chunkLow  = new long[dimension];
+            final int [] chunkSpan = new int [dimension];
+            for (int i=0; i<dimension; i++) {
+                chunkLow [i] = chunk[i] * chunkSize[i];
+                chunkSpan[i] = (int) (Math.min(chunkLow[i] + chunkSize[i] - 1, latticeMax[i]) - chunkLow[i] + 1);
+            }
+            if (values == null) {
+                final long[] low  = new long[dimension];
+                final long[] high = new long[dimension];
+                for (int i=0; i<dimension; i++) {
+                    low [i] = phase[i] + chunkLow[i] * subsampling[i];
+                    high[i] = phase[i] + (chunkLow[i] + chunkSpan[i] - 1) * subsampling[i];
+                }
+                // Optional.orElseThrow() below should never fail since Variable.read(…) wraps primitive array.
+                values = variable.read(new GridExtent(null, low, high, true), subsampling).buffer().get();
+                put(key, values);
+            }
+            if (target == null) {
+                target = allocate(values, length);
+            }
+            /*
+             * Intersection of the chunk with the requested area, in lattice coordinates relative to the chunk
+             * (for the source) and relative to the requested area (for the target). Then copy row by row.
+             */
+            final int[] start = new int[dimension];
+            final int[] end   = new int[dimension];
+            for (int i=0; i<dimension; i++) {
+                start[i] = (int) (Math.max(lower[i], chunkLow[i]) - chunkLow[i]);
+                end  [i] = (int) (Math.min(lower[i] + count[i], chunkLow[i] + chunkSpan[i]) - chunkLow[i]);
+            }
+            final int rowLength = end[0] - start[0];
+            final int base = values.position();
+            final int[] index = start.clone();
+            do {
+                int srcPos = 0, dstPos = 0, srcStride = 1, dstStride = 1;
+                for (int i=0; i<dimension; i++) {
+                    srcPos += index[i] * srcStride;
+                    dstPos += (int) (chunkLow[i] + index[i] - lower[i]) * dstStride;
+                    srcStride *= chunkSpan[i];
+                    dstStride *= count[i];
+                }
+                copy(values, base + srcPos, target, dstPos, rowLength);
+            } while (increment(index, start, end, 1));
+        } while (increment(chunk, firstChunk, lastChunk));
+        target.clear();
+        return target;
+    }
+
+    /**
+     * Returns the number of lattice cells (cells after subsampling) along each dimension of a chunk.
+     * If the variable is stored in chunks, then the cache chunks contain the cells of the storage chunks.
+     * Otherwise the variable is stored contiguously in row-major order (the first dimension varies fastest),
+     * and the cache chunks are strips of complete rows containing about {@value #CHUNK_BYTES} bytes.
+     * The band dimension, if any, is never divided.
+     *
+     * @param  variable       the variable to read.
+     * @param  subsampling    subsampling along each dimension.
+     * @param  latticeMax     index of the last cell in the lattice, for each dimension.
+     * @param  bandDimension  the dimension providing values for different bands, or -1 if none.
+     */
+    private static long[] chunkSize(final Variable variable, final int[] subsampling, final long[] latticeMax,
+                                    final int bandDimension)
+    {
+        final int dimension = latticeMax.length;
+        final long[] chunkSize = new long[dimension];
+        final int[] storage = variable.getChunkSizes();
+        if (storage != null) {
+            for (int i=0; i<dimension; i++) {
+                chunkSize[i] = (i == bandDimension) ? latticeMax[i] + 1
+                             : Math.max(1, storage[i] / subsampling[i]);
+            }
+            return chunkSize;
+        }
+        /*
+         * Contiguous storage: complete rows in the first dimensions, as much as the budget allows.
+         * The budget is divided by the number of bands since all bands are read in each chunk.
+         */
+        long budget = CHUNK_BYTES / Math.max(1, variable.getDataType().size());
+        if (bandDimension >= 0) {
+            budget /= latticeMax[bandDimension] + 1;
+        }
+        for (int i=0; i<dimension; i++) {
+            if (i == bandDimension) {
+                chunkSize[i] = latticeMax[i] + 1;
+            } else {
+                final long n = latticeMax[i] + 1;
+                chunkSize[i] = Math.max(1, Math.min(n, budget));
+                budget /= n;
+            }
+        }
+        return chunkSize;
+    }
+
+    /**
+     * Increments the given index for iterating over all cells from {@code start} inclusive to {@code end} exclusive,
+     * starting at dimension {@code from}. Returns {@code false} when the iteration is finished.
+     */
+    private static boolean increment(final int[] index, final int[] start, final int[] end, final int from) {
+        for (int i=from; i<index.length; i++) {
+            if (++index[i] < end[i]) return true;
+            index[i] = start[i];
+        }
+        return false;
+    }
+
+    /**
+     * Increments the given chunk index for iterating over all chunks from {@code first} to {@code last} inclusive.
+     * Returns {@code false} when the iteration is finished.
+     */
+    private static boolean increment(final long[] chunk, final long[] first, final long[] last) {
+        for (int i=0; i<chunk.length; i++) {
+            if (++chunk[i] <= last[i]) return true;
+            chunk[i] = first[i];
+        }
+        return false;
+    }
+
+    /**
+     * Allocates a new heap buffer of the same type than the given buffer.
+     */
+    private static Buffer allocate(final Buffer template, final int length) {
+        if (template instanceof DoubleBuffer) return DoubleBuffer.allocate(length);
+        if (template instanceof FloatBuffer)  return FloatBuffer .allocate(length);
+        if (template instanceof LongBuffer)   return LongBuffer  .allocate(length);
+        if (template instanceof IntBuffer)    return IntBuffer   .allocate(length);
+        if (template instanceof ShortBuffer)  return ShortBuffer .allocate(length);
+        if (template instanceof CharBuffer)   return CharBuffer  .allocate(length);
+        if (template instanceof ByteBuffer)   return ByteBuffer  .allocate(length);
+        throw new IllegalArgumentException(Errors.format(Errors.Keys.UnsupportedType_1, template.getClass()));
+    }
+
+    /**
+     * Allocates a new heap buffer for values of the given type,
+     * or returns {@code null} if the type is not a primitive type.
+     */
+    private static Buffer allocate(final DataType type, final int length) {
+        switch (type.number) {
+            case Numbers.DOUBLE:    return DoubleBuffer.allocate(length);
+            case Numbers.FLOAT:     return FloatBuffer .allocate(length);
+            case Numbers.LONG:      return LongBuffer  .allocate(length);
+            case Numbers.INTEGER:   return IntBuffer   .allocate(length);
+            case Numbers.SHORT:     return ShortBuffer .allocate(length);
+            case Numbers.CHARACTER: return CharBuffer  .allocate(length);
+            case Numbers.BYTE:      return ByteBuffer  .allocate(length);
+            default:                return null;
+        }
+    }
+
+    /**
+     * Copies {@code length} values from the source buffer to the target buffer, which shall be of the same type.
+     * The source buffer is shared with the cache, so only a duplicate of it is modified.
+     */
+    private static void copy(Buffer source, final int srcPos, final Buffer target, final int dstPos, final int length) {
+        source = JDK9.duplicate(source);
+        source.limit(srcPos + length).position(srcPos);
+        target.limit(dstPos + length).position(dstPos);
+        transfer(source, target);
+    }
+
+    /**
+     * Copies the remaining values of the source buffer to the target buffer, which shall be of the same type.
+     * The positions of both buffers are advanced by the number of values copied.
+     *
+     * @param  source  the buffer from which to copy the values.
+     * @param  target  the buffer where to copy the values.
+     */
+    static void transfer(final Buffer source, final Buffer target) {
+        if      (target instanceof DoubleBuffer) ((DoubleBuffer) target).put((DoubleBuffer) source);
+        else if (target instanceof FloatBuffer)  ((FloatBuffer)  target).put((FloatBuffer)  source);
+        else if (target instanceof LongBuffer)   ((LongBuffer)   target).put((LongBuffer)   source);
+        else if (target instanceof IntBuffer)    ((IntBuffer)    target).put((IntBuffer)    source);
+        else if (target instanceof ShortBuffer)  ((ShortBuffer)  target).put((ShortBuffer)  source);
+        else if (target instanceof CharBuffer)   ((CharBuffer)   target).put((CharBuffer)   source);
+        else                                     ((ByteBuffer)   target).put((ByteBuffer)   source);
+    }
+
+    /**
+     * Returns the number of bytes used by the given buffer.
+     */
+    private static long cost(final Buffer values) {
+        final int bytes;
+        if      (values instanceof DoubleBuffer || values instanceof LongBuffer) bytes = Double.BYTES;
+        else if (values instanceof FloatBuffer  || values instanceof IntBuffer)  bytes = Float.BYTES;
+        else if (values instanceof ShortBuffer  || values instanceof CharBuffer) bytes = Short.BYTES;
+        else bytes = Byte.BYTES;
+        return (long) values.capacity() * bytes;
+    }
+
+    /**
+     * Returns the chunk for the given key, or {@code null} if not in the cache.
+     */
+    private synchronized Buffer get(final Key key) {
+        final Buffer values = chunks.get(key);
+        if (values != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return values;
+    }
+
+    /**
+     * Adds the given chunk in the cache, then discards the least recently used chunks if the cache is full.
+     * Chunks larger than the cache capacity are not cached.
+     */
+    private synchronized void put(final Key key, final Buffer values) {
+        final long cost = cost(values);
+        if (cost > capacity) {
+            return;
+        }
+        final Buffer old = chunks.put(key, values);
+        if (old != null) {
+            size -= cost(old);
+        }
+        size += cost;
+        final Iterator<Buffer> it = chunks.values().iterator();
+        while (size > capacity && it.hasNext()) {
+            size -= cost(it.next());
+            it.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Discards all chunks read from the given variable, or all chunks if the given variable is null.
+     * Each discarded chunk is counted as an eviction.
+     *
+     * @param  variable  the variable for which to discard chunks, or {@code null} for all variables.
+     */
+    public synchronized void clear(final Variable variable) {
+        final Iterator<Map.Entry<Key,Buffer>> it = chunks.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<Key,Buffer> entry = it.next();
+            if (variable == null || entry.getKey().variable == variable) {
+                size -= cost(entry.getValue());
+                it.remove();
+                evictionCount++;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes in all chunks currently in the cache.
+     *
+     * @return number of bytes currently cached.
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of chunks which have been found in the cache.
+     *
+     * @return number of cache hits since this cache creation.
+     */
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of chunks which have been read from the file because they were not in the cache.
+     *
+     * @return number of cache misses since this cache creation.
+     */
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of chunks discarded, either for keeping the cache size below its capacity
+     * or by explicit calls to {@link #clear(Variable)}.
+     *
+     * @return number of evictions since this cache creation.
+     */
+    public synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Returns a string representation of the cache statistics for debugging purpose.
+     *
+     * @return cache statistics.
+     */
+    @Override
+    public synchronized String toString() {
+        return getClass().getSimpleName() + "[size=" + size + " / " + capacity + " bytes, chunks=" + chunks.size()
+                + ", hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + ']';
+    }
+}
@@ -25,6 +25,7 @@ import java.util.Objects;
 import java.util.Date;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.io.Closeable;
 import java.io.IOException;
@@ -57,7 +58,7 @@ import org.apache.sis.util.iso.DefaultNameFactory;
  * Synchronizations are caller's responsibility.</p>
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   0.3
  * @module
  */
@@ -135,6 +136,12 @@ public abstract class Decoder extends ReferencingFactoryContainer implements Clo
      */
     final Map<GridCacheKey,MathTransform> localizationGrids;
 
+    /**
+     * Cache of chunks of sample values read by {@link RasterResource}. This cache is shared by all resources
+     * of the same netCDF file, so that overlapping or repeated requests are served from memory.
+     */
+    public final ChunkCache chunks;
+
     /**
      * Where to send the warnings.
      */
@@ -160,6 +167,7 @@ public abstract class Decoder extends ReferencingFactoryContainer implements Clo
         this.datumCache   = new Datum[CRSBuilder.DATUM_CACHE_SIZE];
         this.gridMapping  = new HashMap<>();
         localizationGrids = new HashMap<>();
+        chunks            = new ChunkCache(ChunkCache.DEFAULT_CAPACITY);
     }
 
     /**
@@ -366,6 +374,17 @@ public abstract class Decoder extends ReferencingFactoryContainer implements Clo
      */
     public abstract DiscreteSampling[] getDiscreteSampling() throws IOException, DataStoreException;
 
+    /**
+     * Returns whether {@link Variable#read(org.apache.sis.coverage.grid.GridExtent, int[])} can be invoked
+     * concurrently by many threads without synchronization on the data store lock. Other methods still need
+     * to be invoked while holding the lock. The default implementation returns {@code false}.
+     *
+     * @return whether sub-areas of variables can be read concurrently.
+     */
+    public boolean canReadConcurrently() {
+        return false;
+    }
+
     /**
      * Returns all grid geometries (related to coordinate systems) found in the netCDF file.
      * This method may return a direct reference to an internal array - do not modify.
@@ -449,4 +468,27 @@ public abstract class Decoder extends ReferencingFactoryContainer implements Clo
         record.setLoggerName(Modules.NETCDF);
         Logging.log(caller, method, record);
     }
+
+    /**
+     * Logs the hit, miss and eviction counts of the {@linkplain #chunks chunk cache}, if at least one chunk has
+     * been requested. This method is invoked when the netCDF file is closed for helping users to tune their access
+     * patterns. Like {@link #performance performance(…)}, this method does not use the listeners.
+     *
+     * @param  caller  the class to report as the source.
+     * @param  method  the method to report as the source.
+     */
+    public final void logChunkStatistics(final Class<?> caller, final String method) {
+        final long hits, misses, evictions;
+        synchronized (chunks) {
+            hits      = chunks.hitCount();
+            misses    = chunks.missCount();
+            evictions = chunks.evictionCount();
+        }
+        if (hits != 0 || misses != 0) {
+            final LogRecord record = Resources.forLocale(listeners.getLocale()).getLogRecord(Level.FINE,
+                    Resources.Keys.ChunkCacheStatistics_4, getFilename(), hits, misses, evictions);
+            record.setLoggerName(Modules.NETCDF);
+            Logging.log(caller, method, record);
+        }
+    }
 }
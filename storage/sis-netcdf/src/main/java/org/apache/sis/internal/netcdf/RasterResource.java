@@ -163,6 +163,17 @@ public final class RasterResource extends AbstractGridResource implements Resour
      */
     private final Object lock;
 
+    /**
+     * Cache of chunks of sample values, shared by all resources of the same netCDF file.
+     */
+    private final ChunkCache chunks;
+
+    /**
+     * The implementation used for decoding the netCDF file.
+     * Used for determining whether sample values can be read without holding the lock.
+     */
+    private final Decoder decoder;
+
     /**
      * Creates a new resource. All variables in the {@code data} list shall have the same domain and the same grid geometry.
      *
@@ -184,6 +195,8 @@ public final class RasterResource extends AbstractGridResource implements Resour
         location      = decoder.location;
         gridGeometry  = grid;
         bandDimension = bandDim;
+        chunks        = decoder.chunks;
+        this.decoder  = decoder;
         this.lock     = lock;
         assert data.length == (bandDimension >= 0 ? 1 : ranges.length);
     }
@@ -609,7 +622,10 @@ public final class RasterResource extends AbstractGridResource implements Resour
              * seeking backward. In the (uncommon) case where bands are one of the variable dimension instead
              * than different variables, the reading of the whole variable occurs during the first iteration.
              */
-            Buffer[] sampleValues = new Buffer[numBuffers];
+            Buffer[]   sampleValues = new Buffer  [numBuffers];
+            Variable[] variables    = new Variable[numBuffers];         // In the order they appear in the file.
+            int[]      targets      = new int     [numBuffers];         // Index in `sampleValues` of each variable.
+            final boolean concurrent = decoder.canReadConcurrently();
             synchronized (lock) {
                 for (int i=0; i<bands.length; i++) {
                     int indexInResource = rangeIndices.getSourceIndex(i);     // In strictly increasing order.
@@ -624,13 +640,22 @@ public final class RasterResource extends AbstractGridResource implements Resour
                         bandOffsets[indexInRaster] = i;
                         indexInRaster = 0;                  // Pixels interleaved in one bank: sampleValues.length = 1.
                     }
-                    if (i < numBuffers) try {
-                        // Optional.orElseThrow() below should never fail since Variable.read(…) wraps primitive array.
-                        sampleValues[indexInRaster] = variable.read(areaOfInterest, subsamplings).buffer().get();
-                    } catch (ArithmeticException e) {
-                        throw variable.canNotComputePosition(e);
+                    if (i < numBuffers) {
+                        variables[i] = variable;
+                        targets  [i] = indexInRaster;
                     }
                 }
+                if (!concurrent) {
+                    read(variables, targets, areaOfInterest, subsamplings, sampleValues);
+                }
+            }
+            /*
+             * If the decoder supports concurrent read operations, the sample values are read without holding
+             * the lock. This allow other threads to read other variables or other slices of the same variable
+             * in parallel with this thread.
+             */
+            if (concurrent) {
+                read(variables, targets, areaOfInterest, subsamplings, sampleValues);
             }
             /*
              * The following block is executed only if all bands are in a single variable, and the bands dimension is
@@ -674,6 +699,29 @@ public final class RasterResource extends AbstractGridResource implements Resour
                 rangeIndices.getPixelStride(), bandOffsets, String.valueOf(identifier));
     }
 
+    /**
+     * Reads the sample values of the given variables in the given area. This method shall be invoked
+     * while holding the lock, unless {@link Decoder#canReadConcurrently()} returned {@code true}.
+     *
+     * @param  variables     the variables to read, in the order they appear in the file.
+     * @param  targets       for each variable, the index in {@code sampleValues} where to store the values.
+     * @param  area          indices of cell values to read along each dimension, in "natural" order.
+     * @param  subsampling   subsampling along each dimension. 1 means no subsampling.
+     * @param  sampleValues  where to store the sample values.
+     */
+    private void read(final Variable[] variables, final int[] targets, final GridExtent area, final int[] subsampling,
+            final Buffer[] sampleValues) throws IOException, DataStoreException
+    {
+        for (int i=0; i<variables.length; i++) {
+            final Variable variable = variables[i];
+            try {
+                sampleValues[targets[i]] = chunks.read(variable, area, subsampling, bandDimension);
+            } catch (ArithmeticException e) {
+                throw variable.canNotComputePosition(e);
+            }
+        }
+    }
+
     /**
      * Returns the error message for a file that can not be read.
      *
@@ -107,6 +107,11 @@ public final class Resources extends IndexedResourceBundle {
          */
         public static final short CanNotUseUCAR = 4;
 
+        /**
+         * Chunk cache of “{0}”: {1} hits, {2} misses and {3} evictions.
+         */
+        public static final short ChunkCacheStatistics_4 = 23;
+
         /**
          * Computed localization grid for “{0}” in {1} seconds.
          */
@@ -25,6 +25,9 @@ import java.util.ArrayList;
 import java.util.Locale;
 import java.util.regex.Pattern;
 import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.time.Instant;
 import javax.measure.Unit;
 import org.opengis.referencing.operation.Matrix;
@@ -785,6 +788,33 @@ public abstract class Variable extends Node {
      */
     public abstract List<Dimension> getGridDimensions();
 
+    /**
+     * Returns the number of cells along each dimension of the chunks in which the values of this variable are stored,
+     * or {@code null} if the values are stored contiguously (as in netCDF 3 files). Values are in "natural" order
+     * (reverse of netCDF order). This is used by {@link ChunkCache} for aligning its chunks on the storage layout.
+     *
+     * <p>The default implementation uses the {@code "_ChunkSizes"} attribute, which is provided by the UCAR library
+     * for variables stored in chunks.</p>
+     *
+     * @return number of cells in a storage chunk along each dimension, or {@code null} if the storage is contiguous.
+     */
+    public int[] getChunkSizes() {
+        final Vector sizes = getAttributeAsVector("_ChunkSizes");
+        if (sizes != null) {
+            final int n = sizes.size();
+            if (n == getGridDimensions().size()) {
+                final int[] chunks = new int[n];
+                for (int i=0; i<n; i++) {
+                    final int size = sizes.intValue((n - 1) - i);
+                    if (size <= 0) return null;
+                    chunks[i] = size;
+                }
+                return chunks;
+            }
+        }
+        return null;
+    }
+
     /**
      * Returns the range of valid values, or {@code null} if unknown. This is a shortcut for
      * {@link Convention#validRange(Variable)} with a fallback on {@link #getRangeFallback()}.
@@ -944,6 +974,26 @@ public abstract class Variable extends Node {
      */
     public abstract Vector read(GridExtent area, int[] subsampling) throws IOException, DataStoreException;
 
+    /**
+     * Reads a subsampled sub-area of the variable and stores the values in the given buffer,
+     * starting at the buffer position. Arguments and values are as documented in
+     * {@link #read(GridExtent, int[])}. On return, the buffer position is advanced by the number of values read.
+     *
+     * <p>The default implementation reads the values with {@link #read(GridExtent, int[])} and copies them.
+     * Subclasses should override this method if they can store the values directly in the given buffer.</p>
+     *
+     * @param  area         indices of cell values to read along each dimension, in "natural" order.
+     * @param  subsampling  subsampling along each dimension. 1 means no subsampling.
+     * @param  target       where to store the values. Shall be a buffer of the type of values in this variable.
+     * @throws IOException if an error occurred while reading the data.
+     * @throws DataStoreException if a logical error occurred.
+     * @throws ArithmeticException if the size of the region to read exceeds {@link Integer#MAX_VALUE}, or other overflow occurs.
+     */
+    public void read(final GridExtent area, final int[] subsampling, final Buffer target) throws IOException, DataStoreException {
+        // Optional.orElseThrow() below should never fail since Variable.read(…) wraps primitive array.
+        ChunkCache.transfer(read(area, subsampling).buffer().get(), target);
+    }
+
     /**
      * Wraps the given data in a {@link Vector} with the assumption that accuracy in base 10 matters.
      * This method is suitable for coordinate axis variables, but should not be used for the main data.
@@ -982,6 +1032,40 @@ public abstract class Variable extends Node {
         }
     }
 
+    /**
+     * Same as {@link #replaceNaN(Object)}, but for the values of the given buffer
+     * from index {@code start} inclusive to {@code end} exclusive.
+     *
+     * @param  values  the buffer of values where to replace fill values and missing values.
+     * @param  start   index of the first value to check.
+     * @param  end     index after the last value to check.
+     */
+    protected final void replaceNaN(final Buffer values, final int start, final int end) {
+        if (hasRealValues()) {
+            int ordinal = 0;
+            for (final Number value : getNodataValues().keySet()) {
+                final float pad = MathFunctions.toNanFloat(ordinal++);      // Must be consistent with RasterResource.createSampleDimension(…).
+                if (values instanceof FloatBuffer) {
+                    final FloatBuffer data = (FloatBuffer) values;
+                    final int bits = Float.floatToRawIntBits(value.floatValue());
+                    for (int i=start; i<end; i++) {
+                        if (Float.floatToRawIntBits(data.get(i)) == bits) {
+                            data.put(i, pad);
+                        }
+                    }
+                } else if (values instanceof DoubleBuffer) {
+                    final DoubleBuffer data = (DoubleBuffer) values;
+                    final long bits = Double.doubleToRawLongBits(value.doubleValue());
+                    for (int i=start; i<end; i++) {
+                        if (Double.doubleToRawLongBits(data.get(i)) == bits) {
+                            data.put(i, pad);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Returns a coordinate for this two-dimensional grid coordinate axis. This is (indirectly) a callback method
      * for {@link Grid#getAxes(Decoder)}. The (<var>i</var>, <var>j</var>) indices are grid indices <em>before</em>
@@ -31,6 +31,8 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.regex.Matcher;
 import java.time.DateTimeException;
 import java.io.IOException;
@@ -50,6 +52,7 @@ import org.apache.sis.internal.netcdf.Variable;
 import org.apache.sis.internal.netcdf.NamedElement;
 import org.apache.sis.internal.netcdf.DiscreteSampling;
 import org.apache.sis.internal.netcdf.Resources;
+import org.apache.sis.coverage.grid.GridExtent;
 import org.apache.sis.internal.storage.io.ChannelDataInput;
 import org.apache.sis.internal.util.Constants;
 import org.apache.sis.internal.util.CollectionsExt;
@@ -73,7 +76,7 @@ import ucar.nc2.constants.CF;
  *
  * @author  Johann Sorel (Geomatys)
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  *
  * @see <a href="http://portal.opengeospatial.org/files/?artifact_id=43734">NetCDF Classic and 64-bit Offset Format (1.0)</a>
  *
@@ -142,6 +145,23 @@ public final class ChannelDecoder extends Decoder {
      */
     private final ChannelDataInput input;
 
+    /**
+     * Independent views of {@link #input} which are not currently used. Each view has its own buffer and position,
+     * which allow different threads to read variable data concurrently. This queue is empty if {@link #input} can
+     * not provide {@linkplain ChannelDataInput#independentView() independent views}.
+     *
+     * @see #acquireInput()
+     * @see #releaseInput(ChannelDataInput)
+     */
+    private final Queue<ChannelDataInput> idleInputs;
+
+    /**
+     * Whether {@link #input} can provide independent views for concurrent read operations.
+     *
+     * @see #canReadConcurrently()
+     */
+    private final boolean concurrent;
+
     /**
      * {@code false} if the file is the classic format, or
      * {@code true} if it is the 64-bits offset format.
@@ -232,6 +252,12 @@ public final class ChannelDecoder extends Decoder {
     {
         super(geomlib, listeners);
         this.input = input;
+        idleInputs = new ConcurrentLinkedQueue<>();
+        final ChannelDataInput view = input.independentView();
+        concurrent = (view != null);
+        if (concurrent) {
+            idleInputs.add(view);
+        }
         this.encoding = (encoding != null) ? encoding : StandardCharsets.UTF_8;
         /*
          * Check the magic number, which is expected to be exactly 3 bytes forming the "CDF" string.
@@ -1025,6 +1051,39 @@ nextVar:    for (final VariableInfo variable : variables) {
         return gridGeometries;
     }
 
+    /**
+     * Returns whether variable data can be read concurrently by many threads.
+     * This is possible if the channel supports positional read operations or is memory-mapped.
+     *
+     * @return whether {@link Variable#read(GridExtent, int[])} can be invoked concurrently.
+     */
+    @Override
+    public boolean canReadConcurrently() {
+        return concurrent;
+    }
+
+    /**
+     * Returns an input with its own buffer and position for reading variable data,
+     * or {@code null} if concurrent read operations are not supported.
+     * The input shall be given back to {@link #releaseInput(ChannelDataInput)} after usage.
+     */
+    final ChannelDataInput acquireInput() throws IOException {
+        if (!concurrent) {
+            return null;
+        }
+        final ChannelDataInput view = idleInputs.poll();
+        return (view != null) ? view : input.independentView();
+    }
+
+    /**
+     * Makes the given input available for reuse by another read operation.
+     *
+     * @param  view  an input obtained by {@link #acquireInput()}.
+     */
+    final void releaseInput(final ChannelDataInput view) {
+        idleInputs.add(view);
+    }
+
     /**
      * Closes the channel.
      *
@@ -1032,6 +1091,7 @@ nextVar:    for (final VariableInfo variable : variables) {
      */
     @Override
     public void close() throws IOException {
+        idleInputs.clear();
         input.channel.close();
     }
 
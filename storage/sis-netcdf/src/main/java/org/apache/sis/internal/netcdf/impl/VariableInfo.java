@@ -25,6 +25,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.regex.Matcher;
 import java.io.IOException;
+import java.nio.Buffer;
 import javax.measure.Unit;
 import ucar.nc2.constants.CF;
 import ucar.nc2.constants.CDM;
@@ -59,7 +60,7 @@ import org.apache.sis.math.Vector;
  *
  * @author  Johann Sorel (Geomatys)
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   0.3
  * @module
  */
@@ -649,6 +650,58 @@ final class VariableInfo extends Variable implements Comparable<VariableInfo> {
      */
     @Override
     public Vector read(final GridExtent area, final int[] subsampling) throws IOException, DataStoreException {
+        final Region region = region(area, subsampling);
+        /*
+         * If the decoder supports concurrent reads, use an input with its own buffer and position
+         * for allowing this method to be invoked by many threads without synchronization.
+         */
+        final ChannelDecoder owner = (ChannelDecoder) decoder;
+        final ChannelDataInput view = owner.acquireInput();
+        final Object array;
+        try {
+            array = (view != null) ? new HyperRectangleReader(dataType.number, view, reader.origin).read(region)
+                                   : reader.read(region);
+        } finally {
+            if (view != null) {
+                owner.releaseInput(view);
+            }
+        }
+        replaceNaN(array);
+        return Vector.create(array, dataType.isUnsigned);
+    }
+
+    /**
+     * Reads a subsampled sub-area of the variable and stores the values directly in the given buffer,
+     * without intermediate array.
+     *
+     * @param  area         indices of cell values to read along each dimension, in "natural" order.
+     * @param  subsampling  subsampling along each dimension. 1 means no subsampling.
+     * @param  target       where to store the values. Shall be a buffer of the type of values in this variable.
+     * @throws ArithmeticException if the size of the region to read exceeds {@link Integer#MAX_VALUE}, or other overflow occurs.
+     */
+    @Override
+    public void read(final GridExtent area, final int[] subsampling, final Buffer target) throws IOException, DataStoreException {
+        final Region region = region(area, subsampling);
+        final ChannelDecoder owner = (ChannelDecoder) decoder;
+        final ChannelDataInput view = owner.acquireInput();
+        final int start = target.position();
+        try {
+            ((view != null) ? new HyperRectangleReader(dataType.number, view, reader.origin) : reader).read(region, target);
+        } finally {
+            if (view != null) {
+                owner.releaseInput(view);
+            }
+        }
+        replaceNaN(target, start, target.position());
+    }
+
+    /**
+     * Returns the region to read for the given sub-area of this variable.
+     *
+     * @param  area         indices of cell values to read along each dimension, in "natural" order.
+     * @param  subsampling  subsampling along each dimension. 1 means no subsampling.
+     */
+    private Region region(final GridExtent area, final int[] subsampling) throws DataStoreException {
         if (reader == null) {
             throw new DataStoreContentException(unknownType());
         }
@@ -685,9 +738,7 @@ final class VariableInfo extends Variable implements Comparable<VariableInfo> {
         }
         final Region region = new Region(size, lower, upper, subsampling);
         applyUnlimitedDimensionStride(region);
-        final Object array = reader.read(region);
-        replaceNaN(array);
-        return Vector.create(array, dataType.isUnsigned);
+        return region;
     }
 
     /**
@@ -230,12 +230,14 @@ public class NetcdfStore extends DataStore implements Aggregate {
 
     /**
      * Closes this netCDF store and releases any underlying resources.
+     * Statistics about the cache of sample values are logged at {@link java.util.logging.Level#FINE}.
      *
      * @throws DataStoreException if an error occurred while closing the netCDF file.
      */
     @Override
     public synchronized void close() throws DataStoreException {
         metadata = null;
+        decoder.logChunkStatistics(NetcdfStore.class, "close");
         try {
             decoder.close();
         } catch (IOException e) {
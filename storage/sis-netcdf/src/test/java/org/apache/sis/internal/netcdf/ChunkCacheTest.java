@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.internal.netcdf;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutionException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.apache.sis.coverage.grid.GridExtent;
+import org.apache.sis.internal.netcdf.impl.ChannelDecoder;
+import org.apache.sis.internal.storage.AbstractResource;
+import org.apache.sis.internal.storage.io.ChannelDataInput;
+import org.apache.sis.internal.system.CommonExecutor;
+import org.apache.sis.setup.GeometryLibrary;
+import org.apache.sis.storage.DataStoreException;
+import org.apache.sis.test.DependsOnMethod;
+import org.apache.sis.test.DependsOn;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests {@link ChunkCache}.
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+@DependsOn(VariableTest.class)
+public final strictfp class ChunkCacheTest extends TestCase {
+    /**
+     * Reads the given area with the given cache and compares with a direct read of the variable.
+     */
+    private static void verifyRead(final ChunkCache cache, final Variable variable,
+            final long[] low, final long[] high, final int[] subsampling) throws IOException, DataStoreException
+    {
+        final GridExtent area = new GridExtent(null, low, high, true);
+        assertEquals(variable.read(area, subsampling).buffer().get(), cache.read(variable, area, subsampling, -1));
+    }
+
+    /**
+     * Tests reading overlapping areas, with and without subsampling, then the eviction of chunks.
+     *
+     * @throws IOException if an error occurred while reading the netCDF file.
+     * @throws DataStoreException if a logical error occurred.
+     */
+    @Test
+    public void testRead() throws IOException, DataStoreException {
+        final Variable variable = selectDataset(TestData.NETCDF_2D_GEOGRAPHIC).getVariables()[0];
+        assertEquals("SST", variable.getName());
+        assertNull("chunkSizes", variable.getChunkSizes());          // netCDF 3 variables are contiguous.
+        final ChunkCache cache = new ChunkCache(ChunkCache.DEFAULT_CAPACITY);
+        verifyRead(cache, variable, new long[] {10, 20}, new long[] {40, 50}, new int[] {1, 1});
+        assertEquals("missCount", 1, cache.missCount());
+        assertEquals("hitCount",  0, cache.hitCount());
+        verifyRead(cache, variable, new long[] {30, 30}, new long[] {60, 70}, new int[] {1, 1});
+        assertEquals("missCount", 1, cache.missCount());
+        assertEquals("hitCount",  1, cache.hitCount());
+        final long size = cache.size();
+        assertTrue(size > 0);
+        verifyRead(cache, variable, new long[] {11, 20}, new long[] {40, 50}, new int[] {2, 3});
+        assertEquals("missCount", 2, cache.missCount());
+        assertEquals("evictionCount", 0, cache.evictionCount());
+        /*
+         * A cache having room for only one chunk at full resolution
+         * shall discard that chunk when the subsampled chunk is added.
+         */
+        final ChunkCache small = new ChunkCache(size);
+        verifyRead(small, variable, new long[] {10, 20}, new long[] {40, 50}, new int[] {1, 1});
+        verifyRead(small, variable, new long[] {11, 20}, new long[] {40, 50}, new int[] {2, 3});
+        assertEquals("evictionCount", 1, small.evictionCount());
+        verifyRead(small, variable, new long[] {30, 30}, new long[] {60, 70}, new int[] {1, 1});
+        assertEquals("missCount", 3, small.missCount());
+        /*
+         * Chunks discarded by an explicit clear are evictions too.
+         */
+        final long before = cache.evictionCount();
+        cache.clear(variable);
+        assertEquals("size", 0, cache.size());
+        assertEquals("evictionCount", before + 2, cache.evictionCount());
+    }
+
+    /**
+     * Tests reading an area larger than the cache capacity. Such area shall be read directly
+     * in the returned buffer without going through the cache.
+     *
+     * @throws IOException if an error occurred while reading the netCDF file.
+     * @throws DataStoreException if a logical error occurred.
+     */
+    @Test
+    @DependsOnMethod("testRead")
+    public void testReadLargerThanCapacity() throws IOException, DataStoreException {
+        final Variable variable = selectDataset(TestData.NETCDF_2D_GEOGRAPHIC).getVariables()[0];
+        final ChunkCache cache = new ChunkCache(64);
+        verifyRead(cache, variable, new long[] {10, 20}, new long[] {40, 50}, new int[] {1, 1});
+        verifyRead(cache, variable, new long[] {11, 20}, new long[] {40, 50}, new int[] {2, 3});
+        assertEquals("missCount", 0, cache.missCount());
+        assertEquals("size",      0, cache.size());
+        /*
+         * A small area fitting in the cache still goes through the chunks.
+         */
+        verifyRead(cache, variable, new long[] {10, 20}, new long[] {12, 21}, new int[] {1, 1});
+        assertEquals("missCount", 1, cache.missCount());
+    }
+
+    /**
+     * Tests reading chunks from many threads without holding any lock, using the independent views
+     * of a file channel and of a memory-mapped file. The values read concurrently through the cache
+     * are compared with values read sequentially without cache.
+     *
+     * @throws IOException if an error occurred while reading the netCDF file.
+     * @throws DataStoreException if a logical error occurred.
+     * @throws InterruptedException if the test has been interrupted.
+     * @throws ExecutionException if a read operation failed.
+     */
+    @Test
+    @DependsOnMethod("testRead")
+    public void testConcurrentRead() throws IOException, DataStoreException, InterruptedException, ExecutionException {
+        final Path file = Files.createTempFile("testConcurrentRead", ".nc");
+        try {
+            Files.write(file, TestData.NETCDF_2D_GEOGRAPHIC.content());
+            for (int mode=0; mode<2; mode++) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    final ChannelDataInput input = (mode == 0)
+                            ? new ChannelDataInput("testConcurrentRead", channel, ByteBuffer.allocate(4096), false)
+                            : new ChannelDataInput("testConcurrentRead", channel);
+                    final Decoder decoder = new ChannelDecoder(input, null, GeometryLibrary.JAVA2D, new AbstractResource(null));
+                    assertTrue("canReadConcurrently", decoder.canReadConcurrently());
+                    final Variable variable = decoder.getVariables()[0];
+                    assertEquals("SST", variable.getName());
+                    /*
+                     * Overlapping areas, some of them subsampled, read sequentially without cache
+                     * for getting the expected values.
+                     */
+                    final List<GridExtent> areas = new ArrayList<>();
+                    final List<int[]> subsamplings = new ArrayList<>();
+                    final List<Buffer> expected = new ArrayList<>();
+                    for (int i=0; i<16; i++) {
+                        final long[] low  = {10 + 2*i, 20 + i};
+                        final long[] high = {low[0] + 25, low[1] + 30};
+                        final int[]  s    = {1 + (i & 1), 1 + (i & 2)};
+                        final GridExtent area = new GridExtent(null, low, high, true);
+                        areas.add(area);
+                        subsamplings.add(s);
+                        expected.add(variable.read(area, s).buffer().get());
+                    }
+                    /*
+                     * Same areas read concurrently through the cache, many times for causing cache hits.
+                     */
+                    final ChunkCache cache = new ChunkCache(ChunkCache.DEFAULT_CAPACITY);
+                    final List<Future<Buffer>> results = new ArrayList<>();
+                    for (int n=0; n<4; n++) {
+                        for (int i=0; i<areas.size(); i++) {
+                            final GridExtent area = areas.get(i);
+                            final int[] s = subsamplings.get(i);
+                            results.add(CommonExecutor.instance().submit(() -> cache.read(variable, area, s, -1)));
+                        }
+                    }
+                    for (int i=0; i<results.size(); i++) {
+                        assertEquals(expected.get(i % areas.size()), results.get(i).get());
+                    }
+                    assertTrue("hitCount", cache.hitCount() != 0);
+                    decoder.close();
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -51,7 +51,7 @@ import org.apache.sis.util.resources.ResourceInternationalString;
  *
  * @author  Johann Sorel (Geomatys)
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   1.0
  * @module
  */
@@ -74,6 +74,11 @@ final class Analyzer {
      */
     final SpatialFunctions functions;
 
+    /**
+     * Number of rows to fetch in each round trip to the database, or 0 for the driver default.
+     */
+    final int fetchSize;
+
     /**
      * The factory for creating {@code FeatureType} names.
      */
@@ -138,14 +143,16 @@ final class Analyzer {
      *
      * @param  source     the data source, usually given by user at {@code SQLStore} creation time.
      * @param  metadata   Value of {@code source.getConnection().getMetaData()}.
+     * @param  fetchSize  number of rows to fetch in each round trip to the database, or 0 for the driver default.
      * @param  listeners  Value of {@code SQLStore.listeners}.
      * @param  locale     Value of {@code SQLStore.getLocale()}.
      */
-    Analyzer(final DataSource source, final DatabaseMetaData metadata, final StoreListeners listeners,
-             final Locale locale) throws SQLException
+    Analyzer(final DataSource source, final DatabaseMetaData metadata, final int fetchSize,
+             final StoreListeners listeners, final Locale locale) throws SQLException
     {
         this.source      = source;
         this.metadata    = metadata;
+        this.fetchSize   = fetchSize;
         this.listeners   = listeners;
         this.locale      = locale;
         this.strings     = new HashMap<>();
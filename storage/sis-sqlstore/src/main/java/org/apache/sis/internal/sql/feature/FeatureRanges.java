@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.internal.sql.feature;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.SQLException;
+import java.sql.DatabaseMetaData;
+import javax.sql.DataSource;
+import org.apache.sis.internal.metadata.sql.SQLBuilder;
+import org.apache.sis.storage.InternalDataStoreException;
+import org.apache.sis.util.collection.BackingStoreException;
+
+// Branch-dependent imports
+import org.apache.sis.feature.AbstractFeature;
+
+
+/**
+ * Iterator over the features of a table, splittable in ranges of primary key values.
+ * Each range is read by a separated SQL query on its own connection, which allows parallel streams
+ * to read many parts of the table at the same time. This is possible only for tables having a primary
+ * key made of a single column of integer type. The queries are executed when first needed, so ranges
+ * created by {@link #trySplit()} do not hold a connection before the stream starts to consume them.
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+final class FeatureRanges implements Spliterator<AbstractFeature>, Runnable {
+    /**
+     * Estimated number of rows below which a range is not split anymore.
+     * Ranges smaller than that would not compensate the cost of a new query.
+     */
+    private static final long MINIMAL_SPLIT_SIZE = 10 * Features.BATCH_SIZE;
+
+    /**
+     * The table to read, used for creating the {@link Features} iterator of each range.
+     */
+    private final Table table;
+
+    /**
+     * Provider of (pooled) connections to the database.
+     */
+    private final DataSource source;
+
+    /**
+     * The columns and the clauses to use in the SQL query, without range of keys.
+     */
+    private final TableSubset subset;
+
+    /**
+     * The primary key column on which ranges are applied.
+     */
+    private final String keyColumn;
+
+    /**
+     * The range of primary key values to read by this iterator, inclusive.
+     */
+    private long lower, upper;
+
+    /**
+     * Estimated number of rows for each key value, computed from the table statistics.
+     * This is 1 if the keys are dense, or less if there is holes in the sequence of keys.
+     */
+    private final double rowsPerKey;
+
+    /**
+     * All ranges created from the same table, including this one.
+     * Used for closing all connections when the stream is closed.
+     */
+    private final List<FeatureRanges> ranges;
+
+    /**
+     * The iterator over the features in the range of keys, or {@code null} if not yet created.
+     */
+    private Features iterator;
+
+    /**
+     * {@code true} if all features have been read or if this iterator has been closed.
+     */
+    private boolean done;
+
+    /**
+     * Creates a new iterator over the given range of keys.
+     */
+    private FeatureRanges(final Table table, final DataSource source, final TableSubset subset, final String keyColumn,
+                          final long lower, final long upper, final double rowsPerKey, final List<FeatureRanges> ranges)
+    {
+        this.table      = table;
+        this.source     = source;
+        this.subset     = subset;
+        this.keyColumn  = keyColumn;
+        this.lower      = lower;
+        this.upper      = upper;
+        this.rowsPerKey = rowsPerKey;
+        this.ranges     = ranges;
+        synchronized (ranges) {
+            ranges.add(this);
+        }
+    }
+
+    /**
+     * Creates a splittable iterator over the features of the given table, or returns {@code null}
+     * if the table does not have a primary key suitable for splitting in ranges, or is too small.
+     *
+     * @param  table       the table to read.
+     * @param  source      provider of (pooled) connections to the database.
+     * @param  connection  a connection to use for reading the range of key values.
+     * @param  subset      the columns and the clauses to use in the SQL query, or {@code null} for all features.
+     * @return the iterator, or {@code null} if splitting in ranges of keys is not possible.
+     */
+    static FeatureRanges create(final Table table, final DataSource source, final Connection connection, TableSubset subset)
+            throws SQLException
+    {
+        if (subset == null) {
+            subset = new TableSubset(table);
+        } else if (!subset.isSplittable()) {
+            return null;
+        }
+        if (table.primaryKeys == null || table.primaryKeys.length != 1) {
+            return null;
+        }
+        final Class<?> type = table.primaryKeyClass;
+        if (type != Long.class && type != Integer.class && type != Short.class && type != Byte.class) {
+            return null;
+        }
+        final String keyColumn = table.primaryKeys[0];
+        final DatabaseMetaData metadata = connection.getMetaData();
+        final SQLBuilder sql = new SQLBuilder(metadata, true).append("SELECT MIN(").appendIdentifier(keyColumn)
+                .append("), MAX(").appendIdentifier(keyColumn).append(") FROM ")
+                .appendIdentifier(table.name.catalog, table.name.schema, table.name.table);
+        final long lower, upper;
+        try (Statement stmt = connection.createStatement();
+             ResultSet r = stmt.executeQuery(sql.toString()))
+        {
+            if (!r.next()) return null;
+            lower = r.getLong(1); if (r.wasNull()) return null;
+            upper = r.getLong(2); if (r.wasNull()) return null;
+        }
+        final double keyCount = (double) upper - (double) lower + 1;
+        final long rowCount = table.countRows(metadata, true);
+        final double rowsPerKey = (rowCount > 0) ? Math.min(1, rowCount / keyCount) : 1;
+        if (keyCount * rowsPerKey < 2*MINIMAL_SPLIT_SIZE) {
+            return null;
+        }
+        return new FeatureRanges(table, source, subset, keyColumn, lower, upper, rowsPerKey, new ArrayList<>());
+    }
+
+    /**
+     * Returns the estimated number of rows in the range of keys of this iterator.
+     */
+    private double estimate(final long lower, final long upper) {
+        return ((double) upper - (double) lower + 1) * rowsPerKey;
+    }
+
+    /**
+     * Splits this iterator in two ranges of keys, or returns {@code null} if the range is too small
+     * or if this iterator has already started to read features.
+     */
+    @Override
+    public Spliterator<AbstractFeature> trySplit() {
+        if (iterator != null || done || estimate(lower, upper) < 2*MINIMAL_SPLIT_SIZE) {
+            return null;
+        }
+        final long middle = lower + ((upper - lower) >>> 1);
+        final FeatureRanges prefix = new FeatureRanges(table, source, subset, keyColumn, lower, middle, rowsPerKey, ranges);
+        lower = middle + 1;
+        return prefix;
+    }
+
+    /**
+     * Returns the estimated number of features in the range of keys of this iterator.
+     */
+    @Override
+    public long estimateSize() {
+        return done ? 0 : Math.max(1, Math.round(estimate(lower, upper)));
+    }
+
+    /**
+     * Declares that this iterator never returns {@code null} elements.
+     */
+    @Override
+    public int characteristics() {
+        return NONNULL;
+    }
+
+    /**
+     * Executes the SQL query for the range of keys of this iterator if not already done.
+     * The connection will be closed when all features have been read or when the stream is closed.
+     *
+     * @return the iterator, or {@code null} if all features have already been read.
+     */
+    private Features iterator() {
+        if (iterator == null && !done) {
+            Connection connection = null;
+            try {
+                connection = source.getConnection();
+                iterator = new Features(table, connection, subset.attributeNames, subset.attributeColumns,
+                        subset.importedKeys, subset.exportedKeys, new ArrayList<>(), null,
+                        subset.range(keyColumn, lower, upper));
+            } catch (SQLException | InternalDataStoreException e) {
+                // If the query failed, the Features constructor has already restored the auto-commit mode.
+                if (connection != null) try {
+                    connection.close();
+                } catch (SQLException s) {
+                    e.addSuppressed(s);
+                }
+                done = true;
+                throw new BackingStoreException(e);
+            }
+        }
+        return iterator;
+    }
+
+    /**
+     * Gives the next feature to the given consumer.
+     */
+    @Override
+    public boolean tryAdvance(final Consumer<? super AbstractFeature> action) {
+        final Features it = iterator();
+        if (it != null) {
+            if (it.tryAdvance(action)) {
+                return true;
+            }
+            close();
+        }
+        return false;
+    }
+
+    /**
+     * Gives all remaining features to the given consumer.
+     */
+    @Override
+    public void forEachRemaining(final Consumer<? super AbstractFeature> action) {
+        final Features it = iterator();
+        if (it != null) try {
+            it.forEachRemaining(action);
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Closes the connections of all ranges created from the same table.
+     * This method is invoked when the stream is closed.
+     */
+    @Override
+    public void run() {
+        final FeatureRanges[] all;
+        synchronized (ranges) {
+            all = ranges.toArray(new FeatureRanges[ranges.size()]);
+        }
+        for (final FeatureRanges range : all) {
+            range.close();
+        }
+    }
+
+    /**
+     * Closes the connection of this range only. This is invoked when all features in the range have been read.
+     */
+    private synchronized void close() {
+        done = true;
+        final Features it = iterator;
+        if (it != null) {
+            iterator = null;
+            it.run();
+        }
+    }
+}
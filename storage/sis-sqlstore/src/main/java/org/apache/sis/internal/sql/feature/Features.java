@@ -18,8 +18,13 @@ package org.apache.sis.internal.sql.feature;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.Set;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Collection;
 import java.util.Spliterator;
 import java.util.function.Consumer;
@@ -35,17 +40,33 @@ import org.apache.sis.storage.InternalDataStoreException;
 import org.apache.sis.util.collection.BackingStoreException;
 import org.apache.sis.util.collection.WeakValueHashMap;
 import org.apache.sis.util.ArraysExt;
+import org.apache.sis.util.Numbers;
 
 // Branch-dependent imports
 import org.apache.sis.feature.AbstractFeature;
+import org.apache.sis.feature.AbstractIdentifiedType;
+import org.apache.sis.feature.DefaultAttributeType;
 import org.apache.sis.feature.DefaultFeatureType;
 
 
 /**
  * Iterator over feature instances.
  *
+ * <h2>Batch loading of associations</h2>
+ * Rows are read by windows of {@value #BATCH_SIZE} rows. For each association to another table
+ * ({@link Relation.Direction#IMPORT}), the foreigner keys of all rows in the window are collected
+ * and the referenced features are fetched with a single {@code IN (…)} query instead of one query
+ * per row. Keys for which no feature has been found are remembered, so each dangling key is queried
+ * only once. Associations in the {@link Relation.Direction#EXPORT} direction are still fetched with
+ * one query per row.
+ *
+ * <h2>Reading rows</h2>
+ * The value of each column is read with a {@link ValueGetter} selected once per query from the attribute type.
+ * The main query uses a forward-only and read-only cursor with the fetch size configured in the data store,
+ * if any, for allowing drivers to stream large tables instead of loading all rows in memory.
+ *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   1.0
  * @module
  */
@@ -55,6 +76,12 @@ final class Features implements Spliterator<AbstractFeature>, Runnable {
      */
     private static final Features[] EMPTY = new Features[0];
 
+    /**
+     * Maximal number of rows read before to fetch the associated features, and maximal number
+     * of keys in the {@code IN (…)} clause of the query fetching the associated features.
+     */
+    static final int BATCH_SIZE = 100;
+
     /**
      * The type of features to create.
      */
@@ -67,6 +94,12 @@ final class Features implements Spliterator<AbstractFeature>, Runnable {
      */
     private final String[] attributeNames;
 
+    /**
+     * The getters to use for reading the value of each attribute in the {@link #attributeNames} array.
+     * Selected once for all rows from the attribute value classes.
+     */
+    private final ValueGetter[] valueGetters;
+
     /**
      * Name of the properties where are stored associations in feature instances.
      * The length of this array shall be equal to the {@link #dependencies} array length.
@@ -108,6 +141,44 @@ final class Features implements Spliterator<AbstractFeature>, Runnable {
      */
     private final PreparedStatement statement;
 
+    /**
+     * The query for fetching the features matching {@link #BATCH_SIZE} keys, or {@code null} if {@link #statement}
+     * is null. This query selects the same columns than {@link #statement} followed by the key columns, and has a
+     * {@code WHERE} clause with {@code BATCH_SIZE} conditions on the keys.
+     *
+     * @see #batchStatement
+     */
+    private final String batchQuery;
+
+    /**
+     * The statement for {@link #batchQuery}, created when first needed.
+     */
+    private PreparedStatement batchStatement;
+
+    /**
+     * Number of columns in the {@code SELECT} clause of {@link #statement}.
+     * In the {@link #batchQuery}, the key columns start after that number.
+     */
+    private final int columnCount;
+
+    /**
+     * Number of key columns appended after the first {@link #columnCount} columns in the {@link #batchQuery}.
+     */
+    private final int keyColumnCount;
+
+    /**
+     * Normalized keys for which no feature has been found, or {@code null} if none.
+     * Used for querying each dangling foreigner key only once during the lifetime of this iterator,
+     * instead of once per window of {@value #BATCH_SIZE} rows where that key appears.
+     */
+    private Set<Object> danglingKeys;
+
+    /**
+     * Features read in advance by {@link #fetch(Consumer, boolean)} but not yet given to the consumer,
+     * or {@code null} if none. This happens when features are requested one by one.
+     */
+    private ArrayDeque<AbstractFeature> pending;
+
     /**
      * The result of executing the SQL query for a {@link Table}. If {@link #statement} is null,
      * then a single {@code ResultSet} is used for all the lifetime of this {@code Features} instance.
@@ -128,9 +199,9 @@ final class Features implements Spliterator<AbstractFeature>, Runnable {
     private final WeakValueHashMap<?,Object> instances;
 
     /**
-     * The component class of the keys in the {@link #instances} map, or {@code null} if the keys are not array.
+     * The component class of the keys in the {@link #instances} map, or the class of the keys if they are not arrays.
      * For example if a primary key is made of two columns of type {@code String}, then this field may be set to
-     * {@code String}.
+     * {@code String}. This is {@code null} if there is no cache.
      */
     private final Class<?> keyComponentClass;
 
@@ -139,6 +210,12 @@ final class Features implements Spliterator<AbstractFeature>, Runnable {
      */
     private final long estimatedSize;
 
+    /**
+     * Whether auto-commit has been disabled on the connection for allowing the driver to stream the rows.
+     * If {@code true}, auto-commit will be restored when this iterator is closed.
+     */
+    private boolean restoreAutoCommit;
+
     /**
      * Creates a new iterator over the feature instances.
      *
@@ -150,15 +227,29 @@ final class Features implements Spliterator<AbstractFeature>, Runnable {
      * @param exportedKeys      value of {@link Table#exportedKeys}:     foreigner keys of other tables.
      * @param following         the relations that we are following. Used for avoiding never ending loop.
      * @param noFollow          relation to not follow, or {@code null} if none.
+     * @param subset            the {@code WHERE}, {@code ORDER BY} and paging clauses, or {@code null} if none.
+     *                          Used only if {@code following} is empty.
      */
     Features(final Table table, final Connection connection, final String[] attributeNames, final String[] attributeColumns,
-             final Relation[] importedKeys, final Relation[] exportedKeys, final List<Relation> following, final Relation noFollow)
+             final Relation[] importedKeys, final Relation[] exportedKeys, final List<Relation> following, final Relation noFollow,
+             final TableSubset subset)
              throws SQLException, InternalDataStoreException
     {
         this.featureType = table.featureType;
         this.attributeNames = attributeNames;
+        valueGetters = new ValueGetter[attributeNames.length];
+        for (int i=0; i<attributeNames.length; i++) {
+            final AbstractIdentifiedType property = featureType.getProperty(attributeNames[i]);
+            valueGetters[i] = (property instanceof DefaultAttributeType<?>)
+                    ? ValueGetter.forType(((DefaultAttributeType<?>) property).getValueClass()) : ValueGetter.OBJECT;
+        }
         final DatabaseMetaData metadata = connection.getMetaData();
-        estimatedSize = following.isEmpty() ? table.countRows(metadata, true) : 0;
+        if (following.isEmpty()) {
+            final long count = table.countRows(metadata, true);
+            estimatedSize = (subset != null) ? subset.estimatedSize(count) : count;
+        } else {
+            estimatedSize = 0;
+        }
         final SQLBuilder sql = new SQLBuilder(metadata, true).append("SELECT");
         final Map<String,Integer> columnIndices = new HashMap<>();
         /*
@@ -236,16 +327,77 @@ final class Features implements Spliterator<AbstractFeature>, Runnable {
          * a "WHERE" clause. In the later case, we will cache the features already created if there is
          * a possibility that many rows reference the same feature instance.
          */
+        columnCount = columnIndices.size();
+        final String columns = sql.toString();
         sql.append(" FROM ").appendIdentifier(table.name.catalog, table.name.schema, table.name.table);
         if (following.isEmpty()) {
-            statement = null;
-            instances = null;       // A future SIS version could use the map opportunistically if it exists.
+            statement  = null;
+            batchQuery = null;
+            keyColumnCount = 0;
+            instances  = null;      // A future SIS version could use the map opportunistically if it exists.
             keyComponentClass = null;
-            result = connection.createStatement().executeQuery(sql.toString());
+            /*
+             * The main query may read a large amount of rows. Declare a forward-only and read-only cursor,
+             * and ask for a streaming of rows if a fetch size has been specified. Some drivers (PostgreSQL)
+             * use the fetch size only if auto-commit is disabled. Auto-commit is disabled only after the
+             * statement has been created, and is restored if the query fails.
+             */
+            final Statement s;
+            if (subset == null) {
+                s = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            } else {
+                subset.appendTo(sql);
+                s = connection.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            }
+            try {
+                if (subset != null) {
+                    subset.setParameters((PreparedStatement) s);
+                }
+                if (table.fetchSize > 0) {
+                    s.setFetchSize(table.fetchSize);
+                    if (connection.getAutoCommit()) {
+                        connection.setAutoCommit(false);
+                        restoreAutoCommit = true;
+                    }
+                }
+                result = (subset == null) ? s.executeQuery(sql.toString()) : ((PreparedStatement) s).executeQuery();
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    s.close();
+                    restoreAutoCommit(connection);
+                } catch (SQLException c) {
+                    e.addSuppressed(c);
+                }
+                throw e;
+            }
         } else {
             final Relation componentOf = following.get(following.size() - 1);
+            final Collection<String> searchColumns = componentOf.getSearchColumns();
+            final SQLBuilder batch = new SQLBuilder(metadata, true).append(columns);
+            for (String primaryKey : searchColumns) {
+                batch.append(", ").appendIdentifier(primaryKey);
+            }
+            batch.append(" FROM ").appendIdentifier(table.name.catalog, table.name.schema, table.name.table).append(" WHERE ");
+            if (searchColumns.size() == 1) {
+                batch.appendIdentifier(searchColumns.iterator().next()).append(" IN (");
+                for (int i=0; i<BATCH_SIZE; i++) {
+                    if (i != 0) batch.append(',');
+                    batch.append('?');
+                }
+                batch.append(')');
+            } else for (int i=0; i<BATCH_SIZE; i++) {
+                if (i != 0) batch.append(" OR ");
+                String separator = "(";
+                for (String primaryKey : searchColumns) {
+                    batch.append(separator).appendIdentifier(primaryKey).append("=?");
+                    separator = " AND ";
+                }
+                batch.append(')');
+            }
+            batchQuery = batch.toString();
+            keyColumnCount = searchColumns.size();
             String separator = " WHERE ";
-            for (String primaryKey : componentOf.getSearchColumns()) {
+            for (String primaryKey : searchColumns) {
                 sql.append(separator).appendIdentifier(primaryKey).append("=?");
                 separator = " AND ";
             }
@@ -257,7 +409,8 @@ final class Features implements Spliterator<AbstractFeature>, Runnable {
              */
             if (componentOf.useFullKey()) {
                 instances = table.instanceForPrimaryKeys();
-                keyComponentClass = table.primaryKeyClass.getComponentType();
+                final Class<?> c = table.primaryKeyClass;
+                keyComponentClass = c.isArray() ? c.getComponentType() : c;
             } else {
                 instances = new WeakValueHashMap<>(Object.class);       // Can not share the table cache.
                 keyComponentClass = Object.class;
@@ -294,6 +447,21 @@ final class Features implements Spliterator<AbstractFeature>, Runnable {
         return indices;
     }
 
+    /**
+     * Converts a foreigner key value to the type of the referenced primary key column, for use as a key
+     * (or component of a key) in the {@link #instances} map. This is needed when the foreigner key column
+     * does not have the same type than the referenced column, for example {@code INTEGER} versus {@code BIGINT}.
+     */
+    private Object toKeyComponent(Object value) {
+        if (value instanceof Number) {
+            final Class<?> type = Numbers.primitiveToWrapper(keyComponentClass);
+            if (type != value.getClass() && Number.class.isAssignableFrom(type)) {
+                value = Numbers.cast((Number) value, type.asSubclass(Number.class));
+            }
+        }
+        return value;
+    }
+
     /**
      * Returns an array of the given length capable to hold the identifier,
      * or {@code null} if there is no need for an array.
@@ -361,57 +529,250 @@ final class Features implements Spliterator<AbstractFeature>, Runnable {
      * @return {@code true} if we have read an instance and {@code all} is {@code false} (so there is maybe other instances).
      */
     private boolean fetch(final Consumer<? super AbstractFeature> action, final boolean all) throws SQLException {
-        while (result.next()) {
+        for (;;) {
+            if (pending == null || pending.isEmpty()) {
+                final List<AbstractFeature> window = readWindow(result, null);
+                if (window.isEmpty()) {
+                    pending = null;
+                    return false;
+                }
+                pending = new ArrayDeque<>(window);
+            }
+            AbstractFeature feature;
+            while ((feature = pending.poll()) != null) {
+                action.accept(feature);
+                if (!all) return true;
+            }
+        }
+    }
+
+    /**
+     * Creates the features for the next {@value #BATCH_SIZE} rows (or less) of the given result set.
+     * Associations are resolved with one query per imported relation for all rows in the window.
+     *
+     * @param  rs       the result set from which to read the rows.
+     * @param  rowKeys  if non-null, where to add the values of the key columns of each row (for {@link #batchQuery}).
+     * @return features in the order of rows. An empty list means that there is no more rows.
+     */
+    private List<AbstractFeature> readWindow(final ResultSet rs, final List<Object> rowKeys) throws SQLException {
+        final List<AbstractFeature> features = new ArrayList<>();
+        final Object[][] keys = (importCount != 0) ? new Object[importCount][BATCH_SIZE] : null;
+        while (features.size() < BATCH_SIZE && rs.next()) {
             final AbstractFeature feature = featureType.newInstance();
             for (int i=0; i < attributeNames.length; i++) {
-                final Object value = result.getObject(i+1);
-                if (!result.wasNull()) {
+                final Object value = valueGetters[i].getValue(rs, i+1);
+                if (value != null) {
                     feature.setPropertyValue(attributeNames[i], value);
                 }
             }
             for (int i=0; i < dependencies.length; i++) {
                 final Features dependency = dependencies[i];
                 final int[] columnIndices = foreignerKeyIndices[i];
-                final Object value;
                 if (i < importCount) {
                     /*
-                     * Relation.Direction.IMPORT: this table contains the foreigner keys.
-                     *
-                     * If the foreigner key uses only one column, we will store the foreigner key value
-                     * in the 'key' variable without creating array. But if the foreigner key uses more
-                     * than one column, then we need to create an array holding all values.
+                     * Relation.Direction.IMPORT: this table contains the foreigner keys. If the foreigner key
+                     * uses only one column, we will store the foreigner key value without creating array.
+                     * But if the foreigner key uses more than one column, then we need to create an array
+                     * holding all values. The referenced features will be fetched after the loop.
                      */
                     Object key = null;
-                    final Object keys = dependency.identifierArray(columnIndices.length);
-                    for (int p=0; p < columnIndices.length;) {
-                        key = result.getObject(columnIndices[p]);
-                        if (keys != null) Array.set(keys, p, key);
-                        dependency.statement.setObject(++p, key);
+                    final Object array = dependency.identifierArray(columnIndices.length);
+                    for (int p=0; p < columnIndices.length; p++) {
+                        key = dependency.toKeyComponent(rs.getObject(columnIndices[p]));
+                        if (key == null) break;
+                        if (array != null) Array.set(array, p, key);
                     }
-                    if (keys != null) key = keys;
-                    value = dependency.fetchReferenced(key, null);
+                    if (key != null && array != null) key = array;
+                    keys[i][features.size()] = key;
                 } else {
                     /*
                      * Relation.Direction.EXPORT: another table references this table.
-                     *
-                     * 'key' must stay null because we do not cache those dependencies.
-                     * The reason is that this direction can return a lot of instances,
-                     * contrarily to Direction.IMPORT which return only one instance.
-                     * Furthermore instances fetched from Direction.EXPORT can not be
-                     * shared by feature instances, so caching would be useless here.
+                     * We do not cache those dependencies. The reason is that this direction
+                     * can return a lot of instances, contrarily to Direction.IMPORT which
+                     * return only one instance. Furthermore instances fetched from
+                     * Direction.EXPORT can not be shared by feature instances,
+                     * so caching would be useless here.
                      */
                     for (int p=0; p < columnIndices.length;) {
-                        final Object k = result.getObject(columnIndices[p]);
+                        final Object k = rs.getObject(columnIndices[p]);
                         dependency.statement.setObject(++p, k);
                     }
-                    value = dependency.fetchReferenced(null, feature);
+                    feature.setPropertyValue(associationNames[i], dependency.fetchReferenced(null, feature));
+                }
+            }
+            if (rowKeys != null) {
+                rowKeys.add(readKey(rs));
+            }
+            features.add(feature);
+        }
+        for (int i=0; i < importCount; i++) {
+            final Object[] values = dependencies[i].fetchReferenced(keys[i], features.size());
+            for (int j=0; j < values.length; j++) {
+                features.get(j).setPropertyValue(associationNames[i], values[j]);
+            }
+        }
+        return features;
+    }
+
+    /**
+     * Returns the values of the key columns appended at the end of the {@link #batchQuery} columns.
+     * The returned value is {@linkplain #normalize normalized} for use as a key in hash maps.
+     */
+    private Object readKey(final ResultSet rs) throws SQLException {
+        if (keyColumnCount == 1) {
+            return normalize(rs.getObject(columnCount + 1));
+        }
+        final Object[] key = new Object[keyColumnCount];
+        for (int p=0; p<keyColumnCount; p++) {
+            key[p] = normalize(rs.getObject(columnCount + 1 + p));
+        }
+        return Arrays.asList(key);
+    }
+
+    /**
+     * Returns a key which can be compared with the keys read by {@link #readKey(ResultSet)}. Integer types are
+     * converted to {@code Long} because the column of a foreigner key may not have the same type than the column
+     * of the referenced primary key. Arrays are converted to lists for having {@code equals(Object)} defined.
+     */
+    private static Object normalize(final Object key) {
+        if (key != null && key.getClass().isArray()) {
+            final Object[] values = new Object[Array.getLength(key)];
+            for (int p=0; p<values.length; p++) {
+                values[p] = normalize(Array.get(key, p));
+            }
+            return Arrays.asList(values);
+        }
+        if (key instanceof Integer || key instanceof Long || key instanceof Short || key instanceof Byte) {
+            return ((Number) key).longValue();
+        }
+        return key;
+    }
+
+    /**
+     * Fetches the features referenced by the given keys. Features already in the cache are taken from it.
+     * Other features are fetched with the {@link #batchQuery}. If a feature has not been found that way
+     * (for example because of a difference in the types of the key values), then this method fallbacks
+     * on {@link #fetchReferenced(Object, AbstractFeature)} for that particular key. Keys still not found
+     * after that fallback are recorded as {@linkplain #danglingKeys dangling} and are not queried again.
+     *
+     * @param  keys   the keys of the features to fetch. Null elements are allowed.
+     * @param  count  number of valid elements in the {@code keys} array.
+     * @return the feature (as a singleton {@code Feature} or as a {@code Collection<Feature>}) for each key.
+     */
+    private Object[] fetchReferenced(final Object[] keys, final int count) throws SQLException {
+        final Map<Object,Object> found   = new HashMap<>();             // Keep strong references during this method.
+        final Map<Object,Object> missing = new LinkedHashMap<>();       // Normalized keys to original keys.
+        for (int j=0; j<count; j++) {
+            final Object key = keys[j];
+            if (key != null) {
+                final Object nk = normalize(key);
+                if (!found.containsKey(nk) && !missing.containsKey(nk)
+                        && (danglingKeys == null || !danglingKeys.contains(nk)))
+                {
+                    final Object existing = instances.get(key);
+                    if (existing != null) {
+                        found.put(nk, existing);
+                    } else {
+                        missing.put(nk, key);
+                    }
                 }
-                feature.setPropertyValue(associationNames[i], value);
             }
-            action.accept(feature);
-            if (!all) return true;
         }
-        return false;
+        if (!missing.isEmpty()) {
+            if (batchStatement == null) {
+                batchStatement = statement.getConnection().prepareStatement(batchQuery);
+            }
+            final List<Object> chunk = new ArrayList<>(BATCH_SIZE);
+            for (final Object key : missing.values()) {
+                chunk.add(key);
+                if (chunk.size() == BATCH_SIZE) {
+                    fetchBatch(chunk, missing, found);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                fetchBatch(chunk, missing, found);
+            }
+            /*
+             * Fallback for keys that we did not found in the batch results.
+             * This is usually because the referenced feature does not exist.
+             */
+            for (final Map.Entry<Object,Object> entry : missing.entrySet()) {
+                final Object nk = entry.getKey();
+                if (!found.containsKey(nk)) {
+                    final Object key = entry.getValue();
+                    if (key.getClass().isArray()) {
+                        final int n = Array.getLength(key);
+                        for (int p=0; p<n; p++) {
+                            statement.setObject(p+1, Array.get(key, p));
+                        }
+                    } else {
+                        statement.setObject(1, key);
+                    }
+                    final Object feature = fetchReferenced(key, null);
+                    if (feature != null) {
+                        found.put(nk, feature);
+                    } else {
+                        if (danglingKeys == null) {
+                            danglingKeys = new HashSet<>();
+                        }
+                        danglingKeys.add(nk);
+                    }
+                }
+            }
+        }
+        final Object[] values = new Object[count];
+        for (int j=0; j<count; j++) {
+            final Object key = keys[j];
+            if (key != null) {
+                values[j] = found.get(normalize(key));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Executes the {@link #batchQuery} for the given keys and stores the features in the {@code found} map.
+     * If there is less keys than {@value #BATCH_SIZE}, the last key is repeated for filling the query parameters.
+     *
+     * @param  chunk    the original keys of the features to fetch.
+     * @param  missing  the original keys of features to fetch, indexed by normalized keys.
+     * @param  found    where to store the features, indexed by normalized keys.
+     */
+    private void fetchBatch(final List<Object> chunk, final Map<Object,Object> missing, final Map<Object,Object> found)
+            throws SQLException
+    {
+        int p = 0;
+        for (int j=0; j<BATCH_SIZE; j++) {
+            final Object key = chunk.get(Math.min(j, chunk.size() - 1));
+            if (key.getClass().isArray()) {
+                final int n = Array.getLength(key);
+                for (int c=0; c<n; c++) {
+                    batchStatement.setObject(++p, Array.get(key, c));
+                }
+            } else {
+                batchStatement.setObject(++p, key);
+            }
+        }
+        final Map<Object,List<AbstractFeature>> features = new LinkedHashMap<>();
+        final List<Object> rowKeys = new ArrayList<>(BATCH_SIZE);
+        try (ResultSet r = batchStatement.executeQuery()) {
+            List<AbstractFeature> window;
+            while (!(window = readWindow(r, rowKeys)).isEmpty()) {
+                for (int j=0; j<window.size(); j++) {
+                    features.computeIfAbsent(rowKeys.get(j), (k) -> new ArrayList<>(1)).add(window.get(j));
+                }
+                rowKeys.clear();
+            }
+        }
+        for (final Map.Entry<Object,List<AbstractFeature>> entry : features.entrySet()) {
+            final Object nk  = entry.getKey();
+            final Object key = missing.get(nk);
+            if (key != null) {
+                final List<AbstractFeature> list = entry.getValue();
+                found.put(nk, cache(key, (list.size() == 1) ? list.get(0) : list));
+            }
+        }
     }
 
     /**
@@ -432,30 +793,36 @@ final class Features implements Spliterator<AbstractFeature>, Runnable {
         }
         final List<AbstractFeature> features = new ArrayList<>();
         try (ResultSet r = statement.executeQuery()) {
-            result = r;
-            fetch(features::add, true);
-        } finally {
-            result = null;
+            List<AbstractFeature> window;
+            while (!(window = readWindow(r, null)).isEmpty()) {
+                features.addAll(window);
+            }
         }
         if (owner != null && deferredAssociation != null) {
             for (final AbstractFeature feature : features) {
                 feature.setPropertyValue(deferredAssociation, owner);
             }
         }
-        Object feature;
+        final Object feature;
         switch (features.size()) {
             case 0:  feature = null; break;
             case 1:  feature = features.get(0); break;
             default: feature = features; break;
         }
-        if (key != null) {
-            @SuppressWarnings("unchecked")          // Check is performed by putIfAbsent(…).
-            final Object previous = ((WeakValueHashMap) instances).putIfAbsent(key, feature);
-            if (previous != null) {
-                feature = previous;
-            }
-        }
-        return feature;
+        return (key != null && feature != null) ? cache(key, feature) : feature;       // Dangling keys are not cached.
+    }
+
+    /**
+     * Stores the given feature in the cache, or returns the existing instance if another thread cached it first.
+     *
+     * @param  key      the key to use for referencing the feature in the cache.
+     * @param  feature  the feature as a singleton {@code Feature} or as a {@code Collection<Feature>}.
+     * @return the cached feature.
+     */
+    private Object cache(final Object key, final Object feature) {
+        @SuppressWarnings("unchecked")          // Check is performed by putIfAbsent(…).
+        final Object previous = ((WeakValueHashMap) instances).putIfAbsent(key, feature);
+        return (previous != null) ? previous : feature;
     }
 
     /**
@@ -470,20 +837,44 @@ final class Features implements Spliterator<AbstractFeature>, Runnable {
         if (statement != null) {
             statement.close();
         }
+        if (batchStatement != null) {
+            batchStatement.close();
+            batchStatement = null;
+        }
         final ResultSet r = result;
         if (r != null) {
             result = null;
             final Statement s = r.getStatement();
             try (Connection c = s.getConnection()) {
-                r.close();      // Implied by s.close() according JDBC javadoc, but we are paranoiac.
-                s.close();
-                for (final Features dependency : dependencies) {
-                    dependency.close();
+                try {
+                    r.close();      // Implied by s.close() according JDBC javadoc, but we are paranoiac.
+                    s.close();
+                    for (final Features dependency : dependencies) {
+                        dependency.close();
+                    }
+                } finally {
+                    restoreAutoCommit(c);
                 }
             }
         }
     }
 
+    /**
+     * Restores the auto-commit mode of the given connection if it has been disabled by this iterator.
+     * The transaction is rolled back before, since this iterator only reads data. Auto-commit is restored
+     * even if the rollback fails, for avoiding to give back to the pool a connection in an unexpected state.
+     */
+    private void restoreAutoCommit(final Connection c) throws SQLException {
+        if (restoreAutoCommit) {
+            restoreAutoCommit = false;
+            try {
+                c.rollback();
+            } finally {
+                c.setAutoCommit(true);
+            }
+        }
+    }
+
     /**
      * Closes the (pooled) connection, including the statements of all dependencies.
      * This is a handler to be invoked by {@link java.util.stream.Stream#close()}.
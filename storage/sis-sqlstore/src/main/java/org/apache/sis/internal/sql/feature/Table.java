@@ -38,11 +38,15 @@ import org.apache.sis.feature.builder.AssociationRoleBuilder;
 import org.apache.sis.feature.builder.FeatureTypeBuilder;
 import org.apache.sis.internal.feature.Geometries;
 import org.apache.sis.storage.DataStoreException;
+import org.apache.sis.storage.FeatureSet;
+import org.apache.sis.storage.Query;
+import org.apache.sis.storage.UnsupportedQueryException;
 import org.apache.sis.storage.DataStoreContentException;
 import org.apache.sis.storage.InternalDataStoreException;
 import org.apache.sis.internal.metadata.sql.Reflection;
 import org.apache.sis.internal.metadata.sql.SQLUtilities;
 import org.apache.sis.internal.storage.AbstractFeatureSet;
+import org.apache.sis.internal.storage.query.SimpleQuery;
 import org.apache.sis.internal.util.CollectionsExt;
 import org.apache.sis.util.collection.WeakValueHashMap;
 import org.apache.sis.util.collection.TreeTable;
@@ -66,7 +70,7 @@ import org.apache.sis.feature.DefaultAssociationRole;
  *
  * @author  Johann Sorel (Geomatys)
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   1.0
  * @module
  */
@@ -93,31 +97,31 @@ final class Table extends AbstractFeatureSet {
      * Those names are in the order of columns declared in the {@code SELECT <columns} statement.
      * This array shall not be modified after construction.
      */
-    private final String[] attributeNames;
+    final String[] attributeNames;
 
     /**
      * Name of columns corresponding to each {@link #attributeNames}. This is often a reference to the
      * same array than {@link #attributeNames}, but may be different if some attributes have been renamed
      * for avoiding name collisions.
      */
-    private final String[] attributeColumns;
+    final String[] attributeColumns;
 
     /**
      * The columns that constitute the primary key, or {@code null} if there is no primary key.
      */
-    private final String[] primaryKeys;
+    final String[] primaryKeys;
 
     /**
      * The primary keys of other tables that are referenced by this table foreign key columns.
      * They are 0:1 relations. May be {@code null} if there is no imported keys.
      */
-    private final Relation[] importedKeys;
+    final Relation[] importedKeys;
 
     /**
      * The foreign keys of other tables that reference this table primary key columns.
      * They are 0:N relations. May be {@code null} if there is no exported keys.
      */
-    private final Relation[] exportedKeys;
+    final Relation[] exportedKeys;
 
     /**
      * The class of primary key values, or {@code null} if there is no primary keys.
@@ -142,6 +146,11 @@ final class Table extends AbstractFeatureSet {
      */
     final boolean hasGeometry;
 
+    /**
+     * Number of rows to fetch in each round trip to the database, or 0 for the driver default.
+     */
+    final int fetchSize;
+
     /**
      * Creates a description of the table of the given name.
      * The table is identified by {@code id}, which contains a (catalog, schema, name) tuple.
@@ -158,6 +167,7 @@ final class Table extends AbstractFeatureSet {
         super(analyzer.listeners);
         this.source = analyzer.source;
         this.name   = id;
+        this.fetchSize = analyzer.fetchSize;
         final String tableEsc  = analyzer.escape(id.table);
         final String schemaEsc = analyzer.escape(id.schema);
         /*
@@ -601,15 +611,68 @@ final class Table extends AbstractFeatureSet {
      */
     @Override
     public Stream<AbstractFeature> features(final boolean parallel) throws DataStoreException {
+        return features(parallel, null);
+    }
+
+    /**
+     * Returns a subset of this table selected by the given query. If the query is a {@link SimpleQuery},
+     * then the parts of the query that can be translated in SQL are executed by the database and the
+     * other parts are executed in Java code on the resulting features.
+     *
+     * @param  query  definition of feature and feature properties filtering applied at reading time.
+     * @return resulting subset of features.
+     * @throws UnsupportedQueryException if the given query is not supported.
+     * @throws DataStoreException if another error occurred while processing the query.
+     */
+    @Override
+    public FeatureSet subset(final Query query) throws UnsupportedQueryException, DataStoreException {
+        if (query instanceof SimpleQuery) {
+            final SimpleQuery remaining = new SimpleQuery();
+            final TableSubset subset = new TableSubset(this, (SimpleQuery) query, remaining);
+            if (subset.isComplete && remaining.getOffset() == 0 && remaining.getLimit() < 0) {
+                return subset;
+            }
+            remaining.setProjection(((SimpleQuery) query).getProjection());
+            return remaining.execute(subset);
+        }
+        return super.subset(query);
+    }
+
+    /**
+     * Returns a stream of all features contained in this dataset or in the given subset.
+     * If a parallel stream is requested and the table has a primary key of integer type,
+     * then the stream is split in ranges of keys read by different SQL queries on different
+     * connections.
+     *
+     * @param  parallel  {@code true} for a parallel stream (if supported), or {@code false} for a sequential stream.
+     * @param  subset    the columns and the clauses to use in the SQL query, or {@code null} for all features.
+     * @return all features contained in this dataset or in the given subset.
+     * @throws DataStoreException if an error occurred while creating the stream.
+     */
+    final Stream<AbstractFeature> features(final boolean parallel, final TableSubset subset) throws DataStoreException {
         DataStoreException ex;
         Connection connection = null;
         try {
             connection = source.getConnection();
-            final Features iter = features(connection, new ArrayList<>(), null);
+            if (parallel) {
+                final FeatureRanges ranges = FeatureRanges.create(this, source, connection, subset);
+                if (ranges != null) {
+                    connection.close();
+                    return StreamSupport.stream(ranges, true).onClose(ranges);
+                }
+            }
+            final Features iter;
+            if (subset == null) {
+                iter = features(connection, new ArrayList<>(), null);
+            } else {
+                iter = new Features(this, connection, subset.attributeNames, subset.attributeColumns,
+                                    subset.importedKeys, subset.exportedKeys, new ArrayList<>(), null, subset);
+            }
             return StreamSupport.stream(iter, parallel).onClose(iter);
         } catch (SQLException cause) {
             ex = new DataStoreException(Exceptions.unwrap(cause));
         }
+        // If the query failed, the Features constructor has already restored the auto-commit mode.
         if (connection != null) try {
             connection.close();
         } catch (SQLException e) {
@@ -628,6 +691,6 @@ final class Table extends AbstractFeatureSet {
     final Features features(final Connection connection, final List<Relation> following, final Relation noFollow)
             throws SQLException, InternalDataStoreException
     {
-        return new Features(this, connection, attributeNames, attributeColumns, importedKeys, exportedKeys, following, noFollow);
+        return new Features(this, connection, attributeNames, attributeColumns, importedKeys, exportedKeys, following, noFollow, null);
     }
 }
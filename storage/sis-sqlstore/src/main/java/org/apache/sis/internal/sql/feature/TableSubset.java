@@ -0,0 +1,392 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.internal.sql.feature;
+
+import java.util.Set;
+import java.util.Map;
+import java.util.List;
+import java.util.HashSet;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.Stream;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import org.apache.sis.internal.metadata.sql.SQLBuilder;
+import org.apache.sis.internal.storage.AbstractFeatureSet;
+import org.apache.sis.internal.storage.query.SimpleQuery;
+import org.apache.sis.storage.DataStoreException;
+import org.apache.sis.util.ArraysExt;
+
+// Branch-dependent imports
+import org.apache.sis.feature.AbstractFeature;
+import org.apache.sis.feature.DefaultFeatureType;
+
+
+/**
+ * The subset of a {@link Table} selected by the parts of a {@link SimpleQuery} that can be translated in SQL.
+ * The translated parts are the projection (as the list of columns in the {@code SELECT} clause),
+ * the conditions on attribute columns ({@code WHERE} clause), the sort keys ({@code ORDER BY} clause),
+ * and the offset and limit ({@code OFFSET} and {@code FETCH} clauses).
+ * The parts that can not be translated, including the bounding box, are stored in another query
+ * to be executed in Java code on the features returned by this subset.
+ *
+ * <p>A subset may also be restricted to a range of primary key values. This is used by {@link FeatureRanges}
+ * for splitting a stream of features in many SQL queries that can be executed in parallel.</p>
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+final class TableSubset extends AbstractFeatureSet {
+    /**
+     * The table from which to select features.
+     */
+    private final Table table;
+
+    /**
+     * Subset of {@link Table#attributeNames} for the properties to load.
+     * This is the same array than the table one if there is no projection.
+     */
+    final String[] attributeNames;
+
+    /**
+     * Subset of {@link Table#attributeColumns} for the properties to load.
+     * This is the same array than the table one if there is no projection.
+     */
+    final String[] attributeColumns;
+
+    /**
+     * Subset of {@link Table#importedKeys} for the associations to load, or {@code null} if none.
+     */
+    final Relation[] importedKeys;
+
+    /**
+     * Subset of {@link Table#exportedKeys} for the associations to load, or {@code null} if none.
+     */
+    final Relation[] exportedKeys;
+
+    /**
+     * The conditions translated in the {@code WHERE} clause.
+     * The value of each condition is given as a parameter of the prepared statement.
+     */
+    private final SimpleQuery.Condition[] conditions;
+
+    /**
+     * Names of the columns on which {@link #conditions} are applied.
+     */
+    private final String[] conditionColumns;
+
+    /**
+     * The sort keys translated in the {@code ORDER BY} clause, or {@code null} if none.
+     */
+    private final SimpleQuery.SortKey[] sortBy;
+
+    /**
+     * Names of the columns on which {@link #sortBy} are applied, or {@code null} if none.
+     */
+    private final String[] sortColumns;
+
+    /**
+     * The number of rows to skip, or 0 if none.
+     */
+    private final long offset;
+
+    /**
+     * The maximal number of rows to return, or a negative number if unlimited.
+     */
+    private final long limit;
+
+    /**
+     * {@code true} if all parts of the query have been translated in SQL.
+     */
+    final boolean isComplete;
+
+    /**
+     * The primary key column on which {@link #lowerKey} and {@link #upperKey} are applied,
+     * or {@code null} if this subset is not restricted to a range of keys.
+     */
+    private final String keyColumn;
+
+    /**
+     * The range of primary key values, inclusive. Used only if {@link #keyColumn} is non-null.
+     */
+    private final long lowerKey, upperKey;
+
+    /**
+     * Creates a subset containing all features of the given table.
+     * This is used as a template for creating {@linkplain #range ranges} of keys.
+     *
+     * @param  table  the table from which to select features.
+     */
+    TableSubset(final Table table) {
+        this(table, new SimpleQuery(), new SimpleQuery());
+    }
+
+    /**
+     * Creates a copy of the given subset restricted to the given range of primary key values.
+     */
+    private TableSubset(final TableSubset other, final String keyColumn, final long lowerKey, final long upperKey) {
+        super(other.table);
+        table            = other.table;
+        attributeNames   = other.attributeNames;
+        attributeColumns = other.attributeColumns;
+        importedKeys     = other.importedKeys;
+        exportedKeys     = other.exportedKeys;
+        conditions       = other.conditions;
+        conditionColumns = other.conditionColumns;
+        sortBy           = other.sortBy;
+        sortColumns      = other.sortColumns;
+        offset           = other.offset;
+        limit            = other.limit;
+        isComplete       = other.isComplete;
+        this.keyColumn   = keyColumn;
+        this.lowerKey    = lowerKey;
+        this.upperKey    = upperKey;
+    }
+
+    /**
+     * Creates a subset of the given table. The parts of the query that can not be translated in SQL
+     * are stored in the {@code remaining} query, which shall be initially empty.
+     *
+     * @param  table      the table from which to select features.
+     * @param  query      the query to translate in SQL.
+     * @param  remaining  an initially empty query where to store the parts that can not be translated.
+     */
+    TableSubset(final Table table, final SimpleQuery query, final SimpleQuery remaining) {
+        super(table);
+        this.table = table;
+        final Map<String,String> columns = new HashMap<>();
+        for (int i=0; i<table.attributeNames.length; i++) {
+            columns.put(table.attributeNames[i], table.attributeColumns[i]);
+        }
+        /*
+         * Conditions on ordinary attributes can be translated in SQL. Conditions on other kinds
+         * of properties (associations, operations) are evaluated after the features are built.
+         */
+        final List<SimpleQuery.Condition> translated = new ArrayList<>();
+        final List<String> conditionColumns = new ArrayList<>();
+        for (final SimpleQuery.Condition condition : query.getConditions()) {
+            final String column = columns.get(condition.property);
+            if (column != null) {
+                translated.add(condition);
+                conditionColumns.add(column);
+            } else {
+                remaining.addCondition(condition);
+            }
+        }
+        conditions = translated.toArray(new SimpleQuery.Condition[translated.size()]);
+        this.conditionColumns = conditionColumns.toArray(new String[conditionColumns.size()]);
+        /*
+         * The bounding box is not translated because this module does not yet map geometry columns
+         * to spatial functions of the database. It is evaluated on the features built from the rows.
+         */
+        remaining.setBounds(query.getBounds());
+        /*
+         * Sort keys are translated only if all of them are ordinary attributes,
+         * because a partial ORDER BY clause would be of no use for the remaining keys.
+         */
+        SimpleQuery.SortKey[] sortBy = query.getSortBy();
+        String[] sortColumns = null;
+        if (sortBy != null) {
+            sortColumns = new String[sortBy.length];
+            for (int i=0; i<sortBy.length; i++) {
+                if ((sortColumns[i] = columns.get(sortBy[i].property)) == null) {
+                    remaining.setSortBy(sortBy);
+                    sortColumns = null;
+                    sortBy = null;
+                    break;
+                }
+            }
+        }
+        this.sortBy = sortBy;
+        this.sortColumns = sortColumns;
+        keyColumn = null;
+        lowerKey  = 0;
+        upperKey  = 0;
+        /*
+         * Offset and limit can be translated only if there is no remaining filter or sorting to apply
+         * in Java code, since they must be applied after filtering and sorting. We do not translate a
+         * limit of zero because some databases require a strictly positive number of rows.
+         */
+        isComplete = remaining.getConditions().isEmpty() && remaining.getBounds() == null && remaining.getSortBy() == null;
+        if (isComplete && query.getLimit() != 0) {
+            offset = query.getOffset();
+            limit  = query.getLimit();
+        } else {
+            offset = 0;
+            limit  = -1;
+            remaining.setOffset(query.getOffset());
+            remaining.setLimit (query.getLimit());
+        }
+        /*
+         * Select only the columns of the properties in the projection, completed with the primary keys
+         * (required for feature identifiers) and the properties needed by the remaining query.
+         * If there is a remaining bounding box, we do not know which columns are needed for the
+         * default geometry, so we keep all of them.
+         */
+        final String[] projection = query.getProjection();
+        if (projection != null && remaining.getBounds() == null) {
+            final Set<String> names = new HashSet<>(Arrays.asList(projection));
+            for (final SimpleQuery.Condition condition : remaining.getConditions()) {
+                names.add(condition.property);
+            }
+            final SimpleQuery.SortKey[] keys = remaining.getSortBy();
+            if (keys != null) {
+                for (final SimpleQuery.SortKey key : keys) {
+                    names.add(key.property);
+                }
+            }
+            final List<String> selectedNames   = new ArrayList<>();
+            final List<String> selectedColumns = new ArrayList<>();
+            for (int i=0; i<table.attributeNames.length; i++) {
+                final String column = table.attributeColumns[i];
+                if (names.contains(table.attributeNames[i]) ||
+                        (table.primaryKeys != null && ArraysExt.contains(table.primaryKeys, column)))
+                {
+                    selectedNames  .add(table.attributeNames[i]);
+                    selectedColumns.add(column);
+                }
+            }
+            attributeNames   = selectedNames  .toArray(new String[selectedNames  .size()]);
+            attributeColumns = selectedColumns.toArray(new String[selectedColumns.size()]);
+            importedKeys     = select(table.importedKeys, names);
+            exportedKeys     = select(table.exportedKeys, names);
+        } else {
+            attributeNames   = table.attributeNames;
+            attributeColumns = table.attributeColumns;
+            importedKeys     = table.importedKeys;
+            exportedKeys     = table.exportedKeys;
+        }
+    }
+
+    /**
+     * Returns the relations stored in a property of the given names, or {@code null} if none.
+     */
+    private static Relation[] select(final Relation[] relations, final Set<String> names) {
+        if (relations == null) {
+            return null;
+        }
+        final List<Relation> selected = new ArrayList<>(relations.length);
+        for (final Relation relation : relations) {
+            if (names.contains(relation.propertyName)) {
+                selected.add(relation);
+            }
+        }
+        return selected.isEmpty() ? null : selected.toArray(new Relation[selected.size()]);
+    }
+
+    /**
+     * Returns whether the features in this subset can be read by many queries on different ranges of keys.
+     * This is possible only if the features do not need to be read in a particular order and if there is
+     * no offset or limit to apply on the whole set.
+     */
+    final boolean isSplittable() {
+        return sortBy == null && offset == 0 && limit < 0 && keyColumn == null;
+    }
+
+    /**
+     * Returns a copy of this subset restricted to the given range of primary key values.
+     *
+     * @param  column  the primary key column.
+     * @param  lower   the minimal key value, inclusive.
+     * @param  upper   the maximal key value, inclusive.
+     * @return a subset of this subset for the given range of keys.
+     */
+    final TableSubset range(final String column, final long lower, final long upper) {
+        return new TableSubset(this, column, lower, upper);
+    }
+
+    /**
+     * Appends the {@code WHERE}, {@code ORDER BY}, {@code OFFSET} and {@code FETCH} clauses to the given query.
+     * The conditions values are left as parameters to be set by {@link #setParameters(PreparedStatement)}.
+     */
+    final void appendTo(final SQLBuilder sql) {
+        String separator = " WHERE ";
+        for (int i=0; i<conditions.length; i++) {
+            sql.append(separator).appendIdentifier(conditionColumns[i]).append(' ').append(conditions[i].operator.symbol).append(" ?");
+            separator = " AND ";
+        }
+        if (keyColumn != null) {
+            sql.append(separator).appendIdentifier(keyColumn).append(" BETWEEN ? AND ?");
+        }
+        if (sortBy != null) {
+            separator = " ORDER BY ";
+            for (int i=0; i<sortBy.length; i++) {
+                sql.append(separator).appendIdentifier(sortColumns[i]).append(sortBy[i].ascending ? " ASC" : " DESC").append(" NULLS LAST");
+                separator = ", ";
+            }
+        }
+        if (offset != 0) {
+            sql.append(" OFFSET ").append(Long.toString(offset)).append(" ROWS");
+        }
+        if (limit >= 0) {
+            sql.append(" FETCH FIRST ").append(Long.toString(limit)).append(" ROWS ONLY");
+        }
+    }
+
+    /**
+     * Sets the values of the conditions in the given statement.
+     * The statement shall have been created from a query completed by {@link #appendTo(SQLBuilder)}.
+     */
+    final void setParameters(final PreparedStatement statement) throws SQLException {
+        for (int i=0; i<conditions.length; i++) {
+            statement.setObject(i+1, conditions[i].value);
+        }
+        if (keyColumn != null) {
+            statement.setLong(conditions.length + 1, lowerKey);
+            statement.setLong(conditions.length + 2, upperKey);
+        }
+    }
+
+    /**
+     * Returns an estimation of the number of rows in this subset, given the number of rows in the table.
+     * This method returns 0 (meaning unknown) if the rows are filtered by a condition or a range of keys.
+     */
+    final long estimatedSize(long count) {
+        if (conditions.length != 0 || keyColumn != null) {
+            return 0;
+        }
+        count = Math.max(0, count - offset);
+        if (limit >= 0) {
+            count = Math.min(count, limit);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the type of features in this subset. Properties that are not in the projection
+     * are still declared in the type, but are left to their default value in feature instances.
+     */
+    @Override
+    public DefaultFeatureType getType() {
+        return table.featureType;
+    }
+
+    /**
+     * Returns a stream of the features in this subset.
+     *
+     * @param  parallel  {@code true} for a parallel stream (if supported), or {@code false} for a sequential stream.
+     * @return all features in this subset.
+     * @throws DataStoreException if an error occurred while creating the stream.
+     */
+    @Override
+    public Stream<AbstractFeature> features(final boolean parallel) throws DataStoreException {
+        return table.features(parallel, this);
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.internal.sql.feature;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.LocalDateTime;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+
+/**
+ * Getters for the value of a column in a {@link ResultSet}, selected from the type of the feature attribute.
+ * Using typed getters avoids the driver-specific conversions of {@link ResultSet#getObject(int)}, which may
+ * return a type different than the attribute value class (for example {@link Date} instead of {@link LocalDate}).
+ * The getter of each column is selected once per query.
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+enum ValueGetter {
+    /**
+     * Value of a column of arbitrary type, obtained by {@link ResultSet#getObject(int)}.
+     */
+    OBJECT {
+        @Override Object getValue(final ResultSet source, final int column) throws SQLException {
+            return source.getObject(column);
+        }
+    },
+
+    /**
+     * Value of a column of type {@link String}.
+     */
+    STRING {
+        @Override Object getValue(final ResultSet source, final int column) throws SQLException {
+            return source.getString(column);
+        }
+    },
+
+    /**
+     * Value of a column of type {@link Boolean}.
+     */
+    BOOLEAN {
+        @Override Object getValue(final ResultSet source, final int column) throws SQLException {
+            final boolean value = source.getBoolean(column);
+            return source.wasNull() ? null : value;
+        }
+    },
+
+    /**
+     * Value of a column of type {@link Byte}.
+     */
+    BYTE {
+        @Override Object getValue(final ResultSet source, final int column) throws SQLException {
+            final byte value = source.getByte(column);
+            return source.wasNull() ? null : value;
+        }
+    },
+
+    /**
+     * Value of a column of type {@link Short}.
+     */
+    SHORT {
+        @Override Object getValue(final ResultSet source, final int column) throws SQLException {
+            final short value = source.getShort(column);
+            return source.wasNull() ? null : value;
+        }
+    },
+
+    /**
+     * Value of a column of type {@link Integer}.
+     */
+    INTEGER {
+        @Override Object getValue(final ResultSet source, final int column) throws SQLException {
+            final int value = source.getInt(column);
+            return source.wasNull() ? null : value;
+        }
+    },
+
+    /**
+     * Value of a column of type {@link Long}.
+     */
+    LONG {
+        @Override Object getValue(final ResultSet source, final int column) throws SQLException {
+            final long value = source.getLong(column);
+            return source.wasNull() ? null : value;
+        }
+    },
+
+    /**
+     * Value of a column of type {@link Float}.
+     */
+    FLOAT {
+        @Override Object getValue(final ResultSet source, final int column) throws SQLException {
+            final float value = source.getFloat(column);
+            return source.wasNull() ? null : value;
+        }
+    },
+
+    /**
+     * Value of a column of type {@link Double}.
+     */
+    DOUBLE {
+        @Override Object getValue(final ResultSet source, final int column) throws SQLException {
+            final double value = source.getDouble(column);
+            return source.wasNull() ? null : value;
+        }
+    },
+
+    /**
+     * Value of a column of type {@link BigDecimal}.
+     */
+    DECIMAL {
+        @Override Object getValue(final ResultSet source, final int column) throws SQLException {
+            return source.getBigDecimal(column);
+        }
+    },
+
+    /**
+     * Value of a column of type {@link LocalDate}.
+     */
+    DATE {
+        @Override Object getValue(final ResultSet source, final int column) throws SQLException {
+            final Date value = source.getDate(column);
+            return (value != null) ? value.toLocalDate() : null;
+        }
+    },
+
+    /**
+     * Value of a column of type {@link LocalTime}.
+     */
+    TIME {
+        @Override Object getValue(final ResultSet source, final int column) throws SQLException {
+            final Time value = source.getTime(column);
+            return (value != null) ? value.toLocalTime() : null;
+        }
+    },
+
+    /**
+     * Value of a column of type {@link LocalDateTime}.
+     */
+    TIMESTAMP {
+        @Override Object getValue(final ResultSet source, final int column) throws SQLException {
+            final Timestamp value = source.getTimestamp(column);
+            return (value != null) ? value.toLocalDateTime() : null;
+        }
+    },
+
+    /**
+     * Value of a column of type {@code byte[]}.
+     */
+    BYTES {
+        @Override Object getValue(final ResultSet source, final int column) throws SQLException {
+            return source.getBytes(column);
+        }
+    };
+
+    /**
+     * Returns the value in the given column of the current row, or {@code null} if the value is SQL {@code NULL}.
+     *
+     * @param  source  the result set from which to get the value.
+     * @param  column  one-based index of the column.
+     * @return value in the given column, or {@code null} if none.
+     * @throws SQLException if an error occurred while reading the value.
+     */
+    abstract Object getValue(ResultSet source, int column) throws SQLException;
+
+    /**
+     * Returns the getter for values of the given class. This method recognizes the classes returned by
+     * {@link SpatialFunctions#toJavaType(int, String)}, and fallbacks on {@link #OBJECT} for other classes.
+     *
+     * @param  type  the class of attribute values.
+     * @return the getter to use for the given type (never {@code null}).
+     */
+    static ValueGetter forType(final Class<?> type) {
+        if (type == String.class)        return STRING;
+        if (type == Integer.class)       return INTEGER;
+        if (type == Double.class)        return DOUBLE;
+        if (type == Long.class)          return LONG;
+        if (type == Short.class)         return SHORT;
+        if (type == Float.class)         return FLOAT;
+        if (type == Boolean.class)       return BOOLEAN;
+        if (type == Byte.class)          return BYTE;
+        if (type == BigDecimal.class)    return DECIMAL;
+        if (type == LocalDate.class)     return DATE;
+        if (type == LocalTime.class)     return TIME;
+        if (type == LocalDateTime.class) return TIMESTAMP;
+        if (type == byte[].class)        return BYTES;
+        return OBJECT;
+    }
+}
@@ -29,6 +29,7 @@ import org.opengis.metadata.spatial.SpatialRepresentationType;
 import org.apache.sis.storage.Resource;
 import org.apache.sis.storage.Aggregate;
 import org.apache.sis.storage.DataStore;
+import org.apache.sis.storage.DataOptionKey;
 import org.apache.sis.storage.DataStoreException;
 import org.apache.sis.storage.IllegalNameException;
 import org.apache.sis.storage.StorageConnector;
@@ -50,7 +51,7 @@ import org.apache.sis.util.Exceptions;
  *
  * @author  Johann Sorel (Geomatys)
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   1.0
  * @module
  */
@@ -82,6 +83,13 @@ public class SQLStore extends DataStore implements Aggregate {
      */
     private final GenericName[] tableNames;
 
+    /**
+     * Number of rows to fetch in each round trip to the database, or 0 for the driver default.
+     *
+     * @see DataOptionKey#FETCH_SIZE
+     */
+    private final int fetchSize;
+
     /**
      * The metadata, created when first requested.
      */
@@ -125,6 +133,13 @@ public class SQLStore extends DataStore implements Aggregate {
             }
         }
         this.tableNames = tableNames;
+        final Integer n = connector.getOption(DataOptionKey.FETCH_SIZE);
+        if (n != null) {
+            ArgumentChecks.ensurePositive("fetchSize", n);
+            fetchSize = n;
+        } else {
+            fetchSize = 0;
+        }
     }
 
     /**
@@ -161,7 +176,7 @@ public class SQLStore extends DataStore implements Aggregate {
     private synchronized Database model() throws DataStoreException {
         if (model == null) {
             try (Connection c = source.getConnection()) {
-                model = new Database(this, c, source, tableNames, listeners);
+                model = new Database(this, c, source, tableNames, fetchSize, listeners);
             } catch (SQLException e) {
                 throw new DataStoreException(Exceptions.unwrap(e));
             }
@@ -178,7 +193,7 @@ public class SQLStore extends DataStore implements Aggregate {
      */
     private Database model(final Connection c) throws DataStoreException, SQLException {
         if (model == null) {
-            model = new Database(this, c, source, tableNames, listeners);
+            model = new Database(this, c, source, tableNames, fetchSize, listeners);
         }
         return model;
     }
@@ -21,7 +21,24 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.List;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.apache.sis.internal.storage.query.SimpleQuery;
+import org.apache.sis.storage.DataOptionKey;
 import org.apache.sis.storage.FeatureSet;
 import org.apache.sis.storage.StorageConnector;
 import org.apache.sis.test.sql.TestDatabase;
@@ -42,7 +59,7 @@ import org.apache.sis.feature.DefaultAssociationRole;
  * Tests {@link SQLStore}.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   1.0
  * @module
  */
@@ -94,6 +111,254 @@ public final strictfp class SQLStoreTest extends TestCase {
         test(TestDatabase.createOnPostgreSQL(SCHEMA, true), false);
     }
 
+    /**
+     * Tests parallel reading of a table having an integer primary key. The stream shall be split in ranges
+     * of keys read by different SQL queries, and the union of all ranges shall contain all rows exactly once.
+     * This test also sets a fetch size, which disables auto-commit while the rows are read.
+     *
+     * @throws Exception if an error occurred while testing the database.
+     *
+     * @since 1.1
+     */
+    @Test
+    public void testParallel() throws Exception {
+        final int count = 5000;
+        try (TestDatabase tmp = TestDatabase.create("SQLStoreParallel")) {
+            try (Connection c = tmp.source.getConnection()) {
+                try (Statement s = c.createStatement()) {
+                    s.executeUpdate("CREATE TABLE \"Numbers\" (\"id\" INTEGER NOT NULL PRIMARY KEY, \"value\" INTEGER NOT NULL)");
+                }
+                try (PreparedStatement s = c.prepareStatement("INSERT INTO \"Numbers\" VALUES (?,?)")) {
+                    for (int i=1; i<=count; i++) {
+                        s.setInt(1, i);
+                        s.setInt(2, 2*i);
+                        s.addBatch();
+                    }
+                    s.executeBatch();
+                }
+            }
+            final StorageConnector connector = new StorageConnector(tmp.source);
+            connector.setOption(DataOptionKey.FETCH_SIZE, 500);
+            try (SQLStore store = new SQLStore(new SQLStoreProvider(), connector,
+                    SQLStoreProvider.createTableName(null, null, "Numbers")))
+            {
+                final FeatureSet numbers = (FeatureSet) store.findResource("Numbers");
+                try (Stream<AbstractFeature> features = numbers.features(true)) {
+                    final Spliterator<AbstractFeature> it = features.spliterator();
+                    final Spliterator<AbstractFeature> prefix = it.trySplit();
+                    assertNotNull("trySplit", prefix);
+                    final Set<Object> ids = new HashSet<>();
+                    final Consumer<AbstractFeature> action = (f) -> {
+                        assertEquals("value", 2 * (Integer) f.getPropertyValue("id"), f.getPropertyValue("value"));
+                        assertTrue("id", ids.add(f.getPropertyValue("id")));
+                    };
+                    prefix.forEachRemaining(action);
+                    it.forEachRemaining(action);
+                    assertEquals("count", count, ids.size());
+                }
+                try (Stream<AbstractFeature> features = numbers.features(true)) {
+                    assertEquals("sum", (long) count * (count + 1),
+                            features.mapToLong((f) -> (Integer) f.getPropertyValue("value")).sum());
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests the resolution of associations when the rows are read in many windows, which causes the referenced
+     * features to be fetched in many batches. The foreigner keys include a single-column key of a type different
+     * than the referenced primary key, a multi-column key, null keys and keys referencing rows that do not exist.
+     * The later are created with referential integrity disabled and shall be resolved as a null association.
+     * A dangling key which appears in many windows shall be queried only once.
+     *
+     * @throws Exception if an error occurred while testing the database.
+     *
+     * @since 1.1
+     */
+    @Test
+    public void testBatchAssociations() throws Exception {
+        final int count = 250;                              // More than twice the number of rows in a window.
+        try (TestDatabase tmp = TestDatabase.createOnHSQLDB("SQLStoreBatch", true)) {
+            try (Connection c = tmp.source.getConnection()) {
+                try (Statement s = c.createStatement()) {
+                    s.executeUpdate("CREATE TABLE \"Parents\" (\"id\" BIGINT NOT NULL PRIMARY KEY, \"name\" VARCHAR(20))");
+                    s.executeUpdate("CREATE TABLE \"Pairs\" (\"a\" INTEGER NOT NULL, \"b\" VARCHAR(10) NOT NULL,"
+                            + " \"name\" VARCHAR(20), CONSTRAINT \"PK_Pair\" PRIMARY KEY (\"a\", \"b\"))");
+                    s.executeUpdate("CREATE TABLE \"Children\" (\"id\" INTEGER NOT NULL PRIMARY KEY, \"parent\" INTEGER,"
+                            + " \"pair_a\" INTEGER, \"pair_b\" VARCHAR(10),"
+                            + " CONSTRAINT \"FK_Parent\" FOREIGN KEY (\"parent\") REFERENCES \"Parents\" (\"id\"),"
+                            + " CONSTRAINT \"FK_Pair\" FOREIGN KEY (\"pair_a\", \"pair_b\") REFERENCES \"Pairs\" (\"a\", \"b\"))");
+                    s.executeUpdate("SET DATABASE REFERENTIAL INTEGRITY FALSE");
+                }
+                try (PreparedStatement s = c.prepareStatement("INSERT INTO \"Parents\" VALUES (?,?)")) {
+                    for (int i=1; i<=150; i++) {
+                        s.setLong(1, i);
+                        s.setString(2, "P" + i);
+                        s.addBatch();
+                    }
+                    s.executeBatch();
+                }
+                try (PreparedStatement s = c.prepareStatement("INSERT INTO \"Pairs\" VALUES (?,?,?)")) {
+                    for (int a=1; a<=30; a++) {
+                        for (final String b : new String[] {"x", "y"}) {
+                            s.setInt(1, a);
+                            s.setString(2, b);
+                            s.setString(3, b + a);
+                            s.addBatch();
+                        }
+                    }
+                    s.executeBatch();
+                }
+                try (PreparedStatement s = c.prepareStatement("INSERT INTO \"Children\" VALUES (?,?,?,?)")) {
+                    for (int i=1; i<=count; i++) {
+                        s.setInt(1, i);
+                        s.setObject(2, expectedParent(i), Types.INTEGER);
+                        if (i % 60 == 0) {
+                            s.setInt(3, 999);                       // Reference a pair that does not exist.
+                            s.setString(4, "z");
+                        } else {
+                            s.setInt(3, i % 30 + 1);
+                            s.setString(4, (i / 30 & 1) == 0 ? "x" : "y");
+                        }
+                        s.addBatch();
+                    }
+                    s.executeBatch();
+                }
+            }
+            final Map<String,Integer> executions = new ConcurrentHashMap<>();
+            try (SQLStore store = new SQLStore(new SQLStoreProvider(), new StorageConnector(QueryCounter.wrap(tmp.source, executions)),
+                    SQLStoreProvider.createTableName(null, null, "Children")))
+            {
+                final FeatureSet children = (FeatureSet) store.findResource("Children");
+                final Map<Integer,Object> parents = new HashMap<>();
+                final Map<String,Object>  pairs   = new HashMap<>();
+                final Set<Object> ids = new HashSet<>();
+                try (Stream<AbstractFeature> features = children.features(false)) {
+                    features.forEach((f) -> {
+                        final int i = (Integer) f.getPropertyValue("id");
+                        assertTrue("id", ids.add(i));
+                        final Object parent = f.getPropertyValue("parent");
+                        final Integer pid = expectedParent(i);
+                        if (pid == null || pid > 150) {
+                            assertNull("parent", parent);
+                        } else {
+                            final AbstractFeature pf = (AbstractFeature) parent;
+                            assertEquals("parent.id",   pid.longValue(), pf.getPropertyValue("id"));
+                            assertEquals("parent.name", "P" + pid,       pf.getPropertyValue("name"));
+                            final Object previous = parents.putIfAbsent(pid, pf);
+                            if (previous != null) assertSame("parent", previous, pf);
+                        }
+                        final Object pair = f.getPropertyValue("FK_Pair");
+                        if (i % 60 == 0) {
+                            assertNull("pair", pair);
+                        } else {
+                            final AbstractFeature pf = (AbstractFeature) pair;
+                            final String name = ((i / 30 & 1) == 0 ? "x" : "y") + (i % 30 + 1);
+                            assertEquals("pair.name", name, pf.getPropertyValue("name"));
+                            final Object previous = pairs.putIfAbsent(name, pf);
+                            if (previous != null) assertSame("pair", previous, pf);
+                        }
+                    });
+                }
+                assertEquals("count", count, ids.size());
+                final Set<Integer> expectedParents = new HashSet<>();
+                final Set<String>  expectedPairs   = new HashSet<>();
+                for (int i=1; i<=count; i++) {
+                    final Integer pid = expectedParent(i);
+                    if (pid != null && pid <= 150) expectedParents.add(pid);
+                    if (i % 60 != 0) expectedPairs.add(((i / 30 & 1) == 0 ? "x" : "y") + (i % 30 + 1));
+                }
+                assertEquals("parents", expectedParents, parents.keySet());
+                assertEquals("pairs",   expectedPairs,   pairs.keySet());
+            }
+            /*
+             * The dangling pair key (999, "z") appears in 3 windows. The query for a single pair
+             * (the one without "OR" in its WHERE clause) shall have been executed only once.
+             */
+            int singlePairQueries = 0;
+            for (final Map.Entry<String,Integer> entry : executions.entrySet()) {
+                final String sql = entry.getKey();
+                if (sql.contains("\"Pairs\"") && !sql.contains(" OR ")) {
+                    singlePairQueries += entry.getValue();
+                }
+            }
+            assertEquals("Queries for dangling pair key.", 1, singlePairQueries);
+        }
+    }
+
+    /**
+     * Wrapper around a data source, connection or prepared statement which counts the number of executions
+     * of each prepared query. Used by {@link #testBatchAssociations()} for verifying that dangling keys are
+     * not queried many times.
+     */
+    private static final class QueryCounter implements InvocationHandler {
+        /** The data source, connection or prepared statement to wrap. */
+        private final Object target;
+
+        /** The SQL of the prepared statement, or {@code null} if the target is not a prepared statement. */
+        private final String sql;
+
+        /** Number of executions of each prepared query. */
+        private final Map<String,Integer> executions;
+
+        /** Creates a new handler for the given target. */
+        private QueryCounter(final Object target, final String sql, final Map<String,Integer> executions) {
+            this.target     = target;
+            this.sql        = sql;
+            this.executions = executions;
+        }
+
+        /** Returns a data source which counts the executions of prepared queries in the given map. */
+        static DataSource wrap(final DataSource source, final Map<String,Integer> executions) {
+            return wrap(DataSource.class, source, null, executions);
+        }
+
+        /** Returns a proxy for the given target. */
+        private static <T> T wrap(final Class<T> type, final Object target, final String sql, final Map<String,Integer> executions) {
+            return type.cast(Proxy.newProxyInstance(QueryCounter.class.getClassLoader(),
+                    new Class<?>[] {type}, new QueryCounter(target, sql, executions)));
+        }
+
+        /** Delegates to the target, counting query executions and wrapping connections and statements. */
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            final Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            switch (method.getName()) {
+                case "getConnection": {
+                    if (result instanceof Connection) {
+                        return wrap(Connection.class, result, null, executions);
+                    }
+                    break;
+                }
+                case "prepareStatement": {
+                    return wrap(PreparedStatement.class, result, (String) args[0], executions);
+                }
+                case "executeQuery": {
+                    if (sql != null && args == null) {
+                        executions.merge(sql, 1, Integer::sum);
+                    }
+                    break;
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Returns the parent identifier of the child having the given identifier in {@link #testBatchAssociations()},
+     * or {@code null} if none. Identifiers greater than 150 reference parents that do not exist.
+     */
+    private static Integer expectedParent(final int i) {
+        if (i % 7 == 0) return null;
+        if (i % 50 == 0) return 1000 + i;
+        return (i - 1) % 150 + 1;
+    }
+
     /**
      * Tests reading an existing schema. The schema is created and populated by the {@code Features.sql} script.
      *
@@ -130,6 +395,7 @@ public final strictfp class SQLStoreTest extends TestCase {
                 try (Stream<AbstractFeature> features = cities.features(false)) {
                     features.forEach((f) -> verifyContent(f));
                 }
+                verifyQueries(cities);
             }
         }
         assertEquals(Integer.valueOf(2), countryCount.remove("CAN"));
@@ -258,6 +524,53 @@ public final strictfp class SQLStoreTest extends TestCase {
         }
     }
 
+    /**
+     * Verifies the result of queries on the {@code "Cities"} table. The first query is fully translated in SQL.
+     * The second query sorts on an operation, which can not be translated in SQL; the sort, offset and limit
+     * shall be applied in Java code. The third query is like the second one with a projection, which shall
+     * be honored by the Java code too.
+     */
+    private static void verifyQueries(final FeatureSet cities) throws Exception {
+        SimpleQuery query = new SimpleQuery();
+        query.setProjection("english_name");
+        query.addCondition("population", SimpleQuery.Comparison.GREATER, 1000000L);
+        query.setSortBy(new SimpleQuery.SortKey("population", false));
+        query.setOffset(1);
+        query.setLimit(1);
+        List<AbstractFeature> result = list(cities.subset(query));
+        assertEquals("size", 1, result.size());
+        AbstractFeature feature = result.get(0);
+        assertEquals("english_name",   "Paris",     feature.getPropertyValue("english_name"));
+        assertEquals("sis:identifier", "FRA:Paris", feature.getPropertyValue("sis:identifier"));
+        assertNull  ("population",                  feature.getPropertyValue("population"));
+
+        query = new SimpleQuery();
+        query.setSortBy(new SimpleQuery.SortKey("sis:identifier", true));
+        query.setLimit(2);
+        result = list(cities.subset(query));
+        assertEquals("size", 2, result.size());
+        assertEquals("sis:identifier", "CAN:Montréal", result.get(0).getPropertyValue("sis:identifier"));
+        assertEquals("sis:identifier", "CAN:Québec",   result.get(1).getPropertyValue("sis:identifier"));
+
+        query.setProjection("english_name");
+        query.addCondition("population", SimpleQuery.Comparison.LESS, 1000000L);
+        result = list(cities.subset(query));
+        assertEquals("size", 1, result.size());
+        feature = result.get(0);
+        assertEquals("english_name",   "Quebec",     feature.getPropertyValue("english_name"));
+        assertEquals("sis:identifier", "CAN:Québec", feature.getPropertyValue("sis:identifier"));
+        assertNull  ("population",                   feature.getPropertyValue("population"));
+    }
+
+    /**
+     * Returns all features in the given set.
+     */
+    private static List<AbstractFeature> list(final FeatureSet features) throws Exception {
+        try (Stream<AbstractFeature> stream = features.features(false)) {
+            return stream.collect(Collectors.toList());
+        }
+    }
+
     /**
      * Follows an association in the given feature.
      */
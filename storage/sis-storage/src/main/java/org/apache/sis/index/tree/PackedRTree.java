@@ -0,0 +1,671 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.index.tree;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.opengis.geometry.Envelope;
+import org.opengis.geometry.DirectPosition;
+import org.opengis.geometry.MismatchedDimensionException;
+import org.opengis.referencing.cs.RangeMeaning;
+import org.opengis.referencing.cs.CoordinateSystem;
+import org.opengis.referencing.cs.CoordinateSystemAxis;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.util.FactoryException;
+import org.apache.sis.geometry.Envelopes;
+import org.apache.sis.geometry.GeneralEnvelope;
+import org.apache.sis.geometry.GeneralDirectPosition;
+import org.apache.sis.internal.storage.Resources;
+import org.apache.sis.referencing.CRS;
+import org.apache.sis.referencing.GeodeticCalculator;
+import org.apache.sis.storage.DataStoreContentException;
+import org.apache.sis.storage.DataStoreException;
+import org.apache.sis.util.ArgumentChecks;
+import org.apache.sis.util.Utilities;
+import org.apache.sis.util.resources.Errors;
+
+
+/**
+ * A read-only R-tree packed in a single binary file and queried through a memory-mapped buffer.
+ * The tree is built in one pass by {@link #write write(…)} from the bounding boxes of all entries,
+ * sorted in the order of the Hilbert curve of their centers. The file can then be opened by
+ * {@link #open(Path)} and queried without deserialization, so opening a large index is fast
+ * and consumes almost no heap space.
+ *
+ * <p>Each entry is a two-dimensional bounding box (which may be a point) associated to a {@code long} identifier.
+ * The meaning of identifiers is determined by the caller, for example an index in a list of {@link QuadTreeData}
+ * or a record number in a file. The coordinates are in the Coordinate Reference System given at writing time;
+ * queries in other CRS are transformed to the index CRS.</p>
+ *
+ * <h2>File format</h2>
+ * The file contains a header, followed by all entries as (<var>x</var><sub>min</sub>, <var>y</var><sub>min</sub>,
+ * <var>x</var><sub>max</sub>, <var>y</var><sub>max</sub>, <var>id</var>) tuples, followed by the nodes of each
+ * level of the tree from the leaves to the root as (<var>x</var><sub>min</sub>, <var>y</var><sub>min</sub>,
+ * <var>x</var><sub>max</sub>, <var>y</var><sub>max</sub>) tuples. Each node covers {@code nodeCapacity}
+ * consecutive elements of the level below it, so the children of a node are found by computation
+ * instead of being stored. Current implementation is limited to files of 2 gigabytes.
+ *
+ * <p>Instances of this class are thread-safe. The index should be {@linkplain #close() closed} after usage
+ * for releasing the reference to the mapped buffer. Java provides no public API for unmapping a file,
+ * so the mapping itself is released when the buffer is garbage-collected.</p>
+ *
+ * <div class="warning"><b>Note on future work:</b> this class may change in incompatible way
+ * in a future Apache SIS release, or may be replaced by new API.</div>
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+public final class PackedRTree implements AutoCloseable {
+    /**
+     * A number identifying the file format, as the "SISR" characters in US-ASCII.
+     */
+    private static final int MAGIC_NUMBER = 0x53495352;
+
+    /**
+     * Version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Number of bytes of an entry: 4 coordinates and an identifier.
+     */
+    private static final int ENTRY_SIZE = 4 * Double.BYTES + Long.BYTES;
+
+    /**
+     * Number of bytes of a node: 4 coordinates.
+     */
+    private static final int NODE_SIZE = 4 * Double.BYTES;
+
+    /**
+     * Offset of the {@code long} identifier in an entry.
+     */
+    private static final int ID_OFFSET = 4 * Double.BYTES;
+
+    /**
+     * Default maximal number of children in each node.
+     */
+    public static final int DEFAULT_NODE_CAPACITY = 16;
+
+    /**
+     * Number of bits used in each dimension for computing the position on the Hilbert curve.
+     */
+    private static final int HILBERT_ORDER = 16;
+
+    /**
+     * The memory-mapped content of the file, or {@code null} if this index has been closed.
+     *
+     * @see #buffer()
+     * @see #close()
+     */
+    private volatile ByteBuffer buffer;
+
+    /**
+     * Maximal number of children in each node.
+     */
+    private final int nodeCapacity;
+
+    /**
+     * Number of elements in each level, with entries at index 0 and the root node at the last index.
+     */
+    private final int[] levelSizes;
+
+    /**
+     * Position in the buffer of the first element of each level.
+     */
+    private final int[] levelOffsets;
+
+    /**
+     * The coordinate reference system of entries, or {@code null} if unknown.
+     */
+    private final CoordinateReferenceSystem crs;
+
+    /**
+     * Creates a new tree for the given file content.
+     */
+    private PackedRTree(final ByteBuffer buffer, final int nodeCapacity, final int entryCount,
+                        final int dataStart, final CoordinateReferenceSystem crs)
+    {
+        this.buffer       = buffer;
+        this.nodeCapacity = nodeCapacity;
+        this.crs          = crs;
+        levelSizes   = levelSizes(entryCount, nodeCapacity);
+        levelOffsets = new int[levelSizes.length];
+        int offset = dataStart;
+        for (int i=0; i<levelSizes.length; i++) {
+            levelOffsets[i] = offset;
+            offset += levelSizes[i] * (i == 0 ? ENTRY_SIZE : NODE_SIZE);
+        }
+    }
+
+    /**
+     * Returns the number of elements in each level of a tree, from the entries to the root.
+     * If there is no entry, then this method returns an array containing only 0.
+     */
+    private static int[] levelSizes(int count, final int nodeCapacity) {
+        int[] sizes = new int[] {count};
+        while (count > 1 || sizes.length == 1 && count == 1) {
+            count = (count + nodeCapacity - 1) / nodeCapacity;
+            sizes = Arrays.copyOf(sizes, sizes.length + 1);
+            sizes[sizes.length - 1] = count;
+        }
+        return sizes;
+    }
+
+    /**
+     * Returns the size of the header, rounded to a multiple of 8 bytes.
+     */
+    private static int headerSize(final byte[] wkt) {
+        return (5*Integer.BYTES + wkt.length + 7) & ~7;
+    }
+
+    /**
+     * Writes an index for the given bounding boxes in the given file. The {@code bounds} array contains
+     * (<var>x</var><sub>min</sub>, <var>y</var><sub>min</sub>, <var>x</var><sub>max</sub>, <var>y</var><sub>max</sub>)
+     * tuples for each entry; points are represented by boxes having the same minimal and maximal coordinates.
+     * If the file already exists, it is overwritten.
+     *
+     * @param  file          the file where to write the index.
+     * @param  bounds        the bounding boxes of all entries, as 4 coordinates for each entry.
+     * @param  ids           the identifiers of all entries, or {@code null} for using the entry indices.
+     * @param  crs           the coordinate reference system of the bounding boxes, or {@code null} if unknown.
+     * @param  nodeCapacity  maximal number of children in each node, typically {@value #DEFAULT_NODE_CAPACITY}.
+     * @throws IllegalArgumentException if the arrays have inconsistent lengths or if the index would be too large.
+     * @throws IOException if an error occurred while writing the file.
+     */
+    public static void write(final Path file, final double[] bounds, final long[] ids,
+            final CoordinateReferenceSystem crs, final int nodeCapacity) throws IOException
+    {
+        ArgumentChecks.ensureNonNull("file",   file);
+        ArgumentChecks.ensureNonNull("bounds", bounds);
+        ArgumentChecks.ensureBetween("nodeCapacity", 2, Short.MAX_VALUE, nodeCapacity);
+        if ((bounds.length & 3) != 0) {
+            throw new IllegalArgumentException(Errors.format(Errors.Keys.MismatchedArrayLengths));
+        }
+        final int count = bounds.length / 4;
+        if (ids != null) {
+            ArgumentChecks.ensureExpectedCount("ids", count, ids.length);
+        }
+        final byte[] wkt = (crs != null) ? crs.toWKT().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        final int[] sizes = levelSizes(count, nodeCapacity);
+        long fileSize = headerSize(wkt) + (long) count * ENTRY_SIZE;
+        for (int i=1; i<sizes.length; i++) {
+            fileSize += (long) sizes[i] * NODE_SIZE;
+        }
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(Errors.format(Errors.Keys.ExcessiveListSize_2, "bounds", count));
+        }
+        /*
+         * Sort entries in the order of the Hilbert curve of their centers. The position on the curve
+         * is stored in the high bits of a sort key and the entry index in the 31 lowest bits, so we
+         * can sort an array of primitive values instead of objects.
+         */
+        double xmin = Double.POSITIVE_INFINITY, ymin = Double.POSITIVE_INFINITY;
+        double xmax = Double.NEGATIVE_INFINITY, ymax = Double.NEGATIVE_INFINITY;
+        for (int i=0; i<bounds.length; i += 4) {
+            xmin = Math.min(xmin, bounds[i  ]);
+            ymin = Math.min(ymin, bounds[i+1]);
+            xmax = Math.max(xmax, bounds[i+2]);
+            ymax = Math.max(ymax, bounds[i+3]);
+        }
+        final double grid = (1 << HILBERT_ORDER) - 1;
+        final double sx = (xmax > xmin) ? grid / (xmax - xmin) : 0;
+        final double sy = (ymax > ymin) ? grid / (ymax - ymin) : 0;
+        final long[] keys = new long[count];
+        for (int i=0; i<count; i++) {
+            final int j = i * 4;
+            final int x = (int) (((bounds[j  ] + bounds[j+2]) / 2 - xmin) * sx);
+            final int y = (int) (((bounds[j+1] + bounds[j+3]) / 2 - ymin) * sy);
+            keys[i] = (hilbert(x, y) << Integer.SIZE - 1) | i;
+        }
+        Arrays.sort(keys);
+        /*
+         * Write the header, the entries and the nodes of each level. The bounds of the nodes of a level are
+         * computed from the elements of the level below and kept in memory until they have been written.
+         */
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                          StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            final ByteBuffer out = ByteBuffer.allocate(Math.max(headerSize(wkt), 8192 * ENTRY_SIZE));
+            out.putInt(MAGIC_NUMBER).putInt(VERSION).putInt(nodeCapacity).putInt(count).putInt(wkt.length).put(wkt);
+            while ((out.position() & 7) != 0) out.put((byte) 0);
+            double[] nodes = new double[sizes.length > 1 ? sizes[1] * 4 : 0];
+            Arrays.fill(nodes, Double.NaN);
+            for (int i=0; i<count; i++) {
+                final int index = (int) (keys[i] & Integer.MAX_VALUE);
+                final int j = index * 4;
+                if (out.remaining() < ENTRY_SIZE) {
+                    flush(channel, out);
+                }
+                out.putDouble(bounds[j  ]).putDouble(bounds[j+1]).putDouble(bounds[j+2]).putDouble(bounds[j+3])
+                   .putLong(ids != null ? ids[index] : index);
+                union(nodes, (i / nodeCapacity) * 4, bounds, j);
+            }
+            for (int level=1; level<sizes.length; level++) {
+                final double[] parents = new double[level+1 < sizes.length ? sizes[level+1] * 4 : 0];
+                Arrays.fill(parents, Double.NaN);
+                for (int i=0; i<nodes.length; i += 4) {
+                    if (out.remaining() < NODE_SIZE) {
+                        flush(channel, out);
+                    }
+                    out.putDouble(nodes[i]).putDouble(nodes[i+1]).putDouble(nodes[i+2]).putDouble(nodes[i+3]);
+                    if (parents.length != 0) {
+                        union(parents, (i / 4 / nodeCapacity) * 4, nodes, i);
+                    }
+                }
+                nodes = parents;
+            }
+            flush(channel, out);
+        }
+    }
+
+    /**
+     * Expands the box at index {@code t} in the {@code target} array for containing the box
+     * at index {@code s} in the {@code source} array. NaN values in the target are replaced.
+     */
+    private static void union(final double[] target, final int t, final double[] source, final int s) {
+        if (!(target[t  ] <= source[s  ])) target[t  ] = source[s  ];
+        if (!(target[t+1] <= source[s+1])) target[t+1] = source[s+1];
+        if (!(target[t+2] >= source[s+2])) target[t+2] = source[s+2];
+        if (!(target[t+3] >= source[s+3])) target[t+3] = source[s+3];
+    }
+
+    /**
+     * Writes the content of the given buffer in the given channel, then clears the buffer.
+     */
+    private static void flush(final FileChannel channel, final ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * Returns the position of the given cell on a Hilbert curve of order {@value #HILBERT_ORDER}.
+     */
+    private static long hilbert(int x, int y) {
+        final int n = 1 << HILBERT_ORDER;
+        long d = 0;
+        for (int s = n >>> 1; s > 0; s >>>= 1) {
+            final int rx = (x & s) != 0 ? 1 : 0;
+            final int ry = (y & s) != 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                final int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Opens an index previously written by {@link #write write(…)}. The file is memory-mapped;
+     * no entry is read before a query is executed.
+     *
+     * @param  file  the file to open.
+     * @return the index stored in the given file.
+     * @throws IOException if an error occurred while opening or mapping the file.
+     * @throws DataStoreException if the file is not an index written by this class.
+     */
+    public static PackedRTree open(final Path file) throws IOException, DataStoreException {
+        ArgumentChecks.ensureNonNull("file", file);
+        final ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < 5*Integer.BYTES || buffer.getInt(0) != MAGIC_NUMBER || buffer.getInt(Integer.BYTES) != VERSION) {
+            throw new DataStoreContentException(Resources.format(Resources.Keys.UnknownFormatFor_1, file.getFileName()));
+        }
+        final int nodeCapacity = buffer.getInt(2*Integer.BYTES);
+        final int count        = buffer.getInt(3*Integer.BYTES);
+        final byte[] wkt       = new byte[buffer.getInt(4*Integer.BYTES)];
+        buffer.position(5*Integer.BYTES);
+        buffer.get(wkt);
+        CoordinateReferenceSystem crs = null;
+        if (wkt.length != 0) {
+            final String text = new String(wkt, StandardCharsets.UTF_8);
+            try {
+                crs = CRS.fromWKT(text);
+            } catch (FactoryException e) {
+                throw new DataStoreContentException(Resources.format(Resources.Keys.CanNotReadCRS_WKT_1, file.getFileName()), e);
+            }
+        }
+        final PackedRTree tree = new PackedRTree(buffer, nodeCapacity, count, headerSize(wkt), crs);
+        final int last = tree.levelSizes.length - 1;
+        if (nodeCapacity < 2 || (long) tree.levelOffsets[last] + (long) tree.levelSizes[last] * NODE_SIZE > buffer.limit()) {
+            throw new DataStoreContentException(Resources.format(Resources.Keys.UnknownFormatFor_1, file.getFileName()));
+        }
+        return tree;
+    }
+
+    /**
+     * Returns the number of entries in this index.
+     *
+     * @return number of entries.
+     */
+    public int size() {
+        return levelSizes[0];
+    }
+
+    /**
+     * Returns the coordinate reference system of the entries, or {@code null} if unknown.
+     *
+     * @return the CRS of entries, or {@code null}.
+     */
+    public CoordinateReferenceSystem getCoordinateReferenceSystem() {
+        return crs;
+    }
+
+    /**
+     * Returns the union of the bounding boxes of all entries, or {@code null} if this index is empty.
+     *
+     * @return the bounds of all entries, or {@code null} if none.
+     */
+    public Envelope getEnvelope() {
+        final int level = levelSizes.length - 1;
+        if (level == 0) {
+            return null;
+        }
+        final ByteBuffer buffer = buffer();
+        final int offset = levelOffsets[level];
+        final GeneralEnvelope envelope = new GeneralEnvelope(2);
+        envelope.setRange(0, buffer.getDouble(offset),              buffer.getDouble(offset + 2*Double.BYTES));
+        envelope.setRange(1, buffer.getDouble(offset + Double.BYTES), buffer.getDouble(offset + 3*Double.BYTES));
+        if (crs != null) {
+            envelope.setCoordinateReferenceSystem(crs);
+        }
+        return envelope;
+    }
+
+    /**
+     * Gives to the given action the identifiers of all entries intersecting the given bounding box.
+     * If the envelope has a coordinate reference system different than the CRS of this index, then
+     * the envelope is transformed. If the envelope crosses the anti-meridian, it is handled as two boxes.
+     *
+     * @param  region  the region of interest.
+     * @param  action  the action to execute for the identifier of each entry intersecting the region.
+     * @throws TransformException if the region can not be transformed to the CRS of this index.
+     * @throws MismatchedDimensionException if the region is not two-dimensional.
+     * @throws IllegalStateException if this index has been closed.
+     */
+    public void queryByBoundingBox(Envelope region, final LongConsumer action) throws TransformException {
+        ArgumentChecks.ensureNonNull("region", region);
+        ArgumentChecks.ensureNonNull("action", action);
+        ArgumentChecks.ensureDimensionMatches("region", 2, region);
+        final ByteBuffer buffer = buffer();
+        final CoordinateReferenceSystem regionCRS = region.getCoordinateReferenceSystem();
+        if (crs != null && regionCRS != null && !Utilities.equalsIgnoreMetadata(crs, regionCRS)) {
+            region = Envelopes.transform(region, crs);
+        }
+        for (final Envelope box : GeneralEnvelope.castOrCopy(region).toSimpleEnvelopes()) {
+            search(buffer, box.getMinimum(0), box.getMinimum(1), box.getMaximum(0), box.getMaximum(1),
+                   (offset) -> action.accept(buffer.getLong(offset + ID_OFFSET)));
+        }
+    }
+
+    /**
+     * Returns the identifiers of all entries intersecting the given bounding box.
+     * This is a convenience method for {@link #queryByBoundingBox(Envelope, LongConsumer)}.
+     *
+     * @param  region  the region of interest.
+     * @return identifiers of all entries intersecting the region.
+     * @throws TransformException if the region can not be transformed to the CRS of this index.
+     */
+    public long[] queryByBoundingBox(final Envelope region) throws TransformException {
+        final Collector c = new Collector();
+        queryByBoundingBox(region, c);
+        return c.toArray();
+    }
+
+    /**
+     * Gives to the given action the identifiers of all entries having their center within the given distance
+     * of the given point. Distances are geodesic distances computed on the ellipsoid of the index CRS, in the
+     * units of {@link GeodeticCalculator#getDistanceUnit()} (usually metres).
+     *
+     * @param  center  the center of the region of interest, in any CRS.
+     * @param  radius  the geodesic distance from the center, usually in metres.
+     * @param  action  the action to execute for the identifier of each entry within the given distance.
+     * @throws IllegalStateException if this index has no geodetic coordinate reference system or has been closed.
+     * @throws IllegalArgumentException if the center can not be transformed to the CRS of this index.
+     */
+    public void queryByPointRadius(final DirectPosition center, final double radius, final LongConsumer action) {
+        ArgumentChecks.ensureNonNull("center", center);
+        ArgumentChecks.ensurePositive("radius", radius);
+        ArgumentChecks.ensureNonNull("action", action);
+        if (crs == null) {
+            throw new IllegalStateException(Errors.format(Errors.Keys.UnspecifiedCRS));
+        }
+        final ByteBuffer buffer = buffer();
+        final GeodeticCalculator calculator = GeodeticCalculator.create(crs);
+        calculator.setStartPoint(center);
+        final MathTransform toGeographic;
+        try {
+            toGeographic = CRS.findOperation(crs, calculator.getGeographicCRS(), null).getMathTransform();
+        } catch (FactoryException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        final CoordinateSystem cs = crs.getCoordinateSystem();
+        final double[] min = new double[2], max = new double[2], span = new double[2];
+        for (int i=0; i<2; i++) {
+            final CoordinateSystemAxis axis = cs.getAxis(i);
+            min[i] = axis.getMinimumValue();
+            max[i] = axis.getMaximumValue();
+            if (RangeMeaning.WRAPAROUND.equals(axis.getRangeMeaning())) {
+                span[i] = max[i] - min[i];
+            }
+        }
+        /*
+         * Approximate the circle by a Java2D shape for getting the region to search in the tree.
+         */
+        Rectangle2D area = null;
+        if (radius > 0) {
+            calculator.setGeodesicDistance(radius);
+            area = calculator.createGeodesicCircle2D(radius / 100).getBounds2D();
+        }
+        final DirectPosition start = calculator.getStartPoint();
+        if (area == null || area.isEmpty()) {
+            area = new Rectangle2D.Double(start.getOrdinate(0), start.getOrdinate(1), 0, 0);
+        }
+        /*
+         * Coordinates of entry centers are converted in the same array for all entries,
+         * so the filter below does not allocate any object.
+         */
+        final double[] point = new double[Math.max(2, toGeographic.getTargetDimensions())];
+        final Visitor filter = (offset) -> {
+            point[0] = (buffer.getDouble(offset)                + buffer.getDouble(offset + 2*Double.BYTES)) / 2;
+            point[1] = (buffer.getDouble(offset + Double.BYTES) + buffer.getDouble(offset + 3*Double.BYTES)) / 2;
+            try {
+                toGeographic.transform(point, 0, point, 0, 1);
+            } catch (TransformException e) {
+                return;                             // Entry outside the domain of validity of the index CRS.
+            }
+            calculator.setEndGeographicPoint(point[0], point[1]);
+            if (calculator.getGeodesicDistance() <= radius) {
+                action.accept(buffer.getLong(offset + ID_OFFSET));
+            }
+        };
+        /*
+         * If the region crosses the limit of a wraparound axis (typically the anti-meridian),
+         * search also the part of the region shifted by the axis span. If the circle contains
+         * a pole, the shape is not reliable; search all entries instead.
+         */
+        double xmin = area.getMinX(), xmax = area.getMaxX();
+        double ymin = area.getMinY(), ymax = area.getMaxY();
+        if (containsPole(calculator, radius)) {
+            xmin = ymin = Double.NEGATIVE_INFINITY;
+            xmax = ymax = Double.POSITIVE_INFINITY;
+        }
+        if (span[0] > 0 && xmax - xmin >= span[0]) {xmin = min[0]; xmax = max[0];}
+        if (span[1] > 0 && ymax - ymin >= span[1]) {ymin = min[1]; ymax = max[1];}
+        search(buffer, xmin, ymin, xmax, ymax, filter);
+        if (span[0] > 0) {
+            if (xmin < min[0]) search(buffer, xmin + span[0], ymin, xmax + span[0], ymax, filter);
+            if (xmax > max[0]) search(buffer, xmin - span[0], ymin, xmax - span[0], ymax, filter);
+        }
+        if (span[1] > 0) {
+            if (ymin < min[1]) search(buffer, xmin, ymin + span[1], xmax, ymax + span[1], filter);
+            if (ymax > max[1]) search(buffer, xmin, ymin - span[1], xmax, ymax - span[1], filter);
+        }
+    }
+
+    /**
+     * Returns whether the geodesic circle of the given radius around the calculator start point contains a pole.
+     */
+    private static boolean containsPole(final GeodeticCalculator calculator, final double radius) {
+        final DirectPosition start = new GeneralDirectPosition(calculator.getStartPoint());
+        for (int pole = -90; pole <= 90; pole += 180) {
+            calculator.setEndGeographicPoint(pole, 0);
+            if (calculator.getGeodesicDistance() <= radius) {
+                calculator.setStartPoint(start);
+                return true;
+            }
+        }
+        calculator.setStartPoint(start);
+        return false;
+    }
+
+    /**
+     * Returns the identifiers of all entries having their center within the given distance of the given point.
+     * This is a convenience method for {@link #queryByPointRadius(DirectPosition, double, LongConsumer)}.
+     *
+     * @param  center  the center of the region of interest, in any CRS.
+     * @param  radius  the geodesic distance from the center, usually in metres.
+     * @return identifiers of all entries within the given distance.
+     * @throws IllegalStateException if this index has no geodetic coordinate reference system or has been closed.
+     */
+    public long[] queryByPointRadius(final DirectPosition center, final double radius) {
+        final Collector c = new Collector();
+        queryByPointRadius(center, radius, c);
+        return c.toArray();
+    }
+
+    /**
+     * Returns the memory-mapped content of the file.
+     *
+     * @throws IllegalStateException if this index has been closed.
+     */
+    private ByteBuffer buffer() {
+        final ByteBuffer b = buffer;
+        if (b == null) {
+            throw new IllegalStateException(Resources.format(Resources.Keys.ClosedReader_1, "R-tree"));
+        }
+        return b;
+    }
+
+    /**
+     * Releases the reference to the memory-mapped buffer. Queries executed after this method call
+     * throw {@link IllegalStateException}. The file mapping stays valid until the buffer is
+     * garbage-collected, which may prevent deletion of the file on some platforms in the meantime.
+     * Invoking this method on an index already closed has no effect.
+     */
+    @Override
+    public void close() {
+        buffer = null;
+    }
+
+    /**
+     * Action executed on each entry found by {@link #search search(…)}.
+     */
+    @FunctionalInterface
+    private interface Visitor {
+        /** Invoked for the entry at the given position in the buffer. */
+        void visit(int offset);
+    }
+
+    /**
+     * Visits all entries intersecting the given box. The tree is traversed from the root with an explicit stack
+     * of (level, index) pairs. All values are read from the buffer with absolute getters, which are thread-safe.
+     */
+    private void search(final ByteBuffer buffer, final double xmin, final double ymin,
+                        final double xmax, final double ymax, final Visitor visitor)
+    {
+        int top = levelSizes.length - 1;
+        if (top == 0) {
+            return;
+        }
+        int[] stack = new int[top * nodeCapacity * 2 + 2];
+        int depth = 0;
+        stack[depth++] = top;
+        stack[depth++] = 0;
+        while (depth != 0) {
+            final int index = stack[--depth];
+            final int level = stack[--depth];
+            final int child = level - 1;
+            final int lower = index * nodeCapacity;
+            final int upper = Math.min(lower + nodeCapacity, levelSizes[child]);
+            final int size  = (child == 0) ? ENTRY_SIZE : NODE_SIZE;
+            int offset = levelOffsets[child] + lower * size;
+            for (int i=lower; i<upper; i++, offset += size) {
+                if (buffer.getDouble(offset)                   <= xmax &&
+                    buffer.getDouble(offset + Double.BYTES)    <= ymax &&
+                    buffer.getDouble(offset + 2*Double.BYTES)  >= xmin &&
+                    buffer.getDouble(offset + 3*Double.BYTES)  >= ymin)
+                {
+                    if (child == 0) {
+                        visitor.visit(offset);
+                    } else {
+                        if (depth + 2 > stack.length) {
+                            stack = Arrays.copyOf(stack, stack.length * 2);
+                        }
+                        stack[depth++] = child;
+                        stack[depth++] = i;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects identifiers in a growing array of primitive values.
+     */
+    private static final class Collector implements LongConsumer {
+        /** The identifiers collected so far. */
+        private long[] ids = new long[16];
+
+        /** Number of valid elements in {@link #ids}. */
+        private int count;
+
+        /** Adds the given identifier. */
+        @Override public void accept(final long id) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            ids[count++] = id;
+        }
+
+        /** Returns the identifiers collected so far. */
+        long[] toArray() {
+            return Arrays.copyOf(ids, count);
+        }
+    }
+}
@@ -16,7 +16,7 @@
  */
 
 /**
- * A simple quadtree implementation.
+ * A simple quadtree implementation, and a packed R-tree stored in a memory-mapped file.
  *
  * <div class="warning"><b>Note on future work:</b> this package may change in incompatible way
  * in a future Apache SIS release, or may be replaced by new API.</div>
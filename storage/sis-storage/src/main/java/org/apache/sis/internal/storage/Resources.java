@@ -212,6 +212,12 @@ public final class Resources extends IndexedResourceBundle {
          */
         public static final short FileIsNotAResourceDirectory_1 = 44;
 
+        /**
+         * The “{0}” file is too large for being memory-mapped. It will be read through a buffer
+         * instead.
+         */
+        public static final short FileTooLargeForMapping_1 = 57;
+
         /**
          * Whether to assemble trajectory fragments (lines in CSV file) in a single feature instance.
          */
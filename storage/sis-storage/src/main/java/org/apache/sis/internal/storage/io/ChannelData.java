@@ -32,7 +32,7 @@ import static org.apache.sis.util.ArgumentChecks.ensureBetween;
  * querying or modifying the stream position. This class does not define any read or write operations.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 0.5
+ * @version 1.1
  * @since   0.5 (derived from 0.3)
  * @module
  */
@@ -209,7 +209,8 @@ public abstract class ChannelData implements Markable {
      * portion of the stream will result in an {@link IndexOutOfBoundsException}.
      *
      * <p>This method moves the data starting at the given position to the beginning of the {@link #buffer},
-     * thus making more room for new data before the data at the given position is discarded.</p>
+     * thus making more room for new data before the data at the given position is discarded.
+     * This move is skipped if the buffer is a mapping of the file, since it contains all data.</p>
      *
      * @param  position  the length of the stream prefix that may be flushed.
      * @throws IOException if an I/O error occurred.
@@ -220,11 +221,13 @@ public abstract class ChannelData implements Markable {
             throw new IndexOutOfBoundsException(Errors.format(Errors.Keys.ValueOutOfRange_4,
                     "position", bufferOffset, currentPosition, position));
         }
-        final int n = (int) (position - bufferOffset);
-        final int p = buffer.position() - n;
-        final int r = buffer.limit() - n;
-        flushAndSetPosition(n);                             // Number of bytes to forget.
-        buffer.compact().position(p).limit(r);
+        if (!isMapped()) {
+            final int n = (int) (position - bufferOffset);
+            final int p = buffer.position() - n;
+            final int r = buffer.limit() - n;
+            flushAndSetPosition(n);                         // Number of bytes to forget.
+            buffer.compact().position(p).limit(r);
+        }
         /*
          * Discard trailing obsolete marks. Note that obsolete marks between valid marks
          * can not be discarded - only the trailing obsolete marks can be removed.
@@ -242,6 +245,15 @@ public abstract class ChannelData implements Markable {
         }
     }
 
+    /**
+     * Returns {@code true} if the {@link #buffer} is a read-only mapping of the whole file content.
+     * In such case, the buffer can not be compacted or cleared, and there is no need to do so since
+     * all bytes are already accessible.
+     */
+    boolean isMapped() {
+        return false;
+    }
+
     /**
      * Writes (if applicable) the buffer content up to the given position, then sets the buffer position
      * to the given value. The {@linkplain ByteBuffer#limit() buffer limit} is unchanged, and the buffer
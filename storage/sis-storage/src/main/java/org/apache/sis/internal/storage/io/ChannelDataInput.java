@@ -26,6 +26,7 @@ import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.nio.FloatBuffer;
 import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
@@ -60,8 +61,15 @@ import static org.apache.sis.util.ArgumentChecks.ensureBetween;
  * the {@link javax.imageio.stream.ImageInputStream} one, mostly for situations when inter-operability with
  * {@link javax.imageio} is needed.
  *
+ * <h2>Memory-mapped files</h2>
+ * If this {@code ChannelDataInput} has been created with the {@link #ChannelDataInput(String, FileChannel)}
+ * constructor, then the {@linkplain #buffer buffer} is a read-only mapping of the file content from the channel
+ * position at construction time to the end of file. In that mode, {@link #seek(long)} only moves the buffer
+ * position and all read operations take the bytes directly from the mapping. The operating system loads the
+ * pages of the file lazily, when they are first accessed.
+ *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 0.7
+ * @version 1.1
  * @since   0.3
  * @module
  */
@@ -72,6 +80,14 @@ public class ChannelDataInput extends ChannelData {
      */
     public final ReadableByteChannel channel;
 
+    /**
+     * Whether the {@linkplain #buffer buffer} is a mapping of the file content. If {@code true}, then the buffer
+     * contains all bytes from {@link #channelOffset} to the end of file and {@link #bufferOffset} is always zero.
+     *
+     * @see #isMapped()
+     */
+    private final boolean mapped;
+
     /**
      * Creates a new data input for the given channel and using the given buffer.
      * If the buffer already contains some data, then the {@code filled} argument shall be {@code true}.
@@ -89,6 +105,7 @@ public class ChannelDataInput extends ChannelData {
     {
         super(filename, channel, buffer);
         this.channel = channel;
+        this.mapped  = false;
         if (!filled) {
             buffer.clear();
             channel.read(buffer);
@@ -96,6 +113,137 @@ public class ChannelDataInput extends ChannelData {
         }
     }
 
+    /**
+     * Creates a new data input reading the given file through a memory-mapped buffer.
+     * The mapping covers the file content from the current channel position to the end of file.
+     * Callers should verify that the file is not too large with {@link #canMap(ReadableByteChannel)}
+     * before to invoke this constructor.
+     *
+     * <p>The channel position is not modified by this constructor neither by any read or seek operation.
+     * Closing the channel does not release the mapping, which will be released by the garbage collector.</p>
+     *
+     * @param  filename  a short identifier (typically a filename without path) used for formatting error message.
+     * @param  channel   the channel from where data are read.
+     * @throws IOException if an error occurred while mapping the file.
+     *
+     * @since 1.1
+     */
+    public ChannelDataInput(final String filename, final FileChannel channel) throws IOException {
+        super(filename, channel, map(channel));
+        this.channel = channel;
+        this.mapped  = true;
+    }
+
+    /**
+     * Creates a new data input sharing the same channel and buffer than the given input.
+     * This is used for changing the implementation class of an existing instance.
+     *
+     * @param  input  the existing instance from which to takes the channel and buffer.
+     * @throws IOException if an error occurred while reading the channel.
+     */
+    ChannelDataInput(final ChannelDataInput input) throws IOException {
+        this(input, input.channel, input.buffer);
+    }
+
+    /**
+     * Creates a new data input for the same file than the given input, but with the given channel and buffer.
+     * The given channel shall have the same position than the channel of the given input at construction time.
+     *
+     * @param  input    the existing instance from which to takes the filename and mapping mode.
+     * @param  channel  the channel from where data are read.
+     * @param  buffer   the buffer where to copy the data, or a duplicate of the mapping.
+     * @throws IOException if an error occurred while reading the channel position.
+     */
+    private ChannelDataInput(final ChannelDataInput input, final ReadableByteChannel channel, final ByteBuffer buffer)
+            throws IOException
+    {
+        super(input.filename, channel, buffer);
+        this.channel = channel;
+        this.mapped  = input.mapped;
+    }
+
+    /**
+     * Returns a new input reading the same file than this input, but with its own buffer and position.
+     * The returned input and this input can be used concurrently by different threads, since they do
+     * not share any mutable state. Positions given to {@link #seek(long)} have the same meaning for
+     * both inputs. The returned input does not need to be closed, but becomes unusable after the
+     * channel of this input has been closed.
+     *
+     * <p>This method is supported only for memory-mapped inputs and for inputs reading a {@link FileChannel},
+     * in which case the returned input uses positional read operations which do not modify the channel position.
+     * For all other channels, this method returns {@code null}.</p>
+     *
+     * @return an independent input for the same file, or {@code null} if not supported.
+     * @throws IOException if an error occurred while reading the channel position.
+     *
+     * @since 1.1
+     */
+    public ChannelDataInput independentView() throws IOException {
+        if (mapped) {
+            return new ChannelDataInput(this, channel, buffer.duplicate().order(buffer.order()));
+        }
+        if (channel instanceof FileChannel) {
+            final ByteBuffer copy = ByteBuffer.allocate(buffer.capacity()).order(buffer.order());
+            copy.limit(0);
+            return new ChannelDataInput(this, new FileChannelView((FileChannel) channel, channelOffset), copy);
+        }
+        return null;
+    }
+
+    /**
+     * Returns {@code true} if the given channel is a file which can be read through a memory-mapped buffer.
+     * This method returns {@code false} if the channel is not a {@link FileChannel} or if the remaining file
+     * content is too large for a single {@link ByteBuffer}.
+     *
+     * @param  channel  the channel to test.
+     * @return whether {@link #ChannelDataInput(String, FileChannel)} can be used with the given channel.
+     * @throws IOException if an error occurred while fetching the channel size or position.
+     *
+     * @since 1.1
+     */
+    public static boolean canMap(final ReadableByteChannel channel) throws IOException {
+        if (channel instanceof FileChannel) {
+            final FileChannel fc = (FileChannel) channel;
+            return fc.size() - fc.position() <= Integer.MAX_VALUE;
+        }
+        return false;
+    }
+
+    /**
+     * Maps the file content from the current channel position to the end of file.
+     * The byte order is big-endian, as for newly allocated buffers.
+     */
+    private static ByteBuffer map(final FileChannel channel) throws IOException {
+        final long position = channel.position();
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.max(channel.size() - position, 0));
+    }
+
+    /**
+     * Returns {@code true} if the {@linkplain #buffer buffer} is a read-only mapping of the file content.
+     *
+     * @return whether this input reads the file through a memory-mapped buffer.
+     *
+     * @since 1.1
+     */
+    @Override
+    public final boolean isMapped() {
+        return mapped;
+    }
+
+    /**
+     * In memory-mapped mode, makes all bytes of the mapping available again after some code
+     * (for example {@link org.apache.sis.storage.StorageConnector}) reduced the buffer limit.
+     *
+     * @return the number of bytes added to the remaining bytes, or -1 if none.
+     */
+    private int restoreLimit() {
+        final int limit = buffer.limit();
+        final int n = buffer.capacity() - limit;
+        if (n == 0) return -1;
+        buffer.limit(limit + n);
+        return n;
+    }
+
     /**
      * Tries to read more bytes from the channel without changing the buffer position.
      * This method returns a negative number if the buffer is already full or if the channel reached the
@@ -113,6 +261,9 @@ public class ChannelDataInput extends ChannelData {
         if (limit == capacity) {
             return -2;
         }
+        if (mapped) {
+            return restoreLimit();
+        }
         final int position = buffer.position();
         buffer.limit(capacity).position(limit);
         int c = channel.read(buffer);
@@ -137,6 +288,9 @@ public class ChannelDataInput extends ChannelData {
         if (buffer.hasRemaining()) {
             return true;
         }
+        if (mapped) {
+            return restoreLimit() > 0;
+        }
         bufferOffset += buffer.limit();
         buffer.clear();
         int c = channel.read(buffer);
@@ -161,6 +315,12 @@ public class ChannelDataInput extends ChannelData {
         assert n >= 0 && n <= buffer.capacity() : n;
         n -= buffer.remaining();
         if (n > 0) {
+            if (mapped) {
+                if (restoreLimit() < n) {
+                    throw new EOFException(eof());
+                }
+                return;
+            }
             bufferOffset += buffer.position();
             buffer.compact();
             do {
@@ -517,6 +677,46 @@ public class ChannelDataInput extends ChannelData {
         }
     }
 
+    /**
+     * Reads {@code dest.remaining()} bytes from the stream and stores them into {@code dest}.
+     * The bytes already in the {@linkplain #buffer buffer} are copied first, then the remaining bytes
+     * are read directly from the channel into the destination, without copy in the intermediate buffer.
+     * The destination position is advanced by the number of bytes read.
+     *
+     * @param  dest  the buffer where to store the bytes.
+     * @throws IOException if an error (including EOF) occurred while reading the stream.
+     *
+     * @since 1.1
+     */
+    public final void readFully(final ByteBuffer dest) throws IOException {
+        int n = Math.min(buffer.remaining(), dest.remaining());
+        if (n != 0) {
+            final int limit = buffer.limit();
+            buffer.limit(buffer.position() + n);
+            dest.put(buffer);
+            buffer.limit(limit);
+        }
+        if (dest.hasRemaining()) {
+            if (mapped) {
+                ensureBufferContains(dest.remaining());         // Throws EOFException if not enough bytes.
+                readFully(dest);
+                return;
+            }
+            bufferOffset += buffer.limit();
+            buffer.clear().limit(0);
+            do {
+                final int c = channel.read(dest);
+                if (c <= 0) {
+                    if (c != 0) {
+                        throw new EOFException(eof());
+                    }
+                    onEmptyTransfer();
+                }
+                bufferOffset += c;
+            } while (dest.hasRemaining());
+        }
+    }
+
     /**
      * Helper class for the {@code readFully(…)} methods,
      * in order to avoid duplicating almost identical code many times.
@@ -537,6 +737,12 @@ public class ChannelDataInput extends ChannelData {
             return filename;
         }
 
+        /**
+         * The buffer where to store the values instead of the array, or {@code null} if none.
+         * If non-null, the {@code offset} arguments are positions in this buffer.
+         */
+        Buffer target;
+
         /**
          * Transfers the data from the buffer created by {@link #createView()} to array
          * of primitive Java type known by the subclass. This method may be invoked an
@@ -544,6 +750,37 @@ public class ChannelDataInput extends ChannelData {
          */
         abstract void transfer(int offset, int n);
 
+        /**
+         * Transfers all remaining data from the buffer created by {@link #createView()} to the given buffer.
+         * The target shall be a buffer of the same type than the view.
+         */
+        abstract void transfer(Buffer target);
+
+        /**
+         * Sets the destination to the given buffer, or restores the array destination if {@code null}.
+         */
+        @Override
+        public final void setTarget(final Buffer target) {
+            this.target = target;
+        }
+
+        /**
+         * Transfers {@code n} values from the view to the {@linkplain #target} buffer if non-null,
+         * or to the array known to subclass otherwise.
+         */
+        final void copy(final int offset, final int n) {
+            if (target == null) {
+                transfer(offset, n);
+            } else {
+                final Buffer view = view();
+                final int limit = view.limit();
+                view.limit(view.position() + n);
+                target.position(offset);
+                transfer(target);
+                view.limit(limit);
+            }
+        }
+
         /**
          * Skips the given amount of bytes in the buffer. It is caller responsibility to ensure
          * that there is enough bytes remaining in the buffer.
@@ -576,6 +813,10 @@ public class ChannelDataInput extends ChannelData {
         @Override
         public void readFully(Buffer view, int offset, int length) throws IOException {
             final int dataSizeShift = dataSizeShift();
+            if (mapped) {
+                readMapped(offset, length, dataSizeShift);
+                return;
+            }
             ensureBufferContains(Math.min(length << dataSizeShift, buffer.capacity()));
             if (view == null) {
                 view = createView();                                    // Must be after ensureBufferContains(int).
@@ -590,16 +831,35 @@ public class ChannelDataInput extends ChannelData {
                     .position(buffer.position() >> dataSizeShift);      // See assumption documented in Javadoc.
             }
             int n = Math.min(view.remaining(), length);
-            transfer(offset, n);
+            copy(offset, n);
             skipInBuffer(n << dataSizeShift);
             while ((length -= n) != 0) {
                 offset += n;
                 ensureBufferContains(1 << dataSizeShift);               // Actually read as much data as possible.
                 view.rewind().limit(buffer.remaining() >> dataSizeShift);
-                transfer(offset, n = Math.min(view.remaining(), length));
+                copy(offset, n = Math.min(view.remaining(), length));
                 skipInBuffer(n << dataSizeShift);
             }
         }
+
+        /**
+         * Reads {@code length} values directly from the memory-mapped buffer. Since the current position
+         * may not be a multiple of the data size, this method creates a view starting at that position.
+         * The view given to {@link #readFully(Buffer, int, int)} is ignored.
+         */
+        private void readMapped(final int offset, final int length, final int dataSizeShift) throws IOException {
+            final int size = Math.multiplyExact(length, 1 << dataSizeShift);
+            ensureBufferContains(size);
+            final int position = buffer.position();
+            final int limit    = buffer.limit();
+            try {
+                buffer.limit(position + size);
+                createView();
+                copy(offset, length);
+            } finally {
+                buffer.limit(limit).position(position + size);
+            }
+        }
     }
 
     /**
@@ -618,9 +878,20 @@ public class ChannelDataInput extends ChannelData {
         @Override public Buffer createView()            {return buffer;}
         @Override public void   createDataArray(int n)  {dest = new byte[n];}
         @Override        void   transfer(int p, int n)  {buffer.get(dest, p, n);}
+        @Override        void   transfer(Buffer t)      {((ByteBuffer) t).put(buffer);}
         @Override public void   setDest(Object array)   {dest = (byte[]) array;};
         @Override public void readFully(Buffer view, int offset, int length) throws IOException {
-            ChannelDataInput.this.readFully(dest, offset, length);
+            if (target == null) {
+                ChannelDataInput.this.readFully(dest, offset, length);
+            } else {
+                final int limit = target.limit();
+                target.limit(offset + length).position(offset);
+                try {
+                    ChannelDataInput.this.readFully((ByteBuffer) target);
+                } finally {
+                    target.limit(limit);
+                }
+            }
         }
     };
 
@@ -639,6 +910,7 @@ public class ChannelDataInput extends ChannelData {
         @Override public Buffer createView()            {return view = buffer.asCharBuffer();}
         @Override public void   createDataArray(int n)  {dest = new char[n];}
         @Override        void   transfer(int p, int n)  {view.get(dest, p, n);}
+        @Override        void   transfer(Buffer t)      {((CharBuffer) t).put(view);}
         @Override public void   setDest(Object array)   {dest = (char[]) array;};
     };
 
@@ -657,6 +929,7 @@ public class ChannelDataInput extends ChannelData {
         @Override public Buffer createView()            {return view = buffer.asShortBuffer();}
         @Override public void   createDataArray(int n)  {dest = new short[n];}
         @Override void          transfer(int p, int n)  {view.get(dest, p, n);}
+        @Override void          transfer(Buffer t)      {((ShortBuffer) t).put(view);}
         @Override public void   setDest(Object array)   {dest = (short[]) array;};
     };
 
@@ -675,6 +948,7 @@ public class ChannelDataInput extends ChannelData {
         @Override public Buffer createView()            {return view = buffer.asIntBuffer();}
         @Override public void   createDataArray(int n)  {dest = new int[n];}
         @Override void          transfer(int p, int n)  {view.get(dest, p, n);}
+        @Override void          transfer(Buffer t)      {((IntBuffer) t).put(view);}
         @Override public void   setDest(Object array)   {dest = (int[]) array;};
     };
 
@@ -693,6 +967,7 @@ public class ChannelDataInput extends ChannelData {
         @Override public Buffer createView()            {return view = buffer.asLongBuffer();}
         @Override public void   createDataArray(int n)  {dest = new long[n];}
         @Override void          transfer(int p, int n)  {view.get(dest, p, n);}
+        @Override void          transfer(Buffer t)      {((LongBuffer) t).put(view);}
         @Override public void   setDest(Object array)   {dest = (long[]) array;};
     };
 
@@ -711,6 +986,7 @@ public class ChannelDataInput extends ChannelData {
         @Override public Buffer createView()            {return view = buffer.asFloatBuffer();}
         @Override public void   createDataArray(int n)  {dest = new float[n];}
         @Override void          transfer(int p, int n)  {view.get(dest, p, n);}
+        @Override void          transfer(Buffer t)      {((FloatBuffer) t).put(view);}
         @Override public void   setDest(Object array)   {dest = (float[]) array;};
     };
 
@@ -729,6 +1005,7 @@ public class ChannelDataInput extends ChannelData {
         @Override public Buffer createView()            {return view = buffer.asDoubleBuffer();}
         @Override public void   createDataArray(int n)  {dest = new double[n];}
         @Override void          transfer(int p, int n)  {view.get(dest, p, n);}
+        @Override void          transfer(Buffer t)      {((DoubleBuffer) t).put(view);}
         @Override public void   setDest(Object array)   {dest = (double[]) array;};
     };
 
@@ -851,7 +1128,16 @@ public class ChannelDataInput extends ChannelData {
     @Override
     public final void seek(final long position) throws IOException {
         long p = Math.subtractExact(position, bufferOffset);
-        if (p >= 0 && p <= buffer.limit()) {
+        if (mapped) {
+            /*
+             * The buffer contains the whole file, so seeking is only a pointer move.
+             * Positions after the end of file are not allowed since we can not read there.
+             */
+            if (p < 0 || p > buffer.capacity()) {
+                throw new EOFException(eof());
+            }
+            buffer.limit(buffer.capacity()).position((int) p);
+        } else if (p >= 0 && p <= buffer.limit()) {
             /*
              * Requested position is inside the current limits of the buffer.
              */
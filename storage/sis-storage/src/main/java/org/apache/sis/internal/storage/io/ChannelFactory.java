@@ -67,7 +67,7 @@ import org.apache.sis.storage.event.StoreListeners;
  *
  * @author  Martin Desruisseaux (Geomatys)
  * @author  Johann Sorel (Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   0.8
  * @module
  */
@@ -226,12 +226,14 @@ public abstract class ChannelFactory {
          * One last check for URL. The URL may be either the given input if we have not been able
          * to convert it to a Path, or a URI, File or CharSequence input converted to URL. Do not
          * try to convert the URL to a Path, because this has already been tried before this point.
+         * For HTTP URLs, the channel is seekable if the server supports range requests.
          */
         if (storage instanceof URL) {
             final URL file = (URL) storage;
+            final boolean http = HttpRangeChannel.isSupported(file);
             return new ChannelFactory() {
                 @Override public ReadableByteChannel readable(String filename, StoreListeners listeners) throws IOException {
-                    return Channels.newChannel(file.openStream());
+                    return http ? HttpRangeChannel.open(file) : Channels.newChannel(file.openStream());
                 }
                 @Override public WritableByteChannel writable(String filename, StoreListeners listeners) throws IOException {
                     return Channels.newChannel(file.openConnection().getOutputStream());
@@ -20,6 +20,7 @@ import java.io.DataInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
 import javax.imageio.stream.IIOByteBuffer;
@@ -43,7 +44,7 @@ import javax.imageio.stream.ImageInputStream;
  * <p>This class is used when compatibility with {@link javax.imageio.ImageReader} is needed.</p>
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 0.5
+ * @version 1.1
  *
  * @see javax.imageio.stream.FileImageInputStream
  * @see javax.imageio.ImageIO#createImageInputStream(Object)
@@ -78,7 +79,22 @@ public class ChannelImageInputStream extends ChannelDataInput implements ImageIn
      * @throws IOException if an error occurred while reading the channel.
      */
     public ChannelImageInputStream(final ChannelDataInput input) throws IOException {
-        super(input.filename, input.channel, input.buffer, true);
+        super(input);
+    }
+
+    /**
+     * Creates a new input stream reading the given file through a memory-mapped buffer.
+     *
+     * @param  filename  a short identifier (typically a filename without path) used for formatting error message.
+     * @param  channel   the channel from where data are read.
+     * @throws IOException if an error occurred while mapping the file.
+     *
+     * @see ChannelDataInput#ChannelDataInput(String, FileChannel)
+     *
+     * @since 1.1
+     */
+    public ChannelImageInputStream(final String filename, final FileChannel channel) throws IOException {
+        super(filename, channel);
     }
 
     /**
@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.internal.storage.io;
+
+import java.util.Arrays;
+import java.io.IOException;
+import java.io.EOFException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.apache.sis.internal.system.CommonExecutor;
+import org.apache.sis.util.ArgumentChecks;
+import org.apache.sis.util.resources.Errors;
+
+
+/**
+ * Reads many ranges of bytes from a {@link ChannelDataInput}, merging nearby ranges in fewer and larger reads.
+ * Callers {@linkplain #add(long, int) add} all the ranges that they will need, then invoke {@link #read()} once.
+ * Ranges are sorted by position, then ranges separated by no more than {@code maximalGap} bytes are merged in a
+ * single read operation. The bytes in the gaps are read and discarded, which is usually cheaper than a seek when
+ * the gaps are small. This is useful for example when reading many small tiles or strips stored close together.
+ *
+ * <h2>Read-ahead</h2>
+ * If {@linkplain #setReadAhead(boolean) enabled} and the channel is a {@link FileChannel}, then after each batch
+ * this class starts an asynchronous read of the bytes following the last range, with the same length than the last
+ * merged read. If the next batch requests bytes in that range, they are taken from the read-ahead result instead of
+ * being read again. This is true even if read-ahead has been disabled before that next batch, which is typically
+ * the case for the last batch. The asynchronous read uses absolute positions in the file channel, so it does not
+ * interfere with the position of the {@link ChannelDataInput}. It is executed in the
+ * {@linkplain CommonExecutor#blocking() pool for blocking I/O}, not in the pool used for computations.
+ *
+ * <h2>Memory-mapped files</h2>
+ * If the input is {@linkplain ChannelDataInput#isMapped() memory-mapped}, then no bytes are read:
+ * the buffers returned by {@link #read()} are views over the mapping.
+ *
+ * <h2>Thread safety</h2>
+ * This class is not thread-safe. Callers shall hold the lock on the data store while invoking {@link #read()}.
+ * The buffers returned by that method are independent of the {@link ChannelDataInput} state and can be used
+ * by other threads after the lock has been released.
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+public final class CoalescingReader {
+    /**
+     * The input from which to read the bytes.
+     */
+    private final ChannelDataInput input;
+
+    /**
+     * Maximal number of bytes between two ranges for merging them in a single read operation.
+     */
+    private final int maximalGap;
+
+    /**
+     * Maximal number of bytes to read in a single operation. Ranges are not merged if the result would be larger
+     * than this size. A single range larger than this size is nevertheless read in one operation.
+     */
+    private final int maximalReadSize;
+
+    /**
+     * Positions of the ranges added since the last call to {@link #read()}.
+     * Positions are relative to the stream position at {@link ChannelDataInput} construction time,
+     * as for {@link ChannelDataInput#seek(long)}. Only the {@link #count} first elements are valid.
+     */
+    private long[] positions;
+
+    /**
+     * Number of bytes in the ranges added since the last call to {@link #read()}.
+     * Only the {@link #count} first elements are valid.
+     */
+    private int[] lengths;
+
+    /**
+     * Number of ranges added since the last call to {@link #read()}.
+     */
+    private int count;
+
+    /**
+     * Whether to read asynchronously the bytes following the last range after each batch.
+     */
+    private boolean readAhead;
+
+    /**
+     * The asynchronous read of the bytes following the last batch, or {@code null} if none.
+     */
+    private CompletableFuture<ByteBuffer> pending;
+
+    /**
+     * Position of the first byte in the {@link #pending} read. This position is relative to the stream
+     * position at {@link ChannelDataInput} construction time, as for {@link ChannelDataInput#seek(long)}.
+     */
+    private long pendingPosition;
+
+    /**
+     * Number of bytes requested by the {@link #pending} read. The actual number of bytes may be smaller
+     * if the end of file has been reached.
+     */
+    private int pendingLength;
+
+    /**
+     * Number of times that bytes have been taken from the read-ahead result. This is used for testing purpose.
+     */
+    int readAheadHits;
+
+    /**
+     * Creates a new reader for the given input.
+     *
+     * @param  input            the input from which to read the bytes.
+     * @param  maximalGap       maximal number of bytes between two ranges for merging them in a single read.
+     * @param  maximalReadSize  maximal number of bytes to read in a single operation when merging ranges.
+     */
+    public CoalescingReader(final ChannelDataInput input, final int maximalGap, final int maximalReadSize) {
+        ArgumentChecks.ensureNonNull("input", input);
+        ArgumentChecks.ensurePositive("maximalGap", maximalGap);
+        ArgumentChecks.ensureStrictlyPositive("maximalReadSize", maximalReadSize);
+        this.input           = input;
+        this.maximalGap      = maximalGap;
+        this.maximalReadSize = maximalReadSize;
+        positions = new long[8];
+        lengths   = new int [8];
+    }
+
+    /**
+     * Sets whether to read asynchronously the bytes following the last range after the next batch.
+     * Read-ahead is applied only if the channel is a {@link FileChannel} which is not memory-mapped.
+     * Disabling read-ahead does not discard a read-ahead already started by the previous batch;
+     * that result will still be used by the next call to {@link #read()}.
+     *
+     * @param  enabled  whether read-ahead is enabled.
+     */
+    public void setReadAhead(final boolean enabled) {
+        readAhead = enabled && (input.channel instanceof FileChannel) && !input.isMapped();
+    }
+
+    /**
+     * Adds a range of bytes to read in the next batch.
+     *
+     * @param  position  position of the first byte to read, as for {@link ChannelDataInput#seek(long)}.
+     * @param  length    number of bytes to read.
+     * @return index of the buffer for this range in the array returned by {@link #read()}.
+     */
+    public int add(final long position, final int length) {
+        ArgumentChecks.ensurePositive("position", position);
+        ArgumentChecks.ensurePositive("length", length);
+        if (count == positions.length) {
+            final int capacity = count * 2;
+            positions = Arrays.copyOf(positions, capacity);
+            lengths   = Arrays.copyOf(lengths,   capacity);
+        }
+        positions[count] = position;
+        lengths  [count] = length;
+        return count++;
+    }
+
+    /**
+     * Reads all ranges added since the last call to this method. The returned array contains one buffer for each
+     * range, in the order the ranges were {@linkplain #add(long, int) added}. Each buffer has a position of zero,
+     * a limit equals to the range length and the byte order of the input buffer. The buffers may share the same
+     * backing array, but their contents do not overlap unless the ranges overlap.
+     *
+     * @return the bytes of each range.
+     * @throws IOException if an error (including EOF) occurred while reading the channel.
+     */
+    public ByteBuffer[] read() throws IOException {
+        final ByteBuffer[] results = new ByteBuffer[count];
+        final Integer[] indices = new Integer[count];
+        for (int i=0; i<count; i++) {
+            indices[i] = i;
+        }
+        Arrays.sort(indices, (i1, i2) -> Long.compare(positions[i1], positions[i2]));
+        final ByteOrder order = input.buffer.order();
+        long lastStart = 0, lastEnd = 0;
+        for (int lower = 0; lower < count;) {
+            /*
+             * Find the largest group of consecutive ranges (in position order) which can be read
+             * in a single operation, then read all bytes from the first to the last range.
+             */
+            final long start = positions[indices[lower]];
+            long end = start + lengths[indices[lower]];
+            int upper = lower;
+            while (++upper < count) {
+                final int i = indices[upper];
+                final long p = positions[i];
+                final long e = Math.max(end, p + lengths[i]);
+                if (p - end > maximalGap || e - start > maximalReadSize) break;
+                end = e;
+            }
+            final ByteBuffer group = fetch(start, Math.toIntExact(end - start));
+            while (lower < upper) {
+                final int i = indices[lower++];
+                final int offset = (int) (positions[i] - start);
+                final ByteBuffer view = group.duplicate();
+                view.limit(offset + lengths[i]).position(offset);
+                results[i] = view.slice().order(order);
+            }
+            lastStart = start;
+            lastEnd   = end;
+        }
+        count = 0;
+        pending = null;                                 // Consumed by above loop, or obsolete.
+        if (readAhead && lastEnd > lastStart) {
+            startReadAhead(lastEnd, (int) (lastEnd - lastStart));
+        }
+        return results;
+    }
+
+    /**
+     * Returns the bytes in the given range, from the read-ahead result if possible or from the input otherwise.
+     * The returned buffer has a position of zero and a limit equals to {@code length}.
+     */
+    private ByteBuffer fetch(final long position, final int length) throws IOException {
+        if (input.isMapped()) {
+            final ByteBuffer buffer = input.buffer.duplicate();
+            if (position + length > buffer.capacity()) {
+                throw new EOFException(Errors.format(Errors.Keys.UnexpectedEndOfFile_1, input.filename));
+            }
+            buffer.limit((int) position + length).position((int) position);
+            return buffer.slice();
+        }
+        if (pending != null && position >= pendingPosition && position + length <= pendingPosition + pendingLength) {
+            final ByteBuffer ahead = completed();
+            if (ahead != null && position >= pendingPosition && position + length <= pendingPosition + ahead.limit()) {
+                final ByteBuffer buffer = ahead.duplicate();
+                final int offset = (int) (position - pendingPosition);
+                buffer.limit(offset + length).position(offset);
+                readAheadHits++;
+                return buffer.slice();
+            }
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        if (input.channel instanceof FileChannel) {
+            readFully((FileChannel) input.channel, buffer, Math.addExact(input.channelOffset, position));
+        } else {
+            input.seek(position);
+            input.readFully(buffer);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Returns the result of the read-ahead, or {@code null} if that read failed.
+     * This method blocks until the read-ahead completes.
+     */
+    private ByteBuffer completed() throws IOException {
+        try {
+            return pending.get();
+        } catch (ExecutionException e) {
+            return null;                    // The read will be retried synchronously.
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Starts an asynchronous read of the given range. The read stops at the end of file if the range is larger.
+     */
+    private void startReadAhead(final long position, final int length) {
+        final FileChannel channel = (FileChannel) input.channel;
+        final long start = Math.addExact(input.channelOffset, position);
+        pendingPosition = position;
+        pendingLength   = length;
+        pending = CompletableFuture.supplyAsync(() -> {
+            final ByteBuffer buffer = ByteBuffer.allocate(length);
+            try {
+                int n;
+                do n = channel.read(buffer, start + buffer.position());
+                while (n >= 0 && buffer.hasRemaining());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);      // Will cause a synchronous read to be tried instead.
+            }
+            buffer.flip();
+            return buffer;
+        }, CommonExecutor.blocking());
+    }
+
+    /**
+     * Fills the given buffer with bytes read from the given file channel, starting at the given absolute position.
+     * This method does not change the channel position.
+     */
+    private void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException(Errors.format(Errors.Keys.UnexpectedEndOfFile_1, input.filename));
+            }
+        }
+    }
+}
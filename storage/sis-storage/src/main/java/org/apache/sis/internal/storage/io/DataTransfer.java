@@ -25,7 +25,7 @@ import java.nio.Buffer;
  * The kind of buffer and the primitive type in the array depend on the implementation.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 0.7
+ * @version 1.1
  * @since   0.7
  * @module
  */
@@ -62,6 +62,14 @@ interface DataTransfer {
      */
     void setDest(Object array) throws ClassCastException;
 
+    /**
+     * Sets the destination to the given buffer instead of the data array, or restores the array
+     * destination if {@code null}. The buffer type shall be the same than the {@linkplain #view() view}.
+     * When a target buffer is set, the {@code offset} argument of {@link #readFully(Buffer, int, int)}
+     * is a position in that buffer.
+     */
+    void setTarget(Buffer target);
+
     /**
      * Returns the view created by the last call to {@link #createView()}, or {@code null} if none.
      */
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.internal.storage.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.NonWritableChannelException;
+import org.apache.sis.util.resources.Errors;
+
+
+/**
+ * A read-only view over a file channel with its own position. Read operations use the
+ * {@link FileChannel#read(ByteBuffer, long)} method, which does not modify the position
+ * of the wrapped channel. Consequently many views can read the same file concurrently.
+ *
+ * <p>Closing this view does nothing, since the wrapped channel is owned by another object.</p>
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+final class FileChannelView implements SeekableByteChannel {
+    /**
+     * The channel from which to read the bytes.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Position of this view in the file.
+     */
+    private long position;
+
+    /**
+     * Creates a new view over the given channel.
+     *
+     * @param  channel   the channel from which to read the bytes.
+     * @param  position  initial position of this view.
+     */
+    FileChannelView(final FileChannel channel, final long position) {
+        this.channel  = channel;
+        this.position = position;
+    }
+
+    /**
+     * Reads bytes from the wrapped channel at the position of this view.
+     */
+    @Override
+    public int read(final ByteBuffer dst) throws IOException {
+        final int n = channel.read(dst, position);
+        if (n > 0) position += n;
+        return n;
+    }
+
+    /**
+     * Returns the position of this view.
+     */
+    @Override
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Sets the position of this view. The position of the wrapped channel is not modified.
+     */
+    @Override
+    public SeekableByteChannel position(final long newPosition) {
+        if (newPosition < 0) {
+            throw new IllegalArgumentException(Errors.format(Errors.Keys.NegativeArgument_2, "newPosition", newPosition));
+        }
+        position = newPosition;
+        return this;
+    }
+
+    /**
+     * Returns the size of the file.
+     */
+    @Override
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Unsupported operation, since this view is read-only.
+     */
+    @Override
+    public int write(final ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    /**
+     * Unsupported operation, since this view is read-only.
+     */
+    @Override
+    public SeekableByteChannel truncate(final long size) {
+        throw new NonWritableChannelException();
+    }
+
+    /**
+     * Returns whether the wrapped channel is open.
+     */
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * Does nothing, since the wrapped channel is owned by another object.
+     */
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.internal.storage.io;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.EOFException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.apache.sis.internal.system.CommonExecutor;
+import org.apache.sis.util.collection.Cache;
+import org.apache.sis.util.resources.Errors;
+
+
+/**
+ * A read-only channel over a HTTP resource, fetching only the requested bytes with HTTP range requests.
+ * The resource is divided in blocks of fixed size which are fetched when first needed and cached.
+ * When a read operation needs many consecutive blocks which are not in the cache, they are fetched
+ * by a few range requests executed in parallel.
+ *
+ * <p>This channel allows data stores to read formats designed for partial access, like Cloud Optimized GeoTIFF,
+ * without downloading the whole file: only the headers and the tiles actually needed are fetched.
+ * Channels are created by {@link #open(URL)}, which returns a sequential channel over the response
+ * if the server does not support range requests. Requests are sent by threads of the
+ * {@linkplain CommonExecutor#blocking() pool for blocking I/O}.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+public final class HttpRangeChannel implements SeekableByteChannel {
+    /**
+     * Number of bytes in each block fetched from the server.
+     */
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * Maximal number of blocks to fetch in a single range request. If more blocks are needed,
+     * they are fetched by many requests executed in parallel.
+     */
+    private static final int MAX_BLOCKS_PER_REQUEST = 16;
+
+    /**
+     * Number of blocks to keep by strong references in the cache.
+     * Blocks in excess of this amount are still cached, but by soft references.
+     */
+    private static final int CACHE_SIZE = 256;
+
+    /**
+     * The HTTP resource to read.
+     */
+    private final URL url;
+
+    /**
+     * Number of bytes in the HTTP resource.
+     */
+    private final long size;
+
+    /**
+     * Blocks fetched from the server, indexed by block number. All blocks have a length of {@link #BLOCK_SIZE}
+     * except the last block of the resource, which may be shorter.
+     */
+    private final Cache<Long,byte[]> blocks;
+
+    /**
+     * Current position of this channel.
+     */
+    private long position;
+
+    /**
+     * Whether this channel is open.
+     */
+    private volatile boolean open;
+
+    /**
+     * Creates a new channel for the given resource of the given size.
+     */
+    private HttpRangeChannel(final URL url, final long size) {
+        this.url    = url;
+        this.size   = size;
+        this.open   = true;
+        this.blocks = new Cache<>(32, CACHE_SIZE, true);
+    }
+
+    /**
+     * Returns whether the given URL uses a protocol supported by this class, namely HTTP or HTTPS.
+     *
+     * @param  url  the URL to test.
+     * @return whether {@link #open(URL)} can be invoked for the given URL.
+     */
+    public static boolean isSupported(final URL url) {
+        final String protocol = url.getProtocol();
+        return "http".equalsIgnoreCase(protocol) || "https".equalsIgnoreCase(protocol);
+    }
+
+    /**
+     * Opens a channel for the given HTTP or HTTPS resource. This method sends a request for the first block
+     * of the resource, which usually contains the file header. If the server supports range requests, then
+     * this method returns a seekable {@code HttpRangeChannel}. Otherwise the server usually sends the whole
+     * resource in its response, in which case this method returns a sequential channel reading that response,
+     * so no other request is sent. Only if the server answered with a partial content of unknown total size,
+     * a new request for the whole resource is sent.
+     *
+     * @param  url  the resource to read. Shall be a URL for which {@link #isSupported(URL)} returns {@code true}.
+     * @return a channel for the given resource, seekable if the server supports range requests.
+     * @throws IOException if an error occurred while sending the request or reading the response.
+     */
+    public static ReadableByteChannel open(final URL url) throws IOException {
+        if (!isSupported(url)) {
+            throw new IllegalArgumentException(Errors.format(Errors.Keys.IllegalArgumentValue_2, "url", url));
+        }
+        final HttpURLConnection connection = request(url, 0, BLOCK_SIZE);
+        final InputStream in = connection.getInputStream();
+        boolean close = true;
+        try {
+            switch (connection.getResponseCode()) {
+                case HttpURLConnection.HTTP_OK: {
+                    close = false;
+                    return Channels.newChannel(in);                 // Range requests not supported.
+                }
+                case HttpURLConnection.HTTP_PARTIAL: {
+                    final long size = totalLength(connection.getHeaderField("Content-Range"));
+                    if (size < 0) break;                            // Unknown size.
+                    final HttpRangeChannel channel = new HttpRangeChannel(url, size);
+                    final byte[] first = new byte[(int) Math.min(size, BLOCK_SIZE)];
+                    readFully(in, first, 0, first.length, url);
+                    channel.blocks.put(0L, first);
+                    return channel;
+                }
+                default: {
+                    throw new IOException(Errors.format(Errors.Keys.CanNotRead_1, url));
+                }
+            }
+        } finally {
+            if (close) in.close();
+        }
+        return Channels.newChannel(url.openStream());
+    }
+
+    /**
+     * Creates a connection requesting the given range of bytes.
+     *
+     * @param  url     the resource to read.
+     * @param  start   position of the first byte to fetch.
+     * @param  length  number of bytes to fetch.
+     */
+    private static HttpURLConnection request(final URL url, final long start, final long length) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestProperty("Range", "bytes=" + start + '-' + (start + length - 1));
+        return connection;
+    }
+
+    /**
+     * Returns the total length declared in a {@code Content-Range} header value,
+     * or -1 if unknown. The expected format is {@code "bytes start-end/total"}.
+     */
+    private static long totalLength(final String contentRange) {
+        if (contentRange != null) {
+            final int s = contentRange.lastIndexOf('/');
+            if (s >= 0) try {
+                return Long.parseLong(contentRange.substring(s + 1).trim());
+            } catch (NumberFormatException e) {
+                // "*" means unknown length. Fall through.
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads exactly {@code length} bytes from the given stream.
+     */
+    private static void readFully(final InputStream in, final byte[] data, int offset, int length, final URL url)
+            throws IOException
+    {
+        while (length > 0) {
+            final int n = in.read(data, offset, length);
+            if (n < 0) {
+                throw new EOFException(Errors.format(Errors.Keys.UnexpectedEndOfFile_1, url));
+            }
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Fetches the given range of blocks with a single range request and stores them in the cache and in the given array.
+     *
+     * @param  first   index of the first block to fetch.
+     * @param  count   number of blocks to fetch.
+     * @param  target  where to store the blocks, or {@code null} if none.
+     * @param  offset  index in {@code target} where to store the first block.
+     */
+    private void fetch(final long first, final int count, final byte[][] target, final int offset) throws IOException {
+        final long start = first * BLOCK_SIZE;
+        final long end   = Math.min(size, start + (long) count * BLOCK_SIZE);
+        final HttpURLConnection connection = request(url, start, end - start);
+        try (InputStream in = connection.getInputStream()) {
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+                throw new IOException(Errors.format(Errors.Keys.CanNotRead_1, url));
+            }
+            for (int i=0; i<count; i++) {
+                final long p = start + (long) i * BLOCK_SIZE;
+                final byte[] block = new byte[(int) Math.min(BLOCK_SIZE, end - p)];
+                readFully(in, block, 0, block.length, url);
+                blocks.put(first + i, block);
+                target[offset + i] = block;
+            }
+        }
+    }
+
+    /**
+     * Reads a sequence of bytes from this channel into the given buffer.
+     * Blocks not in the cache are fetched from the server, in parallel if there is many of them.
+     *
+     * @param  dst  the buffer where to store the bytes.
+     * @return number of bytes read, or -1 if the end of resource has been reached.
+     * @throws IOException if an error occurred while fetching the bytes.
+     */
+    @Override
+    public synchronized int read(final ByteBuffer dst) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        if (position >= size) {
+            return -1;
+        }
+        final long end   = Math.min(size, position + dst.remaining());
+        final long first = position / BLOCK_SIZE;
+        final int  count = (int) ((end - 1) / BLOCK_SIZE - first + 1);
+        final byte[][] data = new byte[count][];
+        /*
+         * Find the runs of consecutive blocks not in the cache. Each run is fetched by one request,
+         * except that long runs are split in many requests executed in parallel.
+         */
+        final List<CompletableFuture<Void>> requests = new ArrayList<>();
+        long lastFirst  = 0;
+        int  lastLower  = 0;
+        int  lastCount  = 0;
+        for (int i=0; i<count;) {
+            data[i] = blocks.peek(first + i);
+            if (data[i] != null) {
+                i++;
+                continue;
+            }
+            final int lower = i;
+            do i++;
+            while (i < count && i - lower < MAX_BLOCKS_PER_REQUEST && blocks.peek(first + i) == null);
+            /*
+             * Every requests except the last one are sent in background threads. The last request
+             * will be sent by the current thread, which would otherwise be idle waiting for the others.
+             */
+            if (lastCount != 0) {
+                final long b = lastFirst;
+                final int  l = lastLower, n = lastCount;
+                requests.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        fetch(b, n, data, l);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, CommonExecutor.blocking()));
+            }
+            lastFirst = first + lower;
+            lastLower = lower;
+            lastCount = i - lower;
+        }
+        try {
+            if (lastCount != 0) {
+                fetch(lastFirst, lastCount, data, lastLower);
+            }
+        } finally {
+            try {
+                CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[requests.size()])).join();
+            } catch (CompletionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) cause).getCause();
+                }
+                throw e;
+            }
+        }
+        /*
+         * Copy the bytes from the blocks to the destination buffer.
+         */
+        final long start = position;
+        int offset = (int) (position - first * BLOCK_SIZE);
+        for (final byte[] block : data) {
+            final int n = (int) Math.min(block.length - offset, end - position);
+            dst.put(block, offset, n);
+            position += n;
+            offset = 0;
+        }
+        return (int) (position - start);
+    }
+
+    /**
+     * Returns the current position of this channel.
+     *
+     * @return the current position.
+     * @throws IOException if the channel is closed.
+     */
+    @Override
+    public synchronized long position() throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        return position;
+    }
+
+    /**
+     * Sets the position of this channel. Setting a position greater than the size is legal,
+     * but subsequent reads will return -1.
+     *
+     * @param  newPosition  the new position.
+     * @return {@code this}.
+     * @throws IOException if the channel is closed.
+     */
+    @Override
+    public synchronized SeekableByteChannel position(final long newPosition) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        if (newPosition < 0) {
+            throw new IllegalArgumentException(Errors.format(Errors.Keys.NegativeArgument_2, "newPosition", newPosition));
+        }
+        position = newPosition;
+        return this;
+    }
+
+    /**
+     * Returns the size of the HTTP resource.
+     *
+     * @return the resource size in bytes.
+     * @throws IOException if the channel is closed.
+     */
+    @Override
+    public long size() throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        return size;
+    }
+
+    /**
+     * Unsupported operation, since this channel is read-only.
+     */
+    @Override
+    public int write(final ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    /**
+     * Unsupported operation, since this channel is read-only.
+     */
+    @Override
+    public SeekableByteChannel truncate(final long size) {
+        throw new NonWritableChannelException();
+    }
+
+    /**
+     * Returns whether this channel is open.
+     *
+     * @return whether this channel is open.
+     */
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Closes this channel and discards the cached blocks.
+     */
+    @Override
+    public void close() {
+        open = false;
+        blocks.clear();
+    }
+}
@@ -17,6 +17,7 @@
 package org.apache.sis.internal.storage.io;
 
 import java.nio.Buffer;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.io.IOException;
 import org.apache.sis.util.Numbers;
@@ -28,10 +29,12 @@ import org.apache.sis.storage.DataStoreContentException;
  * Helper methods for reading a rectangular area, a cube or a hyper-cube from a channel.
  * The data can be stored in an existing array, or a new array can be created.
  * This class does not handle compression; it is rather designed for efficient reading of uncompressed data.
+ * If the {@link ChannelDataInput} is {@linkplain ChannelDataInput#isMapped() memory-mapped}, then the values
+ * are copied directly from the mapping to the destination array.
  *
  * @author  Johann Sorel (Geomatys)
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   0.7
  * @module
  */
@@ -123,44 +126,99 @@ public final class HyperRectangleReader {
      * @throws ArithmeticException if the region to read is too large or too far from origin.
      */
     public Object read(final Region region) throws IOException {
+        try {
+            reader.createDataArray(region.targetLength(region.getDimension()));
+            read(region, 0);
+            return reader.dataArray();
+        } finally {
+            reader.setDest(null);
+        }
+    }
+
+    /**
+     * Reads data in the given region and stores them in the given buffer, starting at the buffer position.
+     * This method does not allocate any array; the values are copied from the channel buffer (or from the
+     * file mapping) directly to the target, which may be a direct buffer. On return, the target position is
+     * advanced by the number of values read and the limit is unchanged.
+     *
+     * <p>If the values are contiguous in the file (i.e. the region spans the full hyper-rectangle in all
+     * dimensions except the last one, without subsampling), then all values are read with a single seek
+     * and bulk transfer. In the particular case
+     * of a {@link java.nio.ByteBuffer} target, the bytes are read from the channel directly into the target.</p>
+     *
+     * @param  region  the sub-area to read and the subsampling to use.
+     * @param  target  where to store the values. Shall be a buffer of the type read by this reader.
+     * @throws IllegalArgumentException if the target is not a buffer of the type read by this reader.
+     * @throws BufferOverflowException if the target does not have enough space for all values.
+     * @throws IOException if an error occurred while transferring data from the channel.
+     * @throws ArithmeticException if the region to read is too large or too far from origin.
+     *
+     * @since 1.1
+     */
+    public void read(final Region region, final Buffer target) throws IOException {
+        if (elementType(target.getClass()) != elementType(reader.view().getClass())) {
+            throw new IllegalArgumentException(Errors.format(Errors.Keys.IllegalArgumentClass_2, "target", target.getClass()));
+        }
+        final int length = region.targetLength(region.getDimension());
+        if (target.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        final int start = target.position();
+        try {
+            reader.setTarget(target);
+            read(region, start);
+        } finally {
+            reader.setTarget(null);
+        }
+        target.position(start + length);
+    }
+
+    /**
+     * Returns the {@code Buffer} subclass for the type of elements in a buffer of the given class.
+     * For example this method returns {@code FloatBuffer.class} for both heap and direct buffers of floats.
+     */
+    private static Class<?> elementType(Class<?> type) {
+        while (type.getSuperclass() != Buffer.class) {
+            type = type.getSuperclass();
+        }
+        return type;
+    }
+
+    /**
+     * Reads data in the given region and stores them in the array or buffer known to {@link #reader},
+     * starting at the given position. Contiguous values are read in a single call to
+     * {@link DataTransfer#readFully(Buffer, int, int)}.
+     */
+    private void read(final Region region, int arrayPosition) throws IOException {
         final int contiguousDataDimension = region.contiguousDataDimension();
         final int contiguousDataLength = region.targetLength(contiguousDataDimension);
         final long[] strides = new long[region.getDimension() - contiguousDataDimension];
         final int[]   cursor = new int[strides.length];
         final int sampleSize = sampleSize();
         long  streamPosition = Math.addExact(origin, Math.multiplyExact(region.startAt, sampleSize));
-        int    arrayPosition = 0;
         for (int i=0; i<strides.length; i++) {
             strides[i] = region.stride(i + contiguousDataDimension, contiguousDataLength, sampleSize);
             assert (strides[i] > 0) : i;
         }
-        try {
-            reader.createDataArray(region.targetLength(region.getDimension()));
-            final Buffer view = reader.view();
-loop:       do {
-                reader.seek(streamPosition);
-                assert reader.view() == view;
-                reader.readFully(view, arrayPosition, contiguousDataLength);
-                for (int i=0; i<cursor.length; i++) {
-                    /*
-                     * After we have read as much contiguous data as we can (may be a row, or a plane, or
-                     * a cube, etc. depending if we have to skip values or not between rows/planes/cubes),
-                     * search the highest dimension which is going to change (i.e. are we going to start a
-                     * new row, or a new plane, or a new cube?). This determine how many bytes we have to
-                     * skip.
-                     */
-                    if (++cursor[i] < region.targetSize[contiguousDataDimension + i]) {
-                        streamPosition = Math.addExact(streamPosition, strides[i]);
-                        arrayPosition  = Math.addExact(arrayPosition, contiguousDataLength);
-                        continue loop;
-                    }
-                    cursor[i] = 0;
+loop:   do {
+            reader.seek(streamPosition);
+            reader.readFully(reader.view(), arrayPosition, contiguousDataLength);
+            for (int i=0; i<cursor.length; i++) {
+                /*
+                 * After we have read as much contiguous data as we can (may be a row, or a plane, or
+                 * a cube, etc. depending if we have to skip values or not between rows/planes/cubes),
+                 * search the highest dimension which is going to change (i.e. are we going to start a
+                 * new row, or a new plane, or a new cube?). This determine how many bytes we have to
+                 * skip.
+                 */
+                if (++cursor[i] < region.targetSize[contiguousDataDimension + i]) {
+                    streamPosition = Math.addExact(streamPosition, strides[i]);
+                    arrayPosition  = Math.addExact(arrayPosition, contiguousDataLength);
+                    continue loop;
                 }
-                break;
-            } while (true);
-            return reader.dataArray();
-        } finally {
-            reader.setDest(null);
-        }
+                cursor[i] = 0;
+            }
+            break;
+        } while (true);
     }
 }
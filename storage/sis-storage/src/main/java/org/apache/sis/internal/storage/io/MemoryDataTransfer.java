@@ -41,7 +41,7 @@ import org.apache.sis.util.Classes;
  * {@link NullPointerException}.</div>
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 0.7
+ * @version 1.1
  * @since   0.7
  * @module
  */
@@ -101,10 +101,11 @@ final class MemoryDataTransfer implements DataTransfer, ReadableByteChannel {
     @Override public Buffer createView()                {return reader.createView();}
     @Override public void   createDataArray(int length) {reader.createDataArray(length);}
     @Override public void   setDest(Object array)       {reader.setDest(array);}
+    @Override public void   setTarget(Buffer target)    {reader.setTarget(target);}
 
     /**
-     * Reads {@code length} values from the buffer and stores them into the array known to subclass,
-     * starting at index {@code offset}.
+     * Reads {@code length} values from the buffer and stores them into the array known to subclass
+     * (or into the target buffer if any), starting at index {@code offset}.
      *
      * @param  view    ignored.
      * @param  offset  the starting position within {@code dest} to write.
@@ -112,7 +113,7 @@ final class MemoryDataTransfer implements DataTransfer, ReadableByteChannel {
      */
     @Override
     public void readFully(final Buffer view, final int offset, final int length) {
-        reader.transfer(offset, length);
+        reader.copy(offset, length);
     }
 
     /**
@@ -16,16 +16,32 @@
  */
 package org.apache.sis.internal.storage.query;
 
+import java.util.Set;
+import java.util.LinkedHashSet;
+import java.util.Comparator;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
+import org.opengis.geometry.Envelope;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.TransformException;
+import org.apache.sis.geometry.Envelopes;
+import org.apache.sis.geometry.GeneralEnvelope;
+import org.apache.sis.internal.feature.AttributeConvention;
+import org.apache.sis.internal.feature.Geometries;
 import org.apache.sis.internal.storage.AbstractFeatureSet;
 import org.apache.sis.internal.storage.Resources;
 import org.apache.sis.storage.DataStoreContentException;
 import org.apache.sis.storage.DataStoreException;
 import org.apache.sis.storage.FeatureSet;
 import org.apache.sis.storage.event.StoreListeners;
+import org.apache.sis.util.collection.BackingStoreException;
+import org.apache.sis.util.Utilities;
 
 // Branch-dependent imports
 import org.apache.sis.feature.AbstractFeature;
+import org.apache.sis.feature.AbstractOperation;
+import org.apache.sis.feature.AbstractIdentifiedType;
 import org.apache.sis.feature.DefaultFeatureType;
 
 
@@ -37,7 +53,7 @@ import org.apache.sis.feature.DefaultFeatureType;
  *
  * @author  Johann Sorel (Geomatys)
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   1.0
  * @module
  */
@@ -90,6 +106,28 @@ final class FeatureSubset extends AbstractFeatureSet {
     @Override
     public Stream<AbstractFeature> features(final boolean parallel) throws DataStoreException {
         Stream<AbstractFeature> stream = source.features(parallel);
+        /*
+         * Apply filter. Conditions are tested before the bounding box because they are cheaper.
+         */
+        for (final SimpleQuery.Condition condition : query.getConditions()) {
+            stream = stream.filter(condition::test);
+        }
+        final Envelope bounds = query.getBounds();
+        if (bounds != null) {
+            stream = stream.filter(new Intersects(bounds));
+        }
+        /*
+         * Apply sorting.
+         */
+        final SimpleQuery.SortKey[] sortBy = query.getSortBy();
+        if (sortBy != null) {
+            Comparator<AbstractFeature> comparator = null;
+            for (final SimpleQuery.SortKey key : sortBy) {
+                final Comparator<AbstractFeature> c = comparator(key);
+                comparator = (comparator != null) ? comparator.thenComparing(c) : c;
+            }
+            stream = stream.sorted(comparator);
+        }
         /*
          * Apply offset.
          */
@@ -104,6 +142,168 @@ final class FeatureSubset extends AbstractFeatureSet {
         if (limit >= 0) {
             stream = stream.limit(limit);
         }
+        /*
+         * Apply projection. This is done last because conditions and sort keys may use other properties.
+         */
+        final String[] projection = query.getProjection();
+        if (projection != null) {
+            stream = stream.map(new Projection(projection));
+        }
         return stream;
     }
+
+    /**
+     * Returns a comparator for the property values identified by the given key.
+     * Null values are last in both ascending and descending orders. Other values are first grouped by kind
+     * (numbers, then character sequences, then other values grouped by class), then sorted in the requested
+     * order within each group. Values of the same group that can not be compared are considered equal.
+     * Grouping before comparing keeps the order transitive when a property contains values of different kinds.
+     */
+    private static Comparator<AbstractFeature> comparator(final SimpleQuery.SortKey key) {
+        final String property = key.property;
+        final boolean ascending = key.ascending;
+        return (f1, f2) -> {
+            final Object v1 = f1.getPropertyValue(property);
+            final Object v2 = f2.getPropertyValue(property);
+            if (v1 == null) return (v2 == null) ? 0 : +1;
+            if (v2 == null) return -1;
+            final String k1 = kind(v1);
+            final String k2 = kind(v2);
+            if (!k1.equals(k2)) {
+                return Integer.signum(k1.compareTo(k2));
+            }
+            final int c = SimpleQuery.compare(v1, v2);
+            if (c == SimpleQuery.INCOMPARABLE) return 0;
+            return ascending ? c : -c;
+        };
+    }
+
+    /**
+     * Returns a key identifying the group of values that can be compared with the given value.
+     * The lexicographic order of the keys is the order of the groups.
+     */
+    private static String kind(final Object value) {
+        if (value instanceof Number)       return "0";
+        if (value instanceof CharSequence) return "1";
+        return "2".concat(value.getClass().getName());
+    }
+
+    /**
+     * A function copying in a new feature instance only the properties in the projection. The identifier and the
+     * properties needed for computing the operations in the projection are also copied, for consistency with the
+     * {@link SimpleQuery#setProjection(String...)} contract. Properties not copied are left to their default value.
+     */
+    private static final class Projection implements Function<AbstractFeature,AbstractFeature> {
+        /** Names of the properties to load, as given to {@link SimpleQuery#setProjection(String...)}. */
+        private final String[] projection;
+
+        /** The type of the last feature processed, or {@code null} if none. */
+        private DefaultFeatureType type;
+
+        /** Names of the properties to copy for features of the {@link #type} type. */
+        private String[] copied;
+
+        /** Creates a new function for the given projection. */
+        Projection(final String[] projection) {
+            this.projection = projection;
+        }
+
+        /** Returns the names of the properties to copy for features of the given type. */
+        private synchronized String[] copied(final DefaultFeatureType t) {
+            if (t != type) {
+                final Set<String> names = new LinkedHashSet<>();
+                for (final String name : projection) {
+                    addProperty(t, name, names);
+                }
+                addProperty(t, AttributeConvention.IDENTIFIER, names);
+                copied = names.toArray(new String[names.size()]);
+                type   = t;
+            }
+            return copied;
+        }
+
+        /** Adds the given property, or the dependencies of the given operation, if they exist in the given type. */
+        private static void addProperty(final DefaultFeatureType t, final String name, final Set<String> names) {
+            final AbstractIdentifiedType property;
+            try {
+                property = t.getProperty(name);
+            } catch (IllegalArgumentException e) {
+                return;                                 // No such property in this feature type.
+            }
+            if (property instanceof AbstractOperation) {
+                for (final String dependency : ((AbstractOperation) property).getDependencies()) {
+                    addProperty(t, dependency, names);
+                }
+            } else {
+                names.add(name);
+            }
+        }
+
+        /** Returns a copy of the given feature with only the properties to load. */
+        @Override
+        public AbstractFeature apply(final AbstractFeature feature) {
+            final DefaultFeatureType t = feature.getType();
+            final AbstractFeature copy = t.newInstance();
+            for (final String name : copied(t)) {
+                final Object value = feature.getPropertyValue(name);
+                if (value != null) {
+                    copy.setPropertyValue(name, value);
+                }
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * A filter accepting the features having a default geometry intersecting a bounding box.
+     * Features without default geometry are excluded. The bounding box is transformed to the
+     * CRS of the geometries if needed; the last transformed envelope is cached since all
+     * geometries of a feature set typically share the same CRS.
+     */
+    private static final class Intersects implements Predicate<AbstractFeature> {
+        /** The bounding box given by the user. */
+        private final Envelope bounds;
+
+        /** The bounding box transformed to the CRS of the last geometry. */
+        private Envelope transformed;
+
+        /** Creates a new filter for the given bounding box. */
+        Intersects(final Envelope bounds) {
+            this.bounds = bounds;
+            transformed = bounds;
+        }
+
+        /** Returns whether the default geometry of the given feature intersects the bounding box. */
+        @Override
+        public boolean test(final AbstractFeature feature) {
+            final Object geometry;
+            try {
+                geometry = feature.getPropertyValue(AttributeConvention.GEOMETRY);
+            } catch (IllegalArgumentException e) {
+                return false;                           // No default geometry in this feature type.
+            }
+            final GeneralEnvelope envelope = Geometries.getEnvelope(geometry);
+            if (envelope == null) {
+                return false;
+            }
+            final CoordinateReferenceSystem crs = envelope.getCoordinateReferenceSystem();
+            Envelope area;
+            synchronized (this) {
+                area = transformed;
+            }
+            if (crs != null && area.getCoordinateReferenceSystem() != null
+                    && !Utilities.equalsIgnoreMetadata(crs, area.getCoordinateReferenceSystem()))
+            {
+                try {
+                    area = Envelopes.transform(bounds, crs);
+                } catch (TransformException e) {
+                    throw new BackingStoreException(e);
+                }
+                synchronized (this) {
+                    transformed = area;
+                }
+            }
+            return envelope.intersects(area, true);
+        }
+    }
 }
@@ -16,21 +16,43 @@
  */
 package org.apache.sis.internal.storage.query;
 
+import java.util.List;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+import org.opengis.geometry.Envelope;
+import org.apache.sis.geometry.ImmutableEnvelope;
 import org.apache.sis.storage.FeatureSet;
 import org.apache.sis.storage.Query;
 import org.apache.sis.util.ArgumentChecks;
+import org.apache.sis.util.ArraysExt;
 
 // Branch-dependent imports
+import org.apache.sis.feature.AbstractFeature;
 import org.apache.sis.feature.DefaultFeatureType;
 
 
 /**
  * Mimics {@code SQL SELECT} statements using OGC Filter and Expressions.
  * Information stored in this query can be used directly with {@link java.util.stream.Stream} API.
+ * In addition to offset and limit, the query can contain:
+ *
+ * <ul>
+ *   <li>a projection, which is the list of properties to load;</li>
+ *   <li>comparisons between property values and literals, combined by logical {@code AND};</li>
+ *   <li>a bounding box that the default geometry of selected features shall intersect;</li>
+ *   <li>sort keys.</li>
+ * </ul>
+ *
+ * The filters are restricted to the above simple forms because this branch does not have the OGC Filter API.
+ * {@link FeatureSet} implementations can translate some or all of those criteria in their native language
+ * (for example SQL) and delegate the remaining to {@link #execute(FeatureSet)}.
  *
  * @author  Johann Sorel (Geomatys)
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   1.0
  * @module
  */
@@ -59,11 +81,371 @@ public class SimpleQuery extends Query {
      */
     private long limit;
 
+    /**
+     * Names of the properties to load, or {@code null} for all properties.
+     *
+     * @see #getProjection()
+     * @see #setProjection(String...)
+     */
+    private String[] projection;
+
+    /**
+     * Conditions that selected features shall met, combined by logical {@code AND}.
+     *
+     * @see #getConditions()
+     * @see #addCondition(String, Comparison, Object)
+     */
+    private final List<Condition> conditions;
+
+    /**
+     * The bounding box that the default geometry of selected features shall intersect, or {@code null} if none.
+     *
+     * @see #getBounds()
+     * @see #setBounds(Envelope)
+     */
+    private ImmutableEnvelope bounds;
+
+    /**
+     * The properties to use for sorting the features, or {@code null} if the order does not matter.
+     *
+     * @see #getSortBy()
+     * @see #setSortBy(SortKey...)
+     */
+    private SortKey[] sortBy;
+
     /**
      * Creates a new query retrieving no column and applying no filter.
      */
     public SimpleQuery() {
         limit  = UNLIMITED;
+        conditions = new ArrayList<>();
+    }
+
+    /**
+     * Comparison operators between a property value and a literal.
+     * Those operators have the same meaning than in SQL; in particular,
+     * a comparison with a null or missing property value is always false.
+     */
+    public enum Comparison {
+        /** The property value is equal to the literal. */
+        EQUAL("="),
+
+        /** The property value is not equal to the literal. */
+        NOT_EQUAL("<>"),
+
+        /** The property value is less than the literal. */
+        LESS("<"),
+
+        /** The property value is less than or equal to the literal. */
+        LESS_OR_EQUAL("<="),
+
+        /** The property value is greater than the literal. */
+        GREATER(">"),
+
+        /** The property value is greater than or equal to the literal. */
+        GREATER_OR_EQUAL(">=");
+
+        /**
+         * The symbol of this operator in SQL statements.
+         */
+        public final String symbol;
+
+        /**
+         * Creates a new operator for the given SQL symbol.
+         */
+        private Comparison(final String symbol) {
+            this.symbol = symbol;
+        }
+
+        /**
+         * Returns whether the result of a {@code compareTo(…)} method satisfies this operator.
+         */
+        final boolean accept(final int c) {
+            switch (this) {
+                case EQUAL:            return c == 0;
+                case NOT_EQUAL:        return c != 0;
+                case LESS:             return c <  0;
+                case LESS_OR_EQUAL:    return c <= 0;
+                case GREATER:          return c >  0;
+                case GREATER_OR_EQUAL: return c >= 0;
+                default: throw new AssertionError(this);
+            }
+        }
+    }
+
+    /**
+     * A comparison between the value of a feature property and a literal.
+     * Instances of this class are immutable.
+     */
+    public static final class Condition {
+        /**
+         * Name of the property to compare.
+         */
+        public final String property;
+
+        /**
+         * The comparison operator.
+         */
+        public final Comparison operator;
+
+        /**
+         * The value to compare with the property value. Never null.
+         */
+        public final Object value;
+
+        /**
+         * Creates a new condition.
+         *
+         * @param  property  name of the property to compare.
+         * @param  operator  the comparison operator.
+         * @param  value     the value to compare with the property value.
+         */
+        public Condition(final String property, final Comparison operator, final Object value) {
+            ArgumentChecks.ensureNonEmpty("property", property);
+            ArgumentChecks.ensureNonNull ("operator", operator);
+            ArgumentChecks.ensureNonNull ("value",    value);
+            this.property = property;
+            this.operator = operator;
+            this.value    = value;
+        }
+
+        /**
+         * Returns whether the given feature satisfies this condition. If the property is multi-valued,
+         * then this method returns {@code true} if at least one value satisfies the condition.
+         */
+        final boolean test(final AbstractFeature feature) {
+            final Object actual = feature.getPropertyValue(property);
+            if (actual instanceof Collection<?>) {
+                for (final Object element : (Collection<?>) actual) {
+                    if (accept(element)) return true;
+                }
+                return false;
+            }
+            return accept(actual);
+        }
+
+        /**
+         * Returns whether the given property value satisfies this condition.
+         */
+        private boolean accept(final Object actual) {
+            if (actual != null) {
+                final int c = compare(actual, value);
+                if (c != INCOMPARABLE) {
+                    return operator.accept(c);
+                }
+                if (operator == Comparison.NOT_EQUAL) {
+                    return !actual.equals(value);
+                }
+            }
+            return false;
+        }
+
+        /** Returns a hash code value for this condition. */
+        @Override public int hashCode() {
+            return Objects.hash(property, operator, value);
+        }
+
+        /** Compares this condition with the given object for equality. */
+        @Override public boolean equals(final Object obj) {
+            if (obj instanceof Condition) {
+                final Condition other = (Condition) obj;
+                return property.equals(other.property) && operator == other.operator && value.equals(other.value);
+            }
+            return false;
+        }
+
+        /** Returns a SQL-like representation of this condition. */
+        @Override public String toString() {
+            final String quote = (value instanceof CharSequence) ? "'" : "";
+            return property + ' ' + operator.symbol + ' ' + quote + value + quote;
+        }
+    }
+
+    /**
+     * A property to use for sorting features, together with the sort order.
+     * Instances of this class are immutable.
+     */
+    public static final class SortKey {
+        /**
+         * Name of the property to use for sorting.
+         */
+        public final String property;
+
+        /**
+         * {@code true} for ascending order, or {@code false} for descending order.
+         */
+        public final boolean ascending;
+
+        /**
+         * Creates a new sort key.
+         *
+         * @param  property   name of the property to use for sorting.
+         * @param  ascending  {@code true} for ascending order, or {@code false} for descending order.
+         */
+        public SortKey(final String property, final boolean ascending) {
+            ArgumentChecks.ensureNonEmpty("property", property);
+            this.property  = property;
+            this.ascending = ascending;
+        }
+
+        /** Returns a hash code value for this sort key. */
+        @Override public int hashCode() {
+            return property.hashCode() + Boolean.hashCode(ascending);
+        }
+
+        /** Compares this sort key with the given object for equality. */
+        @Override public boolean equals(final Object obj) {
+            if (obj instanceof SortKey) {
+                final SortKey other = (SortKey) obj;
+                return property.equals(other.property) && ascending == other.ascending;
+            }
+            return false;
+        }
+
+        /** Returns a SQL-like representation of this sort key. */
+        @Override public String toString() {
+            return property + (ascending ? " ASC" : " DESC");
+        }
+    }
+
+    /**
+     * Value returned by {@link #compare(Object, Object)} when the two values can not be compared.
+     */
+    static final int INCOMPARABLE = Integer.MIN_VALUE;
+
+    /**
+     * Compares the given non-null values. Numbers of different types are compared by their value.
+     * If the values can not be compared, then this method returns {@link #INCOMPARABLE}.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compare(final Object v1, final Object v2) {
+        final int c;
+        if (v1 instanceof Number && v2 instanceof Number && v1.getClass() != v2.getClass()) {
+            if (isLong(v1) && isLong(v2)) {
+                c = Long.compare(((Number) v1).longValue(), ((Number) v2).longValue());
+            } else {
+                c = Double.compare(((Number) v1).doubleValue(), ((Number) v2).doubleValue());
+            }
+        } else if (v1 instanceof Comparable<?> && v1.getClass().isInstance(v2)) {
+            c = ((Comparable) v1).compareTo(v2);
+        } else if (v1 instanceof CharSequence && v2 instanceof CharSequence) {
+            c = v1.toString().compareTo(v2.toString());
+        } else {
+            return INCOMPARABLE;
+        }
+        return Integer.signum(c);
+    }
+
+    /**
+     * Returns whether the given number can be represented as a {@code long} without loss of information.
+     */
+    private static boolean isLong(final Object value) {
+        return (value instanceof Long) || (value instanceof Integer) || (value instanceof Short) || (value instanceof Byte);
+    }
+
+    /**
+     * Sets the names of the properties to load. Properties not in this list may be absent from the
+     * features, or left to their default value. A {@link FeatureSet} is free to load more properties,
+     * for example the properties required for evaluating the conditions or for computing identifiers.
+     *
+     * @param  properties  names of the properties to load, or {@code null} or empty for all properties.
+     */
+    public void setProjection(final String... properties) {
+        if (properties != null) {
+            for (int i=0; i<properties.length; i++) {
+                ArgumentChecks.ensureNonEmpty(Integer.toString(i), properties[i]);
+            }
+        }
+        projection = (properties == null || properties.length == 0) ? null : ArraysExt.resize(properties, properties.length);
+    }
+
+    /**
+     * Returns the names of the properties to load.
+     * This is the value specified in the last call to {@link #setProjection(String...)}.
+     *
+     * @return names of the properties to load, or {@code null} for all properties.
+     */
+    public String[] getProjection() {
+        return (projection != null) ? projection.clone() : null;
+    }
+
+    /**
+     * Adds a condition that selected features shall met.
+     * All conditions are combined by a logical {@code AND}.
+     *
+     * @param  property  name of the property to compare.
+     * @param  operator  the comparison operator.
+     * @param  value     the value to compare with the property value.
+     */
+    public void addCondition(final String property, final Comparison operator, final Object value) {
+        addCondition(new Condition(property, operator, value));
+    }
+
+    /**
+     * Adds a condition that selected features shall met.
+     * All conditions are combined by a logical {@code AND}.
+     *
+     * @param  condition  the condition to add.
+     */
+    public void addCondition(final Condition condition) {
+        ArgumentChecks.ensureNonNull("condition", condition);
+        conditions.add(condition);
+    }
+
+    /**
+     * Returns the conditions that selected features shall met.
+     * The returned list is unmodifiable.
+     *
+     * @return conditions combined by logical {@code AND} (may be empty).
+     */
+    public List<Condition> getConditions() {
+        return Collections.unmodifiableList(conditions);
+    }
+
+    /**
+     * Sets the bounding box that the default geometry of selected features shall intersect.
+     * If the envelope has a coordinate reference system, then it will be transformed to the
+     * CRS of each geometry when they differ.
+     *
+     * @param  bounds  the bounding box of the area of interest, or {@code null} if none.
+     */
+    public void setBounds(final Envelope bounds) {
+        this.bounds = ImmutableEnvelope.castOrCopy(bounds);
+    }
+
+    /**
+     * Returns the bounding box that the default geometry of selected features shall intersect.
+     * This is the value specified in the last call to {@link #setBounds(Envelope)}.
+     *
+     * @return the bounding box of the area of interest, or {@code null} if none.
+     */
+    public Envelope getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Sets the properties to use for sorting features. The first key has precedence, other keys
+     * are used only for features having equal values for all previous keys. Null values are last.
+     *
+     * @param  keys  the properties to use for sorting, or {@code null} or empty if the order does not matter.
+     */
+    public void setSortBy(final SortKey... keys) {
+        if (keys != null) {
+            for (int i=0; i<keys.length; i++) {
+                ArgumentChecks.ensureNonNullElement("keys", i, keys[i]);
+            }
+        }
+        sortBy = (keys == null || keys.length == 0) ? null : keys.clone();
+    }
+
+    /**
+     * Returns the properties to use for sorting features.
+     * This is the value specified in the last call to {@link #setSortBy(SortKey...)}.
+     *
+     * @return the properties to use for sorting, or {@code null} if the order does not matter.
+     */
+    public SortKey[] getSortBy() {
+        return (sortBy != null) ? sortBy.clone() : null;
     }
 
     /**
@@ -153,7 +535,8 @@ public class SimpleQuery extends Query {
      */
     @Override
     public int hashCode() {
-        return Long.hashCode(limit ^ skip);
+        return Long.hashCode(limit ^ skip) + 31*(Arrays.hashCode(projection) + 31*(conditions.hashCode()
+                + 31*(Objects.hashCode(bounds) + 31*Arrays.hashCode(sortBy))));
     }
 
     /**
@@ -170,7 +553,11 @@ public class SimpleQuery extends Query {
         if (obj != null && getClass() == obj.getClass()) {
             final SimpleQuery other = (SimpleQuery) obj;
             return skip  == other.skip &&
-                   limit == other.limit;
+                   limit == other.limit &&
+                   Arrays .equals(projection, other.projection) &&
+                   conditions.equals(other.conditions) &&
+                   Objects.equals(bounds, other.bounds) &&
+                   Arrays .equals(sortBy, other.sortBy);
         }
         return false;
     }
@@ -184,7 +571,26 @@ public class SimpleQuery extends Query {
     public String toString() {
         final StringBuilder sb = new StringBuilder(80);
         sb.append("SELECT ");
-        sb.append('*');
+        if (projection != null) {
+            sb.append(String.join(", ", projection));
+        } else {
+            sb.append('*');
+        }
+        String separator = " WHERE ";
+        for (final Condition condition : conditions) {
+            sb.append(separator).append(condition);
+            separator = " AND ";
+        }
+        if (bounds != null) {
+            sb.append(separator).append("BBOX(").append(bounds).append(')');
+        }
+        if (sortBy != null) {
+            separator = " ORDER BY ";
+            for (final SortKey key : sortBy) {
+                sb.append(separator).append(key);
+                separator = ", ";
+            }
+        }
         if (limit != UNLIMITED) {
             sb.append(" LIMIT ").append(limit);
         }
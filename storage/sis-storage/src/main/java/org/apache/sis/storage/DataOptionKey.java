@@ -27,7 +27,7 @@ import org.apache.sis.feature.FoliationRepresentation;
  * not applicable to other kinds of file (e.g. configuration or program files).
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  *
  * @param <T>  the type of option values.
  *
@@ -49,6 +49,27 @@ public final class DataOptionKey<T> extends OptionKey<T> {
     public static final OptionKey<FoliationRepresentation> FOLIATION_REPRESENTATION =
             new DataOptionKey<>("FOLIATION_REPRESENTATION", FoliationRepresentation.class);
 
+    /**
+     * Number of rows to fetch from a database in each round trip when reading features.
+     * This is a hint given to the JDBC driver; if unspecified, the driver default is used.
+     * Some drivers (e.g. PostgreSQL) load all rows in memory unless this value is set,
+     * in which case the data store may also need to disable auto-commit while reading.
+     *
+     * @since 1.1
+     */
+    public static final OptionKey<Integer> FETCH_SIZE = new DataOptionKey<>("FETCH_SIZE", Integer.class);
+
+    /**
+     * Maximal number of threads that a data store can use concurrently for decoding data.
+     * This applies for example to the decompression of many tiles requested in a single read operation.
+     * The threads are taken from a pool shared by all data stores, which is itself limited to the number
+     * of available processors. A value of 1 disables parallelism. If this option is not provided, then
+     * the default value is the number of available processors.
+     *
+     * @since 1.1
+     */
+    public static final OptionKey<Integer> PARALLELISM = new DataOptionKey<>("PARALLELISM", Integer.class);
+
     /**
      * Creates a new key of the given name.
      */
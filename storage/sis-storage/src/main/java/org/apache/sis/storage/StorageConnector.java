@@ -20,6 +20,8 @@ import java.util.Map;
 import java.util.Iterator;
 import java.util.Collections;
 import java.util.IdentityHashMap;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
 import java.io.Reader;
 import java.io.DataInput;
 import java.io.InputStream;
@@ -30,6 +32,7 @@ import java.io.BufferedInputStream;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channel;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.NoSuchFileException;
@@ -86,7 +89,7 @@ import org.apache.sis.setup.OptionKey;
  * is serializable.</p>
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   0.3
  * @module
  */
@@ -574,6 +577,7 @@ public class StorageConnector implements Serializable {
      *   <li>{@link OptionKey#URL_ENCODING} for converting URL to URI or filename, if needed.</li>
      *   <li>{@link OptionKey#OPEN_OPTIONS} for specifying whether the data store shall be read only or read/write.</li>
      *   <li>{@link OptionKey#BYTE_BUFFER}  for allowing users to control the byte buffer to be created.</li>
+     *   <li>{@link OptionKey#MEMORY_MAPPED} for reading local files through a memory-mapped buffer.</li>
      * </ul>
      *
      * @param <T>    the type of option value.
@@ -939,14 +943,41 @@ public class StorageConnector implements Serializable {
         final ReadableByteChannel channel = factory.readable(name, null);
         addView(ReadableByteChannel.class, channel, null, factory.isCoupled() ? CASCADE_ON_RESET : 0);
         ByteBuffer buffer = getOption(OptionKey.BYTE_BUFFER);       // User-supplied buffer.
-        if (buffer == null) {
-            buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);      // Default buffer if user did not specified any.
+        boolean mapped = false;
+        if (buffer == null && Boolean.TRUE.equals(getOption(OptionKey.MEMORY_MAPPED)) && channel instanceof FileChannel) {
+            mapped = ChannelDataInput.canMap(channel);
+            if (!mapped) {
+                /*
+                 * The file is too large for a single MappedByteBuffer. We can not map it in many regions
+                 * because the buffer of ChannelDataInput is final, so fallback on the heap buffer.
+                 */
+                final LogRecord record = Resources.forLocale(null).getLogRecord(Level.WARNING,
+                        Resources.Keys.FileTooLargeForMapping_1, name);
+                record.setLoggerName(Modules.STORAGE);
+                Logging.log(StorageConnector.class, "getStorageAs", record);
+            }
         }
         final ChannelDataInput asDataInput;
-        if (asImageInputStream) {
-            asDataInput = new ChannelImageInputStream(name, channel, buffer, false);
+        if (mapped) {
+            /*
+             * Memory-mapped mode: the buffer is a view over the whole file content,
+             * so there is no copy from the channel to the buffer and no seek in the channel.
+             */
+            final FileChannel file = (FileChannel) channel;
+            if (asImageInputStream) {
+                asDataInput = new ChannelImageInputStream(name, file);
+            } else {
+                asDataInput = new ChannelDataInput(name, file);
+            }
         } else {
-            asDataInput = new ChannelDataInput(name, channel, buffer, false);
+            if (buffer == null) {
+                buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);  // Default buffer if user did not specified any.
+            }
+            if (asImageInputStream) {
+                asDataInput = new ChannelImageInputStream(name, channel, buffer, false);
+            } else {
+                asDataInput = new ChannelDataInput(name, channel, buffer, false);
+            }
         }
         addView(ChannelDataInput.class, asDataInput, ReadableByteChannel.class, CASCADE_ON_RESET);
         /*
@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.index.tree;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.opengis.geometry.Envelope;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.GeographicCRS;
+import org.opengis.referencing.operation.TransformException;
+import org.apache.sis.geometry.DirectPosition2D;
+import org.apache.sis.geometry.GeneralEnvelope;
+import org.apache.sis.referencing.CommonCRS;
+import org.apache.sis.referencing.GeodeticCalculator;
+import org.apache.sis.storage.DataStoreException;
+import org.apache.sis.storage.DataStoreContentException;
+import org.apache.sis.test.DependsOnMethod;
+import org.apache.sis.test.TestCase;
+import org.apache.sis.test.TestUtilities;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests {@link PackedRTree}. Results of queries are compared with the results of an exhaustive search.
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+public final strictfp class PackedRTreeTest extends TestCase {
+    /**
+     * Number of points to write in the index.
+     */
+    private static final int COUNT = 2000;
+
+    /**
+     * The coordinate reference system of the points.
+     */
+    private final CoordinateReferenceSystem crs = CommonCRS.WGS84.normalizedGeographic();
+
+    /**
+     * (<var>x</var><sub>min</sub>, <var>y</var><sub>min</sub>, <var>x</var><sub>max</sub>, <var>y</var><sub>max</sub>)
+     * tuples of random points. Minimal and maximal values are the same.
+     */
+    private final double[] bounds;
+
+    /**
+     * Creates random points for the tests.
+     */
+    public PackedRTreeTest() {
+        final Random random = TestUtilities.createRandomNumberGenerator();
+        bounds = new double[COUNT * 4];
+        for (int i=0; i<bounds.length; i += 4) {
+            bounds[i+2] = bounds[i  ] = random.nextDouble() * 360 - 180;
+            bounds[i+3] = bounds[i+1] = random.nextDouble() * 170 -  85;
+        }
+    }
+
+    /**
+     * Writes the points in a temporary file and opens the index.
+     */
+    private PackedRTree create(final Path file) throws IOException, DataStoreException {
+        PackedRTree.write(file, bounds, null, crs, PackedRTree.DEFAULT_NODE_CAPACITY);
+        final PackedRTree tree = PackedRTree.open(file);
+        assertEquals("size", COUNT, tree.size());
+        return tree;
+    }
+
+    /**
+     * Deletes the given temporary file. The index should have been closed before this method is invoked,
+     * but the file may still be mapped until the buffer is garbage-collected. Since some platforms do not
+     * allow deletion of mapped files, deletion is deferred to JVM exit if it can not be done immediately.
+     */
+    private static void delete(final Path file) {
+        try {
+            Files.delete(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * Returns the indices of all points in the given rectangle, found by an exhaustive search.
+     */
+    private long[] bruteForce(final double xmin, final double ymin, final double xmax, final double ymax) {
+        long[] ids = new long[COUNT];
+        int n = 0;
+        for (int i=0; i<COUNT; i++) {
+            final double x = bounds[i*4], y = bounds[i*4 + 1];
+            if (x >= xmin && x <= xmax && y >= ymin && y <= ymax) {
+                ids[n++] = i;
+            }
+        }
+        return Arrays.copyOf(ids, n);
+    }
+
+    /**
+     * Returns the given array after sorting.
+     */
+    private static long[] sort(final long[] ids) {
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Creates an envelope in the CRS of the points.
+     */
+    private Envelope envelope(final double xmin, final double ymin, final double xmax, final double ymax) {
+        final GeneralEnvelope envelope = new GeneralEnvelope(crs);
+        envelope.setRange(0, xmin, xmax);
+        envelope.setRange(1, ymin, ymax);
+        return envelope;
+    }
+
+    /**
+     * Tests writing an index, reading it back and querying by bounding boxes.
+     *
+     * @throws IOException if an error occurred while writing or reading the temporary file.
+     * @throws DataStoreException if the index can not be read.
+     * @throws TransformException if an envelope can not be transformed.
+     */
+    @Test
+    public void testQueryByBoundingBox() throws IOException, DataStoreException, TransformException {
+        final Path file = Files.createTempFile("testQueryByBoundingBox", ".idx");
+        try (PackedRTree tree = create(file)) {
+            assertTrue(tree.getCoordinateReferenceSystem() instanceof GeographicCRS);
+            final Envelope domain = tree.getEnvelope();
+            assertTrue(domain.getMinimum(0) >= -180 && domain.getMaximum(0) <= 180);
+            assertTrue(domain.getMinimum(1) >=  -85 && domain.getMaximum(1) <=  85);
+            assertArrayEquals(bruteForce(-180, -90, 180, 90), sort(tree.queryByBoundingBox(envelope(-180, -90, 180, 90))));
+            assertArrayEquals(bruteForce(  10,  20,  60, 50), sort(tree.queryByBoundingBox(envelope(  10,  20,  60, 50))));
+            assertArrayEquals(bruteForce( -30, -40, -29, 10), sort(tree.queryByBoundingBox(envelope( -30, -40, -29, 10))));
+            /*
+             * Envelope crossing the anti-meridian: minimum longitude greater than maximum longitude.
+             */
+            final long[] expected = sort(concat(bruteForce(170, -10, 180, 30), bruteForce(-180, -10, -160, 30)));
+            assertTrue(expected.length != 0);
+            assertArrayEquals(expected, sort(tree.queryByBoundingBox(envelope(170, -10, -160, 30))));
+            /*
+             * Queries are not allowed anymore after the index has been closed.
+             */
+            tree.close();
+            try {
+                tree.queryByBoundingBox(envelope(-180, -90, 180, 90));
+                fail("Expected IllegalStateException.");
+            } catch (IllegalStateException e) {
+                assertNotNull(e.getMessage());
+            }
+        } finally {
+            delete(file);
+        }
+    }
+
+    /**
+     * Returns the concatenation of the given arrays.
+     */
+    private static long[] concat(final long[] a, final long[] b) {
+        final long[] c = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, c, a.length, b.length);
+        return c;
+    }
+
+    /**
+     * Tests querying by distance from a point, including a circle crossing the anti-meridian.
+     *
+     * @throws IOException if an error occurred while writing or reading the temporary file.
+     * @throws DataStoreException if the index can not be read.
+     */
+    @Test
+    @DependsOnMethod("testQueryByBoundingBox")
+    public void testQueryByPointRadius() throws IOException, DataStoreException {
+        final Path file = Files.createTempFile("testQueryByPointRadius", ".idx");
+        try (PackedRTree tree = create(file)) {
+            final GeodeticCalculator calculator = GeodeticCalculator.create(crs);
+            final DirectPosition2D point = new DirectPosition2D(crs);
+            final double[][] centers = {{2.35, 48.85}, {179.5, -15}, {-70, 80}, {0, 0}};
+            for (final double[] center : centers) {
+                final DirectPosition2D position = new DirectPosition2D(crs, center[0], center[1]);
+                final double radius = 1500000;
+                calculator.setStartPoint(position);
+                final long[] expected = new long[COUNT];
+                int n = 0;
+                for (int i=0; i<COUNT; i++) {
+                    point.x = bounds[i*4];
+                    point.y = bounds[i*4 + 1];
+                    calculator.setEndPoint(point);
+                    if (calculator.getGeodesicDistance() <= radius) {
+                        expected[n++] = i;
+                    }
+                }
+                assertTrue(n != 0);
+                assertArrayEquals(Arrays.copyOf(expected, n), sort(tree.queryByPointRadius(position, radius)));
+            }
+        } finally {
+            delete(file);
+        }
+    }
+
+    /**
+     * Tests opening a file which is not an index.
+     *
+     * @throws IOException if an error occurred while writing or reading the temporary file.
+     */
+    @Test
+    public void testInvalidFile() throws IOException {
+        final Path file = Files.createTempFile("testInvalidFile", ".idx");
+        try {
+            Files.write(file, new byte[64]);
+            try {
+                PackedRTree.open(file);
+                fail("Expected DataStoreContentException.");
+            } catch (DataStoreContentException e) {
+                assertNotNull(e.getMessage());
+            } catch (DataStoreException e) {
+                throw new AssertionError(e);
+            }
+        } finally {
+            delete(file);
+        }
+    }
+}
@@ -16,12 +16,22 @@
  */
 package org.apache.sis.internal.storage.io;
 
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.EOFException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.apache.sis.test.DependsOnMethod;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -32,7 +42,7 @@ import static org.junit.Assert.*;
  * of that buffer is used for the tests, while the original full buffer is used for comparison purpose.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 0.5
+ * @version 1.1
  * @since   0.3
  * @module
  */
@@ -63,6 +73,102 @@ public final strictfp class ChannelDataInputTest extends ChannelDataTestCase {
         transferRandomData(testedStream, array.length - ARRAY_MAX_LENGTH, 16);
     }
 
+    /**
+     * Same test than {@link #testAllReadMethods()}, but reading a temporary file through a memory-mapped buffer.
+     * Then tests random seeks at positions which are not multiple of the data size.
+     *
+     * @throws IOException if an error occurred while writing or reading the temporary file.
+     */
+    @Test
+    public void testMemoryMapped() throws IOException {
+        final byte[] array = createRandomArray(STREAM_LENGTH);
+        final Path file = Files.createTempFile("testMemoryMapped", ".raw");
+        try {
+            Files.write(file, array);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                assertTrue(ChannelDataInput.canMap(channel));
+                referenceStream = new DataInputStream(new ByteArrayInputStream(array));
+                testedStream = new ChannelDataInput("testMemoryMapped", channel);
+                assertTrue(testedStream.isMapped());
+                transferRandomData(testedStream, array.length - ARRAY_MAX_LENGTH, 16);
+                /*
+                 * Random seeks followed by reads of arrays, as done by HyperRectangleReader.
+                 */
+                final ByteBuffer expected = ByteBuffer.wrap(array);
+                for (int i=0; i<100; i++) {
+                    final int position = random.nextInt(array.length - ARRAY_MAX_LENGTH);
+                    testedStream.seek(position);
+                    assertEquals("getStreamPosition()", position, testedStream.getStreamPosition());
+                    final float[] values = testedStream.readFloats(ARRAY_MAX_LENGTH / Float.BYTES);
+                    for (int j=0; j<values.length; j++) {
+                        assertEquals(expected.getFloat(position + j*Float.BYTES), values[j], 0f);
+                    }
+                }
+                testedStream.seek(array.length - 1);
+                testedStream.readByte();
+                try {
+                    testedStream.readByte();
+                    fail("Expected end of file.");
+                } catch (EOFException e) {
+                    assertNotNull(e.getMessage());
+                }
+                assertEquals("Channel position shall be unchanged.", 0, channel.position());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Tests {@link ChannelDataInput#independentView()} with many threads reading the same file concurrently,
+     * first with a buffered input then with a memory-mapped input.
+     *
+     * @throws Exception if an error occurred while writing or reading the temporary file.
+     */
+    @Test
+    @DependsOnMethod("testMemoryMapped")
+    public void testIndependentView() throws Exception {
+        final byte[] array = createRandomArray(STREAM_LENGTH);
+        final ByteBuffer expected = ByteBuffer.wrap(array);
+        final Path file = Files.createTempFile("testIndependentView", ".raw");
+        try {
+            Files.write(file, array);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                for (int mode=0; mode<2; mode++) {
+                    channel.position(0);
+                    final ChannelDataInput input = (mode == 0)
+                            ? new ChannelDataInput("testIndependentView", channel, ByteBuffer.allocate(64), false)
+                            : new ChannelDataInput("testIndependentView", channel);
+                    input.seek(100);
+                    final List<CompletableFuture<Void>> tasks = new ArrayList<>();
+                    for (int t=0; t<4; t++) {
+                        final ChannelDataInput view = input.independentView();
+                        assertNotNull(view);
+                        assertEquals(input.isMapped(), view.isMapped());
+                        tasks.add(CompletableFuture.runAsync(() -> {
+                            try {
+                                for (int i=0; i<200; i++) {
+                                    final int position = random.nextInt(array.length - Long.BYTES);
+                                    view.seek(position);
+                                    assertEquals(expected.getLong(position), view.readLong());
+                                }
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }));
+                    }
+                    for (final CompletableFuture<Void> task : tasks) {
+                        task.get();
+                    }
+                    assertEquals("Position of the original input shall be unchanged.", 100, input.getStreamPosition());
+                    assertEquals(expected.getInt(100), input.readInt());
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
     /**
      * Reads a random unit of data using a method selected randomly.
      * This method is invoked (indirectly) by {@link #testAllReadMethods()}.
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.internal.storage.io;
+
+import java.util.Random;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.apache.sis.test.DependsOn;
+import org.apache.sis.test.TestCase;
+import org.apache.sis.test.TestUtilities;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests {@link CoalescingReader}.
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+@DependsOn(ChannelDataInputTest.class)
+public final strictfp class CoalescingReaderTest extends TestCase {
+    /**
+     * A channel which counts the number of seeks.
+     */
+    private static final class CountingChannel implements SeekableByteChannel {
+        private final ByteArrayChannel channel;
+        int seekCount;
+
+        CountingChannel(final byte[] data) {
+            channel = new ByteArrayChannel(data, true);
+        }
+
+        @Override public int     read(ByteBuffer dst) throws IOException  {return channel.read(dst);}
+        @Override public int     write(ByteBuffer src) throws IOException {return channel.write(src);}
+        @Override public long    position() throws IOException            {return channel.position();}
+        @Override public long    size() throws IOException                {return channel.size();}
+        @Override public boolean isOpen()                                 {return channel.isOpen();}
+        @Override public void    close() throws IOException               {channel.close();}
+        @Override public SeekableByteChannel truncate(long size) throws IOException {
+            channel.truncate(size);
+            return this;
+        }
+        @Override public SeekableByteChannel position(long p) throws IOException {
+            seekCount++;
+            channel.position(p);
+            return this;
+        }
+    }
+
+    /**
+     * Verifies that the given buffer contains the expected bytes.
+     */
+    private static void assertRangeEquals(final byte[] expected, final int position, final ByteBuffer actual) {
+        assertEquals("position", 0, actual.position());
+        for (int i=0; i<actual.limit(); i++) {
+            assertEquals(expected[position + i], actual.get(i));
+        }
+    }
+
+    /**
+     * Tests reading ranges added in random order, some of them close enough for being merged.
+     *
+     * @throws IOException should never happen since we read in memory only.
+     */
+    @Test
+    public void testMerge() throws IOException {
+        final Random random = TestUtilities.createRandomNumberGenerator();
+        final byte[] data = new byte[10000];
+        random.nextBytes(data);
+        final CountingChannel channel = new CountingChannel(data);
+        final ChannelDataInput input = new ChannelDataInput("testMerge", channel, ByteBuffer.allocate(64), false);
+        final CoalescingReader reader = new CoalescingReader(input, 100, 5000);
+        assertEquals(0, reader.add(4000, 200));         // Merged with the next range (gap of 50 bytes).
+        assertEquals(1, reader.add(1000, 300));         // Merged with the next range (gap of 100 bytes).
+        assertEquals(2, reader.add(4250, 100));
+        assertEquals(3, reader.add(1400,  50));
+        assertEquals(4, reader.add(8000,  20));         // Alone.
+        channel.seekCount = 0;
+        final ByteBuffer[] results = reader.read();
+        assertEquals("Number of reads", 3, channel.seekCount);
+        assertEquals(5, results.length);
+        assertRangeEquals(data, 4000, results[0]);
+        assertRangeEquals(data, 1000, results[1]);
+        assertRangeEquals(data, 4250, results[2]);
+        assertRangeEquals(data, 1400, results[3]);
+        assertRangeEquals(data, 8000, results[4]);
+        assertEquals(200, results[0].limit());
+        assertEquals( 20, results[4].limit());
+        /*
+         * Same ranges with a maximal read size too small for merging.
+         */
+        final CoalescingReader small = new CoalescingReader(input, 100, 100);
+        small.add(1000, 300);
+        small.add(1400,  50);
+        channel.seekCount = 0;
+        final ByteBuffer[] separated = small.read();
+        assertEquals("Number of reads", 2, channel.seekCount);
+        assertRangeEquals(data, 1000, separated[0]);
+        assertRangeEquals(data, 1400, separated[1]);
+    }
+
+    /**
+     * Tests reading with read-ahead enabled on a file, then on a memory-mapped file.
+     *
+     * @throws IOException if an error occurred while writing or reading the temporary file.
+     */
+    @Test
+    public void testFile() throws IOException {
+        final Random random = TestUtilities.createRandomNumberGenerator();
+        final byte[] data = new byte[20000];
+        random.nextBytes(data);
+        final Path file = Files.createTempFile("testCoalescing", ".raw");
+        try {
+            Files.write(file, data);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                for (int mode=0; mode<2; mode++) {
+                    channel.position(0);
+                    final ChannelDataInput input = (mode == 0)
+                            ? new ChannelDataInput("testFile", channel, ByteBuffer.allocate(64), false)
+                            : new ChannelDataInput("testFile", channel);
+                    final CoalescingReader reader = new CoalescingReader(input, 100, 5000);
+                    reader.setReadAhead(true);
+                    for (int position = 0; position < 19000; position += 1000) {
+                        reader.add(position + 500, 400);
+                        reader.add(position,       400);
+                        final ByteBuffer[] results = reader.read();
+                        assertRangeEquals(data, position + 500, results[0]);
+                        assertRangeEquals(data, position,       results[1]);
+                    }
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Tests that the read-ahead started by a batch is used by the next batch even if read-ahead
+     * is disabled for that next batch, as done for the last batch of a series.
+     *
+     * @throws IOException if an error occurred while writing or reading the temporary file.
+     */
+    @Test
+    public void testReadAheadOnLastBatch() throws IOException {
+        final Random random = TestUtilities.createRandomNumberGenerator();
+        final byte[] data = new byte[4000];
+        random.nextBytes(data);
+        final Path file = Files.createTempFile("testReadAhead", ".raw");
+        try {
+            Files.write(file, data);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                final ChannelDataInput input = new ChannelDataInput("testReadAhead", channel, ByteBuffer.allocate(64), false);
+                final CoalescingReader reader = new CoalescingReader(input, 100, 5000);
+                reader.setReadAhead(true);
+                reader.add(0, 900);
+                assertRangeEquals(data, 0, reader.read()[0]);
+                assertEquals("readAheadHits", 0, reader.readAheadHits);
+                reader.setReadAhead(false);                             // Last batch.
+                reader.add(1000, 400);
+                assertRangeEquals(data, 1000, reader.read()[0]);
+                assertEquals("readAheadHits", 1, reader.readAheadHits);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sis.internal.storage.io;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import org.apache.sis.test.DependsOn;
+import org.apache.sis.test.TestCase;
+import org.apache.sis.test.TestUtilities;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests {@link HttpRangeChannel} using a HTTP server running on the local host.
+ *
+ * @author  agent
+ * @version 1.1
+ * @since   1.1
+ * @module
+ */
+@DependsOn(ChannelDataInputTest.class)
+public final strictfp class HttpRangeChannelTest extends TestCase {
+    /**
+     * The bytes served by the HTTP server.
+     */
+    private byte[] data;
+
+    /**
+     * Number of requests received by the HTTP server.
+     */
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    /**
+     * The local HTTP server, or {@code null} if not yet started.
+     */
+    private HttpServer server;
+
+    /**
+     * Starts a HTTP server serving {@link #data}.
+     *
+     * @param  supportRanges  whether the server should honor the {@code Range} header.
+     * @return URL of the resource on the local server.
+     */
+    private URL startServer(final boolean supportRanges) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/data.raw", (HttpExchange exchange) -> {
+            requestCount.incrementAndGet();
+            int start = 0, end = data.length - 1;
+            final String range = exchange.getRequestHeaders().getFirst("Range");
+            final boolean partial = supportRanges && range != null && range.startsWith("bytes=");
+            if (partial) {
+                final int s = range.indexOf('-');
+                start = Integer.parseInt(range.substring(6, s));
+                end   = Math.min(end, Integer.parseInt(range.substring(s + 1)));
+                exchange.getResponseHeaders().set("Content-Range", "bytes " + start + '-' + end + '/' + data.length);
+            }
+            final int length = end - start + 1;
+            exchange.sendResponseHeaders(partial ? 206 : 200, length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(data, start, length);
+            }
+        });
+        server.start();
+        return new URL("http", "localhost", server.getAddress().getPort(), "/data.raw");
+    }
+
+    /**
+     * Stops the HTTP server.
+     */
+    @After
+    public void stopServer() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Tests random reads and seeks, and verifies that cached blocks are not requested again.
+     *
+     * @throws IOException if an error occurred while communicating with the local server.
+     */
+    @Test
+    public void testRandomReads() throws IOException {
+        final Random random = TestUtilities.createRandomNumberGenerator();
+        data = new byte[HttpRangeChannel.BLOCK_SIZE * 40 + 1234];
+        random.nextBytes(data);
+        try (ReadableByteChannel c = HttpRangeChannel.open(startServer(true))) {
+            assertTrue(c instanceof HttpRangeChannel);
+            final HttpRangeChannel channel = (HttpRangeChannel) c;
+            assertEquals(1, requestCount.get());
+            assertEquals(data.length, channel.size());
+            for (int i=0; i<50; i++) {
+                final int position = random.nextInt(data.length);
+                final ByteBuffer buffer = ByteBuffer.allocate(random.nextInt(HttpRangeChannel.BLOCK_SIZE * 3));
+                assertSame(channel, channel.position(position));
+                final int n = channel.read(buffer);
+                assertEquals(Math.min(buffer.capacity(), data.length - position), n);
+                assertEquals(position + n, channel.position());
+                for (int j=0; j<n; j++) {
+                    assertEquals(data[position + j], buffer.get(j));
+                }
+            }
+            /*
+             * Read the whole file. Many blocks should be fetched by parallel requests,
+             * then a second read of the same bytes should not send any new request.
+             */
+            final ByteBuffer all = ByteBuffer.allocate(data.length);
+            channel.position(0);
+            assertEquals(data.length, channel.read(all));
+            assertArrayEquals(data, all.array());
+            final int count = requestCount.get();
+            all.clear();
+            channel.position(0);
+            assertEquals(data.length, channel.read(all));
+            assertEquals("Cached blocks shall not be requested again.", count, requestCount.get());
+            assertEquals(-1, channel.read(all));
+        }
+    }
+
+    /**
+     * Tests with a server which ignores the {@code Range} header. The channel shall read the
+     * response of the first request sequentially, without sending a second request.
+     *
+     * @throws IOException if an error occurred while communicating with the local server.
+     */
+    @Test
+    public void testWithoutRangeSupport() throws IOException {
+        data = new byte[1000];
+        TestUtilities.createRandomNumberGenerator().nextBytes(data);
+        try (ReadableByteChannel channel = HttpRangeChannel.open(startServer(false))) {
+            assertFalse(channel instanceof HttpRangeChannel);
+            final ByteBuffer all = ByteBuffer.allocate(data.length + 1);
+            while (channel.read(all) >= 0) {
+                assertTrue(all.hasRemaining());
+            }
+            all.flip();
+            assertEquals(data.length, all.remaining());
+            for (int i=0; i<data.length; i++) {
+                assertEquals(data[i], all.get(i));
+            }
+        }
+        assertEquals("Number of requests", 1, requestCount.get());
+    }
+
+    /**
+     * Verifies that only HTTP and HTTPS URLs are supported.
+     *
+     * @throws IOException if a URL can not be created.
+     */
+    @Test
+    public void testIsSupported() throws IOException {
+        assertTrue (HttpRangeChannel.isSupported(new URL("http://localhost/data.raw")));
+        assertTrue (HttpRangeChannel.isSupported(new URL("HTTPS://localhost/data.raw")));
+        assertFalse(HttpRangeChannel.isSupported(new URL("ftp://localhost/data.raw")));
+        assertFalse(HttpRangeChannel.isSupported(new URL("file:/tmp/data.raw")));
+    }
+}
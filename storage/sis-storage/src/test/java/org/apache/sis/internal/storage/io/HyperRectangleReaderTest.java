@@ -38,7 +38,7 @@ import static org.junit.Assert.*;
  *
  * @author  Johann Sorel (Geomatys)
  * @author  Martin Desruisseaux (Geomatys)
- * @version 0.7
+ * @version 1.1
  * @since   0.7
  * @module
  */
@@ -147,7 +147,14 @@ public final strictfp class HyperRectangleReaderTest extends TestCase {
      * then compares against the expected values.
      */
     private void verifyRegionRead() throws IOException {
-        final short[] data = (short[]) reader.read(new Region(size, lower, upper, subsampling));
+        verifyRegionRead((short[]) reader.read(new Region(size, lower, upper, subsampling)));
+    }
+
+    /**
+     * Compares the given data against the expected values for the region defined by current {@link #lower},
+     * {@link #upper} and {@link #subsampling} values.
+     */
+    private void verifyRegionRead(final short[] data) {
         int p = 0;
         final int s3 = subsampling[3];
         final int s2 = subsampling[2];
@@ -205,6 +212,38 @@ public final strictfp class HyperRectangleReaderTest extends TestCase {
         verifyRegionRead();
     }
 
+    /**
+     * Tests reading a random part of the hyper-cube into a direct buffer supplied by the caller.
+     * A few values are reserved before and after the region for verifying that they are not overwritten.
+     *
+     * @throws IOException should never happen.
+     * @throws DataStoreException should never happen.
+     */
+    @Test
+    @DependsOnMethod("testRandom")
+    public void testReadInBuffer() throws IOException, DataStoreException {
+        initialize(TestUtilities.createRandomNumberGenerator(), true);
+        final Region region = new Region(size, lower, upper, subsampling);
+        final int length = region.targetLength(region.getDimension());
+        final ShortBuffer target = ByteBuffer.allocateDirect((length + 4) * Short.BYTES).asShortBuffer();
+        target.put(0, (short) -1).put(length + 3, (short) -1).position(2);
+        reader.read(region, target);
+        assertEquals("position", length + 2, target.position());
+        assertEquals("limit",    length + 4, target.limit());
+        assertEquals(-1, target.get(0));
+        assertEquals(-1, target.get(length + 3));
+        final short[] data = new short[length];
+        target.position(2);
+        target.get(data);
+        verifyRegionRead(data);
+        try {
+            reader.read(region, ByteBuffer.allocate(length * Short.BYTES));
+            fail("Shall not accept a buffer of the wrong type.");
+        } catch (IllegalArgumentException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
     /**
      * Tests reading data from an existing buffer, without channel.
      *
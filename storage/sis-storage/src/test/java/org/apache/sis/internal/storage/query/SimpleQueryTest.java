@@ -23,6 +23,7 @@ import org.apache.sis.feature.builder.FeatureTypeBuilder;
 import org.apache.sis.internal.storage.MemoryFeatureSet;
 import org.apache.sis.storage.DataStoreException;
 import org.apache.sis.storage.FeatureSet;
+import org.apache.sis.test.DependsOnMethod;
 import org.apache.sis.test.TestCase;
 import org.junit.Test;
 
@@ -37,7 +38,7 @@ import org.apache.sis.feature.DefaultFeatureType;
  * Tests {@link SimpleQuery} and (indirectly) {@link FeatureSubset}.
  *
  * @author  Johann Sorel (Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   1.0
  * @module
  */
@@ -126,4 +127,117 @@ public final strictfp class SimpleQueryTest extends TestCase {
         query.setOffset(2);
         verifyQueryResult(2, 3, 4);
     }
+
+    /**
+     * Verifies the effect of {@link SimpleQuery#addCondition(String, SimpleQuery.Comparison, Object)}.
+     * The literal is a {@link Long} while property values are {@link Integer}s, for testing the
+     * comparison of numbers of different types.
+     *
+     * @throws DataStoreException if an error occurred while executing the query.
+     *
+     * @since 1.1
+     */
+    @Test
+    public void testConditions() throws DataStoreException {
+        query.addCondition("value1", SimpleQuery.Comparison.GREATER_OR_EQUAL, 2L);
+        verifyQueryResult(0, 1, 2, 4);
+        query.addCondition("value2", SimpleQuery.Comparison.EQUAL, 1);
+        verifyQueryResult(0, 2, 4);
+        query.addCondition("value1", SimpleQuery.Comparison.NOT_EQUAL, 4);
+        verifyQueryResult(0, 2);
+    }
+
+    /**
+     * Verifies the effect of {@link SimpleQuery#setSortBy(SimpleQuery.SortKey...)}.
+     *
+     * @throws DataStoreException if an error occurred while executing the query.
+     *
+     * @since 1.1
+     */
+    @Test
+    public void testSortBy() throws DataStoreException {
+        query.setSortBy(new SimpleQuery.SortKey("value1", true));
+        verifyQueryResult(3, 1, 2, 0, 4);
+        query.setSortBy(new SimpleQuery.SortKey("value2", false),
+                        new SimpleQuery.SortKey("value1", true));
+        verifyQueryResult(1, 3, 2, 0, 4);
+    }
+
+    /**
+     * Verifies that sorting on a property containing null values and values of different kinds gives a total order.
+     * Null values shall be last in both ascending and descending orders, and values of different kinds shall be
+     * grouped (numbers before character sequences) instead of being considered equal to each others.
+     *
+     * @throws DataStoreException if an error occurred while executing the query.
+     *
+     * @since 1.1
+     */
+    @Test
+    @DependsOnMethod("testSortBy")
+    public void testSortByMixedValues() throws DataStoreException {
+        final FeatureTypeBuilder ftb = new FeatureTypeBuilder();
+        ftb.setName("Mixed");
+        ftb.addAttribute(Object.class).setName("value");
+        final DefaultFeatureType type = ftb.build();
+        final Object[] values = {"b", 3, null, 1.5, "a", null, 2L};
+        final AbstractFeature[] mixed = new AbstractFeature[values.length];
+        for (int i=0; i<values.length; i++) {
+            mixed[i] = type.newInstance();
+            if (values[i] != null) {
+                mixed[i].setPropertyValue("value", values[i]);
+            }
+        }
+        final FeatureSet fs = new MemoryFeatureSet(null, type, Arrays.asList(mixed));
+        query.setSortBy(new SimpleQuery.SortKey("value", true));
+        assertArrayEquals(new Object[] {1.5, 2L, 3, "a", "b", null, null}, sortedValues(fs));
+        query.setSortBy(new SimpleQuery.SortKey("value", false));
+        assertArrayEquals(new Object[] {3, 2L, 1.5, "b", "a", null, null}, sortedValues(fs));
+    }
+
+    /**
+     * Returns the values of the {@code "value"} property of the features selected by the query.
+     */
+    private Object[] sortedValues(final FeatureSet fs) throws DataStoreException {
+        return query.execute(fs).features(false).map((f) -> f.getPropertyValue("value")).toArray();
+    }
+
+    /**
+     * Verifies the effect of {@link SimpleQuery#setProjection(String...)}.
+     * The properties that are not in the projection shall be left to their default value,
+     * even if they have been used for evaluating a condition.
+     *
+     * @throws DataStoreException if an error occurred while executing the query.
+     *
+     * @since 1.1
+     */
+    @Test
+    @DependsOnMethod("testConditions")
+    public void testProjection() throws DataStoreException {
+        query.setProjection("value1");
+        query.addCondition("value2", SimpleQuery.Comparison.EQUAL, 2);
+        final List<AbstractFeature> result = query.execute(featureSet).features(false).collect(Collectors.toList());
+        assertEquals("size", 1, result.size());
+        final AbstractFeature feature = result.get(0);
+        assertEquals("value1", 2, feature.getPropertyValue("value1"));
+        assertNull  ("value2",    feature.getPropertyValue("value2"));
+    }
+
+    /**
+     * Verifies the combination of conditions, sorting, offset and limit.
+     * Offset and limit shall be applied after filtering and sorting.
+     *
+     * @throws DataStoreException if an error occurred while executing the query.
+     *
+     * @since 1.1
+     */
+    @Test
+    @DependsOnMethod({"testConditions", "testSortBy", "testLimit", "testOffset"})
+    public void testCombined() throws DataStoreException {
+        query.addCondition("value2", SimpleQuery.Comparison.LESS, 2);
+        query.setSortBy(new SimpleQuery.SortKey("value1", false));
+        query.setOffset(1);
+        query.setLimit(2);
+        verifyQueryResult(0, 2);
+        assertEquals("SELECT * WHERE value2 < 2 ORDER BY value1 DESC LIMIT 2 OFFSET 1", query.toString());
+    }
 }
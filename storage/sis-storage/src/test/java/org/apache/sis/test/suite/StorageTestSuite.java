@@ -25,7 +25,7 @@ import org.junit.BeforeClass;
  * All tests from the {@code sis-storage} module, in rough dependency order.
  *
  * @author  Martin Desruisseaux (Geomatys)
- * @version 1.0
+ * @version 1.1
  * @since   0.3
  * @module
  */
@@ -37,6 +37,8 @@ import org.junit.BeforeClass;
     org.apache.sis.internal.storage.io.ChannelImageInputStreamTest.class,
     org.apache.sis.internal.storage.io.ChannelImageOutputStreamTest.class,
     org.apache.sis.internal.storage.io.HyperRectangleReaderTest.class,
+    org.apache.sis.internal.storage.io.CoalescingReaderTest.class,
+    org.apache.sis.internal.storage.io.HttpRangeChannelTest.class,
     org.apache.sis.internal.storage.io.RewindableLineReaderTest.class,
     org.apache.sis.internal.storage.MetadataBuilderTest.class,
     org.apache.sis.internal.storage.AbstractGridResourceTest.class,
@@ -45,6 +47,7 @@ import org.junit.BeforeClass;
     org.apache.sis.storage.StorageConnectorTest.class,
     org.apache.sis.storage.event.StoreListenersTest.class,
     org.apache.sis.internal.storage.query.SimpleQueryTest.class,
+    org.apache.sis.index.tree.PackedRTreeTest.class,
     org.apache.sis.internal.storage.xml.MimeTypeDetectorTest.class,
     org.apache.sis.internal.storage.xml.StoreProviderTest.class,
     org.apache.sis.internal.storage.xml.StoreTest.class,